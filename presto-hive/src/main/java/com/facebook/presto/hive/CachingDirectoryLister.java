@@ -0,0 +1,228 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive;
+
+import com.facebook.presto.hive.metastore.Table;
+import com.facebook.presto.spi.SchemaTableName;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.Duration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Remembers the directory listings of the configured tables, so partitions that
+ * are read over and over are not listed again for every query. Listings are
+ * dropped after a fixed time, and when Presto writes to the directory.
+ */
+public class CachingDirectoryLister
+        implements DirectoryLister
+{
+    private final DirectoryLister delegate;
+    private final Cache<Path, List<LocatedFileStatus>> cache;
+    private final Set<SchemaTableName> cachedTables;
+    private final boolean cacheAllTables;
+    @GuardedBy("this")
+    private long invalidations;
+
+    @Inject
+    public CachingDirectoryLister(HiveClientConfig hiveClientConfig)
+    {
+        this(
+                new HadoopDirectoryLister(),
+                hiveClientConfig.getFileStatusCacheExpireAfterWrite(),
+                hiveClientConfig.getFileStatusCacheMaxSize(),
+                hiveClientConfig.getFileStatusCacheTables());
+    }
+
+    public CachingDirectoryLister(DirectoryLister delegate, Duration expireAfterWrite, long maxFileStatuses, List<String> tables)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxFileStatuses)
+                .weigher((Path path, List<LocatedFileStatus> files) -> files.size())
+                .expireAfterWrite(expireAfterWrite.toMillis(), MILLISECONDS)
+                .recordStats()
+                .build();
+        requireNonNull(tables, "tables is null");
+        this.cacheAllTables = tables.contains("*");
+        this.cachedTables = tables.stream()
+                .filter(table -> !table.equals("*"))
+                .map(CachingDirectoryLister::parseTableName)
+                .collect(toImmutableSet());
+    }
+
+    private static SchemaTableName parseTableName(String table)
+    {
+        List<String> parts = Splitter.on('.').splitToList(table);
+        checkArgument(parts.size() == 2 && !parts.get(0).isEmpty() && !parts.get(1).isEmpty(), "Invalid table name in hive.file-status-cache-tables: %s", table);
+        return new SchemaTableName(parts.get(0), parts.get(1));
+    }
+
+    @Override
+    public RemoteIterator<LocatedFileStatus> list(FileSystem fs, Table table, Path path)
+            throws IOException
+    {
+        if (!isCached(table)) {
+            return delegate.list(fs, table, path);
+        }
+
+        List<LocatedFileStatus> files = cache.getIfPresent(path);
+        if (files != null) {
+            return simpleRemoteIterator(files);
+        }
+        return cachingRemoteIterator(delegate.list(fs, table, path), path);
+    }
+
+    @Override
+    public synchronized void invalidate(Path path)
+    {
+        invalidations++;
+        String prefix = path.toString() + Path.SEPARATOR;
+        cache.invalidateAll(cache.asMap().keySet().stream()
+                .filter(cachedPath -> cachedPath.equals(path) || cachedPath.toString().startsWith(prefix))
+                .collect(toImmutableSet()));
+    }
+
+    private boolean isCached(Table table)
+    {
+        return cacheAllTables || cachedTables.contains(new SchemaTableName(table.getDatabaseName(), table.getTableName()));
+    }
+
+    private RemoteIterator<LocatedFileStatus> cachingRemoteIterator(RemoteIterator<LocatedFileStatus> iterator, Path path)
+    {
+        // a listing that overlaps with a write may miss its files
+        long invalidationsAtStart = getInvalidations();
+        return new RemoteIterator<LocatedFileStatus>()
+        {
+            private final ImmutableList.Builder<LocatedFileStatus> files = ImmutableList.builder();
+            private boolean cached;
+
+            @Override
+            public boolean hasNext()
+                    throws IOException
+            {
+                boolean hasNext = iterator.hasNext();
+                if (!hasNext && !cached) {
+                    // only complete listings are cached
+                    putIfNotInvalidated(path, files.build(), invalidationsAtStart);
+                    cached = true;
+                }
+                return hasNext;
+            }
+
+            @Override
+            public LocatedFileStatus next()
+                    throws IOException
+            {
+                LocatedFileStatus status = iterator.next();
+                files.add(status);
+                return status;
+            }
+        };
+    }
+
+    private synchronized long getInvalidations()
+    {
+        return invalidations;
+    }
+
+    private synchronized void putIfNotInvalidated(Path path, List<LocatedFileStatus> files, long invalidationsAtStart)
+    {
+        // checked under the same lock as invalidate, so an invalidation can not slip in between the check and the put
+        if (invalidations == invalidationsAtStart) {
+            cache.put(path, files);
+        }
+    }
+
+    private static RemoteIterator<LocatedFileStatus> simpleRemoteIterator(List<LocatedFileStatus> files)
+    {
+        return new RemoteIterator<LocatedFileStatus>()
+        {
+            private final Iterator<LocatedFileStatus> iterator = files.iterator();
+
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public LocatedFileStatus next()
+            {
+                return iterator.next();
+            }
+        };
+    }
+
+    @Managed
+    public void flushCache()
+    {
+        cache.invalidateAll();
+    }
+
+    @Managed
+    public Double getHitRate()
+    {
+        return cache.stats().hitRate();
+    }
+
+    @Managed
+    public Double getMissRate()
+    {
+        return cache.stats().missRate();
+    }
+
+    @Managed
+    public long getHitCount()
+    {
+        return cache.stats().hitCount();
+    }
+
+    @Managed
+    public long getMissCount()
+    {
+        return cache.stats().missCount();
+    }
+
+    @Managed
+    public long getRequestCount()
+    {
+        return cache.stats().requestCount();
+    }
+
+    @Managed
+    public long getCachedDirectories()
+    {
+        return cache.size();
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive;
+
+import com.facebook.presto.orc.OrcFileMetadataSource;
+import com.facebook.presto.orc.OrcFileTail;
+import com.facebook.presto.orc.StreamId;
+import com.facebook.presto.orc.metadata.RowGroupIndex;
+import com.facebook.presto.orc.metadata.StripeFooter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.airlift.units.DataSize;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.openjdk.jol.info.ClassLayout;
+import org.weakref.jmx.Managed;
+
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.ToLongFunction;
+
+import static com.facebook.presto.hive.HiveUtil.isFileVersionKnown;
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Parsed ORC and Parquet metadata shared by the splits a worker reads from the same
+ * file. Files are identified by path, length and modification time, so a rewritten
+ * file is never served the metadata of its previous version. The cache is bounded by
+ * the estimated retained size of the parsed objects.
+ */
+public class FileMetadataCache
+{
+    private static final int CACHE_KEY_INSTANCE_SIZE = ClassLayout.parseClass(CacheKey.class).instanceSize();
+    private static final int PARQUET_METADATA_INSTANCE_SIZE = ClassLayout.parseClass(ParquetMetadata.class).instanceSize();
+    private static final int BLOCK_METADATA_INSTANCE_SIZE = ClassLayout.parseClass(BlockMetaData.class).instanceSize();
+    private static final int COLUMN_CHUNK_METADATA_INSTANCE_SIZE = ClassLayout.parseClass(ColumnChunkMetaData.class).instanceSize();
+
+    private final boolean enabled;
+    private final Cache<CacheKey, CachedMetadata> cache;
+
+    @Inject
+    public FileMetadataCache(HiveClientConfig hiveClientConfig)
+    {
+        this(hiveClientConfig.isFileMetadataCacheEnabled() ? hiveClientConfig.getFileMetadataCacheMaxSize() : new DataSize(0, BYTE));
+    }
+
+    public FileMetadataCache(DataSize maxSize)
+    {
+        requireNonNull(maxSize, "maxSize is null");
+        this.enabled = maxSize.toBytes() > 0;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((CacheKey key, CachedMetadata metadata) -> toIntExact(min(CACHE_KEY_INSTANCE_SIZE + metadata.getRetainedSizeInBytes(), Integer.MAX_VALUE)))
+                .recordStats()
+                .build();
+    }
+
+    public OrcFileMetadataSource getOrcFileMetadataSource(Path path, long fileSize, long fileModifiedTime)
+    {
+        if (!isCacheable(fileModifiedTime)) {
+            return OrcFileMetadataSource.UNCACHED;
+        }
+        return new OrcFileMetadataSource()
+        {
+            @Override
+            public OrcFileTail getFileTail(MetadataLoader<OrcFileTail> loader)
+                    throws IOException
+            {
+                CacheKey key = new CacheKey(path, fileSize, fileModifiedTime, MetadataType.ORC_FILE_TAIL, 0, Optional.empty());
+                return get(key, loader::load, OrcFileTail::getRetainedSizeInBytes);
+            }
+
+            @Override
+            public StripeFooter getStripeFooter(long stripeOffset, MetadataLoader<StripeFooter> loader)
+                    throws IOException
+            {
+                CacheKey key = new CacheKey(path, fileSize, fileModifiedTime, MetadataType.ORC_STRIPE_FOOTER, stripeOffset, Optional.empty());
+                return get(key, loader::load, StripeFooter::getRetainedSizeInBytes);
+            }
+
+            @Override
+            public List<RowGroupIndex> getRowIndexes(long stripeOffset, StreamId streamId, MetadataLoader<List<RowGroupIndex>> loader)
+                    throws IOException
+            {
+                CacheKey key = new CacheKey(path, fileSize, fileModifiedTime, MetadataType.ORC_ROW_INDEX, stripeOffset, Optional.of(streamId));
+                return get(key, loader::load, FileMetadataCache::getRetainedSizeInBytes);
+            }
+        };
+    }
+
+    public ParquetMetadata getParquetMetadata(Path path, long fileSize, long fileModifiedTime, Callable<ParquetMetadata> loader)
+            throws IOException
+    {
+        if (!isCacheable(fileModifiedTime)) {
+            return load(loader);
+        }
+        CacheKey key = new CacheKey(path, fileSize, fileModifiedTime, MetadataType.PARQUET_FOOTER, 0, Optional.empty());
+        return get(key, loader, FileMetadataCache::getRetainedSizeInBytes);
+    }
+
+    private boolean isCacheable(long fileModifiedTime)
+    {
+        return enabled && isFileVersionKnown(fileModifiedTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(CacheKey key, Callable<T> loader, ToLongFunction<T> retainedSize)
+            throws IOException
+    {
+        try {
+            return (T) cache.get(key, () -> {
+                T metadata = loader.call();
+                return new CachedMetadata(metadata, retainedSize.applyAsLong(metadata));
+            }).getMetadata();
+        }
+        catch (ExecutionException | UncheckedExecutionException e) {
+            throwIfInstanceOf(e.getCause(), IOException.class);
+            throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static <T> T load(Callable<T> loader)
+            throws IOException
+    {
+        try {
+            return loader.call();
+        }
+        catch (Exception e) {
+            throwIfInstanceOf(e, IOException.class);
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long getRetainedSizeInBytes(List<RowGroupIndex> rowGroupIndexes)
+    {
+        return rowGroupIndexes.stream()
+                .mapToLong(RowGroupIndex::getRetainedSizeInBytes)
+                .sum();
+    }
+
+    private static long getRetainedSizeInBytes(ParquetMetadata parquetMetadata)
+    {
+        long retainedSizeInBytes = PARQUET_METADATA_INSTANCE_SIZE;
+        for (BlockMetaData block : parquetMetadata.getBlocks()) {
+            retainedSizeInBytes += BLOCK_METADATA_INSTANCE_SIZE;
+            for (ColumnChunkMetaData column : block.getColumns()) {
+                retainedSizeInBytes += COLUMN_CHUNK_METADATA_INSTANCE_SIZE;
+                Statistics<?> statistics = column.getStatistics();
+                if (statistics != null && statistics.hasNonNullValue()) {
+                    retainedSizeInBytes += statistics.getMinBytes().length + statistics.getMaxBytes().length;
+                }
+            }
+        }
+        return retainedSizeInBytes;
+    }
+
+    @Managed
+    public void flushCache()
+    {
+        cache.invalidateAll();
+    }
+
+    @Managed
+    public Double getHitRate()
+    {
+        return cache.stats().hitRate();
+    }
+
+    @Managed
+    public Double getMissRate()
+    {
+        return cache.stats().missRate();
+    }
+
+    @Managed
+    public long getHitCount()
+    {
+        return cache.stats().hitCount();
+    }
+
+    @Managed
+    public long getMissCount()
+    {
+        return cache.stats().missCount();
+    }
+
+    @Managed
+    public long getRequestCount()
+    {
+        return cache.stats().requestCount();
+    }
+
+    @Managed
+    public long getEvictionCount()
+    {
+        return cache.stats().evictionCount();
+    }
+
+    @Managed
+    public long getCachedEntries()
+    {
+        return cache.size();
+    }
+
+    private enum MetadataType
+    {
+        ORC_FILE_TAIL,
+        ORC_STRIPE_FOOTER,
+        ORC_ROW_INDEX,
+        PARQUET_FOOTER,
+    }
+
+    private static final class CacheKey
+    {
+        private final Path path;
+        private final long fileSize;
+        private final long fileModifiedTime;
+        private final MetadataType type;
+        private final long offset;
+        private final Optional<StreamId> streamId;
+
+        public CacheKey(Path path, long fileSize, long fileModifiedTime, MetadataType type, long offset, Optional<StreamId> streamId)
+        {
+            this.path = requireNonNull(path, "path is null");
+            this.fileSize = fileSize;
+            this.fileModifiedTime = fileModifiedTime;
+            this.type = requireNonNull(type, "type is null");
+            this.offset = offset;
+            this.streamId = requireNonNull(streamId, "streamId is null");
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return fileSize == that.fileSize &&
+                    fileModifiedTime == that.fileModifiedTime &&
+                    offset == that.offset &&
+                    type == that.type &&
+                    Objects.equals(path, that.path) &&
+                    Objects.equals(streamId, that.streamId);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(path, fileSize, fileModifiedTime, type, offset, streamId);
+        }
+    }
+
+    private static final class CachedMetadata
+    {
+        private final Object metadata;
+        private final long retainedSizeInBytes;
+
+        public CachedMetadata(Object metadata, long retainedSizeInBytes)
+        {
+            this.metadata = requireNonNull(metadata, "metadata is null");
+            this.retainedSizeInBytes = retainedSizeInBytes;
+        }
+
+        public Object getMetadata()
+        {
+            return metadata;
+        }
+
+        public long getRetainedSizeInBytes()
+        {
+            return retainedSizeInBytes;
+        }
+    }
+}
@@ -17,9 +17,12 @@ import com.facebook.presto.hadoop.HadoopFileSystemCache;
 import com.facebook.presto.hadoop.HadoopNative;
 import com.facebook.presto.hive.authentication.GenericExceptionAction;
 import com.facebook.presto.hive.authentication.HdfsAuthentication;
+import com.facebook.presto.hive.cache.LocalDataCache;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.security.ConnectorIdentity;
+import io.airlift.units.DataSize;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 
@@ -27,7 +30,9 @@ import javax.inject.Inject;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
+import static com.facebook.presto.hive.HiveUtil.isFileVersionKnown;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static java.util.Objects.requireNonNull;
 
@@ -41,16 +46,47 @@ public class HdfsEnvironment
     private final HdfsConfiguration hdfsConfiguration;
     private final HdfsAuthentication hdfsAuthentication;
     private final boolean verifyChecksum;
+    private final Optional<LocalDataCache> localDataCache;
+    private final Optional<Executor> rangeReadExecutor;
+    private final DataSize maxConcurrentRangeReadSize;
 
-    @Inject
     public HdfsEnvironment(
             HdfsConfiguration hdfsConfiguration,
             HiveClientConfig config,
             HdfsAuthentication hdfsAuthentication)
+    {
+        this(hdfsConfiguration, config, hdfsAuthentication, Optional.empty(), Optional.empty());
+    }
+
+    @Inject
+    public HdfsEnvironment(
+            HdfsConfiguration hdfsConfiguration,
+            HiveClientConfig config,
+            HdfsAuthentication hdfsAuthentication,
+            LocalDataCache localDataCache,
+            @ForRangeReads Executor rangeReadExecutor)
+    {
+        this(
+                hdfsConfiguration,
+                config,
+                hdfsAuthentication,
+                Optional.of(localDataCache).filter(LocalDataCache::isEnabled),
+                Optional.of(rangeReadExecutor).filter(executor -> config.isConcurrentRangeReadsEnabled()));
+    }
+
+    public HdfsEnvironment(
+            HdfsConfiguration hdfsConfiguration,
+            HiveClientConfig config,
+            HdfsAuthentication hdfsAuthentication,
+            Optional<LocalDataCache> localDataCache,
+            Optional<Executor> rangeReadExecutor)
     {
         this.hdfsConfiguration = requireNonNull(hdfsConfiguration, "hdfsConfiguration is null");
         this.verifyChecksum = requireNonNull(config, "config is null").isVerifyChecksum();
         this.hdfsAuthentication = requireNonNull(hdfsAuthentication, "hdfsAuthentication is null");
+        this.localDataCache = requireNonNull(localDataCache, "localDataCache is null");
+        this.rangeReadExecutor = requireNonNull(rangeReadExecutor, "rangeReadExecutor is null");
+        this.maxConcurrentRangeReadSize = config.getMaxConcurrentRangeReadSize();
     }
 
     public Configuration getConfiguration(HdfsContext context, Path path)
@@ -74,6 +110,33 @@ public class HdfsEnvironment
         });
     }
 
+    /**
+     * Opens a data file for reading. When the local data cache is enabled, reads go
+     * through the cache, and the file is only opened on the file system on a miss.
+     */
+    public FSDataInputStream openFile(FileSystem fileSystem, Path path, long fileSize, long fileModifiedTime)
+            throws IOException
+    {
+        if (!localDataCache.isPresent() || !isFileVersionKnown(fileModifiedTime)) {
+            return fileSystem.open(path);
+        }
+        return localDataCache.get().openFile(path, fileSize, fileModifiedTime, () -> fileSystem.open(path));
+    }
+
+    /**
+     * Returns the executor that ORC and Parquet readers use to read the column data of a
+     * stripe or row group with concurrent requests, if that is enabled.
+     */
+    public Optional<Executor> getRangeReadExecutor()
+    {
+        return rangeReadExecutor;
+    }
+
+    public DataSize getMaxConcurrentRangeReadSize()
+    {
+        return maxConcurrentRangeReadSize;
+    }
+
     public <R, E extends Exception> R doAs(String user, GenericExceptionAction<R, E> action)
             throws E
     {
@@ -18,6 +18,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
 
 import java.util.List;
+import java.util.Objects;
 
 import static com.facebook.presto.hive.HiveColumnHandle.pathColumnHandle;
 import static com.google.common.base.Preconditions.checkState;
@@ -78,6 +79,27 @@ public class HiveBucketHandle
                 ImmutableList.of());
     }
 
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        HiveBucketHandle that = (HiveBucketHandle) o;
+        return tableBucketCount == that.tableBucketCount &&
+                readBucketCount == that.readBucketCount &&
+                Objects.equals(columns, that.columns);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(columns, tableBucketCount, readBucketCount);
+    }
+
     public static HiveBucketHandle createVirtualBucketHandle(int virtualBucketCount)
     {
         return new HiveBucketHandle(ImmutableList.of(pathColumnHandle()), virtualBucketCount, virtualBucketCount);
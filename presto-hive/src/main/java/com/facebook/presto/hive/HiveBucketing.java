@@ -40,6 +40,7 @@ import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
@@ -381,5 +382,24 @@ final class HiveBucketing
         {
             return bucketsToKeep;
         }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            HiveBucketFilter that = (HiveBucketFilter) o;
+            return Objects.equals(bucketsToKeep, that.bucketsToKeep);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(bucketsToKeep);
+        }
     }
 }
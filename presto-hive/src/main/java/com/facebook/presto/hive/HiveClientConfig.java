@@ -16,6 +16,7 @@ package com.facebook.presto.hive;
 import com.facebook.presto.hive.s3.S3FileSystemType;
 import com.facebook.presto.orc.OrcWriteValidation.OrcWriteValidationMode;
 import com.google.common.base.Splitter;
+import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.ImmutableList;
 import com.google.common.net.HostAndPort;
 import io.airlift.configuration.Config;
@@ -35,11 +36,13 @@ import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import java.io.File;
 import java.util.List;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
 import static com.facebook.presto.hive.HiveStorageFormat.ORC;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.util.concurrent.TimeUnit.MINUTES;
 
@@ -162,6 +165,22 @@ public class HiveClientConfig
 
     private boolean pushdownFilterEnabled;
 
+    private List<String> fileStatusCacheTables = ImmutableList.of();
+    private Duration fileStatusCacheExpireAfterWrite = new Duration(1, MINUTES);
+    private long fileStatusCacheMaxSize = 1000 * 1000;
+
+    private boolean fileMetadataCacheEnabled;
+    private DataSize fileMetadataCacheMaxSize = new DataSize(100, MEGABYTE);
+
+    private boolean localDataCacheEnabled;
+    private File localDataCacheDirectory = new File(StandardSystemProperty.JAVA_IO_TMPDIR.value(), "presto-hive-cache");
+    private DataSize localDataCacheMaxSize = new DataSize(10, GIGABYTE);
+    private DataSize localDataCachePageSize = new DataSize(1, MEGABYTE);
+
+    private boolean concurrentRangeReadsEnabled;
+    private int maxConcurrentRangeReads = 32;
+    private DataSize maxConcurrentRangeReadSize = new DataSize(64, MEGABYTE);
+
     public int getMaxInitialSplits()
     {
         return maxInitialSplits;
@@ -1337,4 +1356,171 @@ public class HiveClientConfig
         this.pushdownFilterEnabled = pushdownFilterEnabled;
         return this;
     }
+
+    @NotNull
+    public List<String> getFileStatusCacheTables()
+    {
+        return fileStatusCacheTables;
+    }
+
+    @Config("hive.file-status-cache-tables")
+    @ConfigDescription("Comma separated list of tables (schema.table, or * for all tables) whose directory listings are cached")
+    public HiveClientConfig setFileStatusCacheTables(String fileStatusCacheTables)
+    {
+        this.fileStatusCacheTables = Splitter.on(',').trimResults().omitEmptyStrings().splitToList(fileStatusCacheTables);
+        return this;
+    }
+
+    @NotNull
+    public Duration getFileStatusCacheExpireAfterWrite()
+    {
+        return fileStatusCacheExpireAfterWrite;
+    }
+
+    @MinDuration("0ms")
+    @Config("hive.file-status-cache-expire-time")
+    public HiveClientConfig setFileStatusCacheExpireAfterWrite(Duration fileStatusCacheExpireAfterWrite)
+    {
+        this.fileStatusCacheExpireAfterWrite = fileStatusCacheExpireAfterWrite;
+        return this;
+    }
+
+    @Min(0)
+    public long getFileStatusCacheMaxSize()
+    {
+        return fileStatusCacheMaxSize;
+    }
+
+    @Config("hive.file-status-cache-size")
+    @ConfigDescription("Maximum number of file statuses in cached directory listings")
+    public HiveClientConfig setFileStatusCacheMaxSize(long fileStatusCacheMaxSize)
+    {
+        this.fileStatusCacheMaxSize = fileStatusCacheMaxSize;
+        return this;
+    }
+
+    public boolean isFileMetadataCacheEnabled()
+    {
+        return fileMetadataCacheEnabled;
+    }
+
+    @Config("hive.file-metadata-cache-enabled")
+    @ConfigDescription("Cache parsed ORC and Parquet footers and ORC stripe metadata on each worker")
+    public HiveClientConfig setFileMetadataCacheEnabled(boolean fileMetadataCacheEnabled)
+    {
+        this.fileMetadataCacheEnabled = fileMetadataCacheEnabled;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getFileMetadataCacheMaxSize()
+    {
+        return fileMetadataCacheMaxSize;
+    }
+
+    @Config("hive.file-metadata-cache-size")
+    @ConfigDescription("Maximum estimated memory used by cached file metadata on each worker")
+    public HiveClientConfig setFileMetadataCacheMaxSize(DataSize fileMetadataCacheMaxSize)
+    {
+        this.fileMetadataCacheMaxSize = fileMetadataCacheMaxSize;
+        return this;
+    }
+
+    public boolean isLocalDataCacheEnabled()
+    {
+        return localDataCacheEnabled;
+    }
+
+    @Config("hive.local-data-cache.enabled")
+    @ConfigDescription("Keep a copy of the file data read by each worker on its local disk")
+    public HiveClientConfig setLocalDataCacheEnabled(boolean localDataCacheEnabled)
+    {
+        this.localDataCacheEnabled = localDataCacheEnabled;
+        return this;
+    }
+
+    @NotNull
+    public File getLocalDataCacheDirectory()
+    {
+        return localDataCacheDirectory;
+    }
+
+    @Config("hive.local-data-cache.directory")
+    @ConfigDescription("Local directory, ideally on an SSD, where cached file data is stored")
+    public HiveClientConfig setLocalDataCacheDirectory(File localDataCacheDirectory)
+    {
+        this.localDataCacheDirectory = localDataCacheDirectory;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getLocalDataCacheMaxSize()
+    {
+        return localDataCacheMaxSize;
+    }
+
+    @Config("hive.local-data-cache.max-size")
+    @ConfigDescription("Maximum size of the cached file data on each worker")
+    public HiveClientConfig setLocalDataCacheMaxSize(DataSize localDataCacheMaxSize)
+    {
+        this.localDataCacheMaxSize = localDataCacheMaxSize;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("4kB")
+    @MaxDataSize("64MB")
+    public DataSize getLocalDataCachePageSize()
+    {
+        return localDataCachePageSize;
+    }
+
+    @Config("hive.local-data-cache.page-size")
+    @ConfigDescription("Size of the file pages stored in the local data cache")
+    public HiveClientConfig setLocalDataCachePageSize(DataSize localDataCachePageSize)
+    {
+        this.localDataCachePageSize = localDataCachePageSize;
+        return this;
+    }
+
+    public boolean isConcurrentRangeReadsEnabled()
+    {
+        return concurrentRangeReadsEnabled;
+    }
+
+    @Config("hive.concurrent-range-reads.enabled")
+    @ConfigDescription("Read the column data of each ORC stripe or Parquet row group with concurrent requests")
+    public HiveClientConfig setConcurrentRangeReadsEnabled(boolean concurrentRangeReadsEnabled)
+    {
+        this.concurrentRangeReadsEnabled = concurrentRangeReadsEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxConcurrentRangeReads()
+    {
+        return maxConcurrentRangeReads;
+    }
+
+    @Config("hive.concurrent-range-reads.max-threads")
+    @ConfigDescription("Maximum number of concurrent range reads on each worker")
+    public HiveClientConfig setMaxConcurrentRangeReads(int maxConcurrentRangeReads)
+    {
+        this.maxConcurrentRangeReads = maxConcurrentRangeReads;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxConcurrentRangeReadSize()
+    {
+        return maxConcurrentRangeReadSize;
+    }
+
+    @Config("hive.concurrent-range-reads.max-size")
+    @ConfigDescription("Maximum size of the concurrent range reads in flight for each file reader")
+    public HiveClientConfig setMaxConcurrentRangeReadSize(DataSize maxConcurrentRangeReadSize)
+    {
+        this.maxConcurrentRangeReadSize = maxConcurrentRangeReadSize;
+        return this;
+    }
 }
@@ -57,6 +57,7 @@ public class HiveMetadataFactory
     private final StagingFileCommitter stagingFileCommitter;
     private final ZeroRowFileCreator zeroRowFileCreator;
     private final String prestoVersion;
+    private final DirectoryLister directoryLister;
 
     @Inject
     @SuppressWarnings("deprecation")
@@ -75,7 +76,8 @@ public class HiveMetadataFactory
             TypeTranslator typeTranslator,
             StagingFileCommitter stagingFileCommitter,
             ZeroRowFileCreator zeroRowFileCreator,
-            NodeVersion nodeVersion)
+            NodeVersion nodeVersion,
+            DirectoryLister directoryLister)
     {
         this(
                 metastore,
@@ -98,7 +100,8 @@ public class HiveMetadataFactory
                 typeTranslator,
                 stagingFileCommitter,
                 zeroRowFileCreator,
-                nodeVersion.toString());
+                nodeVersion.toString(),
+                directoryLister);
     }
 
     public HiveMetadataFactory(
@@ -122,7 +125,8 @@ public class HiveMetadataFactory
             TypeTranslator typeTranslator,
             StagingFileCommitter stagingFileCommitter,
             ZeroRowFileCreator zeroRowFileCreator,
-            String prestoVersion)
+            String prestoVersion,
+            DirectoryLister directoryLister)
     {
         this.allowCorruptWritesForTesting = allowCorruptWritesForTesting;
         this.skipDeletionForAlter = skipDeletionForAlter;
@@ -146,6 +150,7 @@ public class HiveMetadataFactory
         this.stagingFileCommitter = requireNonNull(stagingFileCommitter, "stagingFileCommitter is null");
         this.zeroRowFileCreator = requireNonNull(zeroRowFileCreator, "zeroRowFileCreator is null");
         this.prestoVersion = requireNonNull(prestoVersion, "prestoVersion is null");
+        this.directoryLister = requireNonNull(directoryLister, "directoryLister is null");
 
         if (!allowCorruptWritesForTesting && !timeZone.equals(DateTimeZone.getDefault())) {
             log.warn("Hive writes are disabled. " +
@@ -163,7 +168,8 @@ public class HiveMetadataFactory
                 CachingHiveMetastore.memoizeMetastore(this.metastore, perTransactionCacheMaximumSize), // per-transaction cache
                 fileRenameExecutor,
                 skipDeletionForAlter,
-                skipTargetCleanupOnRollback);
+                skipTargetCleanupOnRollback,
+                directoryLister);
 
         return new HiveMetadata(
                 metastore,
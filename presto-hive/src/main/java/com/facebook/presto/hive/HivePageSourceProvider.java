@@ -19,11 +19,14 @@ import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.ConnectorSplit;
+import com.facebook.presto.spi.FixedPageSource;
 import com.facebook.presto.spi.RecordCursor;
 import com.facebook.presto.spi.RecordPageSource;
 import com.facebook.presto.spi.Subfield;
 import com.facebook.presto.spi.connector.ConnectorPageSourceProvider;
 import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.NullableValue;
 import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.relation.RowExpression;
 import com.facebook.presto.spi.relation.RowExpressionService;
@@ -51,6 +54,7 @@ import static com.facebook.presto.hive.HiveColumnHandle.ColumnType.SYNTHESIZED;
 import static com.facebook.presto.hive.HivePageSourceProvider.ColumnMapping.toColumnHandles;
 import static com.facebook.presto.hive.HiveSessionProperties.isPushdownFilterEnabled;
 import static com.facebook.presto.hive.HiveUtil.getPrefilledColumnValue;
+import static com.facebook.presto.hive.HiveUtil.parsePartitionValue;
 import static com.facebook.presto.spi.relation.ExpressionOptimizer.Level.MOST_OPTIMIZED;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -94,6 +98,17 @@ public class HivePageSourceProvider
 
     @Override
     public ConnectorPageSource createPageSource(ConnectorTransactionHandle transaction, ConnectorSession session, ConnectorSplit split, List<ColumnHandle> columns)
+    {
+        return createPageSource(transaction, session, split, columns, TupleDomain.all());
+    }
+
+    @Override
+    public ConnectorPageSource createPageSource(
+            ConnectorTransactionHandle transaction,
+            ConnectorSession session,
+            ConnectorSplit split,
+            List<ColumnHandle> columns,
+            TupleDomain<ColumnHandle> dynamicFilter)
     {
         List<HiveColumnHandle> hiveColumns = columns.stream()
                 .map(HiveColumnHandle.class::cast)
@@ -102,10 +117,30 @@ public class HivePageSourceProvider
         HiveSplit hiveSplit = (HiveSplit) split;
         Path path = new Path(hiveSplit.getPath());
 
+        TupleDomain<HiveColumnHandle> dynamicFilterPredicate = dynamicFilter.transform(HiveColumnHandle.class::cast);
+        if (!partitionMatches(hiveSplit, dynamicFilterPredicate)) {
+            return new FixedPageSource(ImmutableList.of());
+        }
+        // partition keys are checked above, synthesized columns have no values to prune with
+        TupleDomain<HiveColumnHandle> regularColumnsDynamicFilter = dynamicFilterPredicate.transform(column -> column.getColumnType() == REGULAR ? column : null);
+
         Configuration configuration = hdfsEnvironment.getConfiguration(new HdfsContext(session, hiveSplit.getDatabase(), hiveSplit.getTable()), path);
 
         if (isPushdownFilterEnabled(session)) {
-            return createSelectivePageSource(selectivePageSourceFactories, configuration, session, hiveSplit, hiveColumns, hiveStorageTimeZone, rowExpressionService);
+            TupleDomain<Subfield> domainPredicate = hiveSplit.getDomainPredicate()
+                    .intersect(regularColumnsDynamicFilter.transform(column -> new Subfield(column.getName())));
+            if (domainPredicate.isNone()) {
+                return new FixedPageSource(ImmutableList.of());
+            }
+            return createSelectivePageSource(selectivePageSourceFactories, configuration, session, hiveSplit, hiveColumns, domainPredicate, hiveStorageTimeZone, rowExpressionService);
+        }
+
+        TupleDomain<HiveColumnHandle> effectivePredicate = hiveSplit.getDomainPredicate()
+                .transform(Subfield::getRootName)
+                .transform(hiveSplit.getPredicateColumns()::get)
+                .intersect(regularColumnsDynamicFilter);
+        if (effectivePredicate.isNone()) {
+            return new FixedPageSource(ImmutableList.of());
         }
 
         Optional<ConnectorPageSource> pageSource = createHivePageSource(
@@ -118,10 +153,9 @@ public class HivePageSourceProvider
                 hiveSplit.getStart(),
                 hiveSplit.getLength(),
                 hiveSplit.getFileSize(),
+                hiveSplit.getFileModifiedTime(),
                 hiveSplit.getSchema(),
-                hiveSplit.getDomainPredicate()
-                        .transform(Subfield::getRootName)
-                        .transform(hiveSplit.getPredicateColumns()::get),
+                effectivePredicate,
                 hiveColumns,
                 hiveSplit.getPartitionKeys(),
                 hiveStorageTimeZone,
@@ -135,12 +169,35 @@ public class HivePageSourceProvider
         throw new IllegalStateException("Could not find a file reader for split " + hiveSplit);
     }
 
+    private boolean partitionMatches(HiveSplit split, TupleDomain<HiveColumnHandle> predicate)
+    {
+        if (predicate.isNone()) {
+            return false;
+        }
+        Map<HiveColumnHandle, Domain> domains = predicate.getDomains().get();
+        for (HivePartitionKey partitionKey : split.getPartitionKeys()) {
+            for (Map.Entry<HiveColumnHandle, Domain> entry : domains.entrySet()) {
+                HiveColumnHandle column = entry.getKey();
+                if (column.getColumnType() != PARTITION_KEY || !column.getName().equals(partitionKey.getName())) {
+                    continue;
+                }
+                Type type = typeManager.getType(column.getTypeSignature());
+                NullableValue value = parsePartitionValue(split.getPartitionName(), partitionKey.getValue(), type, hiveStorageTimeZone);
+                if (!entry.getValue().includesNullableValue(value.getValue())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     private static ConnectorPageSource createSelectivePageSource(
             Set<HiveSelectivePageSourceFactory> selectivePageSourceFactories,
             Configuration configuration,
             ConnectorSession session,
             HiveSplit split,
             List<HiveColumnHandle> columns,
+            TupleDomain<Subfield> domainPredicate,
             DateTimeZone hiveStorageTimeZone,
             RowExpressionService rowExpressionService)
     {
@@ -184,11 +241,12 @@ public class HivePageSourceProvider
                     split.getStart(),
                     split.getLength(),
                     split.getFileSize(),
+                    split.getFileModifiedTime(),
                     split.getSchema(),
                     toColumnHandles(columnMappings, true),
                     prefilledValues,
                     outputColumns,
-                    split.getDomainPredicate(),
+                    domainPredicate,
                     optimizedRemainingPredicate,
                     hiveStorageTimeZone);
             if (pageSource.isPresent()) {
@@ -209,6 +267,7 @@ public class HivePageSourceProvider
             long start,
             long length,
             long fileSize,
+            long fileModifiedTime,
             Properties schema,
             TupleDomain<HiveColumnHandle> effectivePredicate,
             List<HiveColumnHandle> hiveColumns,
@@ -238,6 +297,7 @@ public class HivePageSourceProvider
                     start,
                     length,
                     fileSize,
+                    fileModifiedTime,
                     schema,
                     toColumnHandles(regularAndInterimColumnMappings, true),
                     effectivePredicate,
@@ -27,6 +27,7 @@ import com.google.common.collect.ImmutableList;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 import static java.util.Objects.requireNonNull;
@@ -147,6 +148,33 @@ public final class HiveTableLayoutHandle
         return bucketFilter;
     }
 
+    // the partitions are derived from the predicates, so they are not compared
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        HiveTableLayoutHandle that = (HiveTableLayoutHandle) o;
+        return Objects.equals(schemaTableName, that.schemaTableName) &&
+                Objects.equals(partitionColumns, that.partitionColumns) &&
+                Objects.equals(domainPredicate, that.domainPredicate) &&
+                Objects.equals(remainingPredicate, that.remainingPredicate) &&
+                Objects.equals(predicateColumns, that.predicateColumns) &&
+                Objects.equals(partitionColumnPredicate, that.partitionColumnPredicate) &&
+                Objects.equals(bucketHandle, that.bucketHandle) &&
+                Objects.equals(bucketFilter, that.bucketFilter);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(schemaTableName, partitionColumns, domainPredicate, remainingPredicate, predicateColumns, partitionColumnPredicate, bucketHandle, bucketFilter);
+    }
+
     @Override
     public String toString()
     {
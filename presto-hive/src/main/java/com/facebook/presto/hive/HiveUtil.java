@@ -963,6 +963,15 @@ public final class HiveUtil
         }
     }
 
+    /**
+     * Returns whether data cached for the file can be tied to its current version. Without a
+     * modification time a rewritten file can not be told apart from the original.
+     */
+    public static boolean isFileVersionKnown(long fileModifiedTime)
+    {
+        return fileModifiedTime > 0;
+    }
+
     public static Object typedPartitionKey(String value, Type type, String name, DateTimeZone hiveStorageTimeZone)
     {
         byte[] bytes = value.getBytes(UTF_8);
@@ -24,6 +24,7 @@ import com.facebook.presto.spi.relation.RowExpression;
 import com.facebook.presto.spi.relation.SpecialFormExpression;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
 import com.facebook.presto.spi.type.RowType;
+import com.facebook.presto.spi.type.Type;
 import io.airlift.slice.Slice;
 
 import java.util.ArrayList;
@@ -32,6 +33,10 @@ import java.util.List;
 import java.util.Optional;
 
 import static com.facebook.presto.spi.relation.SpecialFormExpression.Form.DEREFERENCE;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TinyintType.TINYINT;
 import static com.facebook.presto.spi.type.Varchars.isVarcharType;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
@@ -97,6 +102,11 @@ public final class SubfieldExtractor
             }
 
             if (expression instanceof CallExpression && functionResolution.isSubscriptFunction(((CallExpression) expression).getFunctionHandle())) {
+                // Selective ORC readers support subscripts only at the end of the path, e.g. a.b[1], but not a[1].b
+                if (!elements.isEmpty()) {
+                    return Optional.empty();
+                }
+
                 List<RowExpression> arguments = ((CallExpression) expression).getArguments();
                 RowExpression indexExpression = expressionOptimizer.optimize(
                         arguments.get(1),
@@ -105,7 +115,7 @@ public final class SubfieldExtractor
 
                 if (indexExpression instanceof ConstantExpression) {
                     Object index = ((ConstantExpression) indexExpression).getValue();
-                    if (index instanceof Number) {
+                    if (index instanceof Number && isIntegralType(indexExpression.getType())) {
                         elements.add(new Subfield.LongSubscript(((Number) index).longValue()));
                         expression = arguments.get(0);
                         continue;
@@ -123,4 +133,9 @@ public final class SubfieldExtractor
             return Optional.empty();
         }
     }
+
+    private static boolean isIntegralType(Type type)
+    {
+        return type == BIGINT || type == INTEGER || type == SMALLINT || type == TINYINT;
+    }
 }
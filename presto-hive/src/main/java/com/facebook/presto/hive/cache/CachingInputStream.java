@@ -0,0 +1,221 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive.cache;
+
+import com.facebook.presto.hive.cache.LocalDataCache.PageKey;
+import com.facebook.presto.hive.cache.LocalDataCache.RemoteFileOpener;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSInputStream;
+import org.apache.hadoop.fs.Path;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+class CachingInputStream
+        extends FSInputStream
+{
+    private final LocalDataCache cache;
+    private final Path path;
+    private final long fileSize;
+    private final long fileModifiedTime;
+    private final RemoteFileOpener opener;
+    private final long pageSize;
+
+    @GuardedBy("this")
+    private FSDataInputStream remote;
+    private long position;
+    private volatile boolean closed;
+
+    public CachingInputStream(LocalDataCache cache, Path path, long fileSize, long fileModifiedTime, RemoteFileOpener opener)
+    {
+        this.cache = requireNonNull(cache, "cache is null");
+        this.path = requireNonNull(path, "path is null");
+        checkArgument(fileSize >= 0, "fileSize is negative");
+        this.fileSize = fileSize;
+        this.fileModifiedTime = fileModifiedTime;
+        this.opener = requireNonNull(opener, "opener is null");
+        this.pageSize = cache.getPageSize();
+    }
+
+    @Override
+    public void seek(long position)
+            throws IOException
+    {
+        checkOpen();
+        if (position < 0 || position > fileSize) {
+            throw new EOFException("Cannot seek to " + position + " in " + path + " of size " + fileSize);
+        }
+        this.position = position;
+    }
+
+    @Override
+    public long getPos()
+    {
+        return position;
+    }
+
+    @Override
+    public boolean seekToNewSource(long targetPosition)
+    {
+        return false;
+    }
+
+    @Override
+    public int available()
+    {
+        return toIntExact(min(fileSize - position, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public int read()
+            throws IOException
+    {
+        byte[] buffer = new byte[1];
+        if (read(buffer, 0, 1) <= 0) {
+            return -1;
+        }
+        return buffer[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length)
+            throws IOException
+    {
+        int bytesRead = read(position, buffer, offset, length);
+        if (bytesRead > 0) {
+            position += bytesRead;
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public int read(long position, byte[] buffer, int offset, int length)
+            throws IOException
+    {
+        checkOpen();
+        if (length == 0) {
+            return 0;
+        }
+        if (position >= fileSize) {
+            return -1;
+        }
+        int bytesToRead = toIntExact(min(length, fileSize - position));
+        readFully(position, buffer, offset, bytesToRead);
+        return bytesToRead;
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer)
+            throws IOException
+    {
+        readFully(position, buffer, 0, buffer.length);
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer, int offset, int length)
+            throws IOException
+    {
+        checkOpen();
+        if (position < 0 || position + length > fileSize) {
+            throw new EOFException("Cannot read " + length + " bytes at " + position + " from " + path + " of size " + fileSize);
+        }
+        if (length == 0) {
+            return;
+        }
+
+        long lastPage = (position + length - 1) / pageSize;
+        long page = position / pageSize;
+        while (page <= lastPage) {
+            // only the part of the page that is requested is read from the cache
+            long readStart = max(position, page * pageSize);
+            long readEnd = min(position + length, (page + 1) * pageSize);
+            if (cache.readPage(pageKey(page), toIntExact(readStart - page * pageSize), buffer, toIntExact(offset + readStart - position), toIntExact(readEnd - readStart))) {
+                page++;
+                continue;
+            }
+
+            // fetch the whole run of missing pages with one remote read
+            long endPage = page + 1;
+            while (endPage <= lastPage && !cache.containsPage(pageKey(endPage))) {
+                endPage++;
+            }
+            long runStart = page * pageSize;
+            byte[] run = new byte[toIntExact(min(endPage * pageSize, fileSize) - runStart)];
+            getRemote().readFully(runStart, run, 0, run.length);
+            copy(runStart, run, 0, run.length, position, buffer, offset, length);
+            for (long runPage = page; runPage < endPage; runPage++) {
+                int pageOffset = toIntExact((runPage - page) * pageSize);
+                cache.putPage(pageKey(runPage), run, pageOffset, toIntExact(min(pageSize, run.length - pageOffset)));
+            }
+            page = endPage;
+        }
+    }
+
+    private static void copy(long sourcePosition, byte[] source, int sourceOffset, int sourceLength, long targetPosition, byte[] target, int targetOffset, int targetLength)
+    {
+        long start = max(sourcePosition, targetPosition);
+        long end = min(sourcePosition + sourceLength, targetPosition + targetLength);
+        if (start < end) {
+            System.arraycopy(
+                    source,
+                    toIntExact(sourceOffset + start - sourcePosition),
+                    target,
+                    toIntExact(targetOffset + start - targetPosition),
+                    toIntExact(end - start));
+        }
+    }
+
+    private PageKey pageKey(long page)
+    {
+        return new PageKey(path, fileSize, fileModifiedTime, page);
+    }
+
+    private synchronized FSDataInputStream getRemote()
+            throws IOException
+    {
+        if (remote == null) {
+            remote = opener.open();
+        }
+        return remote;
+    }
+
+    private void checkOpen()
+            throws IOException
+    {
+        if (closed) {
+            throw new IOException("Stream is closed: " + path);
+        }
+    }
+
+    @Override
+    public synchronized void close()
+            throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (remote != null) {
+            remote.close();
+        }
+    }
+}
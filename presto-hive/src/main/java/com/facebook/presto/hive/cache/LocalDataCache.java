@@ -0,0 +1,406 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive.cache;
+
+import com.facebook.presto.hive.ForLocalDataCache;
+import com.facebook.presto.hive.HiveClientConfig;
+import com.facebook.presto.hive.HiveConnectorId;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import io.airlift.log.Logger;
+import io.airlift.units.DataSize;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.Path;
+import org.weakref.jmx.Managed;
+
+import javax.inject.Inject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.Slices.wrappedBuffer;
+import static io.airlift.slice.XxHash64.hash;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Copy of the remote file data read by this worker, kept on local disk in fixed-size
+ * pages. Pages are looked up by path, length and modification time, so a rewritten file
+ * is read again from the remote file system. The location of each page and a checksum
+ * for each block of it are kept in memory, and the least recently used pages are dropped
+ * when the cache is over its quota. A read only loads and verifies the blocks it covers,
+ * and a range that can not be read back, or does not match its checksums, is treated as
+ * a miss. Pages are written in the background, so a miss is not slowed down by the
+ * local disk.
+ */
+public class LocalDataCache
+{
+    private static final Logger log = Logger.get(LocalDataCache.class);
+
+    private static final String PAGE_FILE_SUFFIX = ".page";
+    private static final int CHECKSUM_BLOCK_SIZE = 64 * 1024;
+    // pages waiting to be written are held in memory, so writes are dropped beyond this
+    private static final int MAX_PENDING_WRITES = 64;
+
+    private final Optional<File> directory;
+    private final int pageSize;
+    private final int checksumBlockSize;
+    private final Executor writeExecutor;
+    private final Cache<PageKey, CachedPage> pages;
+    private final Set<PageKey> pendingWrites = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong nextPageId = new AtomicLong();
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong checksumFailures = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+    private final AtomicLong skippedWrites = new AtomicLong();
+
+    @Inject
+    public LocalDataCache(HiveConnectorId connectorId, HiveClientConfig hiveClientConfig, @ForLocalDataCache Executor writeExecutor)
+    {
+        this(
+                hiveClientConfig.isLocalDataCacheEnabled() ? Optional.of(new File(hiveClientConfig.getLocalDataCacheDirectory(), connectorId.toString())) : Optional.empty(),
+                hiveClientConfig.getLocalDataCacheMaxSize(),
+                hiveClientConfig.getLocalDataCachePageSize(),
+                writeExecutor);
+    }
+
+    public LocalDataCache(Optional<File> directory, DataSize maxSize, DataSize pageSize, Executor writeExecutor)
+    {
+        this(directory, maxSize, pageSize, CHECKSUM_BLOCK_SIZE, writeExecutor);
+    }
+
+    @VisibleForTesting
+    LocalDataCache(Optional<File> directory, DataSize maxSize, DataSize pageSize, int checksumBlockSize, Executor writeExecutor)
+    {
+        this.directory = requireNonNull(directory, "directory is null");
+        requireNonNull(maxSize, "maxSize is null");
+        this.pageSize = toIntExact(requireNonNull(pageSize, "pageSize is null").toBytes());
+        checkArgument(this.pageSize > 0, "pageSize must be positive");
+        checkArgument(checksumBlockSize > 0, "checksumBlockSize must be positive");
+        this.checksumBlockSize = min(checksumBlockSize, this.pageSize);
+        this.writeExecutor = requireNonNull(writeExecutor, "writeExecutor is null");
+        this.pages = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((PageKey key, CachedPage page) -> page.getLength())
+                .removalListener(this::pageRemoved)
+                .build();
+        directory.ifPresent(LocalDataCache::initializeDirectory);
+    }
+
+    private static void initializeDirectory(File directory)
+    {
+        // the index is not persisted, so pages left by a previous run can not be used
+        try {
+            Files.createDirectories(directory.toPath());
+            File[] files = directory.listFiles((dir, name) -> name.endsWith(PAGE_FILE_SUFFIX));
+            checkState(files != null, "Cannot list local data cache directory %s", directory);
+            for (File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot initialize local data cache directory " + directory, e);
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return directory.isPresent();
+    }
+
+    public int getPageSize()
+    {
+        return pageSize;
+    }
+
+    /**
+     * Opens a stream over the given file version that reads through this cache. The remote
+     * file is only opened when a read misses the cache.
+     */
+    public FSDataInputStream openFile(Path path, long fileSize, long fileModifiedTime, RemoteFileOpener opener)
+    {
+        checkState(isEnabled(), "local data cache is not enabled");
+        return new FSDataInputStream(new CachingInputStream(this, path, fileSize, fileModifiedTime, opener));
+    }
+
+    /**
+     * Copies {@code length} bytes starting at {@code pageOffset} of the page into the buffer.
+     * Returns false if the page is not cached, or the blocks covering the range can not be
+     * read back intact.
+     */
+    boolean readPage(PageKey key, int pageOffset, byte[] buffer, int offset, int length)
+    {
+        CachedPage page = pages.getIfPresent(key);
+        if (page == null) {
+            missCount.incrementAndGet();
+            return false;
+        }
+        checkArgument(pageOffset >= 0 && pageOffset + length <= page.getLength(), "range is outside of the page");
+
+        int firstBlock = pageOffset / checksumBlockSize;
+        int start = firstBlock * checksumBlockSize;
+        int end = min(roundUp(pageOffset + length, checksumBlockSize), page.getLength());
+        byte[] data = new byte[end - start];
+        try (RandomAccessFile file = new RandomAccessFile(page.getFile(), "r")) {
+            if (file.length() == page.getLength()) {
+                file.seek(start);
+                file.readFully(data);
+                if (checksumsMatch(page, firstBlock, data)) {
+                    System.arraycopy(data, pageOffset - start, buffer, offset, length);
+                    hitCount.incrementAndGet();
+                    return true;
+                }
+            }
+            checksumFailures.incrementAndGet();
+        }
+        catch (IOException e) {
+            // the page may have been evicted while it was being read
+            log.debug(e, "Cannot read cached page %s", page.getFile());
+        }
+        pages.asMap().remove(key, page);
+        missCount.incrementAndGet();
+        return false;
+    }
+
+    private boolean checksumsMatch(CachedPage page, int firstBlock, byte[] data)
+    {
+        for (int blockOffset = 0; blockOffset < data.length; blockOffset += checksumBlockSize) {
+            int blockLength = min(checksumBlockSize, data.length - blockOffset);
+            if (hash(wrappedBuffer(data, blockOffset, blockLength)) != page.getChecksum(firstBlock + blockOffset / checksumBlockSize)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean containsPage(PageKey key)
+    {
+        return pages.asMap().containsKey(key);
+    }
+
+    /**
+     * Writes the page in the background. The buffer must not be modified afterwards.
+     */
+    void putPage(PageKey key, byte[] buffer, int offset, int length)
+    {
+        checkState(isEnabled(), "local data cache is not enabled");
+        if (containsPage(key)) {
+            return;
+        }
+        if (pendingWrites.size() >= MAX_PENDING_WRITES || !pendingWrites.add(key)) {
+            skippedWrites.incrementAndGet();
+            return;
+        }
+        try {
+            writeExecutor.execute(() -> {
+                try {
+                    writePage(key, buffer, offset, length);
+                }
+                finally {
+                    pendingWrites.remove(key);
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            pendingWrites.remove(key);
+            skippedWrites.incrementAndGet();
+        }
+    }
+
+    private void writePage(PageKey key, byte[] buffer, int offset, int length)
+    {
+        File file = new File(directory.get(), nextPageId.incrementAndGet() + PAGE_FILE_SUFFIX);
+        try (OutputStream output = new FileOutputStream(file)) {
+            output.write(buffer, offset, length);
+        }
+        catch (IOException e) {
+            // the data has already been read, so a full or failing disk only costs the cache entry
+            writeFailures.incrementAndGet();
+            log.debug(e, "Cannot write cached page %s", file);
+            file.delete();
+            return;
+        }
+
+        long[] checksums = new long[roundUp(length, checksumBlockSize) / checksumBlockSize];
+        for (int block = 0; block < checksums.length; block++) {
+            int blockOffset = block * checksumBlockSize;
+            checksums[block] = hash(wrappedBuffer(buffer, offset + blockOffset, min(checksumBlockSize, length - blockOffset)));
+        }
+        cachedBytes.addAndGet(length);
+        pages.put(key, new CachedPage(file, length, checksums));
+    }
+
+    private static int roundUp(int value, int factor)
+    {
+        return (value + factor - 1) / factor * factor;
+    }
+
+    private void pageRemoved(RemovalNotification<PageKey, CachedPage> notification)
+    {
+        CachedPage page = notification.getValue();
+        cachedBytes.addAndGet(-page.getLength());
+        if (!page.getFile().delete()) {
+            log.debug("Cannot delete cached page %s", page.getFile());
+        }
+    }
+
+    @Managed
+    public void flushCache()
+    {
+        pages.invalidateAll();
+    }
+
+    @Managed
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    @Managed
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    @Managed
+    public double getHitRate()
+    {
+        long hits = hitCount.get();
+        long requests = hits + missCount.get();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    @Managed
+    public long getCachedPages()
+    {
+        return pages.size();
+    }
+
+    @Managed
+    public long getCachedBytes()
+    {
+        return cachedBytes.get();
+    }
+
+    @Managed
+    public long getChecksumFailures()
+    {
+        return checksumFailures.get();
+    }
+
+    @Managed
+    public long getWriteFailures()
+    {
+        return writeFailures.get();
+    }
+
+    @Managed
+    public long getSkippedWrites()
+    {
+        return skippedWrites.get();
+    }
+
+    public interface RemoteFileOpener
+    {
+        FSDataInputStream open()
+                throws IOException;
+    }
+
+    static final class PageKey
+    {
+        private final Path path;
+        private final long fileSize;
+        private final long fileModifiedTime;
+        private final long pageIndex;
+
+        public PageKey(Path path, long fileSize, long fileModifiedTime, long pageIndex)
+        {
+            this.path = requireNonNull(path, "path is null");
+            this.fileSize = fileSize;
+            this.fileModifiedTime = fileModifiedTime;
+            this.pageIndex = pageIndex;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PageKey that = (PageKey) o;
+            return fileSize == that.fileSize &&
+                    fileModifiedTime == that.fileModifiedTime &&
+                    pageIndex == that.pageIndex &&
+                    Objects.equals(path, that.path);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(path, fileSize, fileModifiedTime, pageIndex);
+        }
+    }
+
+    private static final class CachedPage
+    {
+        private final File file;
+        private final int length;
+        private final long[] checksums;
+
+        public CachedPage(File file, int length, long[] checksums)
+        {
+            this.file = requireNonNull(file, "file is null");
+            this.length = length;
+            this.checksums = requireNonNull(checksums, "checksums is null");
+        }
+
+        public File getFile()
+        {
+            return file;
+        }
+
+        public int getLength()
+        {
+            return length;
+        }
+
+        public long getChecksum(int block)
+        {
+            return checksums[block];
+        }
+    }
+}
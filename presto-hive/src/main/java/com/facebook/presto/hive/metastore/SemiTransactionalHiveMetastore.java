@@ -13,6 +13,8 @@
  */
 package com.facebook.presto.hive.metastore;
 
+import com.facebook.presto.hive.DirectoryLister;
+import com.facebook.presto.hive.HadoopDirectoryLister;
 import com.facebook.presto.hive.HdfsEnvironment;
 import com.facebook.presto.hive.HdfsEnvironment.HdfsContext;
 import com.facebook.presto.hive.HiveBasicStatistics;
@@ -88,6 +90,7 @@ import static com.facebook.presto.spi.security.PrincipalType.USER;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.whenAllSucceed;
@@ -107,6 +110,7 @@ public class SemiTransactionalHiveMetastore
     private final ListeningExecutorService renameExecutor;
     private final boolean skipDeletionForAlter;
     private final boolean skipTargetCleanupOnRollback;
+    private final DirectoryLister directoryLister;
 
     @GuardedBy("this")
     private final Map<SchemaTableName, Action<TableAndMore>> tableActions = new HashMap<>();
@@ -126,12 +130,24 @@ public class SemiTransactionalHiveMetastore
             ListeningExecutorService renameExecutor,
             boolean skipDeletionForAlter,
             boolean skipTargetCleanupOnRollback)
+    {
+        this(hdfsEnvironment, delegate, renameExecutor, skipDeletionForAlter, skipTargetCleanupOnRollback, new HadoopDirectoryLister());
+    }
+
+    public SemiTransactionalHiveMetastore(
+            HdfsEnvironment hdfsEnvironment,
+            ExtendedHiveMetastore delegate,
+            ListeningExecutorService renameExecutor,
+            boolean skipDeletionForAlter,
+            boolean skipTargetCleanupOnRollback,
+            DirectoryLister directoryLister)
     {
         this.hdfsEnvironment = requireNonNull(hdfsEnvironment, "hdfsEnvironment is null");
         this.delegate = requireNonNull(delegate, "delegate is null");
         this.renameExecutor = requireNonNull(renameExecutor, "renameExecutor is null");
         this.skipDeletionForAlter = skipDeletionForAlter;
         this.skipTargetCleanupOnRollback = skipTargetCleanupOnRollback;
+        this.directoryLister = requireNonNull(directoryLister, "directoryLister is null");
     }
 
     public synchronized List<String> getAllDatabases()
@@ -501,7 +517,13 @@ public class SemiTransactionalHiveMetastore
         Path path = new Path(table.get().getStorage().getLocation());
         HdfsContext context = new HdfsContext(session, databaseName, tableName);
         setExclusive((delegate, hdfsEnvironment) -> {
-            RecursiveDeleteResult recursiveDeleteResult = recursiveDeleteFiles(hdfsEnvironment, context, path, ImmutableList.of(""), false);
+            RecursiveDeleteResult recursiveDeleteResult;
+            try {
+                recursiveDeleteResult = recursiveDeleteFiles(hdfsEnvironment, context, path, ImmutableList.of(""), false);
+            }
+            finally {
+                directoryLister.invalidate(path);
+            }
             if (!recursiveDeleteResult.getNotDeletedEligibleItems().isEmpty()) {
                 throw new PrestoException(HIVE_FILESYSTEM_ERROR, format(
                         "Error deleting from unpartitioned table %s. These items can not be deleted: %s",
@@ -891,7 +913,12 @@ public class SemiTransactionalHiveMetastore
                 case EMPTY:
                     break;
                 case SHARED_OPERATION_BUFFERED:
-                    commitShared();
+                    try {
+                        commitShared();
+                    }
+                    finally {
+                        invalidateDirectoryListings();
+                    }
                     break;
                 case EXCLUSIVE_OPERATION_BUFFERED:
                     requireNonNull(bufferedExclusiveOperation, "bufferedExclusiveOperation is null");
@@ -929,6 +956,24 @@ public class SemiTransactionalHiveMetastore
         }
     }
 
+    @GuardedBy("this")
+    private void invalidateDirectoryListings()
+    {
+        // the committed files must be visible to the next query, even if the commit failed half way
+        for (Action<TableAndMore> action : tableActions.values()) {
+            if (action.getType() != ActionType.DROP && !isNullOrEmpty(action.getData().getTable().getStorage().getLocation())) {
+                directoryLister.invalidate(new Path(action.getData().getTable().getStorage().getLocation()));
+            }
+        }
+        for (Map<List<String>, Action<PartitionAndMore>> partitions : partitionActions.values()) {
+            for (Action<PartitionAndMore> action : partitions.values()) {
+                if (action.getType() != ActionType.DROP) {
+                    directoryLister.invalidate(new Path(action.getData().getPartition().getStorage().getLocation()));
+                }
+            }
+        }
+    }
+
     @GuardedBy("this")
     private void commitShared()
     {
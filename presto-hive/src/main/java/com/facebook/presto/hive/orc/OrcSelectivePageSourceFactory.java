@@ -14,6 +14,7 @@
 package com.facebook.presto.hive.orc;
 
 import com.facebook.presto.hive.FileFormatDataSourceStats;
+import com.facebook.presto.hive.FileMetadataCache;
 import com.facebook.presto.hive.HdfsEnvironment;
 import com.facebook.presto.hive.HiveClientConfig;
 import com.facebook.presto.hive.HiveColumnHandle;
@@ -23,6 +24,7 @@ import com.facebook.presto.orc.FilterFunction;
 import com.facebook.presto.orc.OrcDataSource;
 import com.facebook.presto.orc.OrcDataSourceId;
 import com.facebook.presto.orc.OrcEncoding;
+import com.facebook.presto.orc.OrcFileMetadataSource;
 import com.facebook.presto.orc.OrcPredicate;
 import com.facebook.presto.orc.OrcReader;
 import com.facebook.presto.orc.OrcSelectiveRecordReader;
@@ -34,6 +36,7 @@ import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.FixedPageSource;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.Subfield;
+import com.facebook.presto.spi.predicate.Domain;
 import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.relation.DefaultRowExpressionTraversalVisitor;
 import com.facebook.presto.spi.relation.DeterminismEvaluator;
@@ -62,6 +65,7 @@ import javax.inject.Inject;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -98,6 +102,7 @@ import static com.google.common.collect.ImmutableBiMap.toImmutableBiMap;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.Maps.uniqueIndex;
+import static io.airlift.units.DataSize.Unit.BYTE;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
@@ -110,14 +115,27 @@ public class OrcSelectivePageSourceFactory
     private final HdfsEnvironment hdfsEnvironment;
     private final FileFormatDataSourceStats stats;
     private final int domainCompactionThreshold;
+    private final FileMetadataCache fileMetadataCache;
 
     @Inject
-    public OrcSelectivePageSourceFactory(TypeManager typeManager, RowExpressionService rowExpressionService, HiveClientConfig config, HdfsEnvironment hdfsEnvironment, FileFormatDataSourceStats stats)
+    public OrcSelectivePageSourceFactory(TypeManager typeManager, RowExpressionService rowExpressionService, HiveClientConfig config, HdfsEnvironment hdfsEnvironment, FileFormatDataSourceStats stats, FileMetadataCache fileMetadataCache)
     {
-        this(typeManager, rowExpressionService, requireNonNull(config, "hiveClientConfig is null").isUseOrcColumnNames(), hdfsEnvironment, stats, config.getDomainCompactionThreshold());
+        this(typeManager, rowExpressionService, requireNonNull(config, "hiveClientConfig is null").isUseOrcColumnNames(), hdfsEnvironment, stats, config.getDomainCompactionThreshold(), fileMetadataCache);
     }
 
     public OrcSelectivePageSourceFactory(TypeManager typeManager, RowExpressionService rowExpressionService, boolean useOrcColumnNames, HdfsEnvironment hdfsEnvironment, FileFormatDataSourceStats stats, int domainCompactionThreshold)
+    {
+        this(typeManager, rowExpressionService, useOrcColumnNames, hdfsEnvironment, stats, domainCompactionThreshold, new FileMetadataCache(new DataSize(0, BYTE)));
+    }
+
+    public OrcSelectivePageSourceFactory(
+            TypeManager typeManager,
+            RowExpressionService rowExpressionService,
+            boolean useOrcColumnNames,
+            HdfsEnvironment hdfsEnvironment,
+            FileFormatDataSourceStats stats,
+            int domainCompactionThreshold,
+            FileMetadataCache fileMetadataCache)
     {
         this.typeManager = requireNonNull(typeManager, "typeManager is null");
         this.rowExpressionService = requireNonNull(rowExpressionService, "rowExpressionService is null");
@@ -125,6 +143,7 @@ public class OrcSelectivePageSourceFactory
         this.hdfsEnvironment = requireNonNull(hdfsEnvironment, "hdfsEnvironment is null");
         this.stats = requireNonNull(stats, "stats is null");
         this.domainCompactionThreshold = domainCompactionThreshold;
+        this.fileMetadataCache = requireNonNull(fileMetadataCache, "fileMetadataCache is null");
     }
 
     @Override
@@ -135,6 +154,7 @@ public class OrcSelectivePageSourceFactory
             long start,
             long length,
             long fileSize,
+            long fileModifiedTime,
             Properties schema,
             List<HiveColumnHandle> columns,
             Map<Integer, String> prefilledValues,
@@ -161,6 +181,8 @@ public class OrcSelectivePageSourceFactory
                 start,
                 length,
                 fileSize,
+                fileModifiedTime,
+                fileMetadataCache.getOrcFileMetadataSource(path, fileSize, fileModifiedTime),
                 columns,
                 prefilledValues,
                 outputColumns,
@@ -184,6 +206,8 @@ public class OrcSelectivePageSourceFactory
             long start,
             long length,
             long fileSize,
+            long fileModifiedTime,
+            OrcFileMetadataSource fileMetadataSource,
             List<HiveColumnHandle> columns,
             Map<Integer, String> prefilledValues,
             List<Integer> outputColumns,
@@ -209,7 +233,7 @@ public class OrcSelectivePageSourceFactory
         OrcDataSource orcDataSource;
         try {
             FileSystem fileSystem = hdfsEnvironment.getFileSystem(session.getUser(), path, configuration);
-            FSDataInputStream inputStream = fileSystem.open(path);
+            FSDataInputStream inputStream = hdfsEnvironment.openFile(fileSystem, path, fileSize, fileModifiedTime);
             orcDataSource = new HdfsOrcDataSource(
                     new OrcDataSourceId(path.toString()),
                     fileSize,
@@ -218,7 +242,9 @@ public class OrcSelectivePageSourceFactory
                     streamBufferSize,
                     lazyReadSmallRanges,
                     inputStream,
-                    stats);
+                    stats,
+                    hdfsEnvironment.getRangeReadExecutor(),
+                    hdfsEnvironment.getMaxConcurrentRangeReadSize());
         }
         catch (Exception e) {
             if (nullToEmpty(e.getMessage()).trim().equals("Filesystem closed") ||
@@ -230,7 +256,7 @@ public class OrcSelectivePageSourceFactory
 
         AggregatedMemoryContext systemMemoryUsage = newSimpleAggregatedMemoryContext();
         try {
-            OrcReader reader = new OrcReader(orcDataSource, orcEncoding, maxMergeDistance, maxBufferSize, tinyStripeThreshold, maxReadBlockSize);
+            OrcReader reader = new OrcReader(orcDataSource, orcEncoding, maxMergeDistance, maxBufferSize, tinyStripeThreshold, maxReadBlockSize, fileMetadataSource);
 
             checkArgument(!domainPredicate.isNone(), "Unexpected NONE domain");
 
@@ -244,7 +270,7 @@ public class OrcSelectivePageSourceFactory
 
             OrcPredicate orcPredicate = toOrcPredicate(domainPredicate, physicalColumns, typeManager, domainCompactionThreshold, orcBloomFiltersEnabled);
 
-            Map<Integer, TupleDomainFilter> tupleDomainFilters = toTupleDomainFilters(domainPredicate, ImmutableBiMap.copyOf(columnNames).inverse());
+            Map<Integer, Map<Subfield, TupleDomainFilter>> tupleDomainFilters = toTupleDomainFilters(domainPredicate, ImmutableBiMap.copyOf(columnNames).inverse());
 
             Map<Integer, List<Subfield>> requiredSubfields = physicalColumns.stream()
                     .collect(toImmutableMap(HiveColumnHandle::getHiveColumnIndex, HiveColumnHandle::getRequiredSubfields));
@@ -307,17 +333,15 @@ public class OrcSelectivePageSourceFactory
         }
     }
 
-    private static Map<Integer, TupleDomainFilter> toTupleDomainFilters(TupleDomain<Subfield> domainPredicate, Map<String, Integer> columnIndices)
+    private static Map<Integer, Map<Subfield, TupleDomainFilter>> toTupleDomainFilters(TupleDomain<Subfield> domainPredicate, Map<String, Integer> columnIndices)
     {
-        // TODO Add support for filters on subfields
-        checkArgument(domainPredicate.getDomains().get().keySet().stream()
-                .allMatch(OrcSelectivePageSourceFactory::isEntireColumn), "Filters on subfields are not supported yet");
-
-        return Maps.transformValues(
-                domainPredicate.transform(subfield -> isEntireColumn(subfield) ? columnIndices.get(subfield.getRootName()) : null)
-                        .getDomains()
-                        .get(),
-                TupleDomainFilterUtils::toFilter);
+        Map<Integer, Map<Subfield, TupleDomainFilter>> filters = new HashMap<>();
+        for (Map.Entry<Subfield, Domain> entry : domainPredicate.getDomains().get().entrySet()) {
+            Subfield subfield = entry.getKey();
+            filters.computeIfAbsent(columnIndices.get(subfield.getRootName()), k -> new HashMap<>())
+                    .put(subfield, TupleDomainFilterUtils.toFilter(entry.getValue()));
+        }
+        return filters;
     }
 
     private static boolean isEntireColumn(Subfield subfield)
@@ -23,6 +23,7 @@ import org.apache.hadoop.fs.Path;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_CANNOT_OPEN_SPLIT;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_FILESYSTEM_ERROR;
@@ -36,8 +37,8 @@ public class HdfsParquetDataSource
     private final ParquetDataSourceId id;
     private final long size;
     private final FSDataInputStream inputStream;
-    private long readTimeNanos;
-    private long readBytes;
+    private final AtomicLong readTimeNanos = new AtomicLong();
+    private final AtomicLong readBytes = new AtomicLong();
     private final FileFormatDataSourceStats stats;
 
     public HdfsParquetDataSource(ParquetDataSourceId id, long size, FSDataInputStream inputStream, FileFormatDataSourceStats stats)
@@ -57,13 +58,13 @@ public class HdfsParquetDataSource
     @Override
     public final long getReadBytes()
     {
-        return readBytes;
+        return readBytes.get();
     }
 
     @Override
     public long getReadTimeNanos()
     {
-        return readTimeNanos;
+        return readTimeNanos.get();
     }
 
     @Override
@@ -88,13 +89,13 @@ public class HdfsParquetDataSource
     @Override
     public final void readFully(long position, byte[] buffer, int bufferOffset, int bufferLength)
     {
-        readBytes += bufferLength;
+        readBytes.addAndGet(bufferLength);
 
         long start = System.nanoTime();
         readInternal(position, buffer, bufferOffset, bufferLength);
         long currentReadTimeNanos = System.nanoTime() - start;
 
-        readTimeNanos += currentReadTimeNanos;
+        readTimeNanos.addAndGet(currentReadTimeNanos);
         stats.readDataBytesPerSecond(bufferLength, currentReadTimeNanos);
     }
 
@@ -73,6 +73,7 @@ import org.apache.hadoop.util.Progressable;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilterOutputStream;
@@ -885,6 +886,77 @@ public class PrestoS3FileSystem
             }
         }
 
+        @Override
+        public int read(long position, byte[] buffer, int offset, int length)
+                throws IOException
+        {
+            checkState(!closed, "already closed");
+            if (length == 0) {
+                return 0;
+            }
+            int bytesRead = readRange(position, buffer, offset, length);
+            return (bytesRead == 0) ? -1 : bytesRead;
+        }
+
+        @Override
+        public void readFully(long position, byte[] buffer, int offset, int length)
+                throws IOException
+        {
+            checkState(!closed, "already closed");
+            int bytesRead = readRange(position, buffer, offset, length);
+            if (bytesRead < length) {
+                throw new EOFException(format("Read %s of %s bytes at position %s of %s", bytesRead, length, position, path));
+            }
+        }
+
+        private int readRange(long position, byte[] buffer, int offset, int length)
+                throws IOException
+        {
+            // each positioned read gets its own range, so concurrent reads do not wait
+            // for each other, and do not move the position of the sequential stream
+            if (length == 0) {
+                return 0;
+            }
+            try {
+                return retry()
+                        .maxAttempts(maxAttempts)
+                        .exponentialBackoff(BACKOFF_MIN_SLEEP, maxBackoffTime, maxRetryTime, 2.0)
+                        .stopOn(InterruptedException.class, UnrecoverableS3OperationException.class, AbortedException.class)
+                        .onRetry(STATS::newReadRetry)
+                        .run("readRange", () -> {
+                            InputStream stream = openStream(path, position, Optional.of(position + length - 1));
+                            STATS.connectionOpened();
+                            int bytesRead = 0;
+                            try {
+                                while (bytesRead < length) {
+                                    int n = stream.read(buffer, offset + bytesRead, length - bytesRead);
+                                    if (n == -1) {
+                                        break;
+                                    }
+                                    bytesRead += n;
+                                }
+                                return bytesRead;
+                            }
+                            catch (Exception e) {
+                                STATS.newReadError(e);
+                                throw e;
+                            }
+                            finally {
+                                closeStream(stream, bytesRead == length);
+                            }
+                        });
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            catch (Exception e) {
+                throwIfInstanceOf(e, IOException.class);
+                throwIfUnchecked(e);
+                throw new RuntimeException(e);
+            }
+        }
+
         @Override
         public boolean seekToNewSource(long targetPos)
         {
@@ -926,13 +998,13 @@ public class PrestoS3FileSystem
                 throws IOException
         {
             if (in == null) {
-                in = openStream(path, nextReadPosition);
+                in = openStream(path, nextReadPosition, Optional.empty());
                 streamPosition = nextReadPosition;
                 STATS.connectionOpened();
             }
         }
 
-        private InputStream openStream(Path path, long start)
+        private InputStream openStream(Path path, long start, Optional<Long> end)
                 throws IOException
         {
             try {
@@ -943,7 +1015,8 @@ public class PrestoS3FileSystem
                         .onRetry(STATS::newGetObjectRetry)
                         .run("getS3Object", () -> {
                             try {
-                                GetObjectRequest request = new GetObjectRequest(host, keyFromPath(path)).withRange(start);
+                                GetObjectRequest request = new GetObjectRequest(host, keyFromPath(path));
+                                request = end.isPresent() ? request.withRange(start, end.get()) : request.withRange(start);
                                 return s3.getObject(request).getObjectContent();
                             }
                             catch (RuntimeException e) {
@@ -977,20 +1050,26 @@ public class PrestoS3FileSystem
         private void closeStream()
         {
             if (in != null) {
-                try {
-                    if (in instanceof S3ObjectInputStream) {
-                        ((S3ObjectInputStream) in).abort();
-                    }
-                    else {
-                        in.close();
-                    }
+                closeStream(in, false);
+                in = null;
+            }
+        }
+
+        private static void closeStream(InputStream stream, boolean fullyRead)
+        {
+            try {
+                // a stream that was not read to the end is aborted, instead of reading the rest of it
+                if (!fullyRead && stream instanceof S3ObjectInputStream) {
+                    ((S3ObjectInputStream) stream).abort();
                 }
-                catch (IOException | AbortedException ignored) {
-                    // thrown if the current thread is in the interrupted state
+                else {
+                    stream.close();
                 }
-                in = null;
-                STATS.connectionReleased();
             }
+            catch (IOException | AbortedException ignored) {
+                // thrown if the current thread is in the interrupted state
+            }
+            STATS.connectionReleased();
         }
     }
 
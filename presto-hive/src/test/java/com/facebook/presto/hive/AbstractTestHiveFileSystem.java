@@ -192,7 +192,8 @@ public abstract class AbstractTestHiveFileSystem
                 new HiveTypeTranslator(),
                 new HiveStagingFileCommitter(hdfsEnvironment, listeningDecorator(executor)),
                 new HiveZeroRowFileCreator(hdfsEnvironment, listeningDecorator(executor)),
-                new NodeVersion("test_version"));
+                new NodeVersion("test_version"),
+                new HadoopDirectoryLister());
         transactionManager = new HiveTransactionManager();
         splitManager = new HiveSplitManager(
                 transactionHandle -> ((HiveMetadata) transactionManager.get(transactionHandle)).getMetastore(),
@@ -0,0 +1,188 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive;
+
+import com.facebook.presto.hive.metastore.Column;
+import com.facebook.presto.hive.metastore.StorageFormat;
+import com.facebook.presto.hive.metastore.Table;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.Duration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.hive.HiveType.HIVE_STRING;
+import static com.facebook.presto.hive.metastore.PrestoTableType.MANAGED_TABLE;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.testng.Assert.assertEquals;
+
+public class TestCachingDirectoryLister
+{
+    private static final Path TABLE_PATH = new Path("hdfs://VOL1:9000/db_name/table_name");
+    private static final Path PARTITION_PATH = new Path(TABLE_PATH, "ds=2019-01-01");
+    private static final Path OTHER_TABLE_PATH = new Path("hdfs://VOL1:9000/db_name/table_name_2");
+
+    @Test
+    public void testCachesConfiguredTables()
+            throws IOException
+    {
+        CountingDirectoryLister delegate = new CountingDirectoryLister();
+        CachingDirectoryLister lister = new CachingDirectoryLister(delegate, new Duration(5, MINUTES), 1000, ImmutableList.of("test_dbname.cached_table"));
+        Table cachedTable = table("cached_table");
+        Table otherTable = table("other_table");
+
+        assertEquals(drain(lister.list(null, cachedTable, PARTITION_PATH)), 1);
+        assertEquals(drain(lister.list(null, cachedTable, PARTITION_PATH)), 1);
+        assertEquals(delegate.getListCount(), 1);
+        assertEquals(lister.getHitCount(), 1);
+        assertEquals(lister.getMissCount(), 1);
+
+        assertEquals(drain(lister.list(null, otherTable, OTHER_TABLE_PATH)), 1);
+        assertEquals(drain(lister.list(null, otherTable, OTHER_TABLE_PATH)), 1);
+        assertEquals(delegate.getListCount(), 3);
+    }
+
+    @Test
+    public void testCachesAllTables()
+            throws IOException
+    {
+        CountingDirectoryLister delegate = new CountingDirectoryLister();
+        CachingDirectoryLister lister = new CachingDirectoryLister(delegate, new Duration(5, MINUTES), 1000, ImmutableList.of("*"));
+
+        drain(lister.list(null, table("some_table"), TABLE_PATH));
+        drain(lister.list(null, table("some_table"), TABLE_PATH));
+        assertEquals(delegate.getListCount(), 1);
+    }
+
+    @Test
+    public void testIncompleteListingNotCached()
+            throws IOException
+    {
+        CountingDirectoryLister delegate = new CountingDirectoryLister();
+        CachingDirectoryLister lister = new CachingDirectoryLister(delegate, new Duration(5, MINUTES), 1000, ImmutableList.of("*"));
+
+        RemoteIterator<LocatedFileStatus> iterator = lister.list(null, table("some_table"), TABLE_PATH);
+        iterator.next();
+        drain(lister.list(null, table("some_table"), TABLE_PATH));
+        assertEquals(delegate.getListCount(), 2);
+        assertEquals(lister.getCachedDirectories(), 1);
+    }
+
+    @Test
+    public void testInvalidate()
+            throws IOException
+    {
+        CountingDirectoryLister delegate = new CountingDirectoryLister();
+        CachingDirectoryLister lister = new CachingDirectoryLister(delegate, new Duration(5, MINUTES), 1000, ImmutableList.of("*"));
+        Table table = table("some_table");
+
+        drain(lister.list(null, table, TABLE_PATH));
+        drain(lister.list(null, table, PARTITION_PATH));
+        drain(lister.list(null, table, OTHER_TABLE_PATH));
+        assertEquals(lister.getCachedDirectories(), 3);
+
+        // invalidating the table drops its partitions, but not the directories that only share the name prefix
+        lister.invalidate(TABLE_PATH);
+        assertEquals(lister.getCachedDirectories(), 1);
+        drain(lister.list(null, table, OTHER_TABLE_PATH));
+        assertEquals(delegate.getListCount(), 3);
+
+        // a listing running while the directory is written to is not cached
+        RemoteIterator<LocatedFileStatus> iterator = lister.list(null, table, PARTITION_PATH);
+        lister.invalidate(PARTITION_PATH);
+        drain(iterator);
+        assertEquals(lister.getCachedDirectories(), 1);
+    }
+
+    private static int drain(RemoteIterator<LocatedFileStatus> iterator)
+            throws IOException
+    {
+        int files = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            files++;
+        }
+        return files;
+    }
+
+    private static Table table(String tableName)
+    {
+        Table.Builder tableBuilder = Table.builder();
+        tableBuilder.getStorageBuilder()
+                .setStorageFormat(
+                        StorageFormat.create(
+                                "com.facebook.hive.orc.OrcSerde",
+                                "org.apache.hadoop.hive.ql.io.RCFileInputFormat",
+                                "org.apache.hadoop.hive.ql.io.RCFileInputFormat"))
+                .setLocation(TABLE_PATH.toString())
+                .setSkewed(false);
+
+        return tableBuilder
+                .setDatabaseName("test_dbname")
+                .setOwner("testOwner")
+                .setTableName(tableName)
+                .setTableType(MANAGED_TABLE)
+                .setDataColumns(ImmutableList.of(new Column("col1", HIVE_STRING, Optional.empty())))
+                .setParameters(ImmutableMap.of())
+                .build();
+    }
+
+    private static class CountingDirectoryLister
+            implements DirectoryLister
+    {
+        private int listCount;
+
+        @Override
+        public RemoteIterator<LocatedFileStatus> list(FileSystem fs, Table table, Path path)
+        {
+            listCount++;
+            List<LocatedFileStatus> files = ImmutableList.of(locatedFileStatus(new Path(path, "file")));
+            return new RemoteIterator<LocatedFileStatus>()
+            {
+                private final Iterator<LocatedFileStatus> iterator = files.iterator();
+
+                @Override
+                public boolean hasNext()
+                {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public LocatedFileStatus next()
+                {
+                    return iterator.next();
+                }
+            };
+        }
+
+        public int getListCount()
+        {
+            return listCount;
+        }
+
+        private static LocatedFileStatus locatedFileStatus(Path path)
+        {
+            return new LocatedFileStatus(0L, false, 0, 0L, 0L, 0L, null, null, null, null, path, new BlockLocation[] {});
+        }
+    }
+}
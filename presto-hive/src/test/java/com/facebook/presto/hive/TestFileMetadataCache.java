@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive;
+
+import com.facebook.presto.orc.OrcFileMetadataSource;
+import com.facebook.presto.orc.metadata.StripeFooter;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+import org.apache.hadoop.fs.Path;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+public class TestFileMetadataCache
+{
+    private static final Path PATH = new Path("hdfs://VOL1:9000/db_name/table_name/file");
+
+    @Test
+    public void testCachesByFileVersion()
+            throws IOException
+    {
+        FileMetadataCache cache = new FileMetadataCache(new DataSize(1, MEGABYTE));
+        AtomicInteger loads = new AtomicInteger();
+
+        StripeFooter footer = readStripeFooter(cache.getOrcFileMetadataSource(PATH, 100, 1_000), 3, loads);
+        assertSame(readStripeFooter(cache.getOrcFileMetadataSource(PATH, 100, 1_000), 3, loads), footer);
+        assertEquals(loads.get(), 1);
+        assertEquals(cache.getHitCount(), 1);
+
+        // a different stripe, or a rewritten file, is loaded again
+        readStripeFooter(cache.getOrcFileMetadataSource(PATH, 100, 1_000), 200, loads);
+        readStripeFooter(cache.getOrcFileMetadataSource(PATH, 101, 1_000), 3, loads);
+        readStripeFooter(cache.getOrcFileMetadataSource(PATH, 100, 2_000), 3, loads);
+        assertEquals(loads.get(), 4);
+        assertEquals(cache.getCachedEntries(), 4);
+    }
+
+    @Test
+    public void testUncached()
+            throws IOException
+    {
+        AtomicInteger loads = new AtomicInteger();
+
+        FileMetadataCache disabled = new FileMetadataCache(new DataSize(0, BYTE));
+        readStripeFooter(disabled.getOrcFileMetadataSource(PATH, 100, 1_000), 3, loads);
+        readStripeFooter(disabled.getOrcFileMetadataSource(PATH, 100, 1_000), 3, loads);
+        assertEquals(loads.get(), 2);
+
+        // files without a modification time are never cached
+        FileMetadataCache enabled = new FileMetadataCache(new DataSize(1, MEGABYTE));
+        readStripeFooter(enabled.getOrcFileMetadataSource(PATH, 100, 0), 3, loads);
+        readStripeFooter(enabled.getOrcFileMetadataSource(PATH, 100, 0), 3, loads);
+        assertEquals(loads.get(), 4);
+        assertEquals(enabled.getCachedEntries(), 0);
+    }
+
+    @Test
+    public void testEviction()
+            throws IOException
+    {
+        FileMetadataCache cache = new FileMetadataCache(new DataSize(1, BYTE));
+        AtomicInteger loads = new AtomicInteger();
+
+        readStripeFooter(cache.getOrcFileMetadataSource(PATH, 100, 1_000), 3, loads);
+        readStripeFooter(cache.getOrcFileMetadataSource(PATH, 100, 1_000), 3, loads);
+        assertEquals(loads.get(), 2);
+        assertEquals(cache.getCachedEntries(), 0);
+    }
+
+    @Test
+    public void testLoadFailure()
+    {
+        FileMetadataCache cache = new FileMetadataCache(new DataSize(1, MEGABYTE));
+        IOException exception = new IOException("read failed");
+        try {
+            cache.getOrcFileMetadataSource(PATH, 100, 1_000).getStripeFooter(3, () -> {
+                throw exception;
+            });
+            fail("expected IOException");
+        }
+        catch (IOException e) {
+            assertSame(e, exception);
+        }
+        assertEquals(cache.getCachedEntries(), 0);
+    }
+
+    private static StripeFooter readStripeFooter(OrcFileMetadataSource source, long stripeOffset, AtomicInteger loads)
+            throws IOException
+    {
+        return source.getStripeFooter(stripeOffset, () -> {
+            loads.incrementAndGet();
+            return new StripeFooter(ImmutableList.of(), ImmutableList.of());
+        });
+    }
+}
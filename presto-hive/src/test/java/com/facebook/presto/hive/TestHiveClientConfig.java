@@ -17,6 +17,7 @@ import com.facebook.presto.hive.HiveClientConfig.HdfsAuthenticationType;
 import com.facebook.presto.hive.HiveClientConfig.HiveMetastoreAuthenticationType;
 import com.facebook.presto.hive.s3.S3FileSystemType;
 import com.facebook.presto.orc.OrcWriteValidation.OrcWriteValidationMode;
+import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.net.HostAndPort;
@@ -26,6 +27,7 @@ import io.airlift.units.DataSize.Unit;
 import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
@@ -129,7 +131,19 @@ public class TestHiveClientConfig
                 .setTemporaryTableSchema("default")
                 .setTemporaryTableStorageFormat(ORC)
                 .setTemporaryTableCompressionCodec(SNAPPY)
-                .setPushdownFilterEnabled(false));
+                .setPushdownFilterEnabled(false)
+                .setFileStatusCacheTables("")
+                .setFileStatusCacheExpireAfterWrite(new Duration(1, TimeUnit.MINUTES))
+                .setFileStatusCacheMaxSize(1000 * 1000)
+                .setFileMetadataCacheEnabled(false)
+                .setFileMetadataCacheMaxSize(new DataSize(100, Unit.MEGABYTE))
+                .setLocalDataCacheEnabled(false)
+                .setLocalDataCacheDirectory(new File(StandardSystemProperty.JAVA_IO_TMPDIR.value(), "presto-hive-cache"))
+                .setLocalDataCacheMaxSize(new DataSize(10, Unit.GIGABYTE))
+                .setLocalDataCachePageSize(new DataSize(1, Unit.MEGABYTE))
+                .setConcurrentRangeReadsEnabled(false)
+                .setMaxConcurrentRangeReads(32)
+                .setMaxConcurrentRangeReadSize(new DataSize(64, Unit.MEGABYTE)));
     }
 
     @Test
@@ -223,6 +237,18 @@ public class TestHiveClientConfig
                 .put("hive.temporary-table-storage-format", "DWRF")
                 .put("hive.temporary-table-compression-codec", "NONE")
                 .put("hive.pushdown-filter-enabled", "true")
+                .put("hive.file-status-cache-tables", "foo.bar1, foo.bar2")
+                .put("hive.file-status-cache-expire-time", "30m")
+                .put("hive.file-status-cache-size", "1000")
+                .put("hive.file-metadata-cache-enabled", "true")
+                .put("hive.file-metadata-cache-size", "200MB")
+                .put("hive.local-data-cache.enabled", "true")
+                .put("hive.local-data-cache.directory", "/mnt/ssd/presto-cache")
+                .put("hive.local-data-cache.max-size", "500GB")
+                .put("hive.local-data-cache.page-size", "4MB")
+                .put("hive.concurrent-range-reads.enabled", "true")
+                .put("hive.concurrent-range-reads.max-threads", "64")
+                .put("hive.concurrent-range-reads.max-size", "16MB")
                 .build();
 
         HiveClientConfig expected = new HiveClientConfig()
@@ -313,7 +339,19 @@ public class TestHiveClientConfig
                 .setTemporaryTableSchema("other")
                 .setTemporaryTableStorageFormat(DWRF)
                 .setTemporaryTableCompressionCodec(NONE)
-                .setPushdownFilterEnabled(true);
+                .setPushdownFilterEnabled(true)
+                .setFileStatusCacheTables("foo.bar1,foo.bar2")
+                .setFileStatusCacheExpireAfterWrite(new Duration(30, TimeUnit.MINUTES))
+                .setFileStatusCacheMaxSize(1000)
+                .setFileMetadataCacheEnabled(true)
+                .setFileMetadataCacheMaxSize(new DataSize(200, Unit.MEGABYTE))
+                .setLocalDataCacheEnabled(true)
+                .setLocalDataCacheDirectory(new File("/mnt/ssd/presto-cache"))
+                .setLocalDataCacheMaxSize(new DataSize(500, Unit.GIGABYTE))
+                .setLocalDataCachePageSize(new DataSize(4, Unit.MEGABYTE))
+                .setConcurrentRangeReadsEnabled(true)
+                .setMaxConcurrentRangeReads(64)
+                .setMaxConcurrentRangeReadSize(new DataSize(16, Unit.MEGABYTE));
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.hive;
 
+import com.facebook.presto.hive.authentication.NoHdfsAuthentication;
 import com.facebook.presto.hive.orc.DwrfBatchPageSourceFactory;
 import com.facebook.presto.hive.orc.OrcBatchPageSourceFactory;
 import com.facebook.presto.hive.parquet.ParquetPageSourceFactory;
@@ -32,6 +33,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import io.airlift.compress.lzo.LzoCodec;
 import io.airlift.compress.lzo.LzopCodec;
+import io.airlift.units.DataSize;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hive.common.type.HiveVarchar;
 import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
@@ -44,6 +46,7 @@ import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.typeinfo.VarcharTypeInfo;
 import org.apache.hadoop.mapred.FileSplit;
 import org.joda.time.DateTimeZone;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -55,6 +58,7 @@ import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 import static com.facebook.presto.hive.HiveStorageFormat.AVRO;
@@ -75,8 +79,11 @@ import static com.google.common.base.Predicates.not;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.transform;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.slice.Slices.utf8Slice;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.stream.Collectors.toList;
 import static org.apache.hadoop.hive.metastore.api.hive_metastoreConstants.FILE_INPUT_FORMAT;
 import static org.apache.hadoop.hive.serde.serdeConstants.SERIALIZATION_LIB;
@@ -95,6 +102,9 @@ public class TestHiveFileFormats
 
     private static final DateTimeZone HIVE_STORAGE_TIME_ZONE = DateTimeZone.forID("America/Bahia_Banderas");
 
+    private ExecutorService rangeReadExecutor;
+    private HdfsEnvironment concurrentRangeReadsHdfsEnvironment;
+
     @DataProvider(name = "rowCount")
     public static Object[][] rowCountProvider()
     {
@@ -108,6 +118,21 @@ public class TestHiveFileFormats
         assertEquals(TimeZone.getDefault().getID(),
                 "America/Bahia_Banderas",
                 "Timezone not configured correctly. Add -Duser.timezone=America/Bahia_Banderas to your JVM arguments");
+
+        rangeReadExecutor = newCachedThreadPool(daemonThreadsNamed("test-range-read-%s"));
+        HiveClientConfig config = new HiveClientConfig().setMaxConcurrentRangeReadSize(new DataSize(1, MEGABYTE));
+        concurrentRangeReadsHdfsEnvironment = new HdfsEnvironment(
+                new HiveHdfsConfiguration(new HdfsConfigurationUpdater(config)),
+                config,
+                new NoHdfsAuthentication(),
+                Optional.empty(),
+                Optional.of(rangeReadExecutor));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        rangeReadExecutor.shutdownNow();
     }
 
     @Test(dataProvider = "rowCount")
@@ -305,6 +330,16 @@ public class TestHiveFileFormats
                 .isReadableByPageSource(new OrcBatchPageSourceFactory(TYPE_MANAGER, true, HDFS_ENVIRONMENT, STATS, 100));
     }
 
+    @Test(dataProvider = "rowCount")
+    public void testOrcConcurrentRangeReads(int rowCount)
+            throws Exception
+    {
+        assertThatFileFormat(ORC)
+                .withColumns(TEST_COLUMNS)
+                .withRowsCount(rowCount)
+                .isReadableByPageSource(new OrcBatchPageSourceFactory(TYPE_MANAGER, false, concurrentRangeReadsHdfsEnvironment, STATS, 100));
+    }
+
     @Test(dataProvider = "rowCount")
     public void testAvro(int rowCount)
             throws Exception
@@ -337,6 +372,17 @@ public class TestHiveFileFormats
                 .isReadableByPageSource(new ParquetPageSourceFactory(TYPE_MANAGER, HDFS_ENVIRONMENT, STATS));
     }
 
+    @Test(dataProvider = "rowCount")
+    public void testParquetPageSourceConcurrentRangeReads(int rowCount)
+            throws Exception
+    {
+        assertThatFileFormat(PARQUET)
+                .withColumns(getTestColumnsSupportedByParquet())
+                .withSession(parquetPageSourceSession)
+                .withRowsCount(rowCount)
+                .isReadableByPageSource(new ParquetPageSourceFactory(TYPE_MANAGER, concurrentRangeReadsHdfsEnvironment, STATS));
+    }
+
     @Test(dataProvider = "rowCount")
     public void testParquetPageSourceSchemaEvolution(int rowCount)
             throws Exception
@@ -540,6 +586,7 @@ public class TestHiveFileFormats
                 split.getStart(),
                 split.getLength(),
                 split.getLength(),
+                0,
                 splitProperties,
                 TupleDomain.all(),
                 getColumnHandles(testColumns),
@@ -586,6 +633,7 @@ public class TestHiveFileFormats
                 split.getStart(),
                 split.getLength(),
                 split.getLength(),
+                0,
                 splitProperties,
                 TupleDomain.all(),
                 columnHandles,
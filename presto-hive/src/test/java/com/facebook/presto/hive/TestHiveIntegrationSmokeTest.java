@@ -71,6 +71,7 @@ import java.util.stream.LongStream;
 
 import static com.facebook.presto.SystemSessionProperties.COLOCATED_JOIN;
 import static com.facebook.presto.SystemSessionProperties.CONCURRENT_LIFESPANS_PER_NODE;
+import static com.facebook.presto.SystemSessionProperties.DYNAMIC_FILTERING_ENABLED;
 import static com.facebook.presto.SystemSessionProperties.DYNAMIC_SCHEDULE_FOR_GROUPED_EXECUTION;
 import static com.facebook.presto.SystemSessionProperties.EXCHANGE_MATERIALIZATION_STRATEGY;
 import static com.facebook.presto.SystemSessionProperties.GROUPED_EXECUTION_FOR_AGGREGATION;
@@ -1428,6 +1429,48 @@ public class TestHiveIntegrationSmokeTest
         assertUpdate("DROP TABLE test_null_partition");
     }
 
+    @Test
+    public void testDynamicFiltering()
+    {
+        assertUpdate("" +
+                        "CREATE TABLE test_dynamic_filtering " +
+                        "WITH (partitioned_by = ARRAY['orderstatus']) AS " +
+                        "SELECT orderkey, custkey, orderstatus FROM orders",
+                "SELECT count(*) FROM orders");
+
+        Session dynamicFiltering = Session.builder(getSession())
+                .setSystemProperty(DYNAMIC_FILTERING_ENABLED, "true")
+                .build();
+
+        // join keys on a regular and on a partition column
+        assertQuery(
+                dynamicFiltering,
+                "SELECT t.orderkey, t.custkey FROM test_dynamic_filtering t JOIN orders o " +
+                        "ON t.orderkey = o.orderkey AND t.orderstatus = o.orderstatus " +
+                        "WHERE o.custkey < 10",
+                "SELECT orderkey, custkey FROM orders WHERE custkey < 10");
+
+        // enough build side keys to fall back to a range
+        assertQuery(
+                dynamicFiltering,
+                "SELECT count(*) FROM test_dynamic_filtering t JOIN orders o ON t.orderkey = o.orderkey WHERE o.orderkey % 3 = 0",
+                "SELECT count(*) FROM orders WHERE orderkey % 3 = 0");
+
+        // empty build side
+        assertQuery(
+                dynamicFiltering,
+                "SELECT count(*) FROM test_dynamic_filtering t JOIN orders o ON t.custkey = o.custkey WHERE o.orderkey < 0",
+                "SELECT 0");
+
+        // unmatched probe rows are kept by a left join
+        assertQuery(
+                dynamicFiltering,
+                "SELECT count(*) FROM test_dynamic_filtering t LEFT JOIN (SELECT * FROM orders WHERE orderkey < 0) o ON t.orderkey = o.orderkey",
+                "SELECT count(*) FROM orders");
+
+        assertUpdate("DROP TABLE test_dynamic_filtering");
+    }
+
     @Test
     public void testPartitionPerScanLimit()
     {
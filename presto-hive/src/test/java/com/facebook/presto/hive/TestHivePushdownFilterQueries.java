@@ -22,6 +22,7 @@ import org.testng.annotations.Test;
 
 import java.util.Optional;
 
+import static com.facebook.presto.SystemSessionProperties.DYNAMIC_FILTERING_ENABLED;
 import static com.facebook.presto.hive.HiveQueryRunner.HIVE_CATALOG;
 import static com.facebook.presto.hive.HiveSessionProperties.PUSHDOWN_FILTER_ENABLED;
 import static io.airlift.tpch.TpchTable.getTables;
@@ -120,6 +121,9 @@ public class TestHivePushdownFilterQueries
         // multi-column filter functions
         assertQuery("SELECT custkey, orderdate FROM orders WHERE (orderkey + custkey) % 5 = 0");
 
+        // filter functions on different sets of columns; each function is applied as soon as its inputs are read
+        assertQuery("SELECT orderkey, orderdate FROM orders WHERE lower(orderstatus) LIKE 'f%' AND (custkey % 3 = 0 OR orderkey % 7 = 0) AND totalprice > custkey * 10");
+
         // filter function with an error
         assertQueryFails("SELECT custkey, orderdate FROM orders WHERE array[1, 2, 3][orderkey % 5 + custkey % 7 + 1] > 0", "Array subscript out of bounds");
 
@@ -161,6 +165,24 @@ public class TestHivePushdownFilterQueries
         assertUpdate("DROP TABLE test_bucket_column");
     }
 
+    @Test
+    public void testSubfieldFilters()
+    {
+        getQueryRunner().execute("CREATE TABLE test_subfield_filters AS " +
+                "SELECT orderkey, CAST(ROW(custkey, orderstatus) AS ROW(custkey BIGINT, status VARCHAR)) AS info, " +
+                "ARRAY[custkey, shippriority] AS keys, " +
+                "MAP(ARRAY['custkey', 'priority'], ARRAY[custkey, shippriority]) AS props " +
+                "FROM orders");
+
+        assertQuery("SELECT orderkey FROM test_subfield_filters WHERE info.custkey BETWEEN 500 AND 800", "SELECT orderkey FROM orders WHERE custkey BETWEEN 500 AND 800");
+        assertQuery("SELECT orderkey, info.status FROM test_subfield_filters WHERE info.status = 'F'", "SELECT orderkey, orderstatus FROM orders WHERE orderstatus = 'F'");
+        assertQuery("SELECT orderkey, keys[2] FROM test_subfield_filters WHERE keys[1] < 100", "SELECT orderkey, shippriority FROM orders WHERE custkey < 100");
+        assertQuery("SELECT orderkey, props['priority'] FROM test_subfield_filters WHERE props['custkey'] > 1000", "SELECT orderkey, shippriority FROM orders WHERE custkey > 1000");
+        assertQuery("SELECT count(*) FROM test_subfield_filters WHERE info IS NOT NULL", "SELECT count(*) FROM orders");
+
+        assertUpdate("DROP TABLE test_subfield_filters");
+    }
+
     @Test
     public void testPathColumn()
     {
@@ -169,6 +191,17 @@ public class TestHivePushdownFilterQueries
         assertQuerySucceeds(session, "SELECT linenumber, \"$path\" FROM lineitem WHERE length(\"$path\") % 2 = linenumber % 2");
     }
 
+    @Test
+    public void testDynamicFiltering()
+    {
+        Session session = Session.builder(getQueryRunner().getDefaultSession())
+                .setSystemProperty(DYNAMIC_FILTERING_ENABLED, "true")
+                .build();
+        assertQuery(session, "SELECT l.linenumber, l.orderkey FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey WHERE o.custkey < 10");
+        assertQuery(session, "SELECT count(*) FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey WHERE o.orderkey % 3 = 0");
+        assertQuery(session, "SELECT count(*) FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey WHERE o.orderkey < 0");
+    }
+
     private void assertQueryUsingH2Cte(String query)
     {
         assertQuery(query, WITH_LINEITEM_EX + query);
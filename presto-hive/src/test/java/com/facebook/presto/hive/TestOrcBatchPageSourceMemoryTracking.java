@@ -477,6 +477,7 @@ public class TestOrcBatchPageSourceMemoryTracking
                     fileSplit.getStart(),
                     fileSplit.getLength(),
                     fileSplit.getLength(),
+                    0,
                     schema,
                     TupleDomain.all(),
                     columns,
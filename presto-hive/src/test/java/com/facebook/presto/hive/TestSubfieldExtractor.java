@@ -58,6 +58,8 @@ public class TestSubfieldExtractor
             RowType.field("c", new ArrayType(BIGINT)),
             RowType.field("d", mapType(BIGINT, BIGINT)),
             RowType.field("e", mapType(VARCHAR, BIGINT)))));
+    private static final VariableReferenceExpression C_BIGINT_TO_STRUCT_MAP = new VariableReferenceExpression("c_bigint_to_struct_map", mapType(BIGINT, RowType.from(ImmutableList.of(
+            RowType.field("a", BIGINT)))));
 
     private FunctionManager functionManager;
     private SubfieldExtractor subfieldExtractor;
@@ -86,6 +88,9 @@ public class TestSubfieldExtractor
         assertSubfieldExtract(mapSubscript(dereference(C_STRUCT, 4), constant(Slices.utf8Slice("foo"), VARCHAR)), "c_struct.e[\"foo\"]");
 
         assertEquals(subfieldExtractor.extract(constant(2, INTEGER)), Optional.empty());
+
+        // subscripts are supported only at the end of the path
+        assertEquals(subfieldExtractor.extract(dereference(mapSubscript(C_BIGINT_TO_STRUCT_MAP, constant(5, BIGINT)), 0)), Optional.empty());
     }
 
     private void assertSubfieldExtract(RowExpression expression, String subfield)
@@ -0,0 +1,273 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive.cache;
+
+import io.airlift.units.DataSize;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.io.Files.createTempDir;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.nio.file.Files.write;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestLocalDataCache
+{
+    private static final int FILE_SIZE = 10_000;
+    private static final long FILE_MODIFIED_TIME = 1_000;
+
+    private File tempDir;
+    private File cacheDirectory;
+    private Path path;
+    private byte[] data;
+    private FileSystem fileSystem;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        tempDir = createTempDir();
+        cacheDirectory = new File(tempDir, "cache");
+        File file = new File(tempDir, "data");
+        data = new byte[FILE_SIZE];
+        new Random(42).nextBytes(data);
+        write(file.toPath(), data);
+        path = new Path(file.toURI());
+        // bypass the file system cache, which returns wrapped file systems once it is installed
+        fileSystem = new RawLocalFileSystem();
+        fileSystem.initialize(URI.create("file:///"), new Configuration());
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(tempDir.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testReadThrough()
+            throws IOException
+    {
+        LocalDataCache cache = new LocalDataCache(Optional.of(cacheDirectory), new DataSize(1, MEGABYTE), new DataSize(1, KILOBYTE), directExecutor());
+        AtomicInteger opens = new AtomicInteger();
+
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, opens)) {
+            assertRead(input, 0, 3_000);
+            assertRead(input, 6_200, 3_800);
+        }
+        assertEquals(opens.get(), 1);
+        assertEquals(cache.getCachedPages(), 7);
+        assertEquals(cache.getCachedBytes(), 6 * 1024 + FILE_SIZE % 1024);
+
+        // cached pages are read without opening the file, and partially cached ranges only read the missing pages
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, opens)) {
+            assertRead(input, 1_000, 2_000);
+            assertRead(input, 7_000, 3_000);
+        }
+        assertEquals(opens.get(), 1);
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, opens)) {
+            assertRead(input, 0, FILE_SIZE);
+        }
+        assertEquals(opens.get(), 2);
+        assertEquals(cache.getCachedPages(), 10);
+        assertEquals(cacheFiles(), 10);
+    }
+
+    @Test
+    public void testSequentialRead()
+            throws IOException
+    {
+        LocalDataCache cache = new LocalDataCache(Optional.of(cacheDirectory), new DataSize(1, MEGABYTE), new DataSize(1, KILOBYTE), directExecutor());
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, new AtomicInteger())) {
+            input.seek(9_000);
+            byte[] buffer = new byte[2_000];
+            assertEquals(input.read(buffer, 0, buffer.length), 1_000);
+            assertEquals(Arrays.copyOf(buffer, 1_000), Arrays.copyOfRange(data, 9_000, FILE_SIZE));
+            assertEquals(input.getPos(), FILE_SIZE);
+            assertEquals(input.read(), -1);
+
+            input.seek(10);
+            assertEquals(input.read(), data[10] & 0xFF);
+            assertEquals(input.getPos(), 11);
+        }
+    }
+
+    @Test
+    public void testFileVersion()
+            throws IOException
+    {
+        LocalDataCache cache = new LocalDataCache(Optional.of(cacheDirectory), new DataSize(1, MEGABYTE), new DataSize(1, KILOBYTE), directExecutor());
+        AtomicInteger opens = new AtomicInteger();
+
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, opens)) {
+            assertRead(input, 0, 1_000);
+        }
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME + 1, opens)) {
+            assertRead(input, 0, 1_000);
+        }
+        assertEquals(opens.get(), 2);
+    }
+
+    @Test
+    public void testChecksumFailure()
+            throws IOException
+    {
+        LocalDataCache cache = new LocalDataCache(Optional.of(cacheDirectory), new DataSize(1, MEGABYTE), new DataSize(1, KILOBYTE), directExecutor());
+        AtomicInteger opens = new AtomicInteger();
+
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, opens)) {
+            assertRead(input, 0, 1_000);
+        }
+        File[] pages = cacheDirectory.listFiles();
+        assertEquals(pages.length, 1);
+        byte[] corrupted = Arrays.copyOf(data, 1024);
+        corrupted[7]++;
+        write(pages[0].toPath(), corrupted);
+
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, opens)) {
+            assertRead(input, 0, 1_000);
+        }
+        assertEquals(opens.get(), 2);
+        assertEquals(cache.getChecksumFailures(), 1);
+        assertFalse(pages[0].exists());
+    }
+
+    @Test
+    public void testReadsOnlyRequestedBlocks()
+            throws IOException
+    {
+        LocalDataCache cache = new LocalDataCache(Optional.of(cacheDirectory), new DataSize(1, MEGABYTE), new DataSize(4, KILOBYTE), 1024, directExecutor());
+        AtomicInteger opens = new AtomicInteger();
+
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, opens)) {
+            assertRead(input, 0, 4_096);
+        }
+        File[] pages = cacheDirectory.listFiles();
+        assertEquals(pages.length, 1);
+        byte[] corrupted = Arrays.copyOf(data, 4_096);
+        corrupted[3_500]++;
+        write(pages[0].toPath(), corrupted);
+
+        // the corrupt block is not read, so the page is still served
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, opens)) {
+            assertRead(input, 100, 2_900);
+        }
+        assertEquals(opens.get(), 1);
+        assertEquals(cache.getChecksumFailures(), 0);
+
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, opens)) {
+            assertRead(input, 3_000, 1_000);
+        }
+        assertEquals(opens.get(), 2);
+        assertEquals(cache.getChecksumFailures(), 1);
+    }
+
+    @Test
+    public void testBackgroundWrites()
+            throws IOException
+    {
+        Queue<Runnable> writes = new ArrayDeque<>();
+        LocalDataCache cache = new LocalDataCache(Optional.of(cacheDirectory), new DataSize(1, MEGABYTE), new DataSize(1, KILOBYTE), writes::add);
+        AtomicInteger opens = new AtomicInteger();
+
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, opens)) {
+            assertRead(input, 0, 2_000);
+            // a page waiting to be written is not written twice
+            assertRead(input, 0, 2_000);
+        }
+        assertEquals(writes.size(), 2);
+        assertEquals(cache.getCachedPages(), 0);
+        assertEquals(cacheFiles(), 0);
+
+        while (!writes.isEmpty()) {
+            writes.poll().run();
+        }
+        assertEquals(cache.getCachedPages(), 2);
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, opens)) {
+            assertRead(input, 0, 2_000);
+        }
+        assertEquals(opens.get(), 1);
+    }
+
+    @Test
+    public void testEviction()
+            throws IOException
+    {
+        LocalDataCache cache = new LocalDataCache(Optional.of(cacheDirectory), new DataSize(8, KILOBYTE), new DataSize(1, KILOBYTE), directExecutor());
+        try (FSDataInputStream input = openFile(cache, FILE_MODIFIED_TIME, new AtomicInteger())) {
+            assertRead(input, 0, FILE_SIZE);
+        }
+        assertTrue(cache.getCachedBytes() <= 8 * 1024);
+        assertEquals(cacheFiles(), cache.getCachedPages());
+
+        cache.flushCache();
+        assertEquals(cache.getCachedBytes(), 0);
+        assertEquals(cacheFiles(), 0);
+    }
+
+    @Test
+    public void testStaleFilesDeleted()
+            throws IOException
+    {
+        assertTrue(cacheDirectory.mkdirs());
+        write(new File(cacheDirectory, "1.page").toPath(), data);
+        new LocalDataCache(Optional.of(cacheDirectory), new DataSize(1, MEGABYTE), new DataSize(1, KILOBYTE), directExecutor());
+        assertEquals(cacheFiles(), 0);
+    }
+
+    private FSDataInputStream openFile(LocalDataCache cache, long fileModifiedTime, AtomicInteger opens)
+    {
+        return cache.openFile(path, FILE_SIZE, fileModifiedTime, () -> {
+            opens.incrementAndGet();
+            return fileSystem.open(path);
+        });
+    }
+
+    private void assertRead(FSDataInputStream input, int position, int length)
+            throws IOException
+    {
+        byte[] buffer = new byte[length];
+        input.readFully(position, buffer);
+        assertEquals(buffer, Arrays.copyOfRange(data, position, position + length));
+    }
+
+    private int cacheFiles()
+    {
+        return cacheDirectory.listFiles().length;
+    }
+}
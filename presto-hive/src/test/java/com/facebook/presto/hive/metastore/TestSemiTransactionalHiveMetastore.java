@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive.metastore;
+
+import com.facebook.presto.hive.DirectoryLister;
+import com.facebook.presto.hive.HadoopDirectoryLister;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.hive.HiveTestUtils.HDFS_ENVIRONMENT;
+import static com.facebook.presto.hive.HiveTestUtils.SESSION;
+import static com.facebook.presto.hive.HiveType.HIVE_STRING;
+import static com.facebook.presto.hive.metastore.PrestoTableType.MANAGED_TABLE;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestSemiTransactionalHiveMetastore
+{
+    @Test
+    public void testTruncateInvalidatesDirectoryListing()
+            throws IOException
+    {
+        File tableDirectory = Files.createTempDir();
+        try {
+            File dataFile = new File(tableDirectory, "data");
+            assertTrue(dataFile.createNewFile());
+            Path tablePath = new Path(tableDirectory.toURI().toString());
+
+            RecordingDirectoryLister directoryLister = new RecordingDirectoryLister();
+            SemiTransactionalHiveMetastore metastore = new SemiTransactionalHiveMetastore(
+                    HDFS_ENVIRONMENT,
+                    new UnimplementedHiveMetastore()
+                    {
+                        @Override
+                        public Optional<Table> getTable(String databaseName, String tableName)
+                        {
+                            return Optional.of(table(tablePath));
+                        }
+                    },
+                    newDirectExecutorService(),
+                    false,
+                    false,
+                    directoryLister);
+
+            metastore.truncateUnpartitionedTable(SESSION, "test_dbname", "test_table");
+            assertTrue(dataFile.exists());
+            assertEquals(directoryLister.getInvalidatedPaths(), ImmutableList.of());
+
+            metastore.commit();
+            assertFalse(dataFile.exists());
+            assertEquals(directoryLister.getInvalidatedPaths(), ImmutableList.of(tablePath));
+        }
+        finally {
+            deleteRecursively(tableDirectory.toPath(), ALLOW_INSECURE);
+        }
+    }
+
+    private static Table table(Path location)
+    {
+        Table.Builder tableBuilder = Table.builder();
+        tableBuilder.getStorageBuilder()
+                .setStorageFormat(
+                        StorageFormat.create(
+                                "com.facebook.hive.orc.OrcSerde",
+                                "org.apache.hadoop.hive.ql.io.RCFileInputFormat",
+                                "org.apache.hadoop.hive.ql.io.RCFileInputFormat"))
+                .setLocation(location.toString())
+                .setSkewed(false);
+
+        return tableBuilder
+                .setDatabaseName("test_dbname")
+                .setOwner("testOwner")
+                .setTableName("test_table")
+                .setTableType(MANAGED_TABLE)
+                .setDataColumns(ImmutableList.of(new Column("col1", HIVE_STRING, Optional.empty())))
+                .setParameters(ImmutableMap.of())
+                .build();
+    }
+
+    private static class RecordingDirectoryLister
+            implements DirectoryLister
+    {
+        private final DirectoryLister delegate = new HadoopDirectoryLister();
+        private final List<Path> invalidatedPaths = new ArrayList<>();
+
+        @Override
+        public RemoteIterator<LocatedFileStatus> list(FileSystem fs, Table table, Path path)
+                throws IOException
+        {
+            return delegate.list(fs, table, path);
+        }
+
+        @Override
+        public void invalidate(Path path)
+        {
+            invalidatedPaths.add(path);
+        }
+
+        public List<Path> getInvalidatedPaths()
+        {
+            return invalidatedPaths;
+        }
+    }
+}
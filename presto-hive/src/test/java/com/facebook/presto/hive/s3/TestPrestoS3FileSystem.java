@@ -27,7 +27,9 @@ import com.amazonaws.services.s3.model.CannedAccessControlList;
 import com.amazonaws.services.s3.model.EncryptionMaterials;
 import com.amazonaws.services.s3.model.EncryptionMaterialsProvider;
 import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
 import com.facebook.presto.hive.s3.PrestoS3FileSystem.UnrecoverableS3OperationException;
 import com.google.common.base.VerifyException;
 import org.apache.hadoop.conf.Configuration;
@@ -41,12 +43,17 @@ import org.testng.annotations.Test;
 
 import javax.crypto.spec.SecretKeySpec;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static com.facebook.presto.hive.s3.PrestoS3FileSystem.S3_DIRECTORY_OBJECT_CONTENT_TYPE;
 import static com.facebook.presto.hive.s3.S3ConfigurationUpdater.S3_ACCESS_KEY;
@@ -71,8 +78,11 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.io.MoreFiles.deleteRecursively;
 import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static io.airlift.testing.Assertions.assertInstanceOf;
+import static java.lang.Math.toIntExact;
 import static java.nio.file.Files.createTempDirectory;
 import static java.nio.file.Files.createTempFile;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.http.HttpStatus.SC_FORBIDDEN;
 import static org.apache.http.HttpStatus.SC_INTERNAL_SERVER_ERROR;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
@@ -357,6 +367,64 @@ public class TestPrestoS3FileSystem
         }
     }
 
+    @Test(timeOut = 60_000)
+    public void testConcurrentPositionalReads()
+            throws Exception
+    {
+        byte[] data = new byte[1_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        // each request waits until the other one has been sent, which never happens if positional reads are serialized
+        CountDownLatch requests = new CountDownLatch(2);
+        MockAmazonS3 s3 = new MockAmazonS3()
+        {
+            @Override
+            public S3Object getObject(GetObjectRequest getObjectRequest)
+            {
+                requests.countDown();
+                try {
+                    assertTrue(requests.await(10, SECONDS), "positional reads were not concurrent");
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                long[] range = getObjectRequest.getRange();
+                S3Object object = new S3Object();
+                object.setObjectContent(new ByteArrayInputStream(data, toIntExact(range[0]), toIntExact(range[1] - range[0] + 1)));
+                return object;
+            }
+        };
+
+        ExecutorService executor = newCachedThreadPool();
+        try (PrestoS3FileSystem fs = new PrestoS3FileSystem()) {
+            Configuration configuration = new Configuration();
+            configuration.setInt(S3_MAX_CLIENT_RETRIES, 0);
+            fs.initialize(new URI("s3n://test-bucket/"), configuration);
+            fs.setS3Client(s3);
+            try (FSDataInputStream inputStream = fs.open(new Path("s3n://test-bucket/test"))) {
+                Future<byte[]> first = executor.submit(() -> readFully(inputStream, 100, 200));
+                Future<byte[]> second = executor.submit(() -> readFully(inputStream, 500, 300));
+                assertEquals(first.get(), Arrays.copyOfRange(data, 100, 300));
+                assertEquals(second.get(), Arrays.copyOfRange(data, 500, 800));
+                // positional reads do not move the stream
+                assertEquals(inputStream.getPos(), 0);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] readFully(FSDataInputStream inputStream, long position, int length)
+            throws IOException
+    {
+        byte[] buffer = new byte[length];
+        inputStream.readFully(position, buffer);
+        return buffer;
+    }
+
     @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*Failing getObjectMetadata call with " + SC_FORBIDDEN + ".*")
     public void testGetMetadataForbidden()
             throws Exception
@@ -20,6 +20,7 @@ import com.facebook.presto.memory.MemoryManagerConfig;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.session.PropertyMetadata;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
+import com.facebook.presto.sql.analyzer.FeaturesConfig.ExchangeCompressionCodec;
 import com.facebook.presto.sql.analyzer.FeaturesConfig.JoinDistributionType;
 import com.facebook.presto.sql.analyzer.FeaturesConfig.JoinReorderingStrategy;
 import com.facebook.presto.sql.analyzer.FeaturesConfig.PartialMergePushdownStrategy;
@@ -58,6 +59,7 @@ public final class SystemSessionProperties
     public static final String OPTIMIZE_HASH_GENERATION = "optimize_hash_generation";
     public static final String JOIN_DISTRIBUTION_TYPE = "join_distribution_type";
     public static final String JOIN_MAX_BROADCAST_TABLE_SIZE = "join_max_broadcast_table_size";
+    public static final String USE_OBSERVED_JOIN_SIDE_SIZE = "use_observed_join_side_size";
     public static final String DISTRIBUTED_JOIN = "distributed_join";
     public static final String DISTRIBUTED_INDEX_JOIN = "distributed_index_join";
     public static final String HASH_PARTITION_COUNT = "hash_partition_count";
@@ -68,6 +70,7 @@ public final class SystemSessionProperties
     public static final String DYNAMIC_SCHEDULE_FOR_GROUPED_EXECUTION = "dynamic_schedule_for_grouped_execution";
     public static final String RECOVERABLE_GROUPED_EXECUTION = "recoverable_grouped_execution";
     public static final String MAX_FAILED_TASK_PERCENTAGE = "max_failed_task_percentage";
+    public static final String LEAF_TASK_RETRY = "leaf_task_retry";
     public static final String PREFER_STREAMING_OPERATORS = "prefer_streaming_operators";
     public static final String TASK_WRITER_COUNT = "task_writer_count";
     public static final String TASK_CONCURRENCY = "task_concurrency";
@@ -96,16 +99,22 @@ public final class SystemSessionProperties
     public static final String MAX_REORDERED_JOINS = "max_reordered_joins";
     public static final String INITIAL_SPLITS_PER_NODE = "initial_splits_per_node";
     public static final String SPLIT_CONCURRENCY_ADJUSTMENT_INTERVAL = "split_concurrency_adjustment_interval";
+    public static final String ADAPTIVE_SPLIT_CONCURRENCY = "adaptive_split_concurrency";
     public static final String OPTIMIZE_METADATA_QUERIES = "optimize_metadata_queries";
     public static final String FAST_INEQUALITY_JOINS = "fast_inequality_joins";
     public static final String QUERY_PRIORITY = "query_priority";
     public static final String SPILL_ENABLED = "spill_enabled";
+    public static final String ORDER_BY_SPILL_ENABLED = "order_by_spill_enabled";
+    public static final String WINDOW_SPILL_ENABLED = "window_spill_enabled";
+    public static final String TOPN_ROW_NUMBER_SPILL_ENABLED = "topn_row_number_spill_enabled";
+    public static final String MARK_DISTINCT_SPILL_ENABLED = "mark_distinct_spill_enabled";
     public static final String AGGREGATION_OPERATOR_UNSPILL_MEMORY_LIMIT = "aggregation_operator_unspill_memory_limit";
     public static final String OPTIMIZE_DISTINCT_AGGREGATIONS = "optimize_mixed_distinct_aggregations";
     public static final String LEGACY_ROW_FIELD_ORDINAL_ACCESS = "legacy_row_field_ordinal_access";
     public static final String ITERATIVE_OPTIMIZER = "iterative_optimizer_enabled";
     public static final String ITERATIVE_OPTIMIZER_TIMEOUT = "iterative_optimizer_timeout";
     public static final String EXCHANGE_COMPRESSION = "exchange_compression";
+    public static final String EXCHANGE_COMPRESSION_CODEC = "exchange_compression_codec";
     public static final String LEGACY_TIMESTAMP = "legacy_timestamp";
     public static final String ENABLE_INTERMEDIATE_AGGREGATIONS = "enable_intermediate_aggregations";
     public static final String PUSH_AGGREGATION_THROUGH_JOIN = "push_aggregation_through_join";
@@ -130,6 +139,9 @@ public final class SystemSessionProperties
     public static final String PUSH_LIMIT_THROUGH_OUTER_JOIN = "push_limit_through_outer_join";
     public static final String MAX_CONCURRENT_MATERIALIZATIONS = "max_concurrent_materializations";
     public static final String PUSHDOWN_SUBFIELDS_ENABLED = "pushdown_subfields_enabled";
+    public static final String DYNAMIC_FILTERING_ENABLED = "dynamic_filtering_enabled";
+    public static final String DYNAMIC_FILTERING_MAX_DISTINCT_VALUES = "dynamic_filtering_max_distinct_values";
+    public static final String SEMI_JOIN_BLOOM_FILTER_ENABLED = "semi_join_bloom_filter_enabled";
 
     private final List<PropertyMetadata<?>> sessionProperties;
 
@@ -182,6 +194,11 @@ public final class SystemSessionProperties
                         true,
                         value -> DataSize.valueOf((String) value),
                         DataSize::toString),
+                booleanProperty(
+                        USE_OBSERVED_JOIN_SIDE_SIZE,
+                        "Experimental: Choose the join distribution from the output size of the join inputs observed in earlier queries",
+                        featuresConfig.isUseObservedJoinSideSize(),
+                        false),
                 booleanProperty(
                         DISTRIBUTED_INDEX_JOIN,
                         "Distribute index joins on join keys instead of executing inline",
@@ -234,6 +251,11 @@ public final class SystemSessionProperties
                         "Experimental: Use recoverable grouped execution when possible",
                         featuresConfig.isRecoverableGroupedExecutionEnabled(),
                         false),
+                booleanProperty(
+                        LEAF_TASK_RETRY,
+                        "Experimental: Retry failed tasks of source partitioned leaf stages while their splits are being scheduled",
+                        featuresConfig.isLeafTaskRetryEnabled(),
+                        false),
                 booleanProperty(
                         PREFER_STREAMING_OPERATORS,
                         "Prefer source table layouts that produce streaming operators",
@@ -360,6 +382,11 @@ public final class SystemSessionProperties
                         false,
                         value -> Duration.valueOf((String) value),
                         Duration::toString),
+                booleanProperty(
+                        ADAPTIVE_SPLIT_CONCURRENCY,
+                        "Experimental: Adjust the number of concurrent splits per node to the time splits spend on CPU versus waiting for input",
+                        taskManagerConfig.isAdaptiveSplitConcurrencyEnabled(),
+                        false),
                 booleanProperty(
                         OPTIMIZE_METADATA_QUERIES,
                         "Enable optimization for metadata queries",
@@ -461,6 +488,26 @@ public final class SystemSessionProperties
                             return spillEnabled;
                         },
                         value -> value),
+                booleanProperty(
+                        ORDER_BY_SPILL_ENABLED,
+                        "Spill in OrderBy if spill_enabled is also set",
+                        featuresConfig.isOrderBySpillEnabled(),
+                        false),
+                booleanProperty(
+                        WINDOW_SPILL_ENABLED,
+                        "Spill in WindowOperator if spill_enabled is also set",
+                        featuresConfig.isWindowSpillEnabled(),
+                        false),
+                booleanProperty(
+                        TOPN_ROW_NUMBER_SPILL_ENABLED,
+                        "Spill in TopNRowNumberOperator if spill_enabled is also set",
+                        featuresConfig.isTopNRowNumberSpillEnabled(),
+                        false),
+                booleanProperty(
+                        MARK_DISTINCT_SPILL_ENABLED,
+                        "Spill in MarkDistinctOperator if spill_enabled is also set",
+                        featuresConfig.isMarkDistinctSpillEnabled(),
+                        false),
                 new PropertyMetadata<>(
                         AGGREGATION_OPERATOR_UNSPILL_MEMORY_LIMIT,
                         "Experimental: How much memory can should be allocated per aggragation operator in unspilling process",
@@ -499,6 +546,18 @@ public final class SystemSessionProperties
                         "Enable compression in exchanges",
                         featuresConfig.isExchangeCompressionEnabled(),
                         false),
+                new PropertyMetadata<>(
+                        EXCHANGE_COMPRESSION_CODEC,
+                        format("Codec used to compress exchanged pages. Options are %s",
+                                Stream.of(ExchangeCompressionCodec.values())
+                                        .map(ExchangeCompressionCodec::name)
+                                        .collect(joining(","))),
+                        VARCHAR,
+                        ExchangeCompressionCodec.class,
+                        featuresConfig.getExchangeCompressionCodec(),
+                        false,
+                        value -> ExchangeCompressionCodec.valueOf(((String) value).toUpperCase()),
+                        ExchangeCompressionCodec::name),
                 booleanProperty(
                         LEGACY_TIMESTAMP,
                         "Use legacy TIME & TIMESTAMP semantics (warning: this will be removed)",
@@ -626,6 +685,21 @@ public final class SystemSessionProperties
                         PUSHDOWN_SUBFIELDS_ENABLED,
                         "Experimental: enable subfield pruning",
                         featuresConfig.isPushdownSubfieldsEnabled(),
+                        false),
+                booleanProperty(
+                        DYNAMIC_FILTERING_ENABLED,
+                        "Experimental: prune the probe side table scan of a join using the join keys collected on the build side",
+                        featuresConfig.isDynamicFilteringEnabled(),
+                        false),
+                integerProperty(
+                        DYNAMIC_FILTERING_MAX_DISTINCT_VALUES,
+                        "Maximum number of distinct join keys kept in a dynamic filter before it is reduced to a range",
+                        featuresConfig.getDynamicFilteringMaxDistinctValues(),
+                        false),
+                booleanProperty(
+                        SEMI_JOIN_BLOOM_FILTER_ENABLED,
+                        "Experimental: check a Bloom filter of the semi join build side before probing the hash set",
+                        featuresConfig.isSemiJoinBloomFilterEnabled(),
                         false));
     }
 
@@ -663,6 +737,11 @@ public final class SystemSessionProperties
         return Optional.ofNullable(session.getSystemProperty(JOIN_MAX_BROADCAST_TABLE_SIZE, DataSize.class));
     }
 
+    public static boolean isUseObservedJoinSideSize(Session session)
+    {
+        return session.getSystemProperty(USE_OBSERVED_JOIN_SIDE_SIZE, Boolean.class);
+    }
+
     public static boolean isDistributedIndexJoinEnabled(Session session)
     {
         return session.getSystemProperty(DISTRIBUTED_INDEX_JOIN, Boolean.class);
@@ -703,6 +782,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(RECOVERABLE_GROUPED_EXECUTION, Boolean.class);
     }
 
+    public static boolean isLeafTaskRetryEnabled(Session session)
+    {
+        return session.getSystemProperty(LEAF_TASK_RETRY, Boolean.class);
+    }
+
     public static double getMaxFailedTaskPercentage(Session session)
     {
         return session.getSystemProperty(MAX_FAILED_TASK_PERCENTAGE, Double.class);
@@ -864,6 +948,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(SPLIT_CONCURRENCY_ADJUSTMENT_INTERVAL, Duration.class);
     }
 
+    public static boolean isAdaptiveSplitConcurrency(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_SPLIT_CONCURRENCY, Boolean.class);
+    }
+
     public static Duration getQueryMaxCpuTime(Session session)
     {
         return session.getSystemProperty(QUERY_MAX_CPU_TIME, Duration.class);
@@ -874,6 +963,26 @@ public final class SystemSessionProperties
         return session.getSystemProperty(SPILL_ENABLED, Boolean.class);
     }
 
+    public static boolean isOrderBySpillEnabled(Session session)
+    {
+        return session.getSystemProperty(ORDER_BY_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
+    }
+
+    public static boolean isWindowSpillEnabled(Session session)
+    {
+        return session.getSystemProperty(WINDOW_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
+    }
+
+    public static boolean isTopNRowNumberSpillEnabled(Session session)
+    {
+        return session.getSystemProperty(TOPN_ROW_NUMBER_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
+    }
+
+    public static boolean isMarkDistinctSpillEnabled(Session session)
+    {
+        return session.getSystemProperty(MARK_DISTINCT_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
+    }
+
     public static DataSize getAggregationOperatorUnspillMemoryLimit(Session session)
     {
         DataSize memoryLimitForMerge = session.getSystemProperty(AGGREGATION_OPERATOR_UNSPILL_MEMORY_LIMIT, DataSize.class);
@@ -912,6 +1021,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(EXCHANGE_COMPRESSION, Boolean.class);
     }
 
+    public static ExchangeCompressionCodec getExchangeCompressionCodec(Session session)
+    {
+        return session.getSystemProperty(EXCHANGE_COMPRESSION_CODEC, ExchangeCompressionCodec.class);
+    }
+
     public static boolean isEnableIntermediateAggregations(Session session)
     {
         return session.getSystemProperty(ENABLE_INTERMEDIATE_AGGREGATIONS, Boolean.class);
@@ -1063,4 +1177,19 @@ public final class SystemSessionProperties
     {
         return session.getSystemProperty(PUSHDOWN_SUBFIELDS_ENABLED, Boolean.class);
     }
+
+    public static boolean isDynamicFilteringEnabled(Session session)
+    {
+        return session.getSystemProperty(DYNAMIC_FILTERING_ENABLED, Boolean.class);
+    }
+
+    public static int getDynamicFilteringMaxDistinctValues(Session session)
+    {
+        return session.getSystemProperty(DYNAMIC_FILTERING_MAX_DISTINCT_VALUES, Integer.class);
+    }
+
+    public static boolean isSemiJoinBloomFilterEnabled(Session session)
+    {
+        return session.getSystemProperty(SEMI_JOIN_BLOOM_FILTER_ENABLED, Boolean.class);
+    }
 }
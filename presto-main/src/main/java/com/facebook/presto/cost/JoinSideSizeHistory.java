@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import com.facebook.presto.execution.QueryInfo;
+import com.facebook.presto.execution.StageInfo;
+import com.facebook.presto.operator.OperatorStats;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.spi.plan.FilterNode;
+import com.facebook.presto.spi.plan.PlanNode;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.plan.TableScanNode;
+import com.facebook.presto.spi.plan.ValuesNode;
+import com.facebook.presto.sql.planner.iterative.Lookup;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.facebook.presto.execution.QueryState.FINISHED;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.DAYS;
+
+/**
+ * Output sizes of join inputs observed in finished queries, keyed by the shape of the
+ * input's plan. Only inputs made of table scans, values, filters and projections are
+ * tracked, as their output does not depend on the rest of the query.
+ */
+@ThreadSafe
+public class JoinSideSizeHistory
+{
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final Cache<List<Object>, Long> observedOutputBytes = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterWrite(1, DAYS)
+            .build();
+
+    // join inputs planned by running queries that are waiting for their actual output size
+    private final Map<QueryId, Map<PlanNodeId, List<Object>>> plannedJoinSides = new ConcurrentHashMap<>();
+
+    public Optional<DataSize> getObservedOutputSize(PlanNode node, Lookup lookup)
+    {
+        return getKey(node, lookup)
+                .map(observedOutputBytes::getIfPresent)
+                .map(DataSize::succinctBytes);
+    }
+
+    public void recordPlannedJoinSide(QueryId queryId, PlanNode node, Lookup lookup)
+    {
+        requireNonNull(queryId, "queryId is null");
+        PlanNode resolved = lookup.resolve(node);
+        if (plannedJoinSides.size() >= MAX_ENTRIES && !plannedJoinSides.containsKey(queryId)) {
+            return;
+        }
+        getKey(resolved, lookup).ifPresent(key -> plannedJoinSides.computeIfAbsent(queryId, ignored -> new ConcurrentHashMap<>()).put(resolved.getId(), key));
+    }
+
+    @VisibleForTesting
+    public void recordObservedOutputSize(PlanNode node, Lookup lookup, DataSize outputSize)
+    {
+        getKey(node, lookup).ifPresent(key -> observedOutputBytes.put(key, outputSize.toBytes()));
+    }
+
+    public void queryFinished(QueryInfo queryInfo)
+    {
+        Map<PlanNodeId, List<Object>> joinSides = plannedJoinSides.remove(queryInfo.getQueryId());
+        if (joinSides == null || queryInfo.getState() != FINISHED) {
+            // sizes of failed queries are incomplete
+            return;
+        }
+
+        for (StageInfo stageInfo : StageInfo.getAllStages(queryInfo.getOutputStage())) {
+            if (!stageInfo.getPlan().isPresent()) {
+                continue;
+            }
+            PlanNode root = stageInfo.getPlan().get().getRoot();
+            Map<PlanNodeId, PlanNode> parents = new HashMap<>();
+            collectParents(root, parents);
+
+            for (Map.Entry<PlanNodeId, List<Object>> entry : joinSides.entrySet()) {
+                PlanNodeId planNodeId = entry.getKey();
+                if (!parents.containsKey(planNodeId) && !root.getId().equals(planNodeId)) {
+                    continue;
+                }
+                getOutputBytes(stageInfo, planNodeId, parents)
+                        .ifPresent(outputBytes -> observedOutputBytes.put(entry.getValue(), outputBytes));
+            }
+        }
+    }
+
+    private static OptionalLong getOutputBytes(StageInfo stageInfo, PlanNodeId planNodeId, Map<PlanNodeId, PlanNode> parents)
+    {
+        // projections added later by the planner, such as hash computations, are
+        // usually compiled into the same operator as the node
+        Set<PlanNodeId> planNodeIds = new HashSet<>();
+        planNodeIds.add(planNodeId);
+        PlanNode parent = parents.get(planNodeId);
+        while (parent instanceof ProjectNode) {
+            planNodeIds.add(parent.getId());
+            parent = parents.get(parent.getId());
+        }
+
+        return stageInfo.getStageStats().getOperatorSummaries().stream()
+                .filter(operatorStats -> planNodeIds.contains(operatorStats.getPlanNodeId()))
+                .map(OperatorStats::getOutputDataSize)
+                .mapToLong(DataSize::toBytes)
+                .max();
+    }
+
+    private static void collectParents(PlanNode node, Map<PlanNodeId, PlanNode> parents)
+    {
+        for (PlanNode source : node.getSources()) {
+            parents.put(source.getId(), node);
+            collectParents(source, parents);
+        }
+    }
+
+    private static Optional<List<Object>> getKey(PlanNode node, Lookup lookup)
+    {
+        ImmutableList.Builder<Object> key = ImmutableList.builder();
+        PlanNode current = lookup.resolve(node);
+        while (true) {
+            key.add(current.getClass());
+            key.add(current.getOutputVariables());
+            if (current instanceof TableScanNode) {
+                TableScanNode tableScan = (TableScanNode) current;
+                key.add(tableScan.getTable().getConnectorId());
+                key.add(tableScan.getTable().getConnectorHandle());
+                // the layout holds the predicates pushed into the connector, layout handles without
+                // equals only match themselves, which makes the history miss rather than mix up inputs
+                key.add(tableScan.getTable().getLayout());
+                key.add(tableScan.getAssignments());
+                key.add(tableScan.getCurrentConstraint());
+                return Optional.of(key.build());
+            }
+            if (current instanceof ValuesNode) {
+                key.add(((ValuesNode) current).getRows());
+                return Optional.of(key.build());
+            }
+            if (current instanceof FilterNode) {
+                key.add(((FilterNode) current).getPredicate());
+                current = lookup.resolve(((FilterNode) current).getSource());
+            }
+            else if (current instanceof ProjectNode) {
+                key.add(((ProjectNode) current).getAssignments().getMap());
+                current = lookup.resolve(((ProjectNode) current).getSource());
+            }
+            else {
+                return Optional.empty();
+            }
+        }
+    }
+}
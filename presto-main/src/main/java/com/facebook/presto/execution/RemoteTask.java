@@ -40,7 +40,7 @@ public interface RemoteTask
 
     void setOutputBuffers(OutputBuffers outputBuffers);
 
-    ListenableFuture<?> removeRemoteSource(TaskId remoteSourceTaskId);
+    ListenableFuture<?> removeRemoteSource(TaskId remoteSourceTaskId, boolean discardOutput);
 
     /**
      * Listener is always notified asynchronously using a dedicated notification thread pool so, care should
@@ -27,15 +27,51 @@ public class SplitConcurrencyController
 {
     private static final double TARGET_UTILIZATION = 0.5;
 
+    // fractions of the time leaf splits are running or blocked that is spent on CPU,
+    // below which the task is considered IO bound, and above which it is considered CPU bound
+    private static final double IO_BOUND_CPU_FRACTION = 0.5;
+    private static final double CPU_BOUND_CPU_FRACTION = 0.9;
+
     private final long adjustmentIntervalNanos;
+    private final int initialConcurrency;
+    private final boolean adaptive;
     private int targetConcurrency;
     private long threadNanosSinceLastAdjustment;
 
+    private long leafSplitNanosSinceLastAdjustment;
+    private long leafSplitCpuNanosSinceLastAdjustment;
+
     public SplitConcurrencyController(int initialConcurrency, Duration adjustmentInterval)
+    {
+        this(initialConcurrency, adjustmentInterval, false);
+    }
+
+    /**
+     * @param adaptive if true, the concurrency is raised when the leaf splits are mostly waiting
+     * for input (blocked, or waiting for IO while running), and lowered back to the initial
+     * concurrency when they are mostly running on CPU, instead of being raised whenever the
+     * output buffer is not full
+     */
+    public SplitConcurrencyController(int initialConcurrency, Duration adjustmentInterval, boolean adaptive)
     {
         checkArgument(initialConcurrency > 0, "initial concurrency must be positive");
+        this.initialConcurrency = initialConcurrency;
         this.targetConcurrency = initialConcurrency;
         this.adjustmentIntervalNanos = adjustmentInterval.roundTo(NANOSECONDS);
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Records a quantum of a leaf split, and the time the split was blocked before it.
+     */
+    public void recordLeafSplitTime(long scheduledNanos, long cpuNanos, long blockedNanos)
+    {
+        checkArgument(scheduledNanos >= 0, "scheduledNanos is negative");
+        checkArgument(cpuNanos >= 0, "cpuNanos is negative");
+        checkArgument(blockedNanos >= 0, "blockedNanos is negative");
+
+        leafSplitNanosSinceLastAdjustment += scheduledNanos + blockedNanos;
+        leafSplitCpuNanosSinceLastAdjustment += cpuNanos;
     }
 
     public void update(long nanos, double utilization, int currentConcurrency)
@@ -46,6 +82,12 @@ public class SplitConcurrencyController
         checkArgument(currentConcurrency >= 0, "currentConcurrency is negative");
 
         threadNanosSinceLastAdjustment += nanos;
+        if (adaptive) {
+            if (threadNanosSinceLastAdjustment >= adjustmentIntervalNanos) {
+                adjustToLeafSplitTime(utilization, currentConcurrency);
+            }
+            return;
+        }
         if (threadNanosSinceLastAdjustment >= adjustmentIntervalNanos && utilization < TARGET_UTILIZATION && currentConcurrency >= targetConcurrency) {
             threadNanosSinceLastAdjustment = 0;
             targetConcurrency++;
@@ -65,6 +107,12 @@ public class SplitConcurrencyController
         checkArgument(utilization >= 0, "utilization is negative");
         checkArgument(currentConcurrency >= 0, "currentConcurrency is negative");
 
+        if (adaptive) {
+            if (threadNanosSinceLastAdjustment >= adjustmentIntervalNanos || threadNanosSinceLastAdjustment >= splitThreadNanos) {
+                adjustToLeafSplitTime(utilization, currentConcurrency);
+            }
+            return;
+        }
         if (threadNanosSinceLastAdjustment >= adjustmentIntervalNanos || threadNanosSinceLastAdjustment >= splitThreadNanos) {
             if (utilization > TARGET_UTILIZATION && targetConcurrency > 1) {
                 threadNanosSinceLastAdjustment = 0;
@@ -76,4 +124,28 @@ public class SplitConcurrencyController
             }
         }
     }
+
+    private void adjustToLeafSplitTime(double utilization, int currentConcurrency)
+    {
+        if (utilization > TARGET_UTILIZATION) {
+            // waiting for output, more splits would only fill the output buffer faster
+            if (targetConcurrency > 1) {
+                targetConcurrency--;
+            }
+        }
+        else if (leafSplitNanosSinceLastAdjustment > 0) {
+            double cpuFraction = leafSplitCpuNanosSinceLastAdjustment / (double) leafSplitNanosSinceLastAdjustment;
+            if (cpuFraction < IO_BOUND_CPU_FRACTION && currentConcurrency >= targetConcurrency) {
+                targetConcurrency++;
+            }
+            else if (cpuFraction > CPU_BOUND_CPU_FRACTION && targetConcurrency > initialConcurrency) {
+                // more splits than the initial concurrency only compete for the same CPUs
+                targetConcurrency--;
+            }
+        }
+
+        threadNanosSinceLastAdjustment = 0;
+        leafSplitNanosSinceLastAdjustment = 0;
+        leafSplitCpuNanosSinceLastAdjustment = 0;
+    }
 }
@@ -16,6 +16,7 @@ package com.facebook.presto.execution;
 import com.facebook.presto.Session;
 import com.facebook.presto.SystemSessionProperties;
 import com.facebook.presto.cost.CostCalculator;
+import com.facebook.presto.cost.JoinSideSizeHistory;
 import com.facebook.presto.cost.StatsCalculator;
 import com.facebook.presto.execution.QueryPreparer.PreparedQuery;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
@@ -674,6 +675,7 @@ public class SqlQueryExecution
         private final ClusterSizeMonitor clusterSizeMonitor;
         private final StatsCalculator statsCalculator;
         private final CostCalculator costCalculator;
+        private final JoinSideSizeHistory joinSideSizeHistory;
 
         @Inject
         SqlQueryExecutionFactory(QueryManagerConfig config,
@@ -697,7 +699,8 @@ public class SqlQueryExecution
                 SplitSchedulerStats schedulerStats,
                 ClusterSizeMonitor clusterSizeMonitor,
                 StatsCalculator statsCalculator,
-                CostCalculator costCalculator)
+                CostCalculator costCalculator,
+                JoinSideSizeHistory joinSideSizeHistory)
         {
             requireNonNull(config, "config is null");
             this.schedulerStats = requireNonNull(schedulerStats, "schedulerStats is null");
@@ -723,6 +726,7 @@ public class SqlQueryExecution
             this.planOptimizers = planOptimizers.get();
             this.statsCalculator = requireNonNull(statsCalculator, "statsCalculator is null");
             this.costCalculator = requireNonNull(costCalculator, "costCalculator is null");
+            this.joinSideSizeHistory = requireNonNull(joinSideSizeHistory, "joinSideSizeHistory is null");
         }
 
         @Override
@@ -768,6 +772,7 @@ public class SqlQueryExecution
                     statsCalculator,
                     costCalculator,
                     warningCollector);
+            execution.addFinalQueryInfoListener(joinSideSizeHistory::queryFinished);
 
             return execution;
         }
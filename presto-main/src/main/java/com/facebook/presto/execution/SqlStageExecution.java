@@ -28,7 +28,9 @@ import com.facebook.presto.split.RemoteSplit;
 import com.facebook.presto.sql.planner.PlanFragment;
 import com.facebook.presto.sql.planner.plan.PlanFragmentId;
 import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
@@ -42,7 +44,6 @@ import javax.annotation.concurrent.ThreadSafe;
 
 import java.net.URI;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -133,6 +134,10 @@ public final class SqlStageExecution
     @GuardedBy("this")
     private Optional<StageTaskRecoveryCallback> stageTaskRecoveryCallback = Optional.empty();
 
+    // splits scheduled on the tasks that are not finished yet, only retained if failed tasks are retried
+    @GuardedBy("this")
+    private Optional<Multimap<TaskId, Split>> scheduledSplits = Optional.empty();
+
     public static SqlStageExecution createSqlStageExecution(
             StageId stageId,
             URI location,
@@ -242,6 +247,22 @@ public final class SqlStageExecution
         this.stageTaskRecoveryCallback = Optional.of(requireNonNull(stageTaskRecoveryCallback, "stageTaskRecoveryCallback is null"));
     }
 
+    /**
+     * Retains the splits scheduled on every task until the task finishes or all splits have been
+     * scheduled, so the splits of a failed task can be scheduled again, see {@link #getScheduledSplits(TaskId)}.
+     */
+    public synchronized void retainScheduledSplits()
+    {
+        checkState(!splitsScheduled.get(), "retainScheduledSplits must be called before splits are scheduled");
+        scheduledSplits = Optional.of(ArrayListMultimap.create());
+    }
+
+    public synchronized List<Split> getScheduledSplits(TaskId taskId)
+    {
+        checkState(scheduledSplits.isPresent(), "Scheduled splits are not retained");
+        return ImmutableList.copyOf(scheduledSplits.get().get(taskId));
+    }
+
     public PlanFragment getFragment()
     {
         return stateMachine.getFragment();
@@ -291,6 +312,8 @@ public final class SqlStageExecution
             task.noMoreSplits(partitionedSource);
         }
         completeSources.add(partitionedSource);
+        // the splits of failed tasks can not be scheduled again once the tasks were told there are no more splits
+        scheduledSplits.ifPresent(Multimap::clear);
     }
 
     public synchronized void cancel()
@@ -418,7 +441,19 @@ public final class SqlStageExecution
         if (allTasks.size() > 1) {
             return;
         }
-        getOnlyElement(allTasks).removeRemoteSource(remoteSourceTaskId);
+        getOnlyElement(allTasks).removeRemoteSource(remoteSourceTaskId, false);
+    }
+
+    /**
+     * Removes a failed remote source task whose output is produced again by other tasks. The tasks of
+     * this stage fail if they already received output of the failed task, as it would be processed twice.
+     */
+    public synchronized void discardRemoteSource(TaskId remoteSourceTaskId)
+    {
+        sourceTasks.values().removeIf(task -> task.getTaskId().equals(remoteSourceTaskId));
+        for (RemoteTask task : getAllTasks()) {
+            task.removeRemoteSource(remoteSourceTaskId, true);
+        }
     }
 
     public synchronized Optional<RemoteTask> scheduleTask(InternalNode node, int partition, OptionalInt totalPartitions)
@@ -445,9 +480,11 @@ public final class SqlStageExecution
         checkArgument(stateMachine.getFragment().getTableScanSchedulingOrder().containsAll(splits.keySet()), "Invalid splits");
 
         ImmutableSet.Builder<RemoteTask> newTasks = ImmutableSet.builder();
-        Collection<RemoteTask> tasks = this.tasks.get(node);
+        Optional<RemoteTask> existingTask = this.tasks.getOrDefault(node, ImmutableSet.of()).stream()
+                .filter(task -> !failedTasks.contains(task.getTaskId()))
+                .findFirst();
         RemoteTask task;
-        if (tasks == null) {
+        if (!existingTask.isPresent()) {
             // The output buffer depends on the task id starting from 0 and being sequential, since each
             // task is assigned a private buffer based on task id.
             TaskId taskId = new TaskId(stateMachine.getStageId(), nextTaskId.getAndIncrement());
@@ -455,9 +492,12 @@ public final class SqlStageExecution
             newTasks.add(task);
         }
         else {
-            task = tasks.iterator().next();
+            task = existingTask.get();
             task.addSplits(splits);
         }
+        if (scheduledSplits.isPresent()) {
+            scheduledSplits.get().putAll(task.getTaskId(), splits.values());
+        }
         if (noMoreSplitsNotification.size() > 1) {
             // The assumption that `noMoreSplitsNotification.size() <= 1` currently holds.
             // If this assumption no longer holds, we should consider calling task.noMoreSplits with multiple entries in one shot.
@@ -555,6 +595,7 @@ public final class SqlStageExecution
                         stageTaskRecoveryCallback.get().recover(taskStatus.getTaskId());
                         finishedTasks.add(taskStatus.getTaskId());
                         failedTasks.add(taskStatus.getTaskId());
+                        scheduledSplits.ifPresent(splits -> splits.removeAll(taskStatus.getTaskId()));
                     }
                     catch (Throwable t) {
                         // In an ideal world, this exception is not supposed to happen.
@@ -574,6 +615,7 @@ public final class SqlStageExecution
             }
             else if (taskState == TaskState.FINISHED) {
                 finishedTasks.add(taskStatus.getTaskId());
+                scheduledSplits.ifPresent(splits -> splits.removeAll(taskStatus.getTaskId()));
             }
 
             if (stageState == StageState.SCHEDULED || stageState == StageState.RUNNING) {
@@ -20,6 +20,7 @@ import com.facebook.presto.execution.buffer.LazyOutputBuffer;
 import com.facebook.presto.execution.buffer.OutputBuffer;
 import com.facebook.presto.execution.buffer.OutputBuffers;
 import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
+import com.facebook.presto.execution.buffer.PageSpoolFactory;
 import com.facebook.presto.memory.QueryContext;
 import com.facebook.presto.operator.ExchangeClientSupplier;
 import com.facebook.presto.operator.PipelineContext;
@@ -98,6 +99,33 @@ public class SqlTask
             Function<SqlTask, ?> onDone,
             DataSize maxBufferSize,
             CounterStat failedTasks)
+    {
+        return createSqlTask(
+                taskId,
+                location,
+                nodeId,
+                queryContext,
+                sqlTaskExecutionFactory,
+                exchangeClientSupplier,
+                taskNotificationExecutor,
+                onDone,
+                maxBufferSize,
+                Optional.empty(),
+                failedTasks);
+    }
+
+    public static SqlTask createSqlTask(
+            TaskId taskId,
+            URI location,
+            String nodeId,
+            QueryContext queryContext,
+            SqlTaskExecutionFactory sqlTaskExecutionFactory,
+            ExchangeClientSupplier exchangeClientSupplier,
+            ExecutorService taskNotificationExecutor,
+            Function<SqlTask, ?> onDone,
+            DataSize maxBufferSize,
+            Optional<PageSpoolFactory> pageSpoolFactory,
+            CounterStat failedTasks)
     {
         SqlTask sqlTask = new SqlTask(
                 taskId,
@@ -107,7 +135,8 @@ public class SqlTask
                 sqlTaskExecutionFactory,
                 exchangeClientSupplier,
                 taskNotificationExecutor,
-                maxBufferSize);
+                maxBufferSize,
+                pageSpoolFactory);
         sqlTask.initialize(onDone, failedTasks);
         return sqlTask;
     }
@@ -120,7 +149,8 @@ public class SqlTask
             SqlTaskExecutionFactory sqlTaskExecutionFactory,
             ExchangeClientSupplier exchangeClientSupplier,
             ExecutorService taskNotificationExecutor,
-            DataSize maxBufferSize)
+            DataSize maxBufferSize,
+            Optional<PageSpoolFactory> pageSpoolFactory)
     {
         this.taskId = requireNonNull(taskId, "taskId is null");
         this.taskInstanceId = UUID.randomUUID().toString();
@@ -140,7 +170,8 @@ public class SqlTask
                 maxBufferSize,
                 // Pass a memory context supplier instead of a memory context to the output buffer,
                 // because we haven't created the task context that holds the the memory context yet.
-                () -> queryContext.getTaskContextByTaskId(taskId).localSystemMemoryContext());
+                () -> queryContext.getTaskContextByTaskId(taskId).localSystemMemoryContext(),
+                pageSpoolFactory);
         taskStateMachine = new TaskStateMachine(taskId, taskNotificationExecutor);
     }
 
@@ -445,14 +476,14 @@ public class SqlTask
         return getTaskInfo();
     }
 
-    public void removeRemoteSource(TaskId sourceTaskId)
+    public void removeRemoteSource(TaskId sourceTaskId, boolean discardOutput)
     {
         requireNonNull(sourceTaskId, "sourceTaskId is null");
 
         log.debug("Removing remote source %s from task %s", sourceTaskId, taskId);
 
         taskExchangeClientManager.getExchangeClients()
-                .forEach(exchangeClient -> exchangeClient.removeRemoteSource(sourceTaskId));
+                .forEach(exchangeClient -> exchangeClient.removeRemoteSource(sourceTaskId, discardOutput));
     }
 
     public void failed(Throwable cause)
@@ -19,6 +19,7 @@ import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.execution.buffer.BufferResult;
 import com.facebook.presto.execution.buffer.OutputBuffers;
 import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
+import com.facebook.presto.execution.buffer.PageSpoolFactory;
 import com.facebook.presto.execution.executor.TaskExecutor;
 import com.facebook.presto.memory.LocalMemoryManager;
 import com.facebook.presto.memory.MemoryPool;
@@ -121,6 +122,7 @@ public class SqlTaskManager
             TaskManagerConfig config,
             NodeMemoryConfig nodeMemoryConfig,
             LocalSpillManager localSpillManager,
+            PageSpoolFactory pageSpoolFactory,
             ExchangeClientSupplier exchangeClientSupplier,
             NodeSpillConfig nodeSpillConfig,
             GcMonitor gcMonitor)
@@ -131,6 +133,7 @@ public class SqlTaskManager
         clientTimeout = config.getClientTimeout();
 
         DataSize maxBufferSize = config.getSinkMaxBufferSize();
+        Optional<PageSpoolFactory> outputBufferSpoolFactory = config.isSinkSpoolingEnabled() ? Optional.of(pageSpoolFactory) : Optional.empty();
 
         taskNotificationExecutor = newFixedThreadPool(config.getTaskNotificationThreads(), threadsNamed("task-notification-%s"));
         taskNotificationExecutorMBean = new ThreadPoolExecutorMBean((ThreadPoolExecutor) taskNotificationExecutor);
@@ -162,6 +165,7 @@ public class SqlTaskManager
                             return null;
                         },
                         maxBufferSize,
+                        outputBufferSpoolFactory,
                         failedTasks)));
     }
 
@@ -397,12 +401,12 @@ public class SqlTaskManager
     }
 
     @Override
-    public void removeRemoteSource(TaskId taskId, TaskId remoteSourceTaskId)
+    public void removeRemoteSource(TaskId taskId, TaskId remoteSourceTaskId, boolean discardOutput)
     {
         requireNonNull(taskId, "taskId is null");
         requireNonNull(remoteSourceTaskId, "remoteSourceTaskId is null");
 
-        tasks.getUnchecked(taskId).removeRemoteSource(remoteSourceTaskId);
+        tasks.getUnchecked(taskId).removeRemoteSource(remoteSourceTaskId, discardOutput);
     }
 
     @Override
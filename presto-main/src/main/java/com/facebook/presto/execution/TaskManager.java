@@ -133,7 +133,9 @@ public interface TaskManager
     /**
      * Removes the remote source from exchange clients of {@code taskId} receiving data
      * from {@code remoteSourceTaskId}. Any further output or transport timeout exception
-     * from {@code remoteSourceTaskId} will be ignored.
+     * from {@code remoteSourceTaskId} will be ignored. If {@code discardOutput} is set, the
+     * output of {@code remoteSourceTaskId} is produced again by another task, and the task
+     * fails if it already received some of it.
      */
-    void removeRemoteSource(TaskId taskId, TaskId remoteSourceTaskId);
+    void removeRemoteSource(TaskId taskId, TaskId remoteSourceTaskId, boolean discardOutput);
 }
@@ -55,8 +55,10 @@ public class TaskManagerConfig
     private int maxDriversPerTask = Integer.MAX_VALUE;
     private int maxTasksPerStage = Integer.MAX_VALUE;
     private Duration splitConcurrencyAdjustmentInterval = new Duration(100, TimeUnit.MILLISECONDS);
+    private boolean adaptiveSplitConcurrencyEnabled;
 
     private DataSize sinkMaxBufferSize = new DataSize(32, Unit.MEGABYTE);
+    private boolean sinkSpoolingEnabled;
     private DataSize maxPagePartitioningBufferSize = new DataSize(32, Unit.MEGABYTE);
 
     private Duration clientTimeout = new Duration(2, TimeUnit.MINUTES);
@@ -271,6 +273,19 @@ public class TaskManagerConfig
         return this;
     }
 
+    public boolean isAdaptiveSplitConcurrencyEnabled()
+    {
+        return adaptiveSplitConcurrencyEnabled;
+    }
+
+    @Config("task.adaptive-split-concurrency-enabled")
+    @ConfigDescription("Raise the split concurrency of tasks whose leaf splits mostly wait for input, and lower it for tasks whose leaf splits mostly run on CPU")
+    public TaskManagerConfig setAdaptiveSplitConcurrencyEnabled(boolean adaptiveSplitConcurrencyEnabled)
+    {
+        this.adaptiveSplitConcurrencyEnabled = adaptiveSplitConcurrencyEnabled;
+        return this;
+    }
+
     @Min(1)
     public int getMinDrivers()
     {
@@ -342,6 +357,19 @@ public class TaskManagerConfig
         return this;
     }
 
+    public boolean isSinkSpoolingEnabled()
+    {
+        return sinkSpoolingEnabled;
+    }
+
+    @Config("sink.spooling-enabled")
+    @ConfigDescription("Write the pages that do not fit in the output buffer to the spill paths instead of blocking the producers")
+    public TaskManagerConfig setSinkSpoolingEnabled(boolean sinkSpoolingEnabled)
+    {
+        this.sinkSpoolingEnabled = sinkSpoolingEnabled;
+        return this;
+    }
+
     @NotNull
     public DataSize getMaxPagePartitioningBufferSize()
     {
@@ -54,7 +54,6 @@ import static com.facebook.presto.execution.buffer.OutputBuffers.createInitialEm
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -64,6 +63,7 @@ public class ArbitraryOutputBuffer
         implements OutputBuffer
 {
     private final OutputBufferMemoryManager memoryManager;
+    private final OutputBufferSpooler spooler;
 
     @GuardedBy("this")
     private OutputBuffers outputBuffers = createInitialEmptyOutputBuffers(ARBITRARY);
@@ -89,6 +89,17 @@ public class ArbitraryOutputBuffer
             DataSize maxBufferSize,
             Supplier<LocalMemoryContext> systemMemoryContextSupplier,
             Executor notificationExecutor)
+    {
+        this(taskInstanceId, state, maxBufferSize, systemMemoryContextSupplier, notificationExecutor, Optional.empty());
+    }
+
+    public ArbitraryOutputBuffer(
+            String taskInstanceId,
+            StateMachine<BufferState> state,
+            DataSize maxBufferSize,
+            Supplier<LocalMemoryContext> systemMemoryContextSupplier,
+            Executor notificationExecutor,
+            Optional<PageSpoolFactory> pageSpoolFactory)
     {
         this.taskInstanceId = requireNonNull(taskInstanceId, "taskInstanceId is null");
         this.state = requireNonNull(state, "state is null");
@@ -98,6 +109,7 @@ public class ArbitraryOutputBuffer
                 maxBufferSize.toBytes(),
                 requireNonNull(systemMemoryContextSupplier, "systemMemoryContextSupplier is null"),
                 requireNonNull(notificationExecutor, "notificationExecutor is null"));
+        this.spooler = new OutputBufferSpooler(requireNonNull(pageSpoolFactory, "pageSpoolFactory is null"), maxBufferSize.toBytes(), memoryManager::updateMemoryUsage);
         this.masterBuffer = new MasterBuffer();
     }
 
@@ -226,26 +238,33 @@ public class ArbitraryOutputBuffer
             return;
         }
 
-        // reserve memory
-        long bytesAdded = pages.stream().mapToLong(SerializedPage::getRetainedSizeInBytes).sum();
-        memoryManager.updateMemoryUsage(bytesAdded);
-
         // update stats
         long rowCount = pages.stream().mapToLong(SerializedPage::getPositionCount).sum();
         totalRowsAdded.addAndGet(rowCount);
         totalPagesAdded.addAndGet(pages.size());
         outstandingPageCountPerLifespan.computeIfAbsent(lifespan, ignored -> new AtomicLong()).addAndGet(pages.size());
 
-        // create page reference counts with an initial single reference
-        List<SerializedPageReference> serializedPageReferences = pages.stream()
-                .map(pageSplit -> new SerializedPageReference(
-                        pageSplit,
-                        1,
-                        () -> dereferencePage(pageSplit, lifespan)))
-                .collect(toImmutableList());
+        // create page reference counts with an initial single reference,
+        // pages that do not fit in the buffer are spooled when spooling is enabled
+        ImmutableList.Builder<SerializedPageReference> serializedPageReferences = ImmutableList.builder();
+        long bytesAdded = 0;
+        for (SerializedPage page : pages) {
+            Optional<SerializedPageReference> spooledPage = spooler.spoolIfFull(page, memoryManager.getBufferedBytes() + bytesAdded, () -> dereferencePage(0, lifespan));
+            if (spooledPage.isPresent()) {
+                serializedPageReferences.add(spooledPage.get());
+            }
+            else {
+                long pageSize = page.getRetainedSizeInBytes();
+                bytesAdded += pageSize;
+                serializedPageReferences.add(new SerializedPageReference(page, 1, () -> dereferencePage(pageSize, lifespan)));
+            }
+        }
+
+        // reserve memory
+        memoryManager.updateMemoryUsage(bytesAdded);
 
         // add pages to the buffer (this will increase the reference count by one)
-        masterBuffer.addPages(serializedPageReferences);
+        masterBuffer.addPages(serializedPageReferences.build());
 
         // process any pending reads from the client buffers
         for (ClientBuffer clientBuffer : safeGetBuffersSnapshot()) {
@@ -326,6 +345,7 @@ public class ArbitraryOutputBuffer
 
             memoryManager.setNoBlockOnFull();
             forceFreeMemory();
+            spooler.close();
         }
     }
 
@@ -336,6 +356,7 @@ public class ArbitraryOutputBuffer
         if (state.setIf(FAILED, oldState -> !oldState.isTerminal())) {
             memoryManager.setNoBlockOnFull();
             forceFreeMemory();
+            spooler.close();
             // DO NOT destroy buffers or set no more pages.  The coordinator manages the teardown of failed queries.
         }
     }
@@ -518,7 +539,7 @@ public class ArbitraryOutputBuffer
         return memoryManager;
     }
 
-    private void dereferencePage(SerializedPage pageSplit, Lifespan lifespan)
+    private void dereferencePage(long retainedSizeInBytes, Lifespan lifespan)
     {
         long outstandingPageCount = outstandingPageCountPerLifespan.get(lifespan).decrementAndGet();
         if (outstandingPageCount == 0 && noMorePagesForLifespan.contains(lifespan)) {
@@ -526,6 +547,6 @@ public class ArbitraryOutputBuffer
             lifespanCompletionCallback.accept(lifespan);
         }
 
-        memoryManager.updateMemoryUsage(-pageSplit.getRetainedSizeInBytes());
+        memoryManager.updateMemoryUsage(-retainedSizeInBytes);
     }
 }
@@ -36,6 +36,7 @@ import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
@@ -182,16 +183,16 @@ class ClientBuffer
                 oldPendingRead = this.pendingRead;
                 this.pendingRead = null;
 
-                // Return results immediately if we have data, there will be no more data, or this is
+                // Wait for more data to arrive, unless we have data, there will be no more data, or this is
                 // an out of order request
-                if (!pages.isEmpty() || noMorePages || sequenceId != currentSequenceId.get()) {
-                    return immediateFuture(processRead(sequenceId, maxSize));
+                if (pages.isEmpty() && !noMorePages && sequenceId == currentSequenceId.get()) {
+                    pendingRead = new PendingRead(taskInstanceId, sequenceId, maxSize);
+                    return pendingRead.getResultFuture();
                 }
-
-                // otherwise, wait for more data to arrive
-                pendingRead = new PendingRead(taskInstanceId, sequenceId, maxSize);
-                return pendingRead.getResultFuture();
             }
+
+            // return results immediately, the pages are read outside of the lock since they may be spooled on disk
+            return immediateFuture(processRead(sequenceId, maxSize));
         }
         finally {
             if (oldPendingRead != null) {
@@ -305,7 +306,37 @@ class ClientBuffer
     /**
      * @return a result with at least one page if we have pages in buffer, empty result otherwise
      */
-    private synchronized BufferResult processRead(long sequenceId, DataSize maxSize)
+    private BufferResult processRead(long sequenceId, DataSize maxSize)
+    {
+        checkState(!Thread.holdsLock(this), "Can not process read while holding a lock on this");
+
+        List<SerializedPageReference> pageReferences = new ArrayList<>();
+        synchronized (this) {
+            Optional<BufferResult> emptyResult = getPagesToRead(sequenceId, maxSize, pageReferences);
+            if (emptyResult.isPresent()) {
+                return emptyResult.get();
+            }
+            // the pages may be acknowledged by a concurrent request while they are loaded, so hold an extra reference
+            pageReferences.forEach(SerializedPageReference::addReference);
+        }
+
+        try {
+            List<SerializedPage> result = pageReferences.stream()
+                    .map(SerializedPageReference::getSerializedPage)
+                    .collect(toImmutableList());
+            return new BufferResult(taskInstanceId, sequenceId, sequenceId + result.size(), false, result);
+        }
+        finally {
+            // dereference outside of synchronized to avoid making a callback while holding a lock
+            pageReferences.forEach(SerializedPageReference::dereferencePage);
+        }
+    }
+
+    /**
+     * Adds the pages to return for the read to {@code pageReferences}, or returns the result if there are no pages to return.
+     */
+    @GuardedBy("this")
+    private Optional<BufferResult> getPagesToRead(long sequenceId, DataSize maxSize, List<SerializedPageReference> pageReferences)
     {
         // When pages are added to the partition buffer they are effectively
         // assigned an id starting from zero. When a read is processed, the
@@ -332,13 +363,13 @@ class ClientBuffer
 
         // if request is for pages before the current position, just return an empty result
         if (sequenceId < currentSequenceId.get()) {
-            return emptyResults(taskInstanceId, sequenceId, false);
+            return Optional.of(emptyResults(taskInstanceId, sequenceId, false));
         }
 
         // if this buffer is finished, notify the client of this, so the client
         // will destroy this buffer
         if (pages.isEmpty() && noMorePages) {
-            return emptyResults(taskInstanceId, currentSequenceId.get(), true);
+            return Optional.of(emptyResults(taskInstanceId, currentSequenceId.get(), true));
         }
 
         // if request is for pages after the current position, there is a bug somewhere
@@ -350,18 +381,17 @@ class ClientBuffer
 
         // read the new pages
         long maxBytes = maxSize.toBytes();
-        List<SerializedPage> result = new ArrayList<>();
         long bytes = 0;
 
         for (SerializedPageReference page : pages) {
             bytes += page.getRetainedSizeInBytes();
             // break (and don't add) if this page would exceed the limit
-            if (!result.isEmpty() && bytes > maxBytes) {
+            if (!pageReferences.isEmpty() && bytes > maxBytes) {
                 break;
             }
-            result.add(page.getSerializedPage());
+            pageReferences.add(page);
         }
-        return new BufferResult(taskInstanceId, sequenceId, sequenceId + result.size(), false, result);
+        return Optional.empty();
     }
 
     /**
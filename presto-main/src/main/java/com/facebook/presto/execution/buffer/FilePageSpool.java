@@ -0,0 +1,302 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.ExceededSpillLimitException;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spiller.SpillCipher;
+import com.facebook.presto.spiller.SpillSpaceTracker;
+import com.google.common.annotations.VisibleForTesting;
+import io.airlift.slice.Slices;
+import io.airlift.units.DataSize;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Appends the pages to a sequence of segment files and reads them back with positional
+ * reads, so pages can be read in any order while new pages are written. Once a segment
+ * is full, the following pages go to a new one. A segment is deleted, and its spill space
+ * freed, when all of its pages are released, so the space taken by the readers that keep
+ * up is reclaimed while newer pages are still spooled. The spill space in use always
+ * matches the size of the segment files.
+ */
+@ThreadSafe
+public class FilePageSpool
+        implements PageSpool
+{
+    static final String SPOOL_FILE_PREFIX = "spool";
+    static final String SPOOL_FILE_SUFFIX = ".bin";
+
+    private static final DataSize DEFAULT_SEGMENT_SIZE = new DataSize(16, MEGABYTE);
+
+    private final Path spoolPath;
+    private final SpillSpaceTracker spillSpaceTracker;
+    private final Optional<SpillCipher> spillCipher;
+    private final long segmentSize;
+
+    // segments by the offset of their first page; offsets grow across segments, and are never reused
+    @GuardedBy("this")
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    @GuardedBy("this")
+    private long nextOffset;
+    // offset to length of the pages that are not released yet
+    @GuardedBy("this")
+    private final Map<Long, Integer> spooledPages = new HashMap<>();
+    @GuardedBy("this")
+    private boolean outOfSpace;
+    @GuardedBy("this")
+    private boolean closed;
+
+    public FilePageSpool(Path spoolPath, SpillSpaceTracker spillSpaceTracker, Optional<SpillCipher> spillCipher)
+    {
+        this(spoolPath, spillSpaceTracker, spillCipher, DEFAULT_SEGMENT_SIZE);
+    }
+
+    @VisibleForTesting
+    FilePageSpool(Path spoolPath, SpillSpaceTracker spillSpaceTracker, Optional<SpillCipher> spillCipher, DataSize segmentSize)
+    {
+        this.spoolPath = requireNonNull(spoolPath, "spoolPath is null");
+        this.spillSpaceTracker = requireNonNull(spillSpaceTracker, "spillSpaceTracker is null");
+        this.spillCipher = requireNonNull(spillCipher, "spillCipher is null");
+        this.segmentSize = requireNonNull(segmentSize, "segmentSize is null").toBytes();
+        checkArgument(this.segmentSize > 0, "segmentSize must be positive");
+        checkState(!spillCipher.isPresent() || !spillCipher.get().isDestroyed(), "spillCipher is already destroyed");
+    }
+
+    @Override
+    public synchronized Optional<SpooledPage> spool(SerializedPage page)
+    {
+        requireNonNull(page, "page is null");
+        if (closed || outOfSpace) {
+            return Optional.empty();
+        }
+
+        ByteBuffer data = page.getSlice().toByteBuffer();
+        if (spillCipher.isPresent()) {
+            data = spillCipher.get().encrypt(data);
+        }
+        int length = data.remaining();
+
+        try {
+            spillSpaceTracker.reserve(length);
+        }
+        catch (ExceededSpillLimitException e) {
+            // keep this and all the following pages in memory
+            outOfSpace = true;
+            return Optional.empty();
+        }
+
+        long offset = nextOffset;
+        Segment segment;
+        try {
+            segment = getWritableSegment();
+        }
+        catch (IOException e) {
+            spillSpaceTracker.free(length);
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to create spool file", e);
+        }
+        long position = segment.getSize();
+        try {
+            segment.write(data);
+        }
+        catch (IOException e) {
+            // the part that made it to the file stays accounted until the segment is deleted
+            spillSpaceTracker.free(length - (segment.getSize() - position));
+            nextOffset += segment.getSize() - position;
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to write spool file", e);
+        }
+        segment.addPage();
+        nextOffset += length;
+        spooledPages.put(offset, length);
+
+        return Optional.of(new SpooledPage(offset, length, page.getPageCodecMarkers(), page.getPositionCount(), page.getUncompressedSizeInBytes(), page.getRetainedSizeInBytes()));
+    }
+
+    @GuardedBy("this")
+    private Segment getWritableSegment()
+            throws IOException
+    {
+        if (segments.isEmpty() || segments.lastEntry().getValue().getSize() >= segmentSize) {
+            segments.put(nextOffset, new Segment(Files.createTempFile(spoolPath, SPOOL_FILE_PREFIX, SPOOL_FILE_SUFFIX)));
+        }
+        return segments.lastEntry().getValue();
+    }
+
+    @Override
+    public synchronized SerializedPage read(SpooledPage page)
+    {
+        requireNonNull(page, "page is null");
+        checkState(!closed, "Spool is closed");
+        checkArgument(spooledPages.containsKey(page.getOffset()), "Page is not spooled or already released: %s", page);
+        Map.Entry<Long, Segment> segment = segments.floorEntry(page.getOffset());
+        ByteBuffer data = ByteBuffer.allocate(page.getLength());
+        try {
+            segment.getValue().read(data, page.getOffset() - segment.getKey());
+        }
+        catch (IOException e) {
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to read spooled page", e);
+        }
+        data.flip();
+
+        if (spillCipher.isPresent()) {
+            data = spillCipher.get().decrypt(data);
+        }
+        return new SerializedPage(Slices.wrappedBuffer(data), page.getPageCodecMarkers(), page.getPositionCount(), page.getUncompressedSizeInBytes());
+    }
+
+    @Override
+    public synchronized void release(SpooledPage page)
+    {
+        requireNonNull(page, "page is null");
+        if (closed) {
+            return;
+        }
+        Integer length = spooledPages.remove(page.getOffset());
+        checkArgument(length != null, "Page is not spooled or already released: %s", page);
+
+        Map.Entry<Long, Segment> entry = segments.floorEntry(page.getOffset());
+        Segment segment = entry.getValue();
+        segment.releasePage();
+        if (segment.getLivePages() == 0) {
+            // a segment that is still written to is deleted too, the next page starts a new one
+            segments.remove(entry.getKey());
+            deleteSegment(segment);
+        }
+    }
+
+    @GuardedBy("this")
+    private void deleteSegment(Segment segment)
+    {
+        spillSpaceTracker.free(segment.getSize());
+        try {
+            segment.delete();
+        }
+        catch (IOException e) {
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to delete spool file", e);
+        }
+    }
+
+    @VisibleForTesting
+    synchronized long getDiskUsage()
+    {
+        return segments.values().stream()
+                .mapToLong(Segment::getSize)
+                .sum();
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        spillCipher.ifPresent(SpillCipher::destroy);
+        spooledPages.clear();
+        try {
+            for (Segment segment : segments.values()) {
+                deleteSegment(segment);
+            }
+        }
+        finally {
+            segments.clear();
+        }
+    }
+
+    private static class Segment
+    {
+        private final Path file;
+        private final FileChannel channel;
+        private long size;
+        private int livePages;
+
+        public Segment(Path file)
+                throws IOException
+        {
+            this.file = requireNonNull(file, "file is null");
+            try {
+                this.channel = FileChannel.open(file, READ, WRITE);
+            }
+            catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        }
+
+        public void write(ByteBuffer data)
+                throws IOException
+        {
+            while (data.hasRemaining()) {
+                size += channel.write(data);
+            }
+        }
+
+        public void read(ByteBuffer data, long position)
+                throws IOException
+        {
+            while (data.hasRemaining()) {
+                if (channel.read(data, position + data.position()) < 0) {
+                    throw new EOFException("Unexpected end of spool file " + file);
+                }
+            }
+        }
+
+        public long getSize()
+        {
+            return size;
+        }
+
+        public void addPage()
+        {
+            livePages++;
+        }
+
+        public void releasePage()
+        {
+            livePages--;
+        }
+
+        public int getLivePages()
+        {
+            return livePages;
+        }
+
+        public void delete()
+                throws IOException
+        {
+            channel.close();
+            Files.delete(file);
+        }
+    }
+}
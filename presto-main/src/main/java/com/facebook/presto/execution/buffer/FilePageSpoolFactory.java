@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spiller.AesSpillCipher;
+import com.facebook.presto.spiller.LocalSpillManager;
+import com.facebook.presto.spiller.NodeSpillConfig;
+import com.facebook.presto.spiller.SpillCipher;
+import com.facebook.presto.spiller.SpillSpaceTracker;
+import com.facebook.presto.sql.analyzer.FeaturesConfig;
+import com.google.common.collect.ImmutableList;
+import io.airlift.log.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.concurrent.GuardedBy;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.execution.buffer.FilePageSpool.SPOOL_FILE_PREFIX;
+import static com.facebook.presto.execution.buffer.FilePageSpool.SPOOL_FILE_SUFFIX;
+import static com.facebook.presto.spi.StandardErrorCode.OUT_OF_SPILL_SPACE;
+import static java.lang.String.format;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.delete;
+import static java.nio.file.Files.getFileStore;
+import static java.nio.file.Files.newDirectoryStream;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates spool files in the spill paths, in a round robin fashion, skipping the paths without enough free space.
+ * The spooled bytes count towards the spill space of the node.
+ */
+public class FilePageSpoolFactory
+        implements PageSpoolFactory
+{
+    private static final Logger log = Logger.get(FilePageSpoolFactory.class);
+
+    private static final String SPOOL_FILE_GLOB = SPOOL_FILE_PREFIX + "*" + SPOOL_FILE_SUFFIX;
+
+    private final List<Path> spoolPaths;
+    private final double maxUsedSpaceThreshold;
+    private final boolean spoolEncryptionEnabled;
+    private final SpillSpaceTracker spillSpaceTracker;
+    @GuardedBy("this")
+    private int roundRobinIndex;
+
+    @Inject
+    public FilePageSpoolFactory(FeaturesConfig featuresConfig, NodeSpillConfig nodeSpillConfig, LocalSpillManager localSpillManager)
+    {
+        this(
+                requireNonNull(featuresConfig, "featuresConfig is null").getSpillerSpillPaths(),
+                featuresConfig.getSpillMaxUsedSpaceThreshold(),
+                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillEncryptionEnabled(),
+                requireNonNull(localSpillManager, "localSpillManager is null").getSpillSpaceTracker());
+    }
+
+    public FilePageSpoolFactory(List<Path> spoolPaths, double maxUsedSpaceThreshold, boolean spoolEncryptionEnabled, SpillSpaceTracker spillSpaceTracker)
+    {
+        this.spoolPaths = ImmutableList.copyOf(requireNonNull(spoolPaths, "spoolPaths is null"));
+        this.maxUsedSpaceThreshold = maxUsedSpaceThreshold;
+        this.spoolEncryptionEnabled = spoolEncryptionEnabled;
+        this.spillSpaceTracker = requireNonNull(spillSpaceTracker, "spillSpaceTracker is null");
+        this.spoolPaths.forEach(path -> {
+            try {
+                createDirectories(path);
+            }
+            catch (IOException e) {
+                throw new IllegalArgumentException(
+                        format("could not create spill path %s; adjust experimental.spiller-spill-path config property or filesystem permissions", path), e);
+            }
+        });
+    }
+
+    @PostConstruct
+    public void cleanupOldSpoolFiles()
+    {
+        spoolPaths.forEach(FilePageSpoolFactory::cleanupOldSpoolFiles);
+    }
+
+    private static void cleanupOldSpoolFiles(Path path)
+    {
+        try (DirectoryStream<Path> stream = newDirectoryStream(path, SPOOL_FILE_GLOB)) {
+            stream.forEach(spoolFile -> {
+                try {
+                    log.info("Deleting old spool file: " + spoolFile);
+                    delete(spoolFile);
+                }
+                catch (Exception e) {
+                    log.warn("Could not cleanup old spool file: " + spoolFile);
+                }
+            });
+        }
+        catch (IOException e) {
+            log.warn(e, "Error cleaning spool files");
+        }
+    }
+
+    @Override
+    public PageSpool create()
+    {
+        Optional<SpillCipher> spillCipher = Optional.empty();
+        if (spoolEncryptionEnabled) {
+            spillCipher = Optional.of(new AesSpillCipher());
+        }
+        return new FilePageSpool(getNextSpoolPath(), spillSpaceTracker, spillCipher);
+    }
+
+    private synchronized Path getNextSpoolPath()
+    {
+        int spoolPathsCount = spoolPaths.size();
+        for (int i = 0; i < spoolPathsCount; ++i) {
+            int pathIndex = (roundRobinIndex + i) % spoolPathsCount;
+            Path path = spoolPaths.get(pathIndex);
+            if (hasEnoughDiskSpace(path)) {
+                roundRobinIndex = (roundRobinIndex + i + 1) % spoolPathsCount;
+                return path;
+            }
+        }
+        if (spoolPaths.isEmpty()) {
+            throw new PrestoException(OUT_OF_SPILL_SPACE, "No spill paths configured");
+        }
+        throw new PrestoException(OUT_OF_SPILL_SPACE, "No free space available for spool");
+    }
+
+    private boolean hasEnoughDiskSpace(Path path)
+    {
+        try {
+            FileStore fileStore = getFileStore(path);
+            return fileStore.getUsableSpace() > fileStore.getTotalSpace() * (1.0 - maxUsedSpaceThreshold);
+        }
+        catch (IOException e) {
+            throw new PrestoException(OUT_OF_SPILL_SPACE, "Cannot determine free space for spool", e);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import javax.annotation.concurrent.GuardedBy;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
@@ -53,6 +54,7 @@ public class LazyOutputBuffer
     private final DataSize maxBufferSize;
     private final Supplier<LocalMemoryContext> systemMemoryContextSupplier;
     private final Executor executor;
+    private final Optional<PageSpoolFactory> pageSpoolFactory;
 
     @GuardedBy("this")
     private OutputBuffer delegate;
@@ -69,6 +71,17 @@ public class LazyOutputBuffer
             Executor executor,
             DataSize maxBufferSize,
             Supplier<LocalMemoryContext> systemMemoryContextSupplier)
+    {
+        this(taskId, taskInstanceId, executor, maxBufferSize, systemMemoryContextSupplier, Optional.empty());
+    }
+
+    public LazyOutputBuffer(
+            TaskId taskId,
+            String taskInstanceId,
+            Executor executor,
+            DataSize maxBufferSize,
+            Supplier<LocalMemoryContext> systemMemoryContextSupplier,
+            Optional<PageSpoolFactory> pageSpoolFactory)
     {
         requireNonNull(taskId, "taskId is null");
         this.taskInstanceId = requireNonNull(taskInstanceId, "taskInstanceId is null");
@@ -77,6 +90,7 @@ public class LazyOutputBuffer
         this.maxBufferSize = requireNonNull(maxBufferSize, "maxBufferSize is null");
         checkArgument(maxBufferSize.toBytes() > 0, "maxBufferSize must be at least 1");
         this.systemMemoryContextSupplier = requireNonNull(systemMemoryContextSupplier, "systemMemoryContextSupplier is null");
+        this.pageSpoolFactory = requireNonNull(pageSpoolFactory, "pageSpoolFactory is null");
     }
 
     @Override
@@ -160,13 +174,13 @@ public class LazyOutputBuffer
                 }
                 switch (newOutputBuffers.getType()) {
                     case PARTITIONED:
-                        delegate = new PartitionedOutputBuffer(taskInstanceId, state, newOutputBuffers, maxBufferSize, systemMemoryContextSupplier, executor);
+                        delegate = new PartitionedOutputBuffer(taskInstanceId, state, newOutputBuffers, maxBufferSize, systemMemoryContextSupplier, executor, pageSpoolFactory);
                         break;
                     case BROADCAST:
                         delegate = new BroadcastOutputBuffer(taskInstanceId, state, maxBufferSize, systemMemoryContextSupplier, executor);
                         break;
                     case ARBITRARY:
-                        delegate = new ArbitraryOutputBuffer(taskInstanceId, state, maxBufferSize, systemMemoryContextSupplier, executor);
+                        delegate = new ArbitraryOutputBuffer(taskInstanceId, state, maxBufferSize, systemMemoryContextSupplier, executor, pageSpoolFactory);
                         break;
                     case DISCARDING:
                         delegate = new DiscardingOutputBuffer(newOutputBuffers, state);
@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.Optional;
+import java.util.function.LongConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Writes the pages that do not fit in the memory of an output buffer to a {@link PageSpool},
+ * instead of letting the buffer block the producers until the consumers catch up. The spooled
+ * pages stay in the client buffers in their original order and are read back when requested,
+ * and their disk space is released once they are acknowledged.
+ * The spool is created on the first overflow and deleted when the output buffer is destroyed.
+ */
+@ThreadSafe
+class OutputBufferSpooler
+{
+    private final Optional<PageSpoolFactory> pageSpoolFactory;
+    private final long maxBufferedBytes;
+    private final LongConsumer memoryUpdater;
+
+    @GuardedBy("this")
+    private PageSpool pageSpool;
+    @GuardedBy("this")
+    private boolean closed;
+
+    /**
+     * @param memoryUpdater updates the memory usage of the output buffer for the pages read back from the spool
+     */
+    public OutputBufferSpooler(Optional<PageSpoolFactory> pageSpoolFactory, long maxBufferedBytes, LongConsumer memoryUpdater)
+    {
+        this.pageSpoolFactory = requireNonNull(pageSpoolFactory, "pageSpoolFactory is null");
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.memoryUpdater = requireNonNull(memoryUpdater, "memoryUpdater is null");
+    }
+
+    /**
+     * Spools the page if buffering it in memory would exceed the maximum buffer size. Returns an
+     * empty result if the page must be buffered in memory, because spooling is disabled or out of space.
+     */
+    public synchronized Optional<SerializedPageReference> spoolIfFull(SerializedPage page, long bufferedBytes, Runnable onDereference)
+    {
+        if (!pageSpoolFactory.isPresent() || closed || bufferedBytes + page.getRetainedSizeInBytes() <= maxBufferedBytes) {
+            return Optional.empty();
+        }
+
+        if (pageSpool == null) {
+            pageSpool = pageSpoolFactory.get().create();
+        }
+        PageSpool pageSpool = this.pageSpool;
+        return pageSpool.spool(page)
+                .map(spooledPage -> new SerializedPageReference(pageSpool, spooledPage, memoryUpdater, 1, onDereference));
+    }
+
+    public synchronized void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (pageSpool != null) {
+            pageSpool.close();
+        }
+    }
+}
@@ -25,7 +25,10 @@ import static com.google.common.base.Preconditions.checkArgument;
 public enum PageCodecMarker
 {
     COMPRESSED(1),
-    ENCRYPTED(2);
+    ENCRYPTED(2),
+    // codec of a COMPRESSED page, LZ4 when none of these is set
+    SNAPPY(3),
+    ZSTD(4);
 
     private final int mask;
 
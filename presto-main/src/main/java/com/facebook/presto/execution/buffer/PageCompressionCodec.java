@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import io.airlift.compress.Compressor;
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.compress.snappy.SnappyCompressor;
+import io.airlift.compress.snappy.SnappyDecompressor;
+import io.airlift.compress.zstd.ZstdDecompressor;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static com.facebook.presto.execution.buffer.PageCodecMarker.COMPRESSED;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compression codecs for {@link SerializedPage}s. The codec of a compressed page is recorded in its
+ * {@link PageCodecMarker}s, so a reader can decompress pages regardless of the codec it writes with.
+ * LZ4 pages only have the {@link PageCodecMarker#COMPRESSED} marker set, as before other codecs were
+ * supported.
+ */
+public enum PageCompressionCodec
+{
+    LZ4(Lz4Compressor::new, Lz4Decompressor::new, Optional.empty()),
+    SNAPPY(SnappyCompressor::new, SnappyDecompressor::new, Optional.of(PageCodecMarker.SNAPPY)),
+    ZSTD(ZstdJniCompressor::new, ZstdDecompressor::new, Optional.of(PageCodecMarker.ZSTD));
+
+    private final Supplier<Compressor> compressorFactory;
+    private final Supplier<Decompressor> decompressorFactory;
+    private final Optional<PageCodecMarker> marker;
+
+    PageCompressionCodec(Supplier<Compressor> compressorFactory, Supplier<Decompressor> decompressorFactory, Optional<PageCodecMarker> marker)
+    {
+        this.compressorFactory = requireNonNull(compressorFactory, "compressorFactory is null");
+        this.decompressorFactory = requireNonNull(decompressorFactory, "decompressorFactory is null");
+        this.marker = requireNonNull(marker, "marker is null");
+    }
+
+    public Compressor createCompressor()
+    {
+        return compressorFactory.get();
+    }
+
+    public Decompressor createDecompressor()
+    {
+        return decompressorFactory.get();
+    }
+
+    public byte setMarkers(byte markers)
+    {
+        byte compressed = COMPRESSED.set(markers);
+        return marker.map(codecMarker -> codecMarker.set(compressed)).orElse(compressed);
+    }
+
+    public static PageCompressionCodec fromMarkers(byte markers)
+    {
+        checkArgument(COMPRESSED.isSet(markers), "Page is not compressed");
+        for (PageCompressionCodec codec : values()) {
+            if (codec.marker.isPresent() && codec.marker.get().isSet(markers)) {
+                return codec;
+            }
+        }
+        return LZ4;
+    }
+}
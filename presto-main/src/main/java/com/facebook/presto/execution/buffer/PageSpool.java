@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import java.io.Closeable;
+import java.util.Optional;
+
+/**
+ * Local disk storage for the serialized pages that do not fit in the memory of an output buffer.
+ */
+public interface PageSpool
+        extends Closeable
+{
+    /**
+     * Writes the page to disk. Returns an empty result if there is no disk space left for spooling,
+     * in which case the page must be kept in memory.
+     */
+    Optional<SpooledPage> spool(SerializedPage page);
+
+    /**
+     * Reads back a page written by this spool.
+     */
+    SerializedPage read(SpooledPage page);
+
+    /**
+     * Releases the disk space of a page that will not be read again.
+     */
+    void release(SpooledPage page);
+
+    /**
+     * Deletes the spooled pages. Pages can not be read after the spool is closed.
+     */
+    @Override
+    void close();
+}
@@ -16,6 +16,7 @@ package com.facebook.presto.execution.buffer;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.facebook.presto.spiller.SpillCipher;
+import com.google.common.collect.ImmutableList;
 import io.airlift.compress.Compressor;
 import io.airlift.compress.Decompressor;
 import io.airlift.slice.DynamicSliceOutput;
@@ -26,10 +27,14 @@ import io.airlift.slice.Slices;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static com.facebook.presto.execution.buffer.PageCodecMarker.COMPRESSED;
 import static com.facebook.presto.execution.buffer.PageCodecMarker.ENCRYPTED;
+import static com.facebook.presto.execution.buffer.PageCompressionCodec.LZ4;
 import static com.facebook.presto.execution.buffer.PagesSerdeUtil.readRawPage;
 import static com.facebook.presto.execution.buffer.PagesSerdeUtil.writeRawPage;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -41,37 +46,66 @@ import static java.util.Objects.requireNonNull;
 public class PagesSerde
 {
     private static final double MINIMUM_COMPRESSION_RATIO = 0.8;
+    // buffers are reused across pages, unless a very large page made them grow beyond this size
+    private static final int MAXIMUM_RETAINED_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    // When choosing between several codecs, every page in this many is compressed with all of them
+    // and the codec with the lowest cost is used until the next sample. The cost of a codec is the
+    // time to compress the page plus the time to transfer the compressed page, assuming about 125MB/s
+    // per output stream. Decompression is usually several times faster than compression and is ignored.
+    private static final int ADAPTIVE_SAMPLE_INTERVAL = 64;
+    private static final double TRANSFER_NANOS_PER_BYTE = 8;
 
     private final BlockEncodingSerde blockEncodingSerde;
-    private final Optional<Compressor> compressor;
-    private final Optional<Decompressor> decompressor;
+    private final List<PageCompressionCodec> compressionCodecs;
+    private final Map<PageCompressionCodec, Compressor> compressors = new EnumMap<>(PageCompressionCodec.class);
+    private final Map<PageCompressionCodec, Decompressor> decompressors = new EnumMap<>(PageCompressionCodec.class);
     private final Optional<SpillCipher> spillCipher;
 
+    private DynamicSliceOutput serializationBuffer;
+    private byte[] compressionBuffer;
+
+    private Optional<PageCompressionCodec> selectedCodec = Optional.empty();
+    private int pagesUntilSample;
+
     public PagesSerde(BlockEncodingSerde blockEncodingSerde, Optional<Compressor> compressor, Optional<Decompressor> decompressor, Optional<SpillCipher> spillCipher)
     {
-        this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
+        this(blockEncodingSerde, compressor.isPresent() ? ImmutableList.of(LZ4) : ImmutableList.of(), spillCipher);
         checkArgument(compressor.isPresent() == decompressor.isPresent(), "compressor and decompressor must both be present or both be absent");
-        this.compressor = requireNonNull(compressor, "compressor is null");
-        this.decompressor = requireNonNull(decompressor, "decompressor is null");
+        // the given codec writes pages marked as LZ4 compressed
+        compressor.ifPresent(value -> compressors.put(LZ4, value));
+        decompressor.ifPresent(value -> decompressors.put(LZ4, value));
+    }
+
+    /**
+     * Creates a serde compressing pages with the given codecs. With more than one codec, the
+     * codec (or no compression at all) is picked adaptively based on samples of the pages.
+     */
+    public PagesSerde(BlockEncodingSerde blockEncodingSerde, List<PageCompressionCodec> compressionCodecs, Optional<SpillCipher> spillCipher)
+    {
+        this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
+        this.compressionCodecs = ImmutableList.copyOf(requireNonNull(compressionCodecs, "compressionCodecs is null"));
         this.spillCipher = requireNonNull(spillCipher, "spillCipher is null");
         checkState(!spillCipher.isPresent() || !spillCipher.get().isDestroyed(), "spillCipher is already destroyed");
+        if (compressionCodecs.size() == 1) {
+            selectedCodec = Optional.of(compressionCodecs.get(0));
+        }
     }
 
     public SerializedPage serialize(Page page)
     {
-        SliceOutput serializationBuffer = new DynamicSliceOutput(toIntExact(page.getSizeInBytes() + Integer.BYTES)); // block length is an int
+        SliceOutput serializationBuffer = getSerializationBuffer(toIntExact(page.getSizeInBytes() + Integer.BYTES)); // block length is an int
         writeRawPage(page, serializationBuffer, blockEncodingSerde);
         Slice slice = serializationBuffer.slice();
         int uncompressedSize = serializationBuffer.size();
         byte markers = PageCodecMarker.none();
 
-        if (compressor.isPresent()) {
-            ByteBuffer compressionBuffer = ByteBuffer.allocate(compressor.get().maxCompressedLength(uncompressedSize));
-            compressor.get().compress(slice.toByteBuffer(), compressionBuffer);
-            compressionBuffer.flip();
-            if ((((double) compressionBuffer.remaining()) / uncompressedSize) <= MINIMUM_COMPRESSION_RATIO) {
-                slice = Slices.wrappedBuffer(compressionBuffer);
-                markers = COMPRESSED.set(markers);
+        Optional<PageCompressionCodec> codec = selectCodec(slice);
+        if (codec.isPresent()) {
+            int compressedSize = compress(codec.get(), slice);
+            if ((((double) compressedSize) / uncompressedSize) <= MINIMUM_COMPRESSION_RATIO) {
+                slice = Slices.wrappedBuffer(compressionBuffer, 0, compressedSize);
+                markers = codec.get().setMarkers(markers);
             }
         }
 
@@ -80,14 +114,86 @@ public class PagesSerde
             markers = ENCRYPTED.set(markers);
         }
         else {
-            //  Encryption disabled, slice data is likely much smaller than its backing buffer
-            //  either because of compression or dynamic sizing of the initial output slice
+            //  Encryption disabled, slice data is backed by one of the reusable buffers,
+            //  which is likely much larger than the data and is overwritten by the next page
             slice = Slices.copyOf(slice);
         }
 
+        releaseLargeBuffers();
         return new SerializedPage(slice, markers, page.getPositionCount(), uncompressedSize);
     }
 
+    private Optional<PageCompressionCodec> selectCodec(Slice slice)
+    {
+        if (compressionCodecs.size() <= 1) {
+            return selectedCodec;
+        }
+        if (pagesUntilSample > 0) {
+            pagesUntilSample--;
+            return selectedCodec;
+        }
+        pagesUntilSample = ADAPTIVE_SAMPLE_INTERVAL - 1;
+
+        Optional<PageCompressionCodec> bestCodec = Optional.empty();
+        double bestCost = slice.length() * TRANSFER_NANOS_PER_BYTE;
+        for (PageCompressionCodec codec : compressionCodecs) {
+            long start = System.nanoTime();
+            int compressedSize = compress(codec, slice);
+            double cost = (System.nanoTime() - start) + compressedSize * TRANSFER_NANOS_PER_BYTE;
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestCodec = Optional.of(codec);
+            }
+        }
+        selectedCodec = bestCodec;
+        return selectedCodec;
+    }
+
+    private int compress(PageCompressionCodec codec, Slice slice)
+    {
+        Compressor compressor = compressors.computeIfAbsent(codec, PageCompressionCodec::createCompressor);
+        int maxCompressedLength = compressor.maxCompressedLength(slice.length());
+        byte[] compressionBuffer = getCompressionBuffer(maxCompressedLength);
+        // the serialization buffer is always on heap, so this wraps its array without a copy
+        ByteBuffer input = slice.toByteBuffer();
+        return compressor.compress(
+                input.array(),
+                input.arrayOffset() + input.position(),
+                input.remaining(),
+                compressionBuffer,
+                0,
+                maxCompressedLength);
+    }
+
+    private SliceOutput getSerializationBuffer(int expectedSize)
+    {
+        if (serializationBuffer == null) {
+            serializationBuffer = new DynamicSliceOutput(expectedSize);
+        }
+        else {
+            serializationBuffer.reset();
+        }
+        return serializationBuffer;
+    }
+
+    private byte[] getCompressionBuffer(int size)
+    {
+        if (compressionBuffer == null || compressionBuffer.length < size) {
+            compressionBuffer = new byte[size];
+        }
+        return compressionBuffer;
+    }
+
+    private void releaseLargeBuffers()
+    {
+        if (serializationBuffer.getRetainedSize() > MAXIMUM_RETAINED_BUFFER_SIZE) {
+            serializationBuffer = null;
+        }
+        if (compressionBuffer != null && compressionBuffer.length > MAXIMUM_RETAINED_BUFFER_SIZE) {
+            compressionBuffer = null;
+        }
+    }
+
     public Page deserialize(SerializedPage serializedPage)
     {
         checkArgument(serializedPage != null, "serializedPage is null");
@@ -100,12 +206,14 @@ public class PagesSerde
         }
 
         if (COMPRESSED.isSet(serializedPage.getPageCodecMarkers())) {
-            checkState(decompressor.isPresent(), "Page is compressed, but decompressor is missing");
+            // pages can be compressed with any codec, regardless of the codecs this serde compresses with
+            PageCompressionCodec codec = PageCompressionCodec.fromMarkers(serializedPage.getPageCodecMarkers());
+            Decompressor decompressor = decompressors.computeIfAbsent(codec, PageCompressionCodec::createDecompressor);
 
             int uncompressedSize = serializedPage.getUncompressedSizeInBytes();
             ByteBuffer decompressionBuffer = ByteBuffer.allocate(uncompressedSize);
 
-            decompressor.get().decompress(slice.toByteBuffer(), decompressionBuffer);
+            decompressor.decompress(slice.toByteBuffer(), decompressionBuffer);
             decompressionBuffer.flip();
             checkState(decompressionBuffer.remaining() == uncompressedSize);
 
@@ -15,22 +15,46 @@ package com.facebook.presto.execution.buffer;
 
 import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.facebook.presto.spiller.SpillCipher;
-import io.airlift.compress.lz4.Lz4Compressor;
-import io.airlift.compress.lz4.Lz4Decompressor;
+import com.facebook.presto.sql.analyzer.FeaturesConfig.ExchangeCompressionCodec;
+import com.google.common.collect.ImmutableList;
 
+import java.util.List;
 import java.util.Optional;
 
+import static com.facebook.presto.sql.analyzer.FeaturesConfig.ExchangeCompressionCodec.LZ4;
 import static java.util.Objects.requireNonNull;
 
 public class PagesSerdeFactory
 {
     private final BlockEncodingSerde blockEncodingSerde;
-    private final boolean compressionEnabled;
+    private final List<PageCompressionCodec> compressionCodecs;
 
     public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, boolean compressionEnabled)
+    {
+        this(blockEncodingSerde, compressionEnabled, LZ4);
+    }
+
+    public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, boolean compressionEnabled, ExchangeCompressionCodec compressionCodec)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
-        this.compressionEnabled = compressionEnabled;
+        requireNonNull(compressionCodec, "compressionCodec is null");
+        this.compressionCodecs = compressionEnabled ? getCompressionCodecs(compressionCodec) : ImmutableList.of();
+    }
+
+    private static List<PageCompressionCodec> getCompressionCodecs(ExchangeCompressionCodec compressionCodec)
+    {
+        switch (compressionCodec) {
+            case LZ4:
+                return ImmutableList.of(PageCompressionCodec.LZ4);
+            case SNAPPY:
+                return ImmutableList.of(PageCompressionCodec.SNAPPY);
+            case ZSTD:
+                return ImmutableList.of(PageCompressionCodec.ZSTD);
+            case ADAPTIVE:
+                return ImmutableList.copyOf(PageCompressionCodec.values());
+            default:
+                throw new IllegalArgumentException("Unsupported compression codec: " + compressionCodec);
+        }
     }
 
     public PagesSerde createPagesSerde()
@@ -45,10 +69,6 @@ public class PagesSerdeFactory
 
     private PagesSerde createPagesSerdeInternal(Optional<SpillCipher> spillCipher)
     {
-        if (compressionEnabled) {
-            return new PagesSerde(blockEncodingSerde, Optional.of(new Lz4Compressor()), Optional.of(new Lz4Decompressor()), spillCipher);
-        }
-
-        return new PagesSerde(blockEncodingSerde, Optional.empty(), Optional.empty(), spillCipher);
+        return new PagesSerde(blockEncodingSerde, compressionCodecs, spillCipher);
     }
 }
@@ -24,6 +24,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.DataSize;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -41,7 +42,6 @@ import static com.facebook.presto.execution.buffer.BufferState.OPEN;
 import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.util.Objects.requireNonNull;
 
 public class PartitionedOutputBuffer
@@ -50,6 +50,7 @@ public class PartitionedOutputBuffer
     private final StateMachine<BufferState> state;
     private final OutputBuffers outputBuffers;
     private final OutputBufferMemoryManager memoryManager;
+    private final OutputBufferSpooler spooler;
 
     private final List<ClientBuffer> partitions;
 
@@ -67,6 +68,18 @@ public class PartitionedOutputBuffer
             DataSize maxBufferSize,
             Supplier<LocalMemoryContext> systemMemoryContextSupplier,
             Executor notificationExecutor)
+    {
+        this(taskInstanceId, state, outputBuffers, maxBufferSize, systemMemoryContextSupplier, notificationExecutor, Optional.empty());
+    }
+
+    public PartitionedOutputBuffer(
+            String taskInstanceId,
+            StateMachine<BufferState> state,
+            OutputBuffers outputBuffers,
+            DataSize maxBufferSize,
+            Supplier<LocalMemoryContext> systemMemoryContextSupplier,
+            Executor notificationExecutor,
+            Optional<PageSpoolFactory> pageSpoolFactory)
     {
         this.state = requireNonNull(state, "state is null");
 
@@ -79,6 +92,7 @@ public class PartitionedOutputBuffer
                 requireNonNull(maxBufferSize, "maxBufferSize is null").toBytes(),
                 requireNonNull(systemMemoryContextSupplier, "systemMemoryContextSupplier is null"),
                 requireNonNull(notificationExecutor, "notificationExecutor is null"));
+        this.spooler = new OutputBufferSpooler(requireNonNull(pageSpoolFactory, "pageSpoolFactory is null"), maxBufferSize.toBytes(), memoryManager::updateMemoryUsage);
 
         ImmutableList.Builder<ClientBuffer> partitions = ImmutableList.builder();
         for (OutputBufferId bufferId : outputBuffers.getBuffers().keySet()) {
@@ -196,29 +210,37 @@ public class PartitionedOutputBuffer
             return;
         }
 
-        // reserve memory
-        long bytesAdded = pages.stream().mapToLong(SerializedPage::getRetainedSizeInBytes).sum();
-        memoryManager.updateMemoryUsage(bytesAdded);
-
         // update stats
         long rowCount = pages.stream().mapToLong(SerializedPage::getPositionCount).sum();
         totalRowsAdded.addAndGet(rowCount);
         totalPagesAdded.addAndGet(pages.size());
         outstandingPageCountPerLifespan.computeIfAbsent(lifespan, ignore -> new AtomicLong()).addAndGet(pages.size());
 
-        // create page reference counts with an initial single reference
-        List<SerializedPageReference> serializedPageReferences = pages.stream()
-                .map(bufferedPage -> new SerializedPageReference(
-                        bufferedPage,
-                        1,
-                        () -> dereferencePage(bufferedPage, lifespan)))
-                .collect(toImmutableList());
+        // create page reference counts with an initial single reference,
+        // pages that do not fit in the buffer are spooled when spooling is enabled
+        ImmutableList.Builder<SerializedPageReference> serializedPageReferences = ImmutableList.builder();
+        long bytesAdded = 0;
+        for (SerializedPage page : pages) {
+            Optional<SerializedPageReference> spooledPage = spooler.spoolIfFull(page, memoryManager.getBufferedBytes() + bytesAdded, () -> dereferencePage(0, lifespan));
+            if (spooledPage.isPresent()) {
+                serializedPageReferences.add(spooledPage.get());
+            }
+            else {
+                long pageSize = page.getRetainedSizeInBytes();
+                bytesAdded += pageSize;
+                serializedPageReferences.add(new SerializedPageReference(page, 1, () -> dereferencePage(pageSize, lifespan)));
+            }
+        }
+
+        // reserve memory
+        memoryManager.updateMemoryUsage(bytesAdded);
 
         // add pages to the buffer (this will increase the reference count by one)
-        partitions.get(partitionNumber).enqueuePages(serializedPageReferences);
+        List<SerializedPageReference> pageReferences = serializedPageReferences.build();
+        partitions.get(partitionNumber).enqueuePages(pageReferences);
 
         // drop the initial reference
-        serializedPageReferences.forEach(SerializedPageReference::dereferencePage);
+        pageReferences.forEach(SerializedPageReference::dereferencePage);
     }
 
     @Override
@@ -286,6 +308,7 @@ public class PartitionedOutputBuffer
             partitions.forEach(ClientBuffer::destroy);
             memoryManager.setNoBlockOnFull();
             forceFreeMemory();
+            spooler.close();
         }
     }
 
@@ -296,6 +319,7 @@ public class PartitionedOutputBuffer
         if (state.setIf(FAILED, oldState -> !oldState.isTerminal())) {
             memoryManager.setNoBlockOnFull();
             forceFreeMemory();
+            spooler.close();
             // DO NOT destroy buffers or set no more pages.  The coordinator manages the teardown of failed queries.
         }
     }
@@ -329,7 +353,7 @@ public class PartitionedOutputBuffer
         return memoryManager;
     }
 
-    private void dereferencePage(SerializedPage pageSplit, Lifespan lifespan)
+    private void dereferencePage(long retainedSizeInBytes, Lifespan lifespan)
     {
         long outstandingPageCount = outstandingPageCountPerLifespan.get(lifespan).decrementAndGet();
         if (outstandingPageCount == 0 && noMorePagesForLifespan.contains(lifespan)) {
@@ -337,6 +361,6 @@ public class PartitionedOutputBuffer
             lifespanCompletionCallback.accept(lifespan);
         }
 
-        memoryManager.updateMemoryUsage(-pageSplit.getRetainedSizeInBytes());
+        memoryManager.updateMemoryUsage(-retainedSizeInBytes);
     }
 }
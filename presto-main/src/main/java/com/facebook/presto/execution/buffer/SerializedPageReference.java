@@ -13,25 +13,67 @@
  */
 package com.facebook.presto.execution.buffer;
 
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Reference counted page of an output buffer. The page is either held in memory, or was
+ * written to a {@link PageSpool} and is read back the first time it is requested. A page
+ * read back from the spool is kept in memory until the last reference is dropped, so a
+ * retried request does not read it again, and its space in the spool is released then.
+ */
 @ThreadSafe
 class SerializedPageReference
 {
+    @Nullable
     private final SerializedPage serializedPage;
+    @Nullable
+    private final PageSpool pageSpool;
+    @Nullable
+    private final SpooledPage spooledPage;
+    private final LongConsumer loadedMemoryUpdater;
     private final AtomicInteger referenceCount;
     private final Runnable onDereference;
 
+    @GuardedBy("this")
+    private SerializedPage loadedPage;
+    @GuardedBy("this")
+    private boolean released;
+
     public SerializedPageReference(SerializedPage serializedPage, int referenceCount, Runnable onDereference)
     {
-        this.serializedPage = requireNonNull(serializedPage, "page is null");
+        this(requireNonNull(serializedPage, "page is null"), null, null, bytes -> {}, referenceCount, onDereference);
+    }
+
+    /**
+     * @param loadedMemoryUpdater notified of the memory used by the page while it is loaded from the spool
+     */
+    public SerializedPageReference(PageSpool pageSpool, SpooledPage spooledPage, LongConsumer loadedMemoryUpdater, int referenceCount, Runnable onDereference)
+    {
+        this(null, requireNonNull(pageSpool, "pageSpool is null"), requireNonNull(spooledPage, "spooledPage is null"), loadedMemoryUpdater, referenceCount, onDereference);
+    }
+
+    private SerializedPageReference(
+            @Nullable SerializedPage serializedPage,
+            @Nullable PageSpool pageSpool,
+            @Nullable SpooledPage spooledPage,
+            LongConsumer loadedMemoryUpdater,
+            int referenceCount,
+            Runnable onDereference)
+    {
+        this.serializedPage = serializedPage;
+        this.pageSpool = pageSpool;
+        this.spooledPage = spooledPage;
+        this.loadedMemoryUpdater = requireNonNull(loadedMemoryUpdater, "loadedMemoryUpdater is null");
         checkArgument(referenceCount > 0, "referenceCount must be at least 1");
         this.referenceCount = new AtomicInteger(referenceCount);
         this.onDereference = requireNonNull(onDereference, "onDereference is null");
@@ -43,19 +85,39 @@ class SerializedPageReference
         checkState(oldReferences > 0, "Page has already been dereferenced");
     }
 
+    /**
+     * Gets the page, reading it from the spool if necessary. The caller must hold a reference
+     * to the page, and must not hold the lock of the buffer, since this may read from disk.
+     */
     public SerializedPage getSerializedPage()
     {
-        return serializedPage;
+        if (serializedPage != null) {
+            return serializedPage;
+        }
+        synchronized (this) {
+            checkState(!released, "Page has already been released");
+            if (loadedPage == null) {
+                loadedPage = pageSpool.read(spooledPage);
+                loadedMemoryUpdater.accept(loadedPage.getRetainedSizeInBytes());
+            }
+            return loadedPage;
+        }
     }
 
     public int getPositionCount()
     {
-        return serializedPage.getPositionCount();
+        if (serializedPage != null) {
+            return serializedPage.getPositionCount();
+        }
+        return spooledPage.getPositionCount();
     }
 
     public long getRetainedSizeInBytes()
     {
-        return serializedPage.getRetainedSizeInBytes();
+        if (serializedPage != null) {
+            return serializedPage.getRetainedSizeInBytes();
+        }
+        return spooledPage.getRetainedSizeInBytes();
     }
 
     public void dereferencePage()
@@ -64,10 +126,23 @@ class SerializedPageReference
         checkState(remainingReferences >= 0, "Page reference count is negative");
 
         if (remainingReferences == 0) {
+            if (pageSpool != null) {
+                releaseSpooledPage();
+            }
             onDereference.run();
         }
     }
 
+    private synchronized void releaseSpooledPage()
+    {
+        released = true;
+        if (loadedPage != null) {
+            loadedMemoryUpdater.accept(-loadedPage.getRetainedSizeInBytes());
+            loadedPage = null;
+        }
+        pageSpool.release(spooledPage);
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import javax.annotation.concurrent.Immutable;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Location and metadata of a {@link SerializedPage} written to a {@link PageSpool}.
+ */
+@Immutable
+public final class SpooledPage
+{
+    private final long offset;
+    private final int length;
+    private final byte pageCodecMarkers;
+    private final int positionCount;
+    private final int uncompressedSizeInBytes;
+    private final long retainedSizeInBytes;
+
+    public SpooledPage(long offset, int length, byte pageCodecMarkers, int positionCount, int uncompressedSizeInBytes, long retainedSizeInBytes)
+    {
+        checkArgument(offset >= 0, "offset is negative");
+        checkArgument(length >= 0, "length is negative");
+        this.offset = offset;
+        this.length = length;
+        this.pageCodecMarkers = pageCodecMarkers;
+        this.positionCount = positionCount;
+        this.uncompressedSizeInBytes = uncompressedSizeInBytes;
+        this.retainedSizeInBytes = retainedSizeInBytes;
+    }
+
+    public long getOffset()
+    {
+        return offset;
+    }
+
+    public int getLength()
+    {
+        return length;
+    }
+
+    public byte getPageCodecMarkers()
+    {
+        return pageCodecMarkers;
+    }
+
+    public int getPositionCount()
+    {
+        return positionCount;
+    }
+
+    public int getUncompressedSizeInBytes()
+    {
+        return uncompressedSizeInBytes;
+    }
+
+    /**
+     * Returns the retained size of the page before it was spooled.
+     */
+    public long getRetainedSizeInBytes()
+    {
+        return retainedSizeInBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("offset", offset)
+                .add("length", length)
+                .add("positionCount", positionCount)
+                .toString();
+    }
+}
@@ -28,12 +28,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.base.Preconditions.checkState;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -43,40 +43,62 @@ public class MultilevelSplitQueue
     static final int[] LEVEL_THRESHOLD_SECONDS = {0, 1, 10, 60, 300};
     static final long LEVEL_CONTRIBUTION_CAP = SECONDS.toNanos(30);
 
-    @GuardedBy("lock")
-    private final List<PriorityQueue<PrioritizedSplitRunner>> levelWaitingSplits;
+    /**
+     * Splits are queued in local queues, each with its own lock, so that runner threads
+     * do not contend on a single lock every quantum. Runners re-queue their splits in
+     * their own local queue and steal from the other local queues when it is empty.
+     */
+    private final List<LocalQueue> localQueues;
+    private final AtomicInteger nextLocalQueue = new AtomicInteger();
+
+    // number of waiting splits in each level over all local queues
+    private final AtomicInteger[] levelWaitingSplitCount = new AtomicInteger[LEVEL_THRESHOLD_SECONDS.length];
 
     private final AtomicLong[] levelScheduledTime = new AtomicLong[LEVEL_THRESHOLD_SECONDS.length];
 
     private final AtomicLong[] levelMinPriority;
     private final List<CounterStat> selectedLevelCounters;
+    private final CounterStat stolenSplits = new CounterStat();
 
-    private final ReentrantLock lock = new ReentrantLock();
-    private final Condition notEmpty = lock.newCondition();
+    // only used by runners waiting for splits, so it is not acquired when there is work to do
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition notEmpty = idleLock.newCondition();
+    private final AtomicInteger idleRunners = new AtomicInteger();
 
     private final double levelTimeMultiplier;
 
     @Inject
     public MultilevelSplitQueue(TaskManagerConfig taskManagerConfig)
     {
-        this(taskManagerConfig.getLevelTimeMultiplier().doubleValue());
+        this(taskManagerConfig.getLevelTimeMultiplier().doubleValue(), taskManagerConfig.getMaxWorkerThreads());
     }
 
     public MultilevelSplitQueue(double levelTimeMultiplier)
     {
+        this(levelTimeMultiplier, 1);
+    }
+
+    public MultilevelSplitQueue(double levelTimeMultiplier, int localQueueCount)
+    {
+        checkArgument(localQueueCount > 0, "localQueueCount must be at least 1");
         this.levelMinPriority = new AtomicLong[LEVEL_THRESHOLD_SECONDS.length];
-        this.levelWaitingSplits = new ArrayList<>(LEVEL_THRESHOLD_SECONDS.length);
         ImmutableList.Builder<CounterStat> counters = ImmutableList.builder();
 
         for (int i = 0; i < LEVEL_THRESHOLD_SECONDS.length; i++) {
             levelScheduledTime[i] = new AtomicLong();
             levelMinPriority[i] = new AtomicLong(-1);
-            levelWaitingSplits.add(new PriorityQueue<>());
+            levelWaitingSplitCount[i] = new AtomicInteger();
             counters.add(new CounterStat());
         }
 
         this.selectedLevelCounters = counters.build();
 
+        ImmutableList.Builder<LocalQueue> localQueues = ImmutableList.builder();
+        for (int i = 0; i < localQueueCount; i++) {
+            localQueues.add(new LocalQueue());
+        }
+        this.localQueues = localQueues.build();
+
         this.levelTimeMultiplier = levelTimeMultiplier;
     }
 
@@ -85,6 +107,15 @@ public class MultilevelSplitQueue
         levelScheduledTime[level].addAndGet(nanos);
     }
 
+    /**
+     * Queues a split that is not bound to a runner thread. The local queues are used
+     * in a round robin fashion, and idle runners steal the split if needed.
+     */
+    public void offer(PrioritizedSplitRunner split)
+    {
+        offer(split, nextLocalQueue.getAndIncrement());
+    }
+
     /**
      * During periods of time when a level has no waiting splits, it will not accumulate
      * scheduled time and will fall behind relative to other levels.
@@ -94,60 +125,85 @@ public class MultilevelSplitQueue
      * <p>
      * To prevent this we set the scheduled time for levels which were empty to the expected
      * scheduled time.
+     *
+     * @param localQueue the local queue of the runner offering the split, taken modulo the number of local queues
      */
-    public void offer(PrioritizedSplitRunner split)
+    public void offer(PrioritizedSplitRunner split, int localQueue)
     {
         checkArgument(split != null, "split is null");
 
         split.setReady();
         int level = split.getPriority().getLevel();
-        lock.lock();
-        try {
-            if (levelWaitingSplits.get(level).isEmpty()) {
-                // Accesses to levelScheduledTime are not synchronized, so we have a data race
-                // here - our level time math will be off. However, the staleness is bounded by
-                // the fact that only running splits that complete during this computation
-                // can update the level time. Therefore, this is benign.
-                long level0Time = getLevel0TargetTime();
-                long levelExpectedTime = (long) (level0Time / Math.pow(levelTimeMultiplier, level));
-                long delta = levelExpectedTime - levelScheduledTime[level].get();
-                levelScheduledTime[level].addAndGet(delta);
-            }
-
-            levelWaitingSplits.get(level).offer(split);
-            notEmpty.signal();
+        if (levelWaitingSplitCount[level].getAndIncrement() == 0) {
+            // Accesses to levelScheduledTime are not synchronized, so we have a data race
+            // here - our level time math will be off. However, the staleness is bounded by
+            // the fact that only running splits that complete during this computation
+            // can update the level time. Therefore, this is benign.
+            long level0Time = getLevel0TargetTime();
+            long levelExpectedTime = (long) (level0Time / Math.pow(levelTimeMultiplier, level));
+            long delta = levelExpectedTime - levelScheduledTime[level].get();
+            levelScheduledTime[level].addAndGet(delta);
         }
-        finally {
-            lock.unlock();
+
+        getLocalQueue(localQueue).offer(split, level);
+
+        if (idleRunners.get() > 0) {
+            idleLock.lock();
+            try {
+                notEmpty.signal();
+            }
+            finally {
+                idleLock.unlock();
+            }
         }
     }
 
-    public PrioritizedSplitRunner take()
+    /**
+     * @param localQueue the local queue of the runner, taken modulo the number of local queues
+     */
+    public PrioritizedSplitRunner take(int localQueue)
             throws InterruptedException
     {
         while (true) {
-            lock.lockInterruptibly();
-            try {
-                PrioritizedSplitRunner result;
-                while ((result = pollSplit()) == null) {
-                    notEmpty.await();
-                }
+            PrioritizedSplitRunner result = pollSplit(localQueue);
+            if (result == null) {
+                awaitSplits();
+                continue;
+            }
 
-                if (result.updateLevelPriority()) {
-                    offer(result);
-                    continue;
-                }
+            if (result.updateLevelPriority()) {
+                offer(result, localQueue);
+                continue;
+            }
 
-                int selectedLevel = result.getPriority().getLevel();
-                levelMinPriority[selectedLevel].set(result.getPriority().getLevelPriority());
-                selectedLevelCounters.get(selectedLevel).update(1);
+            int selectedLevel = result.getPriority().getLevel();
+            levelMinPriority[selectedLevel].set(result.getPriority().getLevelPriority());
+            selectedLevelCounters.get(selectedLevel).update(1);
+
+            return result;
+        }
+    }
 
-                return result;
+    private void awaitSplits()
+            throws InterruptedException
+    {
+        idleLock.lockInterruptibly();
+        try {
+            // the idle count is incremented before the splits are counted, and offer increments the
+            // split count before checking for idle runners, so a split offered concurrently is not missed
+            idleRunners.incrementAndGet();
+            try {
+                while (size() == 0) {
+                    notEmpty.await();
+                }
             }
             finally {
-                lock.unlock();
+                idleRunners.decrementAndGet();
             }
         }
+        finally {
+            idleLock.unlock();
+        }
     }
 
     /**
@@ -156,16 +212,16 @@ public class MultilevelSplitQueue
      * <p>
      * This function selects the level that has the the lowest ratio of actual to the target time
      * with the objective of minimizing deviation from the target scheduled time. From this level,
-     * we pick the split with the lowest priority.
+     * we pick the split with the lowest priority in the local queue, or steal one from another
+     * local queue if the local queue has no splits of this level.
      */
-    @GuardedBy("lock")
-    private PrioritizedSplitRunner pollSplit()
+    private PrioritizedSplitRunner pollSplit(int localQueue)
     {
         long targetScheduledTime = getLevel0TargetTime();
         double worstRatio = 1;
         int selectedLevel = -1;
         for (int level = 0; level < LEVEL_THRESHOLD_SECONDS.length; level++) {
-            if (!levelWaitingSplits.get(level).isEmpty()) {
+            if (levelWaitingSplitCount[level].get() > 0) {
                 long levelTime = levelScheduledTime[level].get();
                 double ratio = levelTime == 0 ? 0 : targetScheduledTime / (1.0 * levelTime);
                 if (selectedLevel == -1 || ratio > worstRatio) {
@@ -181,13 +237,21 @@ public class MultilevelSplitQueue
             return null;
         }
 
-        PrioritizedSplitRunner result = levelWaitingSplits.get(selectedLevel).poll();
-        checkState(result != null, "pollSplit cannot return null");
+        int first = Math.floorMod(localQueue, localQueues.size());
+        PrioritizedSplitRunner result = localQueues.get(first).poll(selectedLevel);
+        for (int i = 1; result == null && i < localQueues.size(); i++) {
+            result = localQueues.get((first + i) % localQueues.size()).poll(selectedLevel);
+            if (result != null) {
+                stolenSplits.update(1);
+            }
+        }
 
+        if (result != null) {
+            levelWaitingSplitCount[selectedLevel].decrementAndGet();
+        }
         return result;
     }
 
-    @GuardedBy("lock")
     private long getLevel0TargetTime()
     {
         long level0TargetTime = levelScheduledTime[0].get();
@@ -247,27 +311,13 @@ public class MultilevelSplitQueue
     public void remove(PrioritizedSplitRunner split)
     {
         checkArgument(split != null, "split is null");
-        lock.lock();
-        try {
-            for (PriorityQueue<PrioritizedSplitRunner> level : levelWaitingSplits) {
-                level.remove(split);
-            }
-        }
-        finally {
-            lock.unlock();
-        }
+        removeAll(ImmutableList.of(split));
     }
 
     public void removeAll(Collection<PrioritizedSplitRunner> splits)
     {
-        lock.lock();
-        try {
-            for (PriorityQueue<PrioritizedSplitRunner> level : levelWaitingSplits) {
-                level.removeAll(splits);
-            }
-        }
-        finally {
-            lock.unlock();
+        for (LocalQueue localQueue : localQueues) {
+            localQueue.removeAll(splits);
         }
     }
 
@@ -279,17 +329,11 @@ public class MultilevelSplitQueue
 
     public int size()
     {
-        lock.lock();
-        try {
-            int total = 0;
-            for (PriorityQueue<PrioritizedSplitRunner> level : levelWaitingSplits) {
-                total += level.size();
-            }
-            return total;
-        }
-        finally {
-            lock.unlock();
+        int total = 0;
+        for (AtomicInteger count : levelWaitingSplitCount) {
+            total += count.get();
         }
+        return total;
     }
 
     public static int computeLevel(long threadUsageNanos)
@@ -310,6 +354,11 @@ public class MultilevelSplitQueue
         return levelScheduledTime[level].longValue();
     }
 
+    private LocalQueue getLocalQueue(int localQueue)
+    {
+        return localQueues.get(Math.floorMod(localQueue, localQueues.size()));
+    }
+
     @Managed
     public long getLevel0Time()
     {
@@ -374,4 +423,66 @@ public class MultilevelSplitQueue
     {
         return selectedLevelCounters.get(4);
     }
+
+    @Managed
+    @Nested
+    public CounterStat getStolenSplits()
+    {
+        return stolenSplits;
+    }
+
+    private class LocalQueue
+    {
+        private final ReentrantLock lock = new ReentrantLock();
+        @GuardedBy("lock")
+        private final List<PriorityQueue<PrioritizedSplitRunner>> levelWaitingSplits;
+
+        private LocalQueue()
+        {
+            levelWaitingSplits = new ArrayList<>(LEVEL_THRESHOLD_SECONDS.length);
+            for (int i = 0; i < LEVEL_THRESHOLD_SECONDS.length; i++) {
+                levelWaitingSplits.add(new PriorityQueue<>());
+            }
+        }
+
+        public void offer(PrioritizedSplitRunner split, int level)
+        {
+            lock.lock();
+            try {
+                levelWaitingSplits.get(level).offer(split);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        public PrioritizedSplitRunner poll(int level)
+        {
+            lock.lock();
+            try {
+                return levelWaitingSplits.get(level).poll();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        public void removeAll(Collection<PrioritizedSplitRunner> splits)
+        {
+            lock.lock();
+            try {
+                for (int level = 0; level < LEVEL_THRESHOLD_SECONDS.length; level++) {
+                    PriorityQueue<PrioritizedSplitRunner> queue = levelWaitingSplits.get(level);
+                    for (PrioritizedSplitRunner split : splits) {
+                        if (queue.remove(split)) {
+                            levelWaitingSplitCount[level].decrementAndGet();
+                        }
+                    }
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
 }
@@ -158,6 +158,13 @@ public class PrioritizedSplitRunner
 
             waitNanos.getAndAdd(startNanos - lastReady.get());
 
+            // time between the end of the previous quantum and the split becoming ready again
+            long blockedNanos = 0;
+            long lastRunNanos = lastRun.get();
+            if (lastRunNanos != 0) {
+                blockedNanos = Math.max(lastReady.get() - lastRunNanos, 0);
+            }
+
             CpuTimer timer = new CpuTimer();
             ListenableFuture<?> blocked = split.processFor(SPLIT_RUN_QUANTA);
             CpuTimer.CpuDuration elapsed = timer.elapsedTime();
@@ -165,7 +172,8 @@ public class PrioritizedSplitRunner
             long quantaScheduledNanos = ticker.read() - startNanos;
             scheduledNanos.addAndGet(quantaScheduledNanos);
 
-            priority.set(taskHandle.addScheduledNanos(quantaScheduledNanos));
+            long quantaCpuNanos = elapsed.getCpu().roundTo(NANOSECONDS);
+            priority.set(taskHandle.addScheduledNanos(this, quantaScheduledNanos, quantaCpuNanos, blockedNanos));
             lastRun.set(ticker.read());
 
             if (blocked == NOT_BLOCKED) {
@@ -175,7 +183,6 @@ public class PrioritizedSplitRunner
                 blockedQuantaWallTime.add(elapsed.getWall());
             }
 
-            long quantaCpuNanos = elapsed.getCpu().roundTo(NANOSECONDS);
             cpuTimeNanos.addAndGet(quantaCpuNanos);
 
             globalCpuTimeMicros.update(quantaCpuNanos / 1000);
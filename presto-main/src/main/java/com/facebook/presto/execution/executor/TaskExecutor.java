@@ -170,7 +170,7 @@ public class TaskExecutor
     @VisibleForTesting
     public TaskExecutor(int runnerThreads, int minDrivers, int guaranteedNumberOfDriversPerTask, int maximumNumberOfDriversPerTask, Ticker ticker)
     {
-        this(runnerThreads, minDrivers, guaranteedNumberOfDriversPerTask, maximumNumberOfDriversPerTask, new EmbedVersion(new ServerConfig()), new MultilevelSplitQueue(2), ticker);
+        this(runnerThreads, minDrivers, guaranteedNumberOfDriversPerTask, maximumNumberOfDriversPerTask, new EmbedVersion(new ServerConfig()), new MultilevelSplitQueue(2, runnerThreads), ticker);
     }
 
     @VisibleForTesting
@@ -214,7 +214,7 @@ public class TaskExecutor
     {
         checkState(!closed, "TaskExecutor is closed");
         for (int i = 0; i < runnerThreads; i++) {
-            addRunnerThread();
+            addRunnerThread(i);
         }
     }
 
@@ -239,10 +239,10 @@ public class TaskExecutor
                 .toString();
     }
 
-    private synchronized void addRunnerThread()
+    private synchronized void addRunnerThread(int localQueue)
     {
         try {
-            executor.execute(embedVersion.embedVersion(new TaskRunner()));
+            executor.execute(embedVersion.embedVersion(new TaskRunner(localQueue)));
         }
         catch (RejectedExecutionException ignored) {
         }
@@ -254,6 +254,17 @@ public class TaskExecutor
             int initialSplitConcurrency,
             Duration splitConcurrencyAdjustFrequency,
             OptionalInt maxDriversPerTask)
+    {
+        return addTask(taskId, utilizationSupplier, initialSplitConcurrency, splitConcurrencyAdjustFrequency, maxDriversPerTask, false);
+    }
+
+    public synchronized TaskHandle addTask(
+            TaskId taskId,
+            DoubleSupplier utilizationSupplier,
+            int initialSplitConcurrency,
+            Duration splitConcurrencyAdjustFrequency,
+            OptionalInt maxDriversPerTask,
+            boolean adaptiveSplitConcurrency)
     {
         requireNonNull(taskId, "taskId is null");
         requireNonNull(utilizationSupplier, "utilizationSupplier is null");
@@ -262,7 +273,7 @@ public class TaskExecutor
 
         log.debug("Task scheduled " + taskId);
 
-        TaskHandle taskHandle = new TaskHandle(taskId, waitingSplits, utilizationSupplier, initialSplitConcurrency, splitConcurrencyAdjustFrequency, maxDriversPerTask);
+        TaskHandle taskHandle = new TaskHandle(taskId, waitingSplits, utilizationSupplier, initialSplitConcurrency, splitConcurrencyAdjustFrequency, maxDriversPerTask, adaptiveSplitConcurrency);
 
         tasks.add(taskHandle);
         return taskHandle;
@@ -456,6 +467,13 @@ public class TaskExecutor
             implements Runnable
     {
         private final long runnerId = NEXT_RUNNER_ID.getAndIncrement();
+        // local queue of the split queue used by this runner, shared with the runner replacing it
+        private final int localQueue;
+
+        private TaskRunner(int localQueue)
+        {
+            this.localQueue = localQueue;
+        }
 
         @Override
         public void run()
@@ -465,7 +483,7 @@ public class TaskExecutor
                     // select next worker
                     final PrioritizedSplitRunner split;
                     try {
-                        split = waitingSplits.take();
+                        split = waitingSplits.take(localQueue);
                     }
                     catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
@@ -493,7 +511,7 @@ public class TaskExecutor
                         }
                         else {
                             if (blocked.isDone()) {
-                                waitingSplits.offer(split);
+                                waitingSplits.offer(split, localQueue);
                             }
                             else {
                                 blockedSplits.put(split, blocked);
@@ -524,7 +542,7 @@ public class TaskExecutor
             finally {
                 // unless we have been closed, we need to replace this thread
                 if (!closed) {
-                    addRunnerThread();
+                    addRunnerThread(localQueue);
                 }
             }
         }
@@ -540,6 +558,24 @@ public class TaskExecutor
         return tasks.size();
     }
 
+    @Managed
+    public synchronized int getMaxTaskSplitConcurrency()
+    {
+        return tasks.stream()
+                .mapToInt(TaskHandle::getTargetConcurrency)
+                .max()
+                .orElse(0);
+    }
+
+    @Managed
+    public synchronized double getAverageTaskSplitConcurrency()
+    {
+        return tasks.stream()
+                .mapToInt(TaskHandle::getTargetConcurrency)
+                .average()
+                .orElse(0);
+    }
+
     @Managed
     public int getRunnerThreads()
     {
@@ -66,6 +66,18 @@ public class TaskHandle
             int initialSplitConcurrency,
             Duration splitConcurrencyAdjustFrequency,
             OptionalInt maxDriversPerTask)
+    {
+        this(taskId, splitQueue, utilizationSupplier, initialSplitConcurrency, splitConcurrencyAdjustFrequency, maxDriversPerTask, false);
+    }
+
+    public TaskHandle(
+            TaskId taskId,
+            MultilevelSplitQueue splitQueue,
+            DoubleSupplier utilizationSupplier,
+            int initialSplitConcurrency,
+            Duration splitConcurrencyAdjustFrequency,
+            OptionalInt maxDriversPerTask,
+            boolean adaptiveSplitConcurrency)
     {
         this.taskId = requireNonNull(taskId, "taskId is null");
         this.splitQueue = requireNonNull(splitQueue, "splitQueue is null");
@@ -73,7 +85,8 @@ public class TaskHandle
         this.maxDriversPerTask = requireNonNull(maxDriversPerTask, "maxDriversPerTask is null");
         this.concurrencyController = new SplitConcurrencyController(
                 initialSplitConcurrency,
-                requireNonNull(splitConcurrencyAdjustFrequency, "splitConcurrencyAdjustFrequency is null"));
+                requireNonNull(splitConcurrencyAdjustFrequency, "splitConcurrencyAdjustFrequency is null"),
+                adaptiveSplitConcurrency);
     }
 
     public synchronized Priority addScheduledNanos(long durationNanos)
@@ -87,6 +100,19 @@ public class TaskHandle
         return newPriority;
     }
 
+    public synchronized Priority addScheduledNanos(PrioritizedSplitRunner split, long durationNanos, long cpuNanos, long blockedNanos)
+    {
+        if (!runningIntermediateSplits.contains(split)) {
+            concurrencyController.recordLeafSplitTime(durationNanos, cpuNanos, blockedNanos);
+        }
+        return addScheduledNanos(durationNanos);
+    }
+
+    public synchronized int getTargetConcurrency()
+    {
+        return concurrencyController.getTargetConcurrency();
+    }
+
     public synchronized Priority resetLevelPriority()
     {
         long levelMinPriority = splitQueue.getLevelMinPriority(priority.get().getLevel(), scheduledNanos);
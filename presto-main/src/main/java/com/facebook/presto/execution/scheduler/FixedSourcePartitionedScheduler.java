@@ -53,7 +53,7 @@ import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
 public class FixedSourcePartitionedScheduler
-        implements StageScheduler
+        implements RecoverableStageScheduler
 {
     private static final Logger log = Logger.get(FixedSourcePartitionedScheduler.class);
 
@@ -244,6 +244,7 @@ public class FixedSourcePartitionedScheduler
     }
 
     // Only schedule() and recover() are synchronized
+    @Override
     public synchronized void recover(TaskId taskId)
     {
         checkState(groupedLifespanScheduler.isPresent(), "groupedLifespanScheduler is not present for recoverable grouped execution");
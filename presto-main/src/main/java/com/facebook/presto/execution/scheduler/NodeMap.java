@@ -15,11 +15,14 @@ package com.facebook.presto.execution.scheduler;
 
 import com.facebook.presto.metadata.InternalNode;
 import com.facebook.presto.spi.HostAddress;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.SetMultimap;
 
 import java.net.InetAddress;
 import java.util.Set;
 
+import static com.google.common.collect.Multimaps.filterValues;
+
 public class NodeMap
 {
     private final SetMultimap<HostAddress, InternalNode> nodesByHostAndPort;
@@ -57,4 +60,13 @@ public class NodeMap
     {
         return coordinatorNodeIds;
     }
+
+    public NodeMap withoutNode(InternalNode node)
+    {
+        return new NodeMap(
+                ImmutableSetMultimap.copyOf(filterValues(nodesByHostAndPort, value -> !value.equals(node))),
+                ImmutableSetMultimap.copyOf(filterValues(nodesByHost, value -> !value.equals(node))),
+                ImmutableSetMultimap.copyOf(filterValues(workersByNetworkPath, value -> !value.equals(node))),
+                coordinatorNodeIds);
+    }
 }
@@ -68,6 +68,8 @@ public class NodeScheduler
     private final int maxPendingSplitsPerTask;
     private final NodeTaskMap nodeTaskMap;
     private final boolean useNetworkTopology;
+    private final boolean softAffinityEnabled;
+    private final int softAffinityPreferredNodes;
 
     @Inject
     public NodeScheduler(NetworkTopology networkTopology, InternalNodeManager nodeManager, NodeSchedulerConfig config, NodeTaskMap nodeTaskMap)
@@ -91,6 +93,9 @@ public class NodeScheduler
         this.nodeTaskMap = requireNonNull(nodeTaskMap, "nodeTaskMap is null");
         checkArgument(maxSplitsPerNode >= maxPendingSplitsPerTask, "maxSplitsPerNode must be > maxPendingSplitsPerTask");
         this.useNetworkTopology = !config.getNetworkTopology().equals(NetworkTopologyType.LEGACY);
+        this.softAffinityEnabled = config.isSoftAffinityEnabled();
+        this.softAffinityPreferredNodes = config.getSoftAffinityPreferredNodes();
+        checkArgument(!softAffinityEnabled || !useNetworkTopology, "soft affinity scheduling can not be combined with a network topology");
 
         ImmutableList.Builder<CounterStat> builder = ImmutableList.builder();
         if (useNetworkTopology) {
@@ -162,6 +167,17 @@ public class NodeScheduler
             return new NodeMap(byHostAndPort.build(), byHost.build(), workersByNetworkPath.build(), coordinatorNodeIds);
         }, 5, TimeUnit.SECONDS);
 
+        if (softAffinityEnabled) {
+            return new SoftAffinityNodeSelector(
+                    nodeManager,
+                    nodeTaskMap,
+                    includeCoordinator,
+                    nodeMap,
+                    minCandidates,
+                    maxSplitsPerNode,
+                    maxPendingSplitsPerTask,
+                    softAffinityPreferredNodes);
+        }
         if (useNetworkTopology) {
             return new TopologyAwareNodeSelector(
                     nodeManager,
@@ -35,6 +35,8 @@ public class NodeSchedulerConfig
     private int maxSplitsPerNode = 100;
     private int maxPendingSplitsPerTask = 10;
     private String networkTopology = NetworkTopologyType.LEGACY;
+    private boolean softAffinityEnabled;
+    private int softAffinityPreferredNodes = 2;
 
     @NotNull
     public String getNetworkTopology()
@@ -98,4 +100,29 @@ public class NodeSchedulerConfig
         this.maxSplitsPerNode = maxSplitsPerNode;
         return this;
     }
+
+    public boolean isSoftAffinityEnabled()
+    {
+        return softAffinityEnabled;
+    }
+
+    @Config("node-scheduler.soft-affinity-enabled")
+    public NodeSchedulerConfig setSoftAffinityEnabled(boolean softAffinityEnabled)
+    {
+        this.softAffinityEnabled = softAffinityEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getSoftAffinityPreferredNodes()
+    {
+        return softAffinityPreferredNodes;
+    }
+
+    @Config("node-scheduler.soft-affinity-preferred-nodes")
+    public NodeSchedulerConfig setSoftAffinityPreferredNodes(int softAffinityPreferredNodes)
+    {
+        this.softAffinityPreferredNodes = softAffinityPreferredNodes;
+        return this;
+    }
 }
@@ -25,6 +25,11 @@ public interface NodeSelector
 {
     void lockDownNodes();
 
+    /**
+     * Stops assigning splits to the node, for example, because a task failed on it.
+     */
+    void excludeNode(InternalNode node);
+
     List<InternalNode> allNodes();
 
     InternalNode selectCurrentNode();
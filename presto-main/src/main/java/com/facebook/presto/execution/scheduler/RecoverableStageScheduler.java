@@ -0,0 +1,30 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.scheduler;
+
+import com.facebook.presto.execution.TaskId;
+
+/**
+ * A {@link StageScheduler} that can schedule the work of a failed task again.
+ */
+public interface RecoverableStageScheduler
+        extends StageScheduler
+{
+    /**
+     * Schedules the work of the failed task on other tasks.
+     *
+     * @throws IllegalStateException if the work can no longer be scheduled
+     */
+    void recover(TaskId taskId);
+}
@@ -79,6 +79,12 @@ public class SimpleNodeSelector
         nodeMap.set(Suppliers.ofInstance(nodeMap.get().get()));
     }
 
+    @Override
+    public void excludeNode(InternalNode node)
+    {
+        nodeMap.getAndUpdate(nodes -> () -> nodes.get().withoutNode(node));
+    }
+
     @Override
     public List<InternalNode> allNodes()
     {
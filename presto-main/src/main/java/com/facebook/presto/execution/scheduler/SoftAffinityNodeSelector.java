@@ -0,0 +1,267 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.scheduler;
+
+import com.facebook.presto.execution.NodeTaskMap;
+import com.facebook.presto.execution.RemoteTask;
+import com.facebook.presto.metadata.InternalNode;
+import com.facebook.presto.metadata.InternalNodeManager;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.spi.PrestoException;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.log.Logger;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.facebook.presto.execution.scheduler.NodeScheduler.calculateLowWatermark;
+import static com.facebook.presto.execution.scheduler.NodeScheduler.randomizedNodes;
+import static com.facebook.presto.execution.scheduler.NodeScheduler.selectDistributionNodes;
+import static com.facebook.presto.execution.scheduler.NodeScheduler.selectExactNodes;
+import static com.facebook.presto.execution.scheduler.NodeScheduler.selectNodes;
+import static com.facebook.presto.execution.scheduler.NodeScheduler.toWhenHasSplitQueueSpaceFuture;
+import static com.facebook.presto.spi.StandardErrorCode.NO_NODES_AVAILABLE;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.airlift.slice.XxHash64.hash;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Places remotely accessible splits that have an affinity key on a small set of
+ * preferred nodes, chosen by rendezvous hashing of the key, so that repeated reads of
+ * the same data find it in the caches of the same nodes. A node joining or leaving only
+ * moves the splits it prefers. A split only goes to a random node when all its preferred
+ * nodes are full.
+ */
+public class SoftAffinityNodeSelector
+        implements NodeSelector
+{
+    private static final Logger log = Logger.get(SoftAffinityNodeSelector.class);
+
+    private final InternalNodeManager nodeManager;
+    private final NodeTaskMap nodeTaskMap;
+    private final boolean includeCoordinator;
+    private final AtomicReference<Supplier<NodeMap>> nodeMap;
+    private final int minCandidates;
+    private final int maxSplitsPerNode;
+    private final int maxPendingSplitsPerTask;
+    private final int preferredNodes;
+
+    public SoftAffinityNodeSelector(
+            InternalNodeManager nodeManager,
+            NodeTaskMap nodeTaskMap,
+            boolean includeCoordinator,
+            Supplier<NodeMap> nodeMap,
+            int minCandidates,
+            int maxSplitsPerNode,
+            int maxPendingSplitsPerTask,
+            int preferredNodes)
+    {
+        this.nodeManager = requireNonNull(nodeManager, "nodeManager is null");
+        this.nodeTaskMap = requireNonNull(nodeTaskMap, "nodeTaskMap is null");
+        this.includeCoordinator = includeCoordinator;
+        this.nodeMap = new AtomicReference<>(nodeMap);
+        this.minCandidates = minCandidates;
+        this.maxSplitsPerNode = maxSplitsPerNode;
+        this.maxPendingSplitsPerTask = maxPendingSplitsPerTask;
+        checkArgument(preferredNodes > 0, "preferredNodes must be positive");
+        this.preferredNodes = preferredNodes;
+    }
+
+    @Override
+    public void lockDownNodes()
+    {
+        nodeMap.set(Suppliers.ofInstance(nodeMap.get().get()));
+    }
+
+    @Override
+    public void excludeNode(InternalNode node)
+    {
+        nodeMap.getAndUpdate(nodes -> () -> nodes.get().withoutNode(node));
+    }
+
+    @Override
+    public List<InternalNode> allNodes()
+    {
+        return ImmutableList.copyOf(nodeMap.get().get().getNodesByHostAndPort().values());
+    }
+
+    @Override
+    public InternalNode selectCurrentNode()
+    {
+        // TODO: this is a hack to force scheduling on the coordinator
+        return nodeManager.getCurrentNode();
+    }
+
+    @Override
+    public List<InternalNode> selectRandomNodes(int limit, Set<InternalNode> excludedNodes)
+    {
+        return selectNodes(limit, randomizedNodes(nodeMap.get().get(), includeCoordinator, excludedNodes));
+    }
+
+    @Override
+    public SplitPlacementResult computeAssignments(Set<Split> splits, List<RemoteTask> existingTasks)
+    {
+        Multimap<InternalNode, Split> assignment = HashMultimap.create();
+        NodeMap nodeMap = this.nodeMap.get().get();
+        NodeAssignmentStats assignmentStats = new NodeAssignmentStats(nodeTaskMap, nodeMap, existingTasks);
+
+        ResettableRandomizedIterator<InternalNode> randomCandidates = randomizedNodes(nodeMap, includeCoordinator, ImmutableSet.of());
+        List<InternalNode> affinityNodes = nodeMap.getNodesByHostAndPort().values().stream()
+                .filter(node -> includeCoordinator || !nodeMap.getCoordinatorNodeIds().contains(node.getNodeIdentifier()))
+                .collect(toImmutableList());
+        long[] affinityNodeHashes = affinityNodes.stream()
+                .mapToLong(node -> hash(utf8Slice(node.getNodeIdentifier())))
+                .toArray();
+
+        Set<InternalNode> blockedExactNodes = new HashSet<>();
+        boolean splitWaitingForAnyNode = false;
+        for (Split split : splits) {
+            randomCandidates.reset();
+
+            InternalNode chosenNode = null;
+            List<InternalNode> candidateNodes = ImmutableList.of();
+            Optional<String> affinityKey = split.getAffinityKey();
+            if (split.isRemotelyAccessible() && affinityKey.isPresent() && !affinityNodes.isEmpty()) {
+                for (InternalNode node : selectPreferredNodes(affinityKey.get(), affinityNodes, affinityNodeHashes)) {
+                    if (assignmentStats.getTotalSplitCount(node) < maxSplitsPerNode ||
+                            assignmentStats.getQueuedSplitCountForStage(node) < maxPendingSplitsPerTask) {
+                        chosenNode = node;
+                        break;
+                    }
+                }
+            }
+
+            if (chosenNode == null) {
+                if (!split.isRemotelyAccessible()) {
+                    candidateNodes = selectExactNodes(nodeMap, split.getAddresses(), includeCoordinator);
+                }
+                else {
+                    candidateNodes = selectNodes(minCandidates, randomCandidates);
+                }
+                if (candidateNodes.isEmpty()) {
+                    log.debug("No nodes available to schedule %s. Available nodes %s", split, nodeMap.getNodesByHost().keys());
+                    throw new PrestoException(NO_NODES_AVAILABLE, "No nodes available to run query");
+                }
+                chosenNode = chooseLeastBusyNode(candidateNodes, assignmentStats);
+            }
+
+            if (chosenNode != null) {
+                assignment.put(chosenNode, split);
+                assignmentStats.addAssignedSplit(chosenNode);
+            }
+            else {
+                if (split.isRemotelyAccessible()) {
+                    splitWaitingForAnyNode = true;
+                }
+                // Exact node set won't matter, if a split is waiting for any node
+                else if (!splitWaitingForAnyNode) {
+                    blockedExactNodes.addAll(candidateNodes);
+                }
+            }
+        }
+
+        ListenableFuture<?> blocked;
+        if (splitWaitingForAnyNode) {
+            blocked = toWhenHasSplitQueueSpaceFuture(existingTasks, calculateLowWatermark(maxPendingSplitsPerTask));
+        }
+        else {
+            blocked = toWhenHasSplitQueueSpaceFuture(blockedExactNodes, existingTasks, calculateLowWatermark(maxPendingSplitsPerTask));
+        }
+        return new SplitPlacementResult(blocked, assignment);
+    }
+
+    @Override
+    public SplitPlacementResult computeAssignments(Set<Split> splits, List<RemoteTask> existingTasks, BucketNodeMap bucketNodeMap)
+    {
+        return selectDistributionNodes(nodeMap.get().get(), nodeTaskMap, maxSplitsPerNode, maxPendingSplitsPerTask, splits, existingTasks, bucketNodeMap);
+    }
+
+    /**
+     * Returns the nodes with the highest scores for the key, best first.
+     */
+    private List<InternalNode> selectPreferredNodes(String affinityKey, List<InternalNode> nodes, long[] nodeHashes)
+    {
+        long keyHash = hash(utf8Slice(affinityKey));
+        int count = min(preferredNodes, nodes.size());
+        int[] selected = new int[count];
+        long[] scores = new long[count];
+        int selectedCount = 0;
+        for (int node = 0; node < nodes.size(); node++) {
+            long score = hash(keyHash ^ nodeHashes[node]);
+            // insertion into the small array of the best nodes so far
+            int position = selectedCount;
+            while (position > 0 && scores[position - 1] < score) {
+                if (position < count) {
+                    scores[position] = scores[position - 1];
+                    selected[position] = selected[position - 1];
+                }
+                position--;
+            }
+            if (position < count) {
+                scores[position] = score;
+                selected[position] = node;
+                if (selectedCount < count) {
+                    selectedCount++;
+                }
+            }
+        }
+
+        List<InternalNode> preferred = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            preferred.add(nodes.get(selected[i]));
+        }
+        return preferred;
+    }
+
+    @Nullable
+    private InternalNode chooseLeastBusyNode(List<InternalNode> candidateNodes, NodeAssignmentStats assignmentStats)
+    {
+        InternalNode chosenNode = null;
+        int min = Integer.MAX_VALUE;
+
+        for (InternalNode node : candidateNodes) {
+            int totalSplitCount = assignmentStats.getTotalSplitCount(node);
+            if (totalSplitCount < min && totalSplitCount < maxSplitsPerNode) {
+                chosenNode = node;
+                min = totalSplitCount;
+            }
+        }
+        if (chosenNode == null) {
+            // min is guaranteed to be MAX_VALUE at this line
+            for (InternalNode node : candidateNodes) {
+                int totalSplitCount = assignmentStats.getQueuedSplitCountForStage(node);
+                if (totalSplitCount < min && totalSplitCount < maxPendingSplitsPerTask) {
+                    chosenNode = node;
+                    min = totalSplitCount;
+                }
+            }
+        }
+        return chosenNode;
+    }
+}
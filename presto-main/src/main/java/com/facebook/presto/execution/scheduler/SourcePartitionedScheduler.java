@@ -16,6 +16,7 @@ package com.facebook.presto.execution.scheduler;
 import com.facebook.presto.execution.Lifespan;
 import com.facebook.presto.execution.RemoteTask;
 import com.facebook.presto.execution.SqlStageExecution;
+import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.scheduler.FixedSourcePartitionedScheduler.BucketedSplitPlacementPolicy;
 import com.facebook.presto.metadata.InternalNode;
 import com.facebook.presto.metadata.Split;
@@ -32,6 +33,8 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 
+import javax.annotation.concurrent.GuardedBy;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -99,6 +102,15 @@ public class SourcePartitionedScheduler
 
     private SettableFuture<?> whenFinishedOrNewLifespanAdded = SettableFuture.create();
 
+    // Splits of failed tasks are handed over by recover() with a separate lock, since recover() is called
+    // while holding the lock of the stage, which is acquired by schedule() while holding the lock of this.
+    @GuardedBy("rescheduledSplits")
+    private final List<Split> rescheduledSplits = new ArrayList<>();
+    @GuardedBy("rescheduledSplits")
+    private SettableFuture<?> whenSplitsRescheduled = SettableFuture.create();
+    @GuardedBy("rescheduledSplits")
+    private boolean allSplitsScheduled;
+
     private SourcePartitionedScheduler(
             SqlStageExecution stage,
             PlanNodeId partitionedNode,
@@ -129,7 +141,7 @@ public class SourcePartitionedScheduler
      * This returns an ungrouped {@code SourcePartitionedScheduler} that requires
      * minimal management from the caller, which is ideal for use as a stage scheduler.
      */
-    public static StageScheduler newSourcePartitionedSchedulerAsStageScheduler(
+    public static RecoverableStageScheduler newSourcePartitionedSchedulerAsStageScheduler(
             SqlStageExecution stage,
             PlanNodeId partitionedNode,
             SplitSource splitSource,
@@ -139,7 +151,7 @@ public class SourcePartitionedScheduler
         SourcePartitionedScheduler sourcePartitionedScheduler = new SourcePartitionedScheduler(stage, partitionedNode, splitSource, splitPlacementPolicy, splitBatchSize, false);
         sourcePartitionedScheduler.startLifespan(Lifespan.taskWide(), NOT_PARTITIONED);
 
-        return new StageScheduler() {
+        return new RecoverableStageScheduler() {
             @Override
             public ScheduleResult schedule()
             {
@@ -148,6 +160,12 @@ public class SourcePartitionedScheduler
                 return scheduleResult;
             }
 
+            @Override
+            public void recover(TaskId taskId)
+            {
+                sourcePartitionedScheduler.recover(taskId);
+            }
+
             @Override
             public void close()
             {
@@ -201,6 +219,7 @@ public class SourcePartitionedScheduler
     public synchronized ScheduleResult schedule()
     {
         dropListenersFromWhenFinishedOrNewLifespansAdded();
+        addRescheduledSplits();
 
         int overallSplitAssignmentCount = 0;
         ImmutableSet.Builder<RemoteTask> overallNewTasks = ImmutableSet.builder();
@@ -320,7 +339,8 @@ public class SourcePartitionedScheduler
         // we can no longer claim schedule is complete after all splits are scheduled.
         // Splits schedule can only be considered as finished when all lifespan executions are done
         // (by calling `notifyAllLifespansFinishedExecution`)
-        if ((state == State.NO_MORE_SPLITS || state == State.FINISHED) || (!groupedExecution && lifespanAdded && scheduleGroups.isEmpty() && splitSource.isFinished())) {
+        if (((state == State.NO_MORE_SPLITS || state == State.FINISHED) || (!groupedExecution && lifespanAdded && scheduleGroups.isEmpty() && splitSource.isFinished())) &&
+                finishSplitRescheduling()) {
             switch (state) {
                 case INITIALIZED:
                     // We have not scheduled a single split so far.
@@ -344,7 +364,7 @@ public class SourcePartitionedScheduler
             }
         }
 
-        if (anyNotBlocked) {
+        if (anyNotBlocked || hasRescheduledSplits()) {
             return ScheduleResult.nonBlocked(false, overallNewTasks.build(), overallSplitAssignmentCount);
         }
 
@@ -374,6 +394,9 @@ public class SourcePartitionedScheduler
         }
 
         overallBlockedFutures.add(whenFinishedOrNewLifespanAdded);
+        synchronized (rescheduledSplits) {
+            overallBlockedFutures.add(whenSplitsRescheduled);
+        }
         return ScheduleResult.blocked(
                 false,
                 overallNewTasks.build(),
@@ -401,6 +424,74 @@ public class SourcePartitionedScheduler
         whenFinishedOrNewLifespanAdded = SettableFuture.create();
     }
 
+    /**
+     * Schedules the splits of the failed task again, on the next call to {@link #schedule()}.
+     * This is only possible until all the splits have been scheduled, as the tasks are
+     * notified that there are no more splits once that happened.
+     */
+    public void recover(TaskId taskId)
+    {
+        checkState(!groupedExecution, "Recovery is only supported for ungrouped execution");
+        // empty if all splits have been scheduled already, as the stage drops the scheduled splits then
+        List<Split> splits = stage.getScheduledSplits(taskId);
+
+        SettableFuture<?> splitsRescheduled;
+        synchronized (rescheduledSplits) {
+            if (allSplitsScheduled) {
+                throw new IllegalStateException("Recover after all splits have been scheduled is not supported");
+            }
+            rescheduledSplits.addAll(splits);
+            splitsRescheduled = whenSplitsRescheduled;
+        }
+        // wake up the scheduler outside of the lock, as this runs the listeners of the future
+        splitsRescheduled.set(null);
+    }
+
+    private void addRescheduledSplits()
+    {
+        List<Split> splits;
+        synchronized (rescheduledSplits) {
+            splits = ImmutableList.copyOf(rescheduledSplits);
+            rescheduledSplits.clear();
+            // drop the listeners of the previous calls, see dropListenersFromWhenFinishedOrNewLifespansAdded
+            whenSplitsRescheduled.cancel(true);
+            whenSplitsRescheduled = SettableFuture.create();
+        }
+        if (splits.isEmpty()) {
+            return;
+        }
+
+        ScheduleGroup scheduleGroup = scheduleGroups.get(Lifespan.taskWide());
+        if (scheduleGroup == null) {
+            // all the splits of the split source have been scheduled, and the group was drained
+            scheduleGroup = new ScheduleGroup(NOT_PARTITIONED);
+            scheduleGroups.put(Lifespan.taskWide(), scheduleGroup);
+            scheduleGroup.state = ScheduleGroupState.NO_MORE_SPLITS;
+        }
+        else if (scheduleGroup.state == ScheduleGroupState.DONE) {
+            scheduleGroup.state = ScheduleGroupState.NO_MORE_SPLITS;
+        }
+        scheduleGroup.pendingSplits.addAll(splits);
+    }
+
+    private boolean hasRescheduledSplits()
+    {
+        synchronized (rescheduledSplits) {
+            return !rescheduledSplits.isEmpty();
+        }
+    }
+
+    private boolean finishSplitRescheduling()
+    {
+        synchronized (rescheduledSplits) {
+            if (!rescheduledSplits.isEmpty()) {
+                return false;
+            }
+            allSplitsScheduled = true;
+            return true;
+        }
+    }
+
     @Override
     public void close()
     {
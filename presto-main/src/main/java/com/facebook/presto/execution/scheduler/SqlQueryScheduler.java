@@ -75,6 +75,7 @@ import static com.facebook.presto.SystemSessionProperties.getConcurrentLifespans
 import static com.facebook.presto.SystemSessionProperties.getMaxConcurrentMaterializations;
 import static com.facebook.presto.SystemSessionProperties.getMaxTasksPerStage;
 import static com.facebook.presto.SystemSessionProperties.getWriterMinSize;
+import static com.facebook.presto.SystemSessionProperties.isLeafTaskRetryEnabled;
 import static com.facebook.presto.execution.BasicStageStats.aggregateBasicStageStats;
 import static com.facebook.presto.execution.SqlStageExecution.createSqlStageExecution;
 import static com.facebook.presto.execution.StageState.ABORTED;
@@ -102,6 +103,7 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.google.common.collect.MoreCollectors.onlyElement;
 import static com.google.common.collect.Sets.newConcurrentHashSet;
 import static com.google.common.collect.Streams.stream;
 import static com.google.common.graph.Traverser.forTree;
@@ -426,7 +428,27 @@ public class SqlQueryScheduler
             SplitPlacementPolicy placementPolicy = new DynamicSplitPlacementPolicy(nodeSelector, stage::getAllTasks);
 
             checkArgument(!plan.getFragment().getStageExecutionDescriptor().isStageGroupedExecution());
-            stageSchedulers.put(stageId, newSourcePartitionedSchedulerAsStageScheduler(stage, planNodeId, splitSource, placementPolicy, splitBatchSize));
+            RecoverableStageScheduler stageScheduler = newSourcePartitionedSchedulerAsStageScheduler(stage, planNodeId, splitSource, placementPolicy, splitBatchSize);
+            stageSchedulers.put(stageId, stageScheduler);
+            // Tasks reading from remote sources are not retried, as their sources only provide the data once.
+            if (isLeafTaskRetryEnabled(session) && plan.getFragment().isLeaf() && parentStageExecution.isPresent()) {
+                stage.retainScheduledSplits();
+                stage.registerStageTaskRecoveryCallback(taskId -> {
+                    checkArgument(taskId.getStageId().equals(stageId), "The task did not execute this stage");
+                    RemoteTask failedTask = stage.getAllTasks().stream()
+                            .filter(task -> task.getTaskId().equals(taskId))
+                            .collect(onlyElement());
+                    long pagesSent = failedTask.getTaskInfo().getOutputBuffers().getTotalPagesSent();
+                    checkState(pagesSent == 0, "Task %s already sent %s pages", taskId, pagesSent);
+
+                    // the replacement tasks are placed on the other nodes, as the failure may be caused by the node
+                    nodeSelector.allNodes().stream()
+                            .filter(node -> node.getNodeIdentifier().equals(failedTask.getNodeId()))
+                            .forEach(nodeSelector::excludeNode);
+                    stageScheduler.recover(taskId);
+                    parentStageExecution.get().discardRemoteSource(taskId);
+                });
+            }
             bucketToPartition = Optional.of(new int[1]);
         }
         else if (partitioningHandle.equals(SCALED_WRITER_DISTRIBUTION)) {
@@ -93,6 +93,12 @@ public class TopologyAwareNodeSelector
         nodeMap.set(Suppliers.ofInstance(nodeMap.get().get()));
     }
 
+    @Override
+    public void excludeNode(InternalNode node)
+    {
+        nodeMap.getAndUpdate(nodes -> () -> nodes.get().withoutNode(node));
+    }
+
     @Override
     public List<InternalNode> allNodes()
     {
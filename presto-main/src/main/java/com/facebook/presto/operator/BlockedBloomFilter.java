@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import org.openjdk.jol.info.ClassLayout;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.lang.Math.toIntExact;
+
+/**
+ * Register blocked Bloom filter over 64 bit hashes. All the bits of a key live in a
+ * single {@code long}, so a lookup touches one cache line and is answered with a
+ * single mask comparison. The false positive rate is slightly higher than for a
+ * classic Bloom filter of the same size, which is why the filter is sized with
+ * {@link #BITS_PER_ENTRY} bits per key.
+ */
+public class BlockedBloomFilter
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(BlockedBloomFilter.class).instanceSize();
+
+    private static final int BITS_PER_ENTRY = 16;
+    private static final int MAX_WORDS = 1 << 30;
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final long[] words;
+    private final int wordMask;
+
+    public BlockedBloomFilter(int expectedEntries)
+    {
+        checkArgument(expectedEntries >= 0, "expectedEntries is negative");
+        long bits = (long) expectedEntries * BITS_PER_ENTRY;
+        int wordCount = toIntExact(Math.min(MAX_WORDS, Long.highestOneBit(Math.max(1, (bits + Long.SIZE - 1) / Long.SIZE) * 2 - 1)));
+        this.words = new long[wordCount];
+        this.wordMask = wordCount - 1;
+    }
+
+    public void add(long hash)
+    {
+        long mixed = hash * MULTIPLIER;
+        words[wordIndex(mixed)] |= bitMask(mixed);
+    }
+
+    public boolean mightContain(long hash)
+    {
+        long mixed = hash * MULTIPLIER;
+        long mask = bitMask(mixed);
+        return (words[wordIndex(mixed)] & mask) == mask;
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOf(words);
+    }
+
+    private int wordIndex(long mixed)
+    {
+        return (int) (mixed >>> 32) & wordMask;
+    }
+
+    private static long bitMask(long mixed)
+    {
+        // shifts of a long only use the low 6 bits of the distance, so each term picks one of the
+        // 64 bits of the word using a different slice of the hash, disjoint from the word index bits
+        return (1L << (mixed >>> 14)) | (1L << (mixed >>> 20)) | (1L << (mixed >>> 26));
+    }
+}
@@ -15,15 +15,19 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 
+import javax.annotation.Nullable;
+
 import java.util.List;
 import java.util.Optional;
 
 import static com.facebook.presto.SystemSessionProperties.isDictionaryAggregationEnabled;
+import static com.facebook.presto.SystemSessionProperties.isSemiJoinBloomFilterEnabled;
 import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
 import static com.facebook.presto.type.UnknownType.UNKNOWN;
 import static java.util.Objects.requireNonNull;
@@ -33,12 +37,20 @@ public class ChannelSet
     private final GroupByHash hash;
     private final boolean containsNull;
     private final int[] hashChannels;
+    @Nullable
+    private final BlockedBloomFilter bloomFilter;
 
     public ChannelSet(GroupByHash hash, boolean containsNull, int[] hashChannels)
+    {
+        this(hash, containsNull, hashChannels, null);
+    }
+
+    public ChannelSet(GroupByHash hash, boolean containsNull, int[] hashChannels, @Nullable BlockedBloomFilter bloomFilter)
     {
         this.hash = hash;
         this.containsNull = containsNull;
         this.hashChannels = hashChannels;
+        this.bloomFilter = bloomFilter;
     }
 
     public Type getType()
@@ -48,7 +60,7 @@ public class ChannelSet
 
     public long getEstimatedSizeInBytes()
     {
-        return hash.getEstimatedSize();
+        return hash.getEstimatedSize() + (bloomFilter == null ? 0 : bloomFilter.getRetainedSizeInBytes());
     }
 
     public int size()
@@ -68,6 +80,13 @@ public class ChannelSet
 
     public boolean contains(int position, Page page)
     {
+        if (bloomFilter != null) {
+            // the raw hash of a single channel group is the hash of the value, see JoinCompiler
+            Block block = page.getBlock(hashChannels[0]);
+            if (!block.isNull(position) && !bloomFilter.mightContain(getType().hash(block, position))) {
+                return false;
+            }
+        }
         return hash.contains(position, page, hashChannels);
     }
 
@@ -98,7 +117,17 @@ public class ChannelSet
 
         public ChannelSet build()
         {
-            return new ChannelSet(hash, hash.contains(0, nullBlockPage, HASH_CHANNELS), HASH_CHANNELS);
+            BlockedBloomFilter bloomFilter = null;
+            if (isSemiJoinBloomFilterEnabled(operatorContext.getSession())) {
+                int groupCount = hash.getGroupCount();
+                bloomFilter = new BlockedBloomFilter(groupCount);
+                for (int groupId = 0; groupId < groupCount; groupId++) {
+                    bloomFilter.add(hash.getRawHash(groupId));
+                }
+                // the filter is retained for as long as the set, so reserve memory for both
+                localMemoryContext.setBytes(hash.getEstimatedSize() + bloomFilter.getRetainedSizeInBytes());
+            }
+            return new ChannelSet(hash, hash.contains(0, nullBlockPage, HASH_CHANNELS), HASH_CHANNELS, bloomFilter);
         }
 
         public long getEstimatedSize()
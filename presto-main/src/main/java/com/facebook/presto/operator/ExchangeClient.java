@@ -19,6 +19,7 @@ import com.facebook.presto.execution.buffer.SerializedPage;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.HttpPageBufferClient.ClientCallback;
 import com.facebook.presto.operator.WorkProcessor.ProcessState;
+import com.facebook.presto.spi.PrestoException;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -35,8 +36,11 @@ import java.io.Closeable;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -46,10 +50,14 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static com.facebook.presto.spi.StandardErrorCode.GENERIC_RECOVERY_ERROR;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Throwables.throwIfUnchecked;
 import static com.google.common.collect.Sets.newConcurrentHashSet;
 import static io.airlift.slice.Slices.EMPTY_SLICE;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -64,18 +72,22 @@ import static java.util.Objects.requireNonNull;
  *                     \  HttpPageBufferClient_n  - - - Remote Source n
  * </pre>
  *
+ * Sources running in the same process can be read directly from their output buffers, see {@link LocalTaskResultsReader}.
  */
 @ThreadSafe
 public class ExchangeClient
         implements Closeable
 {
     private static final SerializedPage NO_MORE_PAGES = new SerializedPage(EMPTY_SLICE, PageCodecMarker.none(), 0, 0);
+    private static final long MIN_CREDIT_BYTES = new DataSize(1, MEGABYTE).toBytes();
 
     private final long bufferCapacity;
     private final DataSize maxResponseSize;
     private final int concurrentRequestMultiplier;
     private final Duration maxErrorDuration;
     private final boolean acknowledgePages;
+    private final boolean creditBasedFlowControlEnabled;
+    private final LocalTaskResultsReader localTaskResultsReader;
     private final HttpClient httpClient;
     private final ScheduledExecutorService scheduler;
 
@@ -91,6 +103,13 @@ public class ExchangeClient
 
     private final Set<HttpPageBufferClient> completedClients = newConcurrentHashSet();
     private final Set<HttpPageBufferClient> removedClients = newConcurrentHashSet();
+    @GuardedBy("this")
+    private final Set<HttpPageBufferClient> clientsWithPages = new HashSet<>();
+    // with credit based flow control, the max response size of the requests that are not answered yet
+    @GuardedBy("this")
+    private final Map<HttpPageBufferClient, Long> outstandingCredits = new HashMap<>();
+    @GuardedBy("this")
+    private long outstandingCreditBytes;
     private final LinkedBlockingDeque<SerializedPage> pageBuffer = new LinkedBlockingDeque<>();
 
     @GuardedBy("this")
@@ -123,12 +142,56 @@ public class ExchangeClient
             ScheduledExecutorService scheduler,
             LocalMemoryContext systemMemoryContext,
             Executor pageBufferClientCallbackExecutor)
+    {
+        this(bufferCapacity, maxResponseSize, concurrentRequestMultiplier, maxErrorDuration, acknowledgePages, false, httpClient, scheduler, systemMemoryContext, pageBufferClientCallbackExecutor);
+    }
+
+    public ExchangeClient(
+            DataSize bufferCapacity,
+            DataSize maxResponseSize,
+            int concurrentRequestMultiplier,
+            Duration maxErrorDuration,
+            boolean acknowledgePages,
+            boolean creditBasedFlowControlEnabled,
+            HttpClient httpClient,
+            ScheduledExecutorService scheduler,
+            LocalMemoryContext systemMemoryContext,
+            Executor pageBufferClientCallbackExecutor)
+    {
+        this(
+                bufferCapacity,
+                maxResponseSize,
+                concurrentRequestMultiplier,
+                maxErrorDuration,
+                acknowledgePages,
+                creditBasedFlowControlEnabled,
+                LocalTaskResultsReader.NO_LOCAL_TASK_RESULTS,
+                httpClient,
+                scheduler,
+                systemMemoryContext,
+                pageBufferClientCallbackExecutor);
+    }
+
+    public ExchangeClient(
+            DataSize bufferCapacity,
+            DataSize maxResponseSize,
+            int concurrentRequestMultiplier,
+            Duration maxErrorDuration,
+            boolean acknowledgePages,
+            boolean creditBasedFlowControlEnabled,
+            LocalTaskResultsReader localTaskResultsReader,
+            HttpClient httpClient,
+            ScheduledExecutorService scheduler,
+            LocalMemoryContext systemMemoryContext,
+            Executor pageBufferClientCallbackExecutor)
     {
         this.bufferCapacity = bufferCapacity.toBytes();
         this.maxResponseSize = maxResponseSize;
         this.concurrentRequestMultiplier = concurrentRequestMultiplier;
         this.maxErrorDuration = maxErrorDuration;
         this.acknowledgePages = acknowledgePages;
+        this.creditBasedFlowControlEnabled = creditBasedFlowControlEnabled;
+        this.localTaskResultsReader = requireNonNull(localTaskResultsReader, "localTaskResultsReader is null");
         this.httpClient = httpClient;
         this.scheduler = scheduler;
         this.systemMemoryContext = systemMemoryContext;
@@ -181,8 +244,10 @@ public class ExchangeClient
                 httpClient,
                 maxResponseSize,
                 maxErrorDuration,
-                acknowledgePages,
+                // with credit based flow control the next request is sent right away and acknowledges the pages
+                acknowledgePages && !creditBasedFlowControlEnabled,
                 location,
+                localTaskResultsReader.getLocalTaskResults(location),
                 new ExchangeClientCallback(),
                 scheduler,
                 pageBufferClientCallbackExecutor);
@@ -193,7 +258,7 @@ public class ExchangeClient
         scheduleRequestIfNecessary();
     }
 
-    public synchronized void removeRemoteSource(TaskId sourceTaskId)
+    public synchronized void removeRemoteSource(TaskId sourceTaskId, boolean discardOutput)
     {
         requireNonNull(sourceTaskId, "sourceTaskId is null");
 
@@ -217,6 +282,13 @@ public class ExchangeClient
         closeQuietly(client);
         removedClients.add(client);
         completedClients.add(client);
+        returnCredit(client);
+
+        if (discardOutput && clientsWithPages.contains(client)) {
+            // the pages may have been processed already, so the output of the replacement task would be processed twice
+            failure.compareAndSet(null, new PrestoException(GENERIC_RECOVERY_ERROR, format("Remote task %s failed after its output was received from %s", sourceTaskId, location)));
+            notifyBlockedCallers();
+        }
     }
 
     public synchronized void noMoreLocations()
@@ -346,6 +418,11 @@ public class ExchangeClient
             return;
         }
 
+        if (creditBasedFlowControlEnabled) {
+            scheduleRequestsWithCredits(neededBytes);
+            return;
+        }
+
         int clientCount = (int) ((1.0 * neededBytes / averageBytesPerRequest) * concurrentRequestMultiplier);
         clientCount = Math.max(clientCount, 1);
 
@@ -368,6 +445,44 @@ public class ExchangeClient
         }
     }
 
+    /**
+     * Keeps a request waiting on the remote buffers, so pages are sent as soon as they are produced
+     * instead of when the client polls for them. The maximum size of each response is a credit taken
+     * from the free buffer space until the response arrives, so the responses of all the outstanding
+     * requests fit in the buffer. When the credits cover the free space, the remaining clients wait
+     * for a response to return its credit.
+     */
+    private synchronized void scheduleRequestsWithCredits(long availableBytes)
+    {
+        int activeClients = Math.max(allClients.size() - completedClients.size(), 1);
+        long credit = Math.max(MIN_CREDIT_BYTES, Math.min(maxResponseSize.toBytes(), availableBytes / activeClients));
+        long remainingBytes = availableBytes - outstandingCreditBytes;
+
+        while (!queuedClients.isEmpty()) {
+            // a single request is always sent, even if the buffer space is less than a full credit
+            long clientCredit = Math.min(credit, remainingBytes);
+            if (clientCredit < credit && !outstandingCredits.isEmpty()) {
+                return;
+            }
+            HttpPageBufferClient client = queuedClients.poll();
+            if (removedClients.contains(client)) {
+                continue;
+            }
+            outstandingCredits.put(client, clientCredit);
+            outstandingCreditBytes += clientCredit;
+            remainingBytes -= clientCredit;
+            client.scheduleRequest(new DataSize(clientCredit, BYTE));
+        }
+    }
+
+    private synchronized void returnCredit(HttpPageBufferClient client)
+    {
+        Long credit = outstandingCredits.remove(client);
+        if (credit != null) {
+            outstandingCreditBytes -= credit;
+        }
+    }
+
     public synchronized ListenableFuture<?> isBlocked()
     {
         if (isClosed() || isFailed() || pageBuffer.peek() != null) {
@@ -378,11 +493,16 @@ public class ExchangeClient
         return future;
     }
 
-    private synchronized boolean addPages(List<SerializedPage> pages)
+    private synchronized boolean addPages(HttpPageBufferClient client, List<SerializedPage> pages)
     {
-        if (isClosed() || isFailed()) {
+        // the pages take the buffer space of the credit from now on
+        returnCredit(client);
+        if (isClosed() || isFailed() || removedClients.contains(client)) {
             return false;
         }
+        if (!pages.isEmpty()) {
+            clientsWithPages.add(client);
+        }
 
         pageBuffer.addAll(pages);
 
@@ -421,6 +541,7 @@ public class ExchangeClient
 
     private synchronized void requestComplete(HttpPageBufferClient client)
     {
+        returnCredit(client);
         if (!queuedClients.contains(client)) {
             queuedClients.add(client);
         }
@@ -431,6 +552,7 @@ public class ExchangeClient
     {
         requireNonNull(client, "client is null");
         completedClients.add(client);
+        returnCredit(client);
         scheduleRequestIfNecessary();
     }
 
@@ -471,7 +593,7 @@ public class ExchangeClient
         {
             requireNonNull(client, "client is null");
             requireNonNull(pages, "pages is null");
-            return ExchangeClient.this.addPages(pages);
+            return ExchangeClient.this.addPages(client, pages);
         }
 
         @Override
@@ -14,6 +14,7 @@
 package com.facebook.presto.operator;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 import io.airlift.http.client.HttpClientConfig;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
@@ -36,6 +37,8 @@ public class ExchangeClientConfig
     private int clientThreads = 25;
     private int pageBufferClientMaxCallbackThreads = 25;
     private boolean acknowledgePages = true;
+    private boolean creditBasedFlowControlEnabled;
+    private boolean localTaskResultsEnabled;
 
     @NotNull
     public DataSize getMaxBufferSize()
@@ -141,4 +144,30 @@ public class ExchangeClientConfig
         this.acknowledgePages = acknowledgePages;
         return this;
     }
+
+    public boolean isCreditBasedFlowControlEnabled()
+    {
+        return creditBasedFlowControlEnabled;
+    }
+
+    @Config("exchange.credit-based-flow-control-enabled")
+    @ConfigDescription("Keep a request waiting on every source and size the responses from the free buffer space")
+    public ExchangeClientConfig setCreditBasedFlowControlEnabled(boolean creditBasedFlowControlEnabled)
+    {
+        this.creditBasedFlowControlEnabled = creditBasedFlowControlEnabled;
+        return this;
+    }
+
+    public boolean isLocalTaskResultsEnabled()
+    {
+        return localTaskResultsEnabled;
+    }
+
+    @Config("exchange.local-task-results-enabled")
+    @ConfigDescription("Read the results of tasks running on the same node directly from their output buffers instead of over HTTP")
+    public ExchangeClientConfig setLocalTaskResultsEnabled(boolean localTaskResultsEnabled)
+    {
+        this.localTaskResultsEnabled = localTaskResultsEnabled;
+        return this;
+    }
 }
@@ -43,13 +43,24 @@ public class ExchangeClientFactory
     private final HttpClient httpClient;
     private final DataSize maxResponseSize;
     private final boolean acknowledgePages;
+    private final boolean creditBasedFlowControlEnabled;
+    private final LocalTaskResultsReader localTaskResultsReader;
     private final ScheduledExecutorService scheduler;
     private final ThreadPoolExecutorMBean executorMBean;
     private final ExecutorService pageBufferClientCallbackExecutor;
 
+    public ExchangeClientFactory(
+            ExchangeClientConfig config,
+            HttpClient httpClient,
+            ScheduledExecutorService scheduler)
+    {
+        this(config, LocalTaskResultsReader.NO_LOCAL_TASK_RESULTS, httpClient, scheduler);
+    }
+
     @Inject
     public ExchangeClientFactory(
             ExchangeClientConfig config,
+            LocalTaskResultsReader localTaskResultsReader,
             @ForExchange HttpClient httpClient,
             @ForExchange ScheduledExecutorService scheduler)
     {
@@ -59,6 +70,8 @@ public class ExchangeClientFactory
                 config.getConcurrentRequestMultiplier(),
                 config.getMaxErrorDuration(),
                 config.isAcknowledgePages(),
+                config.isCreditBasedFlowControlEnabled(),
+                config.isLocalTaskResultsEnabled() ? localTaskResultsReader : LocalTaskResultsReader.NO_LOCAL_TASK_RESULTS,
                 config.getPageBufferClientMaxCallbackThreads(),
                 httpClient,
                 scheduler);
@@ -70,6 +83,32 @@ public class ExchangeClientFactory
             int concurrentRequestMultiplier,
             Duration maxErrorDuration,
             boolean acknowledgePages,
+            boolean creditBasedFlowControlEnabled,
+            int pageBufferClientMaxCallbackThreads,
+            HttpClient httpClient,
+            ScheduledExecutorService scheduler)
+    {
+        this(
+                maxBufferedBytes,
+                maxResponseSize,
+                concurrentRequestMultiplier,
+                maxErrorDuration,
+                acknowledgePages,
+                creditBasedFlowControlEnabled,
+                LocalTaskResultsReader.NO_LOCAL_TASK_RESULTS,
+                pageBufferClientMaxCallbackThreads,
+                httpClient,
+                scheduler);
+    }
+
+    public ExchangeClientFactory(
+            DataSize maxBufferedBytes,
+            DataSize maxResponseSize,
+            int concurrentRequestMultiplier,
+            Duration maxErrorDuration,
+            boolean acknowledgePages,
+            boolean creditBasedFlowControlEnabled,
+            LocalTaskResultsReader localTaskResultsReader,
             int pageBufferClientMaxCallbackThreads,
             HttpClient httpClient,
             ScheduledExecutorService scheduler)
@@ -78,6 +117,8 @@ public class ExchangeClientFactory
         this.concurrentRequestMultiplier = concurrentRequestMultiplier;
         this.maxErrorDuration = requireNonNull(maxErrorDuration, "maxErrorDuration is null");
         this.acknowledgePages = acknowledgePages;
+        this.creditBasedFlowControlEnabled = creditBasedFlowControlEnabled;
+        this.localTaskResultsReader = requireNonNull(localTaskResultsReader, "localTaskResultsReader is null");
         this.httpClient = requireNonNull(httpClient, "httpClient is null");
 
         // Use only 0.75 of the maxResponseSize to leave room for additional bytes from the encoding
@@ -118,6 +159,8 @@ public class ExchangeClientFactory
                 concurrentRequestMultiplier,
                 maxErrorDuration,
                 acknowledgePages,
+                creditBasedFlowControlEnabled,
+                localTaskResultsReader,
                 httpClient,
                 scheduler,
                 systemMemoryContext,
@@ -68,6 +68,7 @@ public class HashBuilderOperator
         private final int expectedPositions;
         private final boolean spillEnabled;
         private final SingleStreamSpillerFactory singleStreamSpillerFactory;
+        private final Optional<LocalDynamicFilter> dynamicFilter;
 
         private final Map<Lifespan, Integer> partitionIndexManager = new HashMap<>();
 
@@ -87,6 +88,39 @@ public class HashBuilderOperator
                 PagesIndex.Factory pagesIndexFactory,
                 boolean spillEnabled,
                 SingleStreamSpillerFactory singleStreamSpillerFactory)
+        {
+            this(
+                    operatorId,
+                    planNodeId,
+                    lookupSourceFactoryManager,
+                    outputChannels,
+                    hashChannels,
+                    preComputedHashChannel,
+                    filterFunctionFactory,
+                    sortChannel,
+                    searchFunctionFactories,
+                    expectedPositions,
+                    pagesIndexFactory,
+                    spillEnabled,
+                    singleStreamSpillerFactory,
+                    Optional.empty());
+        }
+
+        public HashBuilderOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                JoinBridgeManager<PartitionedLookupSourceFactory> lookupSourceFactoryManager,
+                List<Integer> outputChannels,
+                List<Integer> hashChannels,
+                OptionalInt preComputedHashChannel,
+                Optional<JoinFilterFunctionFactory> filterFunctionFactory,
+                Optional<Integer> sortChannel,
+                List<JoinFilterFunctionFactory> searchFunctionFactories,
+                int expectedPositions,
+                PagesIndex.Factory pagesIndexFactory,
+                boolean spillEnabled,
+                SingleStreamSpillerFactory singleStreamSpillerFactory,
+                Optional<LocalDynamicFilter> dynamicFilter)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -104,6 +138,7 @@ public class HashBuilderOperator
             this.pagesIndexFactory = requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
             this.spillEnabled = spillEnabled;
             this.singleStreamSpillerFactory = requireNonNull(singleStreamSpillerFactory, "singleStreamSpillerFactory is null");
+            this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
 
             this.expectedPositions = expectedPositions;
         }
@@ -130,7 +165,8 @@ public class HashBuilderOperator
                     expectedPositions,
                     pagesIndexFactory,
                     spillEnabled,
-                    singleStreamSpillerFactory);
+                    singleStreamSpillerFactory,
+                    dynamicFilter.map(LocalDynamicFilter::createCollector));
         }
 
         @Override
@@ -210,6 +246,7 @@ public class HashBuilderOperator
 
     private final boolean spillEnabled;
     private final SingleStreamSpillerFactory singleStreamSpillerFactory;
+    private final Optional<LocalDynamicFilter.Collector> dynamicFilterCollector;
 
     private final HashCollisionsCounter hashCollisionsCounter;
 
@@ -239,6 +276,39 @@ public class HashBuilderOperator
             PagesIndex.Factory pagesIndexFactory,
             boolean spillEnabled,
             SingleStreamSpillerFactory singleStreamSpillerFactory)
+    {
+        this(
+                operatorContext,
+                lookupSourceFactory,
+                partitionIndex,
+                outputChannels,
+                hashChannels,
+                preComputedHashChannel,
+                filterFunctionFactory,
+                sortChannel,
+                searchFunctionFactories,
+                expectedPositions,
+                pagesIndexFactory,
+                spillEnabled,
+                singleStreamSpillerFactory,
+                Optional.empty());
+    }
+
+    public HashBuilderOperator(
+            OperatorContext operatorContext,
+            PartitionedLookupSourceFactory lookupSourceFactory,
+            int partitionIndex,
+            List<Integer> outputChannels,
+            List<Integer> hashChannels,
+            OptionalInt preComputedHashChannel,
+            Optional<JoinFilterFunctionFactory> filterFunctionFactory,
+            Optional<Integer> sortChannel,
+            List<JoinFilterFunctionFactory> searchFunctionFactories,
+            int expectedPositions,
+            PagesIndex.Factory pagesIndexFactory,
+            boolean spillEnabled,
+            SingleStreamSpillerFactory singleStreamSpillerFactory,
+            Optional<LocalDynamicFilter.Collector> dynamicFilterCollector)
     {
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
 
@@ -263,6 +333,7 @@ public class HashBuilderOperator
 
         this.spillEnabled = spillEnabled;
         this.singleStreamSpillerFactory = requireNonNull(singleStreamSpillerFactory, "singleStreamSpillerFactory is null");
+        this.dynamicFilterCollector = requireNonNull(dynamicFilterCollector, "dynamicFilterCollector is null");
     }
 
     @Override
@@ -324,6 +395,8 @@ public class HashBuilderOperator
             return;
         }
 
+        dynamicFilterCollector.ifPresent(collector -> collector.addPage(page));
+
         if (state == State.SPILLING_INPUT) {
             spillInput(page);
             return;
@@ -439,6 +512,7 @@ public class HashBuilderOperator
 
         switch (state) {
             case CONSUMING_INPUT:
+                dynamicFilterCollector.ifPresent(LocalDynamicFilter.Collector::finish);
                 finishInput();
                 return;
 
@@ -447,6 +521,7 @@ public class HashBuilderOperator
                 return;
 
             case SPILLING_INPUT:
+                dynamicFilterCollector.ifPresent(LocalDynamicFilter.Collector::finish);
                 finishSpilledInput();
                 return;
 
@@ -13,14 +13,18 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.execution.buffer.BufferResult;
 import com.facebook.presto.execution.buffer.SerializedPage;
+import com.facebook.presto.operator.LocalTaskResultsReader.LocalTaskResults;
 import com.facebook.presto.server.remotetask.Backoff;
 import com.facebook.presto.spi.PrestoException;
 import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
 import com.google.common.net.MediaType;
+import com.google.common.util.concurrent.ForwardingListenableFuture.SimpleForwardingListenableFuture;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.HttpClient.HttpResponseFuture;
 import io.airlift.http.client.HttpStatus;
@@ -46,6 +50,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.concurrent.Executor;
@@ -72,11 +77,11 @@ import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.http.client.HttpStatus.familyForStatusCode;
 import static io.airlift.http.client.Request.Builder.prepareDelete;
 import static io.airlift.http.client.Request.Builder.prepareGet;
 import static io.airlift.http.client.ResponseHandlerUtils.propagate;
-import static io.airlift.http.client.StatusResponseHandler.StatusResponse;
 import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -111,8 +116,11 @@ public final class HttpPageBufferClient
 
     private final HttpClient httpClient;
     private final DataSize maxResponseSize;
+    @GuardedBy("this")
+    private DataSize requestMaxResponseSize;
     private final boolean acknowledgePages;
     private final URI location;
+    private final Optional<LocalTaskResults> localTaskResults;
     private final ClientCallback clientCallback;
     private final ScheduledExecutorService scheduler;
     private final Backoff backoff;
@@ -154,7 +162,35 @@ public final class HttpPageBufferClient
             ScheduledExecutorService scheduler,
             Executor pageBufferClientCallbackExecutor)
     {
-        this(httpClient, maxResponseSize, maxErrorDuration, acknowledgePages, location, clientCallback, scheduler, Ticker.systemTicker(), pageBufferClientCallbackExecutor);
+        this(httpClient, maxResponseSize, maxErrorDuration, acknowledgePages, location, Optional.empty(), clientCallback, scheduler, Ticker.systemTicker(), pageBufferClientCallbackExecutor);
+    }
+
+    public HttpPageBufferClient(
+            HttpClient httpClient,
+            DataSize maxResponseSize,
+            Duration maxErrorDuration,
+            boolean acknowledgePages,
+            URI location,
+            Optional<LocalTaskResults> localTaskResults,
+            ClientCallback clientCallback,
+            ScheduledExecutorService scheduler,
+            Executor pageBufferClientCallbackExecutor)
+    {
+        this(httpClient, maxResponseSize, maxErrorDuration, acknowledgePages, location, localTaskResults, clientCallback, scheduler, Ticker.systemTicker(), pageBufferClientCallbackExecutor);
+    }
+
+    public HttpPageBufferClient(
+            HttpClient httpClient,
+            DataSize maxResponseSize,
+            Duration maxErrorDuration,
+            boolean acknowledgePages,
+            URI location,
+            ClientCallback clientCallback,
+            ScheduledExecutorService scheduler,
+            Ticker ticker,
+            Executor pageBufferClientCallbackExecutor)
+    {
+        this(httpClient, maxResponseSize, maxErrorDuration, acknowledgePages, location, Optional.empty(), clientCallback, scheduler, ticker, pageBufferClientCallbackExecutor);
     }
 
     public HttpPageBufferClient(
@@ -163,6 +199,7 @@ public final class HttpPageBufferClient
             Duration maxErrorDuration,
             boolean acknowledgePages,
             URI location,
+            Optional<LocalTaskResults> localTaskResults,
             ClientCallback clientCallback,
             ScheduledExecutorService scheduler,
             Ticker ticker,
@@ -170,8 +207,10 @@ public final class HttpPageBufferClient
     {
         this.httpClient = requireNonNull(httpClient, "httpClient is null");
         this.maxResponseSize = requireNonNull(maxResponseSize, "maxResponseSize is null");
+        this.requestMaxResponseSize = maxResponseSize;
         this.acknowledgePages = acknowledgePages;
         this.location = requireNonNull(location, "location is null");
+        this.localTaskResults = requireNonNull(localTaskResults, "localTaskResults is null");
         this.clientCallback = requireNonNull(clientCallback, "clientCallback is null");
         this.scheduler = requireNonNull(scheduler, "scheduler is null");
         this.pageBufferClientCallbackExecutor = requireNonNull(pageBufferClientCallbackExecutor, "pageBufferClientCallbackExecutor is null");
@@ -254,10 +293,17 @@ public final class HttpPageBufferClient
 
     public synchronized void scheduleRequest()
     {
+        scheduleRequest(maxResponseSize);
+    }
+
+    public synchronized void scheduleRequest(DataSize maxResponseSize)
+    {
+        requireNonNull(maxResponseSize, "maxResponseSize is null");
         if (closed || (future != null) || scheduled) {
             return;
         }
         scheduled = true;
+        requestMaxResponseSize = maxResponseSize;
 
         // start before scheduling to include error delay
         backoff.startRequest();
@@ -297,11 +343,20 @@ public final class HttpPageBufferClient
     private synchronized void sendGetResults()
     {
         URI uri = HttpUriBuilder.uriBuilderFrom(location).appendPath(String.valueOf(token)).build();
-        HttpResponseFuture<PagesResponse> resultFuture = httpClient.executeAsync(
-                prepareGet()
-                        .setHeader(PRESTO_MAX_SIZE, maxResponseSize.toString())
-                        .setUri(uri).build(),
-                new PageResponseHandler());
+        HttpResponseFuture<PagesResponse> resultFuture;
+        if (localTaskResults.isPresent()) {
+            resultFuture = new LocalResponseFuture<>(Futures.transform(
+                    localTaskResults.get().getResults(token, requestMaxResponseSize),
+                    HttpPageBufferClient::toPagesResponse,
+                    directExecutor()));
+        }
+        else {
+            resultFuture = httpClient.executeAsync(
+                    prepareGet()
+                            .setHeader(PRESTO_MAX_SIZE, requestMaxResponseSize.toString())
+                            .setUri(uri).build(),
+                    new PageResponseHandler());
+        }
 
         future = resultFuture;
         Futures.addCallback(resultFuture, new FutureCallback<PagesResponse>()
@@ -336,7 +391,10 @@ public final class HttpPageBufferClient
                         }
                     }
 
-                    if (shouldAcknowledge && acknowledgePages) {
+                    if (shouldAcknowledge && acknowledgePages && localTaskResults.isPresent()) {
+                        localTaskResults.get().acknowledge(result.getNextToken());
+                    }
+                    else if (shouldAcknowledge && acknowledgePages) {
                         // Acknowledge token without handling the response.
                         // The next request will also make sure the token is acknowledged.
                         // This is to fast release the pages on the buffer side.
@@ -417,12 +475,18 @@ public final class HttpPageBufferClient
 
     private synchronized void sendDelete()
     {
-        HttpResponseFuture<StatusResponse> resultFuture = httpClient.executeAsync(prepareDelete().setUri(location).build(), createStatusResponseHandler());
+        HttpResponseFuture<?> resultFuture;
+        if (localTaskResults.isPresent()) {
+            resultFuture = new LocalResponseFuture<>(localTaskResults.get().abort());
+        }
+        else {
+            resultFuture = httpClient.executeAsync(prepareDelete().setUri(location).build(), createStatusResponseHandler());
+        }
         future = resultFuture;
-        Futures.addCallback(resultFuture, new FutureCallback<StatusResponse>()
+        Futures.addCallback(resultFuture, new FutureCallback<Object>()
         {
             @Override
-            public void onSuccess(@Nullable StatusResponse result)
+            public void onSuccess(@Nullable Object result)
             {
                 checkNotHoldsLock(this);
                 backoff.success();
@@ -528,6 +592,11 @@ public final class HttpPageBufferClient
                 .toString();
     }
 
+    private static PagesResponse toPagesResponse(BufferResult result)
+    {
+        return createPagesResponse(result.getTaskInstanceId(), result.getToken(), result.getNextToken(), result.getSerializedPages(), result.isBufferComplete());
+    }
+
     private static Throwable rewriteException(Throwable t)
     {
         if (t instanceof ResponseTooLargeException) {
@@ -536,6 +605,25 @@ public final class HttpPageBufferClient
         return t;
     }
 
+    /**
+     * Exposes a request served by a task in this process like an HTTP request, so both kinds share the response handling.
+     */
+    private static class LocalResponseFuture<T>
+            extends SimpleForwardingListenableFuture<T>
+            implements HttpResponseFuture<T>
+    {
+        public LocalResponseFuture(ListenableFuture<T> delegate)
+        {
+            super(delegate);
+        }
+
+        @Override
+        public String getState()
+        {
+            return isDone() ? "DONE" : "WAITING_FOR_LOCAL_RESULTS";
+        }
+    }
+
     public static class PageResponseHandler
             implements ResponseHandler<PagesResponse, RuntimeException>
     {
@@ -0,0 +1,205 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.Ranges;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.facebook.presto.spi.type.TypeUtils.readNativeValue;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Summary of the join keys seen by the {@link HashBuilderOperator}s of a single join.
+ * Every build operator feeds its input to its own {@link Collector}; once all of them
+ * have finished, {@link #getResult()} returns the union of the collected domains, keyed
+ * by the position of the key in {@code buildChannels}.
+ * <p>
+ * Key values are tracked exactly until a collector sees more than {@code maxDistinctValues}
+ * of them, after which it falls back to the [min, max] range of the keys. Null keys never
+ * match in an equi-join, so they are never part of the result.
+ */
+@ThreadSafe
+public class LocalDynamicFilter
+{
+    private final List<Integer> buildChannels;
+    private final List<Type> buildTypes;
+    private final int maxDistinctValues;
+
+    @GuardedBy("this")
+    private int pendingCollectors;
+    @GuardedBy("this")
+    private TupleDomain<Integer> result = TupleDomain.none();
+
+    public LocalDynamicFilter(List<Integer> buildChannels, List<Type> buildTypes, int collectorCount, int maxDistinctValues)
+    {
+        this.buildChannels = ImmutableList.copyOf(requireNonNull(buildChannels, "buildChannels is null"));
+        this.buildTypes = ImmutableList.copyOf(requireNonNull(buildTypes, "buildTypes is null"));
+        checkArgument(buildChannels.size() == buildTypes.size(), "buildChannels and buildTypes must have the same size");
+        checkArgument(!buildChannels.isEmpty(), "buildChannels is empty");
+        checkArgument(collectorCount > 0, "collectorCount must be positive");
+        checkArgument(maxDistinctValues > 0, "maxDistinctValues must be positive");
+        this.pendingCollectors = collectorCount;
+        this.maxDistinctValues = maxDistinctValues;
+    }
+
+    public Collector createCollector()
+    {
+        return new Collector();
+    }
+
+    /**
+     * Returns the collected domain, or empty if some of the build operators have not finished yet.
+     */
+    public synchronized Optional<TupleDomain<Integer>> getResult()
+    {
+        if (pendingCollectors > 0) {
+            return Optional.empty();
+        }
+        return Optional.of(result);
+    }
+
+    private synchronized void addCollectedDomain(TupleDomain<Integer> collected)
+    {
+        checkState(pendingCollectors > 0, "All collectors have already finished");
+        result = compact(TupleDomain.columnWiseUnion(result, collected));
+        pendingCollectors--;
+    }
+
+    private TupleDomain<Integer> compact(TupleDomain<Integer> tupleDomain)
+    {
+        if (tupleDomain.isNone()) {
+            return tupleDomain;
+        }
+        ImmutableMap.Builder<Integer, Domain> domains = ImmutableMap.builder();
+        tupleDomain.getDomains().get().forEach((key, domain) -> {
+            Ranges ranges = domain.getValues().getRanges();
+            if (ranges.getRangeCount() > maxDistinctValues) {
+                domain = Domain.create(ValueSet.ofRanges(ranges.getSpan()), domain.isNullAllowed());
+            }
+            domains.put(key, domain);
+        });
+        return TupleDomain.withColumnDomains(domains.build());
+    }
+
+    public class Collector
+    {
+        private final List<Set<Object>> values = new ArrayList<>();
+        private final Range[] spans = new Range[buildChannels.size()];
+        private boolean finished;
+
+        private Collector()
+        {
+            for (int i = 0; i < buildChannels.size(); i++) {
+                values.add(new HashSet<>());
+            }
+        }
+
+        public void addPage(Page page)
+        {
+            checkState(!finished, "Collector is already finished");
+            for (int key = 0; key < buildChannels.size(); key++) {
+                Type type = buildTypes.get(key);
+                Block block = page.getBlock(buildChannels.get(key));
+                Set<Object> keyValues = values.get(key);
+                if (keyValues != null) {
+                    for (int position = 0; position < block.getPositionCount(); position++) {
+                        if (!block.isNull(position)) {
+                            keyValues.add(readNativeValue(type, block, position));
+                        }
+                    }
+                    if (keyValues.size() <= maxDistinctValues) {
+                        continue;
+                    }
+                    // too many distinct keys, switch to min/max tracking
+                    for (Object value : keyValues) {
+                        addToSpan(key, Range.equal(type, value));
+                    }
+                    values.set(key, null);
+                }
+                else {
+                    addBlockToSpan(key, type, block);
+                }
+            }
+        }
+
+        private void addBlockToSpan(int key, Type type, Block block)
+        {
+            int min = -1;
+            int max = -1;
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                if (block.isNull(position)) {
+                    continue;
+                }
+                if (min < 0 || type.compareTo(block, position, block, min) < 0) {
+                    min = position;
+                }
+                if (max < 0 || type.compareTo(block, position, block, max) > 0) {
+                    max = position;
+                }
+            }
+            if (min >= 0) {
+                addToSpan(key, Range.range(type, readNativeValue(type, block, min), true, readNativeValue(type, block, max), true));
+            }
+        }
+
+        private void addToSpan(int key, Range range)
+        {
+            spans[key] = spans[key] == null ? range : spans[key].span(range);
+        }
+
+        /**
+         * Publishes the collected keys. Subsequent calls are ignored.
+         */
+        public void finish()
+        {
+            if (finished) {
+                return;
+            }
+            finished = true;
+
+            ImmutableMap.Builder<Integer, Domain> domains = ImmutableMap.builder();
+            for (int key = 0; key < buildChannels.size(); key++) {
+                Type type = buildTypes.get(key);
+                Set<Object> keyValues = values.get(key);
+                if (keyValues != null) {
+                    domains.put(key, keyValues.isEmpty() ? Domain.none(type) : Domain.multipleValues(type, ImmutableList.copyOf(keyValues)));
+                }
+                else {
+                    domains.put(key, Domain.create(ValueSet.ofRanges(spans[key]), false));
+                }
+            }
+            values.clear();
+            addCollectedDomain(TupleDomain.withColumnDomains(domains.build()));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.execution.buffer.BufferResult;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
+
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * Gives {@link HttpPageBufferClient} direct access to the output buffers of tasks running in this process,
+ * so pages produced by a task on the same node are handed over without an HTTP request and without
+ * encoding and decoding the pages response.
+ */
+public interface LocalTaskResultsReader
+{
+    LocalTaskResultsReader NO_LOCAL_TASK_RESULTS = location -> Optional.empty();
+
+    /**
+     * Returns the results of the output buffer at {@code location} when the task runs in this process.
+     */
+    Optional<LocalTaskResults> getLocalTaskResults(URI location);
+
+    interface LocalTaskResults
+    {
+        ListenableFuture<BufferResult> getResults(long token, DataSize maxSize);
+
+        void acknowledge(long token);
+
+        ListenableFuture<?> abort();
+    }
+}
@@ -15,12 +15,15 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.Session;
 import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -48,6 +51,45 @@ public class MarkDistinctHash
         return groupByHash.getEstimatedSize();
     }
 
+    public long getDistinctCount()
+    {
+        return nextDistinctId;
+    }
+
+    /**
+     * Types of the pages returned by {@link #getDistinctValues()}: the distinct channels,
+     * followed by the hash channel if the hash is precomputed.
+     */
+    public List<Type> getTypes()
+    {
+        return groupByHash.getTypes();
+    }
+
+    public Iterator<Page> getDistinctValues()
+    {
+        return new AbstractIterator<Page>()
+        {
+            private final PageBuilder pageBuilder = new PageBuilder(groupByHash.getTypes());
+            private int distinctId;
+
+            @Override
+            protected Page computeNext()
+            {
+                if (distinctId == groupByHash.getGroupCount()) {
+                    return endOfData();
+                }
+
+                pageBuilder.reset();
+                while (!pageBuilder.isFull() && distinctId < groupByHash.getGroupCount()) {
+                    groupByHash.appendValuesTo(distinctId, pageBuilder, 0);
+                    pageBuilder.declarePosition();
+                    distinctId++;
+                }
+                return pageBuilder.build();
+            }
+        };
+    }
+
     public Work<Block> markDistinctRows(Page page)
     {
         return new TransformWork<>(
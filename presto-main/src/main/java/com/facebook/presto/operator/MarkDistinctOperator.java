@@ -14,22 +14,35 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
+import static java.util.Collections.emptyIterator;
 import static java.util.Objects.requireNonNull;
 
 public class MarkDistinctOperator
@@ -44,6 +57,8 @@ public class MarkDistinctOperator
         private final List<Integer> markDistinctChannels;
         private final List<Type> types;
         private final JoinCompiler joinCompiler;
+        private final boolean spillEnabled;
+        private final Optional<PartitioningSpillerFactory> partitioningSpillerFactory;
         private boolean closed;
 
         public MarkDistinctOperatorFactory(
@@ -53,6 +68,19 @@ public class MarkDistinctOperator
                 Collection<Integer> markDistinctChannels,
                 Optional<Integer> hashChannel,
                 JoinCompiler joinCompiler)
+        {
+            this(operatorId, planNodeId, sourceTypes, markDistinctChannels, hashChannel, joinCompiler, false, Optional.empty());
+        }
+
+        public MarkDistinctOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                Collection<Integer> markDistinctChannels,
+                Optional<Integer> hashChannel,
+                JoinCompiler joinCompiler,
+                boolean spillEnabled,
+                Optional<PartitioningSpillerFactory> partitioningSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -60,6 +88,9 @@ public class MarkDistinctOperator
             checkArgument(!markDistinctChannels.isEmpty(), "markDistinctChannels is empty");
             this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+            this.spillEnabled = spillEnabled;
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
+            checkArgument(!spillEnabled || partitioningSpillerFactory.isPresent(), "Spill enabled, partitioningSpillerFactory is not present");
             this.types = ImmutableList.<Type>builder()
                     .addAll(sourceTypes)
                     .add(BOOLEAN)
@@ -71,7 +102,7 @@ public class MarkDistinctOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, MarkDistinctOperator.class.getSimpleName());
-            return new MarkDistinctOperator(operatorContext, types, markDistinctChannels, hashChannel, joinCompiler);
+            return new MarkDistinctOperator(operatorContext, types, markDistinctChannels, hashChannel, joinCompiler, spillEnabled, partitioningSpillerFactory);
         }
 
         @Override
@@ -83,13 +114,27 @@ public class MarkDistinctOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new MarkDistinctOperatorFactory(operatorId, planNodeId, types.subList(0, types.size() - 1), markDistinctChannels, hashChannel, joinCompiler);
+            return new MarkDistinctOperatorFactory(operatorId, planNodeId, types.subList(0, types.size() - 1), markDistinctChannels, hashChannel, joinCompiler, spillEnabled, partitioningSpillerFactory);
         }
     }
 
+    private static final int SPILL_PARTITION_COUNT = 16;
+
     private final OperatorContext operatorContext;
-    private final MarkDistinctHash markDistinctHash;
+    private final List<Type> sourceTypes;
+    private final List<Type> distinctTypes;
+    private final List<Integer> markDistinctChannels;
+    // channels of the distinct values in the pages spilled from the hash
+    private final List<Integer> distinctValuesChannels;
+    private final Optional<Integer> hashChannel;
+    private final JoinCompiler joinCompiler;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
+
+    private final boolean spillEnabled;
+    private final Optional<PartitioningSpillerFactory> partitioningSpillerFactory;
+
+    private MarkDistinctHash markDistinctHash;
 
     private Page inputPage;
     private boolean finishing;
@@ -97,19 +142,47 @@ public class MarkDistinctOperator
     // for yield when memory is not available
     private Work<Block> unfinishedWork;
 
+    // once the distinct values are spilled, all remaining input is spilled and marked partition by partition after finish
+    private Optional<PartitioningSpiller> distinctValuesSpiller = Optional.empty();
+    private Optional<PartitioningSpiller> inputSpiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = immediateFuture(null);
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    private int nextSpilledPartition;
+    private Iterator<Page> spilledDistinctValues = emptyIterator();
+    private Iterator<Page> spilledInput = emptyIterator();
+
     public MarkDistinctOperator(OperatorContext operatorContext, List<Type> types, List<Integer> markDistinctChannels, Optional<Integer> hashChannel, JoinCompiler joinCompiler)
     {
-        this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this(operatorContext, types, markDistinctChannels, hashChannel, joinCompiler, false, Optional.empty());
+    }
 
-        requireNonNull(hashChannel, "hashChannel is null");
-        requireNonNull(markDistinctChannels, "markDistinctChannels is null");
+    public MarkDistinctOperator(
+            OperatorContext operatorContext,
+            List<Type> types,
+            List<Integer> markDistinctChannels,
+            Optional<Integer> hashChannel,
+            JoinCompiler joinCompiler,
+            boolean spillEnabled,
+            Optional<PartitioningSpillerFactory> partitioningSpillerFactory)
+    {
+        this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.markDistinctChannels = ImmutableList.copyOf(requireNonNull(markDistinctChannels, "markDistinctChannels is null"));
+        this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
+        this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+        this.spillEnabled = spillEnabled;
+        this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
+        checkArgument(!spillEnabled || partitioningSpillerFactory.isPresent(), "Spill enabled, partitioningSpillerFactory is not present");
 
         ImmutableList.Builder<Type> distinctTypes = ImmutableList.builder();
         for (int channel : markDistinctChannels) {
             distinctTypes.add(types.get(channel));
         }
-        this.markDistinctHash = new MarkDistinctHash(operatorContext.getSession(), distinctTypes.build(), Ints.toArray(markDistinctChannels), hashChannel, joinCompiler, this::updateMemoryReservation);
+        this.distinctTypes = distinctTypes.build();
+        this.sourceTypes = ImmutableList.copyOf(types.subList(0, types.size() - 1));
+        this.distinctValuesChannels = IntStream.range(0, markDistinctChannels.size()).boxed().collect(toImmutableList());
+        this.markDistinctHash = new MarkDistinctHash(operatorContext.getSession(), this.distinctTypes, Ints.toArray(markDistinctChannels), hashChannel, joinCompiler, this::updateMemoryReservation);
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
     }
 
     @Override
@@ -127,13 +200,25 @@ public class MarkDistinctOperator
     @Override
     public boolean isFinished()
     {
-        return finishing && !hasUnfinishedInput();
+        if (!finishing || hasUnfinishedInput()) {
+            return false;
+        }
+        if (!inputSpiller.isPresent()) {
+            return true;
+        }
+        return spillInProgress.isDone() && nextSpilledPartition == SPILL_PARTITION_COUNT && !spilledDistinctValues.hasNext() && !spilledInput.hasNext();
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        return spillInProgress;
     }
 
     @Override
     public boolean needsInput()
     {
-        return !finishing && !hasUnfinishedInput();
+        return !finishing && !hasUnfinishedInput() && spillInProgress.isDone();
     }
 
     @Override
@@ -142,6 +227,12 @@ public class MarkDistinctOperator
         requireNonNull(page, "page is null");
         checkState(needsInput());
 
+        if (inputSpiller.isPresent()) {
+            // rows can only be marked once all the distinct values seen before them are known
+            spillInProgress = inputSpiller.get().partitionAndSpill(page, partition -> true).getSpillingFuture();
+            return;
+        }
+
         inputPage = page;
 
         unfinishedWork = markDistinctHash.markDistinctRows(page);
@@ -151,6 +242,10 @@ public class MarkDistinctOperator
     @Override
     public Page getOutput()
     {
+        if (inputSpiller.isPresent()) {
+            return getSpilledOutput();
+        }
+
         if (unfinishedWork == null) {
             return null;
         }
@@ -169,6 +264,133 @@ public class MarkDistinctOperator
         return outputPage;
     }
 
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        if (finishing || inputSpiller.isPresent() || hasUnfinishedInput() || markDistinctHash.getDistinctCount() == 0) {
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+
+        distinctValuesSpiller = Optional.of(createSpiller(markDistinctHash.getTypes(), distinctValuesChannels, hashChannel.map(channel -> distinctTypes.size())));
+        inputSpiller = Optional.of(createSpiller(sourceTypes, markDistinctChannels, hashChannel));
+
+        spillInProgress = distinctValuesSpiller.get().partitionAndSpill(markDistinctHash.getDistinctValues());
+        finishMemoryRevoke = Optional.of(() -> {
+            markDistinctHash = null;
+            localRevocableMemoryContext.setBytes(0);
+        });
+        return spillInProgress;
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Memory revoke not started");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    @Override
+    public void close()
+    {
+        try (Closer closer = Closer.create()) {
+            distinctValuesSpiller.ifPresent(closer::register);
+            inputSpiller.ifPresent(closer::register);
+            closer.register(() -> localRevocableMemoryContext.setBytes(0));
+            closer.register(() -> localUserMemoryContext.setBytes(0));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Page getSpilledOutput()
+    {
+        if (!finishing || !spillInProgress.isDone() || finishMemoryRevoke.isPresent()) {
+            return null;
+        }
+        // check for exception from the last spill
+        getFutureValue(spillInProgress);
+
+        while (true) {
+            if (unfinishedWork != null) {
+                if (!unfinishedWork.process()) {
+                    return null;
+                }
+                Block marks = unfinishedWork.getResult();
+                Page page = inputPage;
+                unfinishedWork = null;
+                inputPage = null;
+                updateMemoryReservation();
+                if (page != null) {
+                    return page.appendColumn(marks);
+                }
+                // marks of the previously spilled distinct values are not part of the output
+                continue;
+            }
+
+            if (spilledDistinctValues.hasNext()) {
+                unfinishedWork = markDistinctHash.markDistinctRows(spilledDistinctValues.next());
+                continue;
+            }
+
+            if (spilledInput.hasNext()) {
+                inputPage = spilledInput.next();
+                unfinishedWork = markDistinctHash.markDistinctRows(getDistinctValuesPage(inputPage));
+                continue;
+            }
+
+            if (nextSpilledPartition == SPILL_PARTITION_COUNT) {
+                return null;
+            }
+
+            // partitions are processed one at a time, each one with a hash of its distinct values only
+            markDistinctHash = createDistinctValuesHash();
+            updateMemoryReservation();
+            spilledDistinctValues = distinctValuesSpiller.get().getSpilledPages(nextSpilledPartition);
+            spilledInput = inputSpiller.get().getSpilledPages(nextSpilledPartition);
+            nextSpilledPartition++;
+        }
+    }
+
+    private PartitioningSpiller createSpiller(List<Type> types, List<Integer> channels, Optional<Integer> hashChannel)
+    {
+        HashGenerator hashGenerator;
+        if (hashChannel.isPresent()) {
+            hashGenerator = new PrecomputedHashGenerator(hashChannel.get());
+        }
+        else {
+            hashGenerator = new InterpretedHashGenerator(distinctTypes, Ints.toArray(channels));
+        }
+        return partitioningSpillerFactory.get().create(
+                types,
+                new LocalPartitionGenerator(hashGenerator, SPILL_PARTITION_COUNT),
+                operatorContext.getSpillContext().newLocalSpillContext(),
+                operatorContext.newAggregateSystemMemoryContext());
+    }
+
+    private MarkDistinctHash createDistinctValuesHash()
+    {
+        return new MarkDistinctHash(
+                operatorContext.getSession(),
+                distinctTypes,
+                Ints.toArray(distinctValuesChannels),
+                hashChannel.map(channel -> distinctTypes.size()),
+                joinCompiler,
+                this::updateMemoryReservation);
+    }
+
+    private Page getDistinctValuesPage(Page page)
+    {
+        Block[] blocks = new Block[distinctTypes.size() + (hashChannel.isPresent() ? 1 : 0)];
+        for (int i = 0; i < markDistinctChannels.size(); i++) {
+            blocks[i] = page.getBlock(markDistinctChannels.get(i));
+        }
+        hashChannel.ifPresent(channel -> blocks[distinctTypes.size()] = page.getBlock(channel));
+        return new Page(page.getPositionCount(), blocks);
+    }
+
     private boolean hasUnfinishedInput()
     {
         return inputPage != null || unfinishedWork != null;
@@ -184,9 +406,15 @@ public class MarkDistinctOperator
     // The following implementation is a hybrid model, where the push model is going to call the pull model causing reentrancy
     private boolean updateMemoryReservation()
     {
+        long bytes = markDistinctHash == null ? 0 : markDistinctHash.getEstimatedSize();
+        if (spillEnabled && !inputSpiller.isPresent()) {
+            // the distinct values are spilled when the memory is needed, so there is no need to yield
+            localRevocableMemoryContext.setBytes(bytes);
+            return true;
+        }
         // Operator/driver will be blocked on memory after we call localUserMemoryContext.setBytes().
         // If memory is not available, once we return, this operator will be blocked until memory is available.
-        localUserMemoryContext.setBytes(markDistinctHash.getEstimatedSize());
+        localUserMemoryContext.setBytes(bytes);
         // If memory is not available, inform the caller that we cannot proceed for allocation.
         return operatorContext.isWaitingForMemory().isDone();
     }
@@ -15,16 +15,28 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.spi.Page;
-import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
+import com.facebook.presto.sql.gen.OrderingCompiler;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 
+import static com.facebook.presto.util.MergeSortedPages.mergeSortedPages;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Verify.verify;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
 import static java.util.Objects.requireNonNull;
 
 public class OrderByOperator
@@ -42,6 +54,9 @@ public class OrderByOperator
         private final List<SortOrder> sortOrder;
         private boolean closed;
         private final PagesIndex.Factory pagesIndexFactory;
+        private final boolean spillEnabled;
+        private final Optional<SpillerFactory> spillerFactory;
+        private final OrderingCompiler orderingCompiler;
 
         public OrderByOperatorFactory(
                 int operatorId,
@@ -51,7 +66,10 @@ public class OrderByOperator
                 int expectedPositions,
                 List<Integer> sortChannels,
                 List<SortOrder> sortOrder,
-                PagesIndex.Factory pagesIndexFactory)
+                PagesIndex.Factory pagesIndexFactory,
+                boolean spillEnabled,
+                Optional<SpillerFactory> spillerFactory,
+                OrderingCompiler orderingCompiler)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -62,6 +80,10 @@ public class OrderByOperator
             this.sortOrder = ImmutableList.copyOf(requireNonNull(sortOrder, "sortOrder is null"));
 
             this.pagesIndexFactory = requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
+            this.spillEnabled = spillEnabled;
+            this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+            this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
+            checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spill enabled, spillerFactory is not present");
         }
 
         @Override
@@ -77,7 +99,10 @@ public class OrderByOperator
                     expectedPositions,
                     sortChannels,
                     sortOrder,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory,
+                    orderingCompiler);
         }
 
         @Override
@@ -89,7 +114,18 @@ public class OrderByOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new OrderByOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, expectedPositions, sortChannels, sortOrder, pagesIndexFactory);
+            return new OrderByOperatorFactory(
+                    operatorId,
+                    planNodeId,
+                    sourceTypes,
+                    outputChannels,
+                    expectedPositions,
+                    sortChannels,
+                    sortOrder,
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory,
+                    orderingCompiler);
         }
     }
 
@@ -101,15 +137,24 @@ public class OrderByOperator
     }
 
     private final OperatorContext operatorContext;
+    private final List<Type> sourceTypes;
     private final List<Integer> sortChannels;
     private final List<SortOrder> sortOrder;
     private final int[] outputChannels;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
 
     private final PagesIndex pageIndex;
 
-    private final PageBuilder pageBuilder;
-    private int currentPosition;
+    private final boolean spillEnabled;
+    private final Optional<SpillerFactory> spillerFactory;
+    private final OrderingCompiler orderingCompiler;
+
+    private Optional<Spiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = immediateFuture(null);
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+
+    private Iterator<Optional<Page>> sortedPages;
 
     private State state = State.NEEDS_INPUT;
 
@@ -120,19 +165,27 @@ public class OrderByOperator
             int expectedPositions,
             List<Integer> sortChannels,
             List<SortOrder> sortOrder,
-            PagesIndex.Factory pagesIndexFactory)
+            PagesIndex.Factory pagesIndexFactory,
+            boolean spillEnabled,
+            Optional<SpillerFactory> spillerFactory,
+            OrderingCompiler orderingCompiler)
     {
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
 
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.sourceTypes = ImmutableList.copyOf(requireNonNull(sourceTypes, "sourceTypes is null"));
         this.outputChannels = Ints.toArray(requireNonNull(outputChannels, "outputChannels is null"));
         this.sortChannels = ImmutableList.copyOf(requireNonNull(sortChannels, "sortChannels is null"));
         this.sortOrder = ImmutableList.copyOf(requireNonNull(sortOrder, "sortOrder is null"));
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
 
         this.pageIndex = pagesIndexFactory.newPagesIndex(sourceTypes, expectedPositions);
 
-        this.pageBuilder = new PageBuilder(toTypes(sourceTypes, outputChannels));
+        this.spillEnabled = spillEnabled;
+        this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+        this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
+        checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spill enabled, spillerFactory is not present");
     }
 
     @Override
@@ -144,11 +197,41 @@ public class OrderByOperator
     @Override
     public void finish()
     {
+        if (!spillInProgress.isDone()) {
+            return;
+        }
+        if (finishMemoryRevoke.isPresent()) {
+            // the spilled rows are still in the index until the revoke completes, finish() will be called again
+            return;
+        }
+        // check for exception from previous spill for early failure
+        getFutureValue(spillInProgress);
+
         if (state == State.NEEDS_INPUT) {
             state = State.HAS_OUTPUT;
 
+            // the in-memory run can no longer be revoked once we start producing output
+            if (localRevocableMemoryContext.getBytes() > 0) {
+                long revocableBytes = localRevocableMemoryContext.getBytes();
+                localRevocableMemoryContext.setBytes(0);
+                if (!localUserMemoryContext.trySetBytes(localUserMemoryContext.getBytes() + revocableBytes)) {
+                    // not enough user memory to keep the last run, so spill it as well
+                    localRevocableMemoryContext.setBytes(revocableBytes);
+                    getFutureValue(spillToDisk());
+                    finishMemoryRevoke();
+                }
+            }
+
             // sort the index
             pageIndex.sort(sortChannels, sortOrder);
+            Iterator<Page> sortedPagesIndex = pageIndex.getSortedPages();
+
+            if (spiller.isPresent()) {
+                sortedPages = mergeSpilledAndMemoryPages(sortedPagesIndex).yieldingIterator();
+            }
+            else {
+                sortedPages = WorkProcessor.fromIterator(sortedPagesIndex).yieldingIterator();
+            }
         }
     }
 
@@ -169,13 +252,11 @@ public class OrderByOperator
     {
         checkState(state == State.NEEDS_INPUT, "Operator is already finishing");
         requireNonNull(page, "page is null");
+        checkState(spillInProgress.isDone(), "Previous spill hasn't yet finished");
+        getFutureValue(spillInProgress);
 
         pageIndex.addPage(page);
-
-        if (!localUserMemoryContext.trySetBytes(pageIndex.getEstimatedSize().toBytes())) {
-            pageIndex.compact();
-            localUserMemoryContext.setBytes(pageIndex.getEstimatedSize().toBytes());
-        }
+        updateMemoryUsage();
     }
 
     @Override
@@ -185,37 +266,109 @@ public class OrderByOperator
             return null;
         }
 
-        if (currentPosition >= pageIndex.getPositionCount()) {
+        verify(sortedPages != null, "sortedPages is null");
+        if (!sortedPages.hasNext()) {
             state = State.FINISHED;
             return null;
         }
 
-        // iterate through the positions sequentially until we have one full page
-        pageBuilder.reset();
-        currentPosition = pageIndex.buildPage(currentPosition, outputChannels, pageBuilder);
-
-        // output the page if we have any data
-        if (pageBuilder.isEmpty()) {
-            state = State.FINISHED;
+        Optional<Page> next = sortedPages.next();
+        if (!next.isPresent()) {
+            // merge yielded
             return null;
         }
 
-        Page page = pageBuilder.build();
-        return page;
+        Page page = next.get();
+        Block[] blocks = new Block[outputChannels.length];
+        for (int i = 0; i < outputChannels.length; i++) {
+            blocks[i] = page.getBlock(outputChannels[i]);
+        }
+        return new Page(page.getPositionCount(), blocks);
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        verify(state == State.NEEDS_INPUT || localRevocableMemoryContext.getBytes() == 0, "Cannot spill in state: %s", state);
+        return spillToDisk();
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Memory revoke not started");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
     }
 
     @Override
     public void close()
     {
         pageIndex.clear();
+        spiller.ifPresent(Spiller::close);
+    }
+
+    private ListenableFuture<?> spillToDisk()
+    {
+        checkState(spillInProgress.isDone(), "Previous spill hasn't yet finished");
+        getFutureValue(spillInProgress);
+
+        if (localRevocableMemoryContext.getBytes() == 0) {
+            verify(pageIndex.getPositionCount() == 0 || state == State.HAS_OUTPUT);
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+
+        if (!spiller.isPresent()) {
+            spiller = Optional.of(spillerFactory.get().create(
+                    sourceTypes,
+                    operatorContext.getSpillContext(),
+                    operatorContext.newAggregateSystemMemoryContext()));
+        }
+
+        // each spill is a sorted run, which is merged with the other runs when producing output
+        pageIndex.sort(sortChannels, sortOrder);
+        spillInProgress = spiller.get().spill(pageIndex.getSortedPages());
+        finishMemoryRevoke = Optional.of(() -> {
+            pageIndex.clear();
+            updateMemoryUsage();
+        });
+
+        return spillInProgress;
+    }
+
+    private WorkProcessor<Page> mergeSpilledAndMemoryPages(Iterator<Page> sortedPagesIndex)
+    {
+        checkState(spiller.isPresent());
+
+        List<WorkProcessor<Page>> sortedStreams = ImmutableList.<WorkProcessor<Page>>builder()
+                .addAll(spiller.get().getSpills().stream()
+                        .map(WorkProcessor::fromIterator)
+                        .collect(toImmutableList()))
+                .add(WorkProcessor.fromIterator(sortedPagesIndex))
+                .build();
+
+        return mergeSortedPages(
+                sortedStreams,
+                orderingCompiler.compilePageWithPositionComparator(sourceTypes, sortChannels, sortOrder),
+                sourceTypes,
+                operatorContext.aggregateUserMemoryContext(),
+                operatorContext.getDriverContext().getYieldSignal());
     }
 
-    private static List<Type> toTypes(List<? extends Type> sourceTypes, List<Integer> outputChannels)
+    private void updateMemoryUsage()
     {
-        ImmutableList.Builder<Type> types = ImmutableList.builder();
-        for (int channel : outputChannels) {
-            types.add(sourceTypes.get(channel));
+        if (spillEnabled && state == State.NEEDS_INPUT) {
+            // the accumulated input can be sorted and spilled as a run at any time
+            localUserMemoryContext.setBytes(0);
+            localRevocableMemoryContext.setBytes(pageIndex.getPositionCount() == 0 ? 0 : pageIndex.getEstimatedSize().toBytes());
+            return;
+        }
+
+        localRevocableMemoryContext.setBytes(0);
+        if (!localUserMemoryContext.trySetBytes(pageIndex.getEstimatedSize().toBytes())) {
+            pageIndex.compact();
+            localUserMemoryContext.setBytes(pageIndex.getEstimatedSize().toBytes());
         }
-        return types.build();
     }
 }
@@ -14,16 +14,24 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.io.Closer;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -33,6 +41,8 @@ import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
 import static java.util.Objects.requireNonNull;
 
 public class TopNRowNumberOperator
@@ -59,6 +69,8 @@ public class TopNRowNumberOperator
         private final boolean generateRowNumber;
         private boolean closed;
         private final JoinCompiler joinCompiler;
+        private final boolean spillEnabled;
+        private final Optional<PartitioningSpillerFactory> partitioningSpillerFactory;
 
         public TopNRowNumberOperatorFactory(
                 int operatorId,
@@ -74,6 +86,26 @@ public class TopNRowNumberOperator
                 Optional<Integer> hashChannel,
                 int expectedPositions,
                 JoinCompiler joinCompiler)
+        {
+            this(operatorId, planNodeId, sourceTypes, outputChannels, partitionChannels, partitionTypes, sortChannels, sortOrder, maxRowCountPerPartition, partial, hashChannel, expectedPositions, joinCompiler, false, Optional.empty());
+        }
+
+        public TopNRowNumberOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                List<Integer> outputChannels,
+                List<Integer> partitionChannels,
+                List<? extends Type> partitionTypes,
+                List<Integer> sortChannels,
+                List<SortOrder> sortOrder,
+                int maxRowCountPerPartition,
+                boolean partial,
+                Optional<Integer> hashChannel,
+                int expectedPositions,
+                JoinCompiler joinCompiler,
+                boolean spillEnabled,
+                Optional<PartitioningSpillerFactory> partitioningSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -91,6 +123,9 @@ public class TopNRowNumberOperator
             this.generateRowNumber = !partial;
             this.expectedPositions = expectedPositions;
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+            this.spillEnabled = spillEnabled;
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
+            checkArgument(!spillEnabled || partitioningSpillerFactory.isPresent(), "Spill enabled, partitioningSpillerFactory is not present");
         }
 
         @Override
@@ -110,7 +145,9 @@ public class TopNRowNumberOperator
                     generateRowNumber,
                     hashChannel,
                     expectedPositions,
-                    joinCompiler);
+                    joinCompiler,
+                    spillEnabled,
+                    partitioningSpillerFactory);
         }
 
         @Override
@@ -122,22 +159,44 @@ public class TopNRowNumberOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new TopNRowNumberOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, partitionChannels, partitionTypes, sortChannels, sortOrder, maxRowCountPerPartition, partial, hashChannel, expectedPositions, joinCompiler);
+            return new TopNRowNumberOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, partitionChannels, partitionTypes, sortChannels, sortOrder, maxRowCountPerPartition, partial, hashChannel, expectedPositions, joinCompiler, spillEnabled, partitioningSpillerFactory);
         }
     }
 
+    private static final int SPILL_PARTITION_COUNT = 16;
+
     private final OperatorContext operatorContext;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
 
+    private final List<Type> sourceTypes;
     private final List<Integer> outputChannels;
+    private final List<Integer> partitionChannels;
+    private final List<Type> partitionTypes;
+    private final Optional<Integer> hashChannel;
+    private final int expectedPositions;
+    private final JoinCompiler joinCompiler;
+    private final PageWithPositionComparator comparator;
+    private final int maxRowCountPerPartition;
+    private final boolean generateRowNumber;
+
+    private final Optional<PartitioningSpillerFactory> partitioningSpillerFactory;
 
-    private final GroupByHash groupByHash;
-    private final GroupedTopNBuilder groupedTopNBuilder;
+    private GroupByHash groupByHash;
+    private GroupedTopNBuilder groupedTopNBuilder;
 
     private boolean finishing;
     private Work<?> unfinishedWork;
     private Iterator<Page> outputIterator;
 
+    // the builder is revocable until the output is started
+    private boolean spillable;
+    private Optional<PartitioningSpiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = immediateFuture(null);
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    private int nextSpilledPartition;
+    private Iterator<Page> spilledPages;
+
     public TopNRowNumberOperator(
             OperatorContext operatorContext,
             List<? extends Type> sourceTypes,
@@ -151,9 +210,29 @@ public class TopNRowNumberOperator
             Optional<Integer> hashChannel,
             int expectedPositions,
             JoinCompiler joinCompiler)
+    {
+        this(operatorContext, sourceTypes, outputChannels, partitionChannels, partitionTypes, sortChannels, sortOrders, maxRowCountPerPartition, generateRowNumber, hashChannel, expectedPositions, joinCompiler, false, Optional.empty());
+    }
+
+    public TopNRowNumberOperator(
+            OperatorContext operatorContext,
+            List<? extends Type> sourceTypes,
+            List<Integer> outputChannels,
+            List<Integer> partitionChannels,
+            List<Type> partitionTypes,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrders,
+            int maxRowCountPerPartition,
+            boolean generateRowNumber,
+            Optional<Integer> hashChannel,
+            int expectedPositions,
+            JoinCompiler joinCompiler,
+            boolean spillEnabled,
+            Optional<PartitioningSpillerFactory> partitioningSpillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
 
         ImmutableList.Builder<Integer> outputChannelsBuilder = ImmutableList.builder();
         for (int channel : requireNonNull(outputChannels, "outputChannels is null")) {
@@ -165,29 +244,25 @@ public class TopNRowNumberOperator
         this.outputChannels = outputChannelsBuilder.build();
 
         checkArgument(maxRowCountPerPartition > 0, "maxRowCountPerPartition must be > 0");
-
         if (!partitionChannels.isEmpty()) {
             checkArgument(expectedPositions > 0, "expectedPositions must be > 0");
-            groupByHash = createGroupByHash(
-                    partitionTypes,
-                    Ints.toArray(partitionChannels),
-                    hashChannel,
-                    expectedPositions,
-                    isDictionaryAggregationEnabled(operatorContext.getSession()),
-                    joinCompiler,
-                    this::updateMemoryReservation);
-        }
-        else {
-            groupByHash = new NoChannelGroupByHash();
         }
+        this.sourceTypes = ImmutableList.copyOf(sourceTypes);
+        this.partitionChannels = ImmutableList.copyOf(partitionChannels);
+        this.partitionTypes = ImmutableList.copyOf(partitionTypes);
+        this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
+        this.expectedPositions = expectedPositions;
+        this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+        this.maxRowCountPerPartition = maxRowCountPerPartition;
+        this.generateRowNumber = generateRowNumber;
+        this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
+        checkArgument(!spillEnabled || partitioningSpillerFactory.isPresent(), "Spill enabled, partitioningSpillerFactory is not present");
+        // without partition channels there is a single group, which never holds more than maxRowCountPerPartition rows
+        this.spillable = spillEnabled && !partitionChannels.isEmpty();
 
         List<Type> types = toTypes(sourceTypes, outputChannels, generateRowNumber);
-        this.groupedTopNBuilder = new GroupedTopNBuilder(
-                ImmutableList.copyOf(sourceTypes),
-                new SimplePageWithPositionComparator(types, sortChannels, sortOrders),
-                maxRowCountPerPartition,
-                generateRowNumber,
-                groupByHash);
+        this.comparator = new SimplePageWithPositionComparator(types, sortChannels, sortOrders);
+        this.groupedTopNBuilder = createGroupedTopNBuilder();
     }
 
     @Override
@@ -206,7 +281,7 @@ public class TopNRowNumberOperator
     public boolean isFinished()
     {
         // has no more input, has finished flushing, and has no unfinished work
-        return finishing && outputIterator != null && !outputIterator.hasNext() && unfinishedWork == null;
+        return finishing && outputIterator != null && !outputIterator.hasNext() && unfinishedWork == null && !hasRemainingSpilledPartitions();
     }
 
     @Override
@@ -222,6 +297,7 @@ public class TopNRowNumberOperator
         checkState(!finishing, "Operator is already finishing");
         checkState(unfinishedWork == null, "Cannot add input with the operator when unfinished work is not empty");
         checkState(outputIterator == null, "Cannot add input with the operator when flushing");
+        checkState(spillInProgress.isDone(), "Previous spill hasn't yet finished");
         requireNonNull(page, "page is null");
         unfinishedWork = groupedTopNBuilder.processPage(page);
         if (unfinishedWork.process()) {
@@ -233,6 +309,11 @@ public class TopNRowNumberOperator
     @Override
     public Page getOutput()
     {
+        if (!spillInProgress.isDone() || finishMemoryRevoke.isPresent()) {
+            // the builder is being spilled
+            return null;
+        }
+
         if (unfinishedWork != null) {
             boolean finished = unfinishedWork.process();
             updateMemoryReservation();
@@ -246,6 +327,14 @@ public class TopNRowNumberOperator
             return null;
         }
 
+        if (spillable) {
+            finishSpillableInput();
+        }
+
+        if (spiller.isPresent()) {
+            return getSpilledOutput();
+        }
+
         if (outputIterator == null) {
             // start flushing
             outputIterator = groupedTopNBuilder.buildResult();
@@ -253,18 +342,43 @@ public class TopNRowNumberOperator
 
         Page output = null;
         if (outputIterator.hasNext()) {
-            Page page = outputIterator.next();
-            // rewrite to expected column ordering
-            Block[] blocks = new Block[page.getChannelCount()];
-            for (int i = 0; i < outputChannels.size(); i++) {
-                blocks[i] = page.getBlock(outputChannels.get(i));
-            }
-            output = new Page(blocks);
+            output = toOutputPage(outputIterator.next());
         }
         updateMemoryReservation();
         return output;
     }
 
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        if (spillable && unfinishedWork == null && groupByHash.getGroupCount() > 0) {
+            return spillGroupedTopNBuilder();
+        }
+        finishMemoryRevoke = Optional.of(() -> {});
+        return immediateFuture(null);
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Memory revoke not started");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    @Override
+    public void close()
+    {
+        try (Closer closer = Closer.create()) {
+            spiller.ifPresent(closer::register);
+            closer.register(() -> localRevocableMemoryContext.setBytes(0));
+            closer.register(() -> localUserMemoryContext.setBytes(0));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @VisibleForTesting
     public int getCapacity()
     {
@@ -272,8 +386,153 @@ public class TopNRowNumberOperator
         return groupByHash.getCapacity();
     }
 
+    private void finishSpillableInput()
+    {
+        spillable = false;
+        long bytes = groupedTopNBuilder.getEstimatedSizeInBytes();
+        if (!spiller.isPresent() && !localUserMemoryContext.trySetBytes(bytes)) {
+            // not enough memory to produce the output from memory
+            getFutureValue(spillGroupedTopNBuilder());
+            finishMemoryRevoke();
+        }
+        else if (spiller.isPresent() && groupByHash.getGroupCount() > 0) {
+            // every partition is read back from disk, so the rows still in memory must be spilled as well
+            getFutureValue(spillGroupedTopNBuilder());
+            finishMemoryRevoke();
+        }
+        localRevocableMemoryContext.setBytes(0);
+        updateMemoryReservation();
+    }
+
+    private ListenableFuture<?> spillGroupedTopNBuilder()
+    {
+        checkState(spillInProgress.isDone(), "Previous spill hasn't yet finished");
+        getFutureValue(spillInProgress);
+
+        if (!spiller.isPresent()) {
+            HashGenerator hashGenerator;
+            if (hashChannel.isPresent()) {
+                hashGenerator = new PrecomputedHashGenerator(hashChannel.get());
+            }
+            else {
+                hashGenerator = new InterpretedHashGenerator(partitionTypes, Ints.toArray(partitionChannels));
+            }
+            spiller = Optional.of(partitioningSpillerFactory.get().create(
+                    sourceTypes,
+                    new LocalPartitionGenerator(hashGenerator, SPILL_PARTITION_COUNT),
+                    operatorContext.getSpillContext().newLocalSpillContext(),
+                    operatorContext.newAggregateSystemMemoryContext()));
+        }
+
+        // only the top rows of each group are spilled, so that reading a partition back does not need more memory than the groups it contains
+        Iterator<Page> pages = groupedTopNBuilder.buildResult();
+        if (generateRowNumber) {
+            // row numbers are generated again once the spilled rows are merged
+            pages = Iterators.transform(pages, page -> {
+                Block[] blocks = new Block[sourceTypes.size()];
+                for (int i = 0; i < blocks.length; i++) {
+                    blocks[i] = page.getBlock(i);
+                }
+                return new Page(page.getPositionCount(), blocks);
+            });
+        }
+        spillInProgress = spiller.get().partitionAndSpill(pages);
+        finishMemoryRevoke = Optional.of(() -> {
+            groupedTopNBuilder = createGroupedTopNBuilder();
+            updateMemoryReservation();
+        });
+        return spillInProgress;
+    }
+
+    private Page getSpilledOutput()
+    {
+        while (true) {
+            if (unfinishedWork != null) {
+                boolean finished = unfinishedWork.process();
+                updateMemoryReservation();
+                if (!finished) {
+                    return null;
+                }
+                unfinishedWork = null;
+            }
+
+            if (outputIterator != null && outputIterator.hasNext()) {
+                Page output = toOutputPage(outputIterator.next());
+                updateMemoryReservation();
+                return output;
+            }
+
+            if (spilledPages != null) {
+                if (spilledPages.hasNext()) {
+                    unfinishedWork = groupedTopNBuilder.processPage(spilledPages.next());
+                }
+                else {
+                    // the partition is fully loaded
+                    spilledPages = null;
+                    outputIterator = groupedTopNBuilder.buildResult();
+                }
+                continue;
+            }
+
+            if (nextSpilledPartition == SPILL_PARTITION_COUNT) {
+                return null;
+            }
+
+            // each group is entirely contained in a single partition, so the partitions are processed independently
+            outputIterator = null;
+            groupedTopNBuilder = createGroupedTopNBuilder();
+            updateMemoryReservation();
+            spilledPages = spiller.get().getSpilledPages(nextSpilledPartition);
+            nextSpilledPartition++;
+        }
+    }
+
+    private boolean hasRemainingSpilledPartitions()
+    {
+        return spiller.isPresent() && (spilledPages != null || nextSpilledPartition < SPILL_PARTITION_COUNT);
+    }
+
+    private Page toOutputPage(Page page)
+    {
+        // rewrite to expected column ordering
+        Block[] blocks = new Block[page.getChannelCount()];
+        for (int i = 0; i < outputChannels.size(); i++) {
+            blocks[i] = page.getBlock(outputChannels.get(i));
+        }
+        return new Page(blocks);
+    }
+
+    private GroupedTopNBuilder createGroupedTopNBuilder()
+    {
+        if (!partitionChannels.isEmpty()) {
+            groupByHash = createGroupByHash(
+                    partitionTypes,
+                    Ints.toArray(partitionChannels),
+                    hashChannel,
+                    expectedPositions,
+                    isDictionaryAggregationEnabled(operatorContext.getSession()),
+                    joinCompiler,
+                    this::updateMemoryReservation);
+        }
+        else {
+            groupByHash = new NoChannelGroupByHash();
+        }
+
+        return new GroupedTopNBuilder(
+                sourceTypes,
+                comparator,
+                maxRowCountPerPartition,
+                generateRowNumber,
+                groupByHash);
+    }
+
     private boolean updateMemoryReservation()
     {
+        if (spillable) {
+            // the builder is spilled when the memory is needed, so there is no need to yield
+            localRevocableMemoryContext.setBytes(groupedTopNBuilder.getEstimatedSizeInBytes());
+            return true;
+        }
         // TODO: may need to use trySetMemoryReservation with a compaction to free memory (but that may cause GC pressure)
         localUserMemoryContext.setBytes(groupedTopNBuilder.getEstimatedSizeInBytes());
         return operatorContext.isWaitingForMemory().isDone();
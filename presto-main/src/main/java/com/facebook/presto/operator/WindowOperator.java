@@ -22,12 +22,17 @@ import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
+import com.facebook.presto.sql.gen.OrderingCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
@@ -36,11 +41,15 @@ import java.util.function.BiPredicate;
 import java.util.stream.Stream;
 
 import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
+import static com.facebook.presto.util.MergeSortedPages.mergeSortedPages;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkPositionIndex;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.concat;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
 import static java.util.Collections.nCopies;
 import static java.util.Objects.requireNonNull;
 
@@ -63,6 +72,9 @@ public class WindowOperator
         private final int expectedPositions;
         private boolean closed;
         private final PagesIndex.Factory pagesIndexFactory;
+        private final boolean spillEnabled;
+        private final Optional<SpillerFactory> spillerFactory;
+        private final OrderingCompiler orderingCompiler;
 
         public WindowOperatorFactory(
                 int operatorId,
@@ -76,7 +88,10 @@ public class WindowOperator
                 List<SortOrder> sortOrder,
                 int preSortedChannelPrefix,
                 int expectedPositions,
-                PagesIndex.Factory pagesIndexFactory)
+                PagesIndex.Factory pagesIndexFactory,
+                boolean spillEnabled,
+                Optional<SpillerFactory> spillerFactory,
+                OrderingCompiler orderingCompiler)
         {
             requireNonNull(sourceTypes, "sourceTypes is null");
             requireNonNull(planNodeId, "planNodeId is null");
@@ -91,6 +106,9 @@ public class WindowOperator
             checkArgument(sortChannels.size() == sortOrder.size(), "Must have same number of sort channels as sort orders");
             checkArgument(preSortedChannelPrefix <= sortChannels.size(), "Cannot have more pre-sorted channels than specified sorted channels");
             checkArgument(preSortedChannelPrefix == 0 || ImmutableSet.copyOf(preGroupedChannels).equals(ImmutableSet.copyOf(partitionChannels)), "preSortedChannelPrefix can only be greater than zero if all partition channels are pre-grouped");
+            requireNonNull(spillerFactory, "spillerFactory is null");
+            requireNonNull(orderingCompiler, "orderingCompiler is null");
+            checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spill enabled, spillerFactory is not present");
 
             this.pagesIndexFactory = pagesIndexFactory;
             this.operatorId = operatorId;
@@ -104,6 +122,9 @@ public class WindowOperator
             this.sortOrder = ImmutableList.copyOf(sortOrder);
             this.preSortedChannelPrefix = preSortedChannelPrefix;
             this.expectedPositions = expectedPositions;
+            this.spillEnabled = spillEnabled;
+            this.spillerFactory = spillerFactory;
+            this.orderingCompiler = orderingCompiler;
         }
 
         @Override
@@ -123,7 +144,10 @@ public class WindowOperator
                     sortOrder,
                     preSortedChannelPrefix,
                     expectedPositions,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory,
+                    orderingCompiler);
         }
 
         @Override
@@ -147,7 +171,10 @@ public class WindowOperator
                     sortOrder,
                     preSortedChannelPrefix,
                     expectedPositions,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory,
+                    orderingCompiler);
         }
     }
 
@@ -165,8 +192,10 @@ public class WindowOperator
     private final List<Integer> orderChannels;
     private final List<SortOrder> ordering;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
 
     private final int[] preGroupedChannels;
+    private final int[] unGroupedPartitionChannels;
 
     private final PagesHashStrategy preGroupedPartitionHashStrategy;
     private final PagesHashStrategy unGroupedPartitionHashStrategy;
@@ -186,6 +215,26 @@ public class WindowOperator
 
     private Page pendingInput;
 
+    private final List<Type> sourceTypes;
+    private final List<Integer> spillSortChannels;
+    private final List<SortOrder> spillSortOrder;
+    private final boolean spillEnabled;
+    private final Optional<SpillerFactory> spillerFactory;
+    private final OrderingCompiler orderingCompiler;
+
+    // sorted runs of the current pre-grouped group that have been spilled
+    private Optional<Spiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = immediateFuture(null);
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    // pre-grouped key of the spilled group, needed to recognize its rows once pagesIndex is empty
+    private Page spilledGroup;
+
+    // spilled runs being merged back one partition at a time
+    private Iterator<Optional<Page>> mergedSpilledRuns;
+    private Page pendingSpilledPage;
+    // true if the merge yielded before the partition in pagesIndex was fully loaded
+    private boolean loadingSpilledPartition;
+
     public WindowOperator(
             OperatorContext operatorContext,
             List<Type> sourceTypes,
@@ -197,7 +246,10 @@ public class WindowOperator
             List<SortOrder> sortOrder,
             int preSortedChannelPrefix,
             int expectedPositions,
-            PagesIndex.Factory pagesIndexFactory)
+            PagesIndex.Factory pagesIndexFactory,
+            boolean spillEnabled,
+            Optional<SpillerFactory> spillerFactory,
+            OrderingCompiler orderingCompiler)
     {
         requireNonNull(operatorContext, "operatorContext is null");
         requireNonNull(outputChannels, "outputChannels is null");
@@ -211,9 +263,17 @@ public class WindowOperator
         checkArgument(sortChannels.size() == sortOrder.size(), "Must have same number of sort channels as sort orders");
         checkArgument(preSortedChannelPrefix <= sortChannels.size(), "Cannot have more pre-sorted channels than specified sorted channels");
         checkArgument(preSortedChannelPrefix == 0 || ImmutableSet.copyOf(preGroupedChannels).equals(ImmutableSet.copyOf(partitionChannels)), "preSortedChannelPrefix can only be greater than zero if all partition channels are pre-grouped");
+        requireNonNull(spillerFactory, "spillerFactory is null");
+        requireNonNull(orderingCompiler, "orderingCompiler is null");
+        checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spill enabled, spillerFactory is not present");
 
         this.operatorContext = operatorContext;
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
+        this.sourceTypes = ImmutableList.copyOf(sourceTypes);
+        this.spillEnabled = spillEnabled;
+        this.spillerFactory = spillerFactory;
+        this.orderingCompiler = orderingCompiler;
         this.outputChannels = Ints.toArray(outputChannels);
         this.windowFunctions = windowFunctionDefinitions.stream()
                 .map(functionDefinition -> new FramedWindowFunction(functionDefinition.createWindowFunction(), functionDefinition.getFrameInfo()))
@@ -232,6 +292,7 @@ public class WindowOperator
         List<Integer> unGroupedPartitionChannels = partitionChannels.stream()
                 .filter(channel -> !preGroupedChannels.contains(channel))
                 .collect(toImmutableList());
+        this.unGroupedPartitionChannels = Ints.toArray(unGroupedPartitionChannels);
         this.unGroupedPartitionHashStrategy = pagesIndex.createPagesHashStrategy(unGroupedPartitionChannels, OptionalInt.empty());
         List<Integer> preSortedChannels = sortChannels.stream()
                 .limit(preSortedChannelPrefix)
@@ -252,6 +313,10 @@ public class WindowOperator
             this.ordering = ImmutableList.copyOf(concat(nCopies(unGroupedPartitionChannels.size(), ASC_NULLS_LAST), sortOrder));
         }
 
+        // Spilled runs are fully sorted, so that merging them yields the partitions one after another
+        this.spillSortChannels = ImmutableList.copyOf(concat(unGroupedPartitionChannels, sortChannels));
+        this.spillSortOrder = ImmutableList.copyOf(concat(nCopies(unGroupedPartitionChannels.size(), ASC_NULLS_LAST), sortOrder));
+
         windowInfo = new WindowInfo.DriverWindowInfoBuilder();
         operatorContext.setInfoSupplier(this::getWindowInfo);
     }
@@ -273,6 +338,10 @@ public class WindowOperator
         if (state == State.FINISHING || state == State.FINISHED) {
             return;
         }
+        if (finishMemoryRevoke.isPresent()) {
+            // wait for the revoke to complete, finish() will be called again
+            return;
+        }
         if (state == State.NEEDS_INPUT) {
             // Since was waiting for more input, prepare what we have for output since we will not be getting any more input
             finishPagesIndex();
@@ -303,11 +372,14 @@ public class WindowOperator
             return;
         }
 
+        checkState(spillInProgress.isDone(), "Previous spill hasn't yet finished");
+        getFutureValue(spillInProgress);
+
         pendingInput = page;
         if (processPendingInput()) {
             state = State.HAS_OUTPUT;
         }
-        localUserMemoryContext.setBytes(pagesIndex.getEstimatedSize().toBytes());
+        updateMemoryUsage();
     }
 
     /**
@@ -338,7 +410,7 @@ public class WindowOperator
 
         // TODO: Fix pagesHashStrategy to allow specifying channels for comparison, it currently requires us to rearrange the right side blocks in consecutive channel order
         Page preGroupedPage = rearrangePage(page, preGroupedChannels);
-        if (pagesIndex.getPositionCount() == 0 || pagesIndex.positionEqualsRow(preGroupedPartitionHashStrategy, 0, 0, preGroupedPage)) {
+        if (isCurrentGroup(preGroupedPage)) {
             // Find the position where the pre-grouped columns change
             int groupEnd = findGroupEnd(preGroupedPage, preGroupedPartitionHashStrategy, 0);
 
@@ -360,6 +432,17 @@ public class WindowOperator
         }
     }
 
+    private boolean isCurrentGroup(Page preGroupedPage)
+    {
+        if (pagesIndex.getPositionCount() > 0) {
+            return pagesIndex.positionEqualsRow(preGroupedPartitionHashStrategy, 0, 0, preGroupedPage);
+        }
+        if (spilledGroup != null) {
+            return preGroupedPartitionHashStrategy.rowEqualsRow(0, spilledGroup, 0, preGroupedPage);
+        }
+        return true;
+    }
+
     private static Page rearrangePage(Page page, int[] channels)
     {
         Block[] newBlocks = new Block[channels.length];
@@ -377,7 +460,7 @@ public class WindowOperator
         }
 
         Page page = extractOutput();
-        localUserMemoryContext.setBytes(pagesIndex.getEstimatedSize().toBytes());
+        updateMemoryUsage();
         return page;
     }
 
@@ -390,29 +473,42 @@ public class WindowOperator
             if (partition == null || !partition.hasNext()) {
                 int partitionStart = partition == null ? 0 : partition.getPartitionEnd();
 
-                if (partitionStart >= pagesIndex.getPositionCount()) {
-                    // Finished all of the partitions in the current pagesIndex
+                if (partitionStart >= pagesIndex.getPositionCount() || loadingSpilledPartition) {
                     partition = null;
-                    pagesIndex.clear();
-
-                    // Try to extract more partitions from the pendingInput
-                    if (pendingInput != null && processPendingInput()) {
-                        partitionStart = 0;
+                    if (!loadingSpilledPartition) {
+                        // Finished all of the partitions in the current pagesIndex
+                        pagesIndex.clear();
                     }
-                    else if (state == State.FINISHING) {
-                        state = State.FINISHED;
-                        // Output the remaining page if we have anything buffered
-                        if (!pageBuilder.isEmpty()) {
-                            Page page = pageBuilder.build();
-                            pageBuilder.reset();
-                            return page;
+
+                    while (loadingSpilledPartition || pagesIndex.getPositionCount() == 0) {
+                        if (mergedSpilledRuns != null) {
+                            // Load the next partition of the spilled group
+                            loadingSpilledPartition = !loadNextSpilledPartition();
+                            if (loadingSpilledPartition) {
+                                // merge has yielded
+                                return null;
+                            }
+                        }
+                        // Try to extract more partitions from the pendingInput
+                        else if (pendingInput != null && processPendingInput()) {
+                            continue;
+                        }
+                        else if (state == State.FINISHING) {
+                            state = State.FINISHED;
+                            // Output the remaining page if we have anything buffered
+                            if (!pageBuilder.isEmpty()) {
+                                Page page = pageBuilder.build();
+                                pageBuilder.reset();
+                                return page;
+                            }
+                            return null;
+                        }
+                        else {
+                            state = State.NEEDS_INPUT;
+                            return null;
                         }
-                        return null;
-                    }
-                    else {
-                        state = State.NEEDS_INPUT;
-                        return null;
                     }
+                    partitionStart = 0;
                 }
 
                 int partitionEnd = findGroupEnd(pagesIndex, unGroupedPartitionHashStrategy, partitionStart);
@@ -442,10 +538,154 @@ public class WindowOperator
 
     private void finishPagesIndex()
     {
+        boolean spillGroup = spiller.isPresent();
+        if (spillEnabled && !spillGroup && localRevocableMemoryContext.getBytes() > 0) {
+            // The buffered group can no longer be revoked once we start producing output
+            long revocableBytes = localRevocableMemoryContext.getBytes();
+            localRevocableMemoryContext.setBytes(0);
+            if (!localUserMemoryContext.trySetBytes(localUserMemoryContext.getBytes() + revocableBytes)) {
+                // not enough user memory to keep the group, so spill it and merge it back partition by partition
+                localRevocableMemoryContext.setBytes(revocableBytes);
+                spillGroup = true;
+            }
+        }
+
+        if (spillGroup) {
+            if (pagesIndex.getPositionCount() > 0) {
+                getFutureValue(spillPagesIndex());
+            }
+            pagesIndex.clear();
+            localRevocableMemoryContext.setBytes(0);
+            startMergingSpilledRuns();
+            return;
+        }
+
         sortPagesIndexIfNecessary();
         windowInfo.addIndex(pagesIndex);
     }
 
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        if (state != State.NEEDS_INPUT || localRevocableMemoryContext.getBytes() == 0 || pagesIndex.getPositionCount() == 0) {
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+
+        spillInProgress = spillPagesIndex();
+        finishMemoryRevoke = Optional.of(() -> {
+            pagesIndex.clear();
+            updateMemoryUsage();
+        });
+        return spillInProgress;
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Memory revoke not started");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    private ListenableFuture<?> spillPagesIndex()
+    {
+        checkState(spillInProgress.isDone(), "Previous spill hasn't yet finished");
+        getFutureValue(spillInProgress);
+        verify(pagesIndex.getPositionCount() > 0, "pagesIndex is empty");
+
+        if (!spiller.isPresent()) {
+            spiller = Optional.of(spillerFactory.get().create(
+                    sourceTypes,
+                    operatorContext.getSpillContext(),
+                    operatorContext.newAggregateSystemMemoryContext()));
+
+            Block[] groupBlocks = new Block[preGroupedChannels.length];
+            for (int i = 0; i < preGroupedChannels.length; i++) {
+                groupBlocks[i] = pagesIndex.getSingleValueBlock(preGroupedChannels[i], 0);
+            }
+            spilledGroup = new Page(1, groupBlocks);
+        }
+
+        pagesIndex.sort(spillSortChannels, spillSortOrder);
+        return spiller.get().spill(pagesIndex.getSortedPages());
+    }
+
+    private void startMergingSpilledRuns()
+    {
+        checkState(spiller.isPresent());
+        // rows that do not belong to the spilled group go into a new group
+        spilledGroup = null;
+
+        List<WorkProcessor<Page>> sortedRuns = spiller.get().getSpills().stream()
+                .map(WorkProcessor::fromIterator)
+                .collect(toImmutableList());
+        mergedSpilledRuns = mergeSortedPages(
+                sortedRuns,
+                orderingCompiler.compilePageWithPositionComparator(sourceTypes, spillSortChannels, spillSortOrder),
+                sourceTypes,
+                operatorContext.aggregateUserMemoryContext(),
+                operatorContext.getDriverContext().getYieldSignal())
+                .yieldingIterator();
+    }
+
+    /**
+     * Loads the rows of the next partition of the merged spilled runs into pagesIndex.
+     * pagesIndex is left empty when all runs have been consumed.
+     *
+     * @return false if the merge has yielded before the partition was fully loaded
+     */
+    private boolean loadNextSpilledPartition()
+    {
+        while (true) {
+            if (pendingSpilledPage == null) {
+                if (!mergedSpilledRuns.hasNext()) {
+                    mergedSpilledRuns = null;
+                    spiller.get().close();
+                    spiller = Optional.empty();
+                    break;
+                }
+                Optional<Page> next = mergedSpilledRuns.next();
+                if (!next.isPresent()) {
+                    return false;
+                }
+                pendingSpilledPage = next.get();
+            }
+
+            Page unGroupedPage = rearrangePage(pendingSpilledPage, unGroupedPartitionChannels);
+            if (pagesIndex.getPositionCount() > 0 && !pagesIndex.positionEqualsRow(unGroupedPartitionHashStrategy, 0, 0, unGroupedPage)) {
+                break;
+            }
+
+            int partitionEnd = findGroupEnd(unGroupedPage, unGroupedPartitionHashStrategy, 0);
+            pagesIndex.addPage(pendingSpilledPage.getRegion(0, partitionEnd));
+            if (partitionEnd < pendingSpilledPage.getPositionCount()) {
+                pendingSpilledPage = pendingSpilledPage.getRegion(partitionEnd, pendingSpilledPage.getPositionCount() - partitionEnd);
+                break;
+            }
+            pendingSpilledPage = null;
+        }
+
+        if (pagesIndex.getPositionCount() > 0) {
+            // merged runs are already sorted
+            windowInfo.addIndex(pagesIndex);
+        }
+        return true;
+    }
+
+    private void updateMemoryUsage()
+    {
+        if (spillEnabled && state == State.NEEDS_INPUT && pagesIndex.getPositionCount() > 0) {
+            // the buffered group can be sorted and spilled as a run at any time
+            localUserMemoryContext.setBytes(0);
+            localRevocableMemoryContext.setBytes(pagesIndex.getEstimatedSize().toBytes());
+        }
+        else {
+            localRevocableMemoryContext.setBytes(0);
+            localUserMemoryContext.setBytes(pagesIndex.getEstimatedSize().toBytes());
+        }
+    }
+
     // Assumes input grouped on relevant pagesHashStrategy columns
     private static int findGroupEnd(Page page, PagesHashStrategy pagesHashStrategy, int startPosition)
     {
@@ -497,5 +737,6 @@ public class WindowOperator
     public void close()
     {
         driverWindowInfo.set(Optional.of(windowInfo.build()));
+        spiller.ifPresent(Spiller::close);
     }
 }
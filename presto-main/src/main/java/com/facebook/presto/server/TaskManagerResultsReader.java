@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server;
+
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.TaskManager;
+import com.facebook.presto.execution.buffer.BufferResult;
+import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
+import com.facebook.presto.metadata.InternalNodeManager;
+import com.facebook.presto.operator.LocalTaskResultsReader;
+import com.google.common.base.Splitter;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Serves the results of tasks running on this node straight from the {@link TaskManager}.
+ * Locations are recognized by the internal URI of this node and the path of the task results resource,
+ * {@code /v1/task/{taskId}/results/{bufferId}}.
+ */
+public class TaskManagerResultsReader
+        implements LocalTaskResultsReader
+{
+    private static final Splitter PATH_SPLITTER = Splitter.on('/').omitEmptyStrings();
+
+    // the task manager depends on the exchange clients, so it can only be looked up lazily
+    private final Provider<TaskManager> taskManager;
+    private final InternalNodeManager nodeManager;
+
+    @Inject
+    public TaskManagerResultsReader(Provider<TaskManager> taskManager, InternalNodeManager nodeManager)
+    {
+        this.taskManager = requireNonNull(taskManager, "taskManager is null");
+        this.nodeManager = requireNonNull(nodeManager, "nodeManager is null");
+    }
+
+    @Override
+    public Optional<LocalTaskResults> getLocalTaskResults(URI location)
+    {
+        requireNonNull(location, "location is null");
+        if (!isCurrentNode(location)) {
+            return Optional.empty();
+        }
+
+        List<String> path = PATH_SPLITTER.splitToList(location.getPath());
+        if (path.size() != 5 || !path.get(0).equals("v1") || !path.get(1).equals("task") || !path.get(3).equals("results")) {
+            return Optional.empty();
+        }
+        return Optional.of(new TaskResults(taskManager.get(), new TaskId(path.get(2)), OutputBufferId.fromString(path.get(4))));
+    }
+
+    private boolean isCurrentNode(URI location)
+    {
+        URI currentNode = nodeManager.getCurrentNode().getInternalUri();
+        return currentNode.getScheme().equalsIgnoreCase(location.getScheme()) &&
+                currentNode.getHost().equalsIgnoreCase(location.getHost()) &&
+                currentNode.getPort() == location.getPort();
+    }
+
+    private static class TaskResults
+            implements LocalTaskResults
+    {
+        private final TaskManager taskManager;
+        private final TaskId taskId;
+        private final OutputBufferId bufferId;
+
+        public TaskResults(TaskManager taskManager, TaskId taskId, OutputBufferId bufferId)
+        {
+            this.taskManager = requireNonNull(taskManager, "taskManager is null");
+            this.taskId = requireNonNull(taskId, "taskId is null");
+            this.bufferId = requireNonNull(bufferId, "bufferId is null");
+        }
+
+        @Override
+        public ListenableFuture<BufferResult> getResults(long token, DataSize maxSize)
+        {
+            try {
+                return taskManager.getTaskResults(taskId, bufferId, token, maxSize);
+            }
+            catch (RuntimeException e) {
+                return immediateFailedFuture(e);
+            }
+        }
+
+        @Override
+        public void acknowledge(long token)
+        {
+            taskManager.acknowledgeTaskResults(taskId, bufferId, token);
+        }
+
+        @Override
+        public ListenableFuture<?> abort()
+        {
+            try {
+                taskManager.abortTaskResults(taskId, bufferId);
+                return immediateFuture(null);
+            }
+            catch (RuntimeException e) {
+                return immediateFailedFuture(e);
+            }
+        }
+    }
+}
@@ -326,12 +326,15 @@ public class TaskResource
 
     @DELETE
     @Path("{taskId}/remote-source/{remoteSourceTaskId}")
-    public void removeRemoteSource(@PathParam("taskId") TaskId taskId, @PathParam("remoteSourceTaskId") TaskId remoteSourceTaskId)
+    public void removeRemoteSource(
+            @PathParam("taskId") TaskId taskId,
+            @PathParam("remoteSourceTaskId") TaskId remoteSourceTaskId,
+            @QueryParam("discardOutput") @DefaultValue("false") boolean discardOutput)
     {
         requireNonNull(taskId, "taskId is null");
         requireNonNull(remoteSourceTaskId, "remoteSourceTaskId is null");
 
-        taskManager.removeRemoteSource(taskId, remoteSourceTaskId);
+        taskManager.removeRemoteSource(taskId, remoteSourceTaskId, discardOutput);
     }
 
     @Managed
@@ -412,12 +412,15 @@ public final class HttpRemoteTask
     }
 
     @Override
-    public ListenableFuture<?> removeRemoteSource(TaskId remoteSourceTaskId)
+    public ListenableFuture<?> removeRemoteSource(TaskId remoteSourceTaskId, boolean discardOutput)
     {
-        URI remoteSourceUri = uriBuilderFrom(taskLocation)
+        HttpUriBuilder uriBuilder = uriBuilderFrom(taskLocation)
                 .appendPath("remote-source")
-                .appendPath(remoteSourceTaskId.toString())
-                .build();
+                .appendPath(remoteSourceTaskId.toString());
+        if (discardOutput) {
+            uriBuilder.addParameter("discardOutput", "true");
+        }
+        URI remoteSourceUri = uriBuilder.build();
 
         Request request = prepareDelete()
                 .setUri(remoteSourceUri)
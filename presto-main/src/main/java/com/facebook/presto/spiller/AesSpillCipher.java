@@ -28,7 +28,7 @@ import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static java.lang.String.format;
 
-final class AesSpillCipher
+public final class AesSpillCipher
         implements SpillCipher
 {
     //  256-bit AES CBC mode
@@ -38,7 +38,7 @@ final class AesSpillCipher
     private SecretKey key;
     private final int ivBytes;
 
-    AesSpillCipher()
+    public AesSpillCipher()
     {
         this.key = generateNewSecretKey();
         this.ivBytes = createEncryptCipher().getIV().length;
@@ -65,11 +65,13 @@ public class FeaturesConfig
     private boolean distributedIndexJoinsEnabled;
     private JoinDistributionType joinDistributionType = PARTITIONED;
     private DataSize joinMaxBroadcastTableSize;
+    private boolean useObservedJoinSideSize;
     private boolean colocatedJoinsEnabled;
     private boolean groupedExecutionForAggregationEnabled;
     private boolean groupedExecutionForEligibleTableScansEnabled;
     private boolean dynamicScheduleForGroupedExecution;
     private boolean recoverableGroupedExecutionEnabled;
+    private boolean leafTaskRetryEnabled;
     private double maxFailedTaskPercentage = 0.3;
     private int concurrentLifespansPerTask;
     private boolean spatialJoinsEnabled = true;
@@ -85,6 +87,7 @@ public class FeaturesConfig
     private boolean enableIntermediateAggregations;
     private boolean pushTableWriteThroughUnion = true;
     private boolean exchangeCompressionEnabled;
+    private ExchangeCompressionCodec exchangeCompressionCodec = ExchangeCompressionCodec.LZ4;
     private boolean legacyArrayAgg;
     private boolean legacyLogFunction;
     private boolean groupByUsesEqualTo;
@@ -106,6 +109,10 @@ public class FeaturesConfig
     private ArrayAggGroupImplementation arrayAggGroupImplementation = ArrayAggGroupImplementation.NEW;
     private MultimapAggGroupImplementation multimapAggGroupImplementation = MultimapAggGroupImplementation.NEW;
     private boolean spillEnabled;
+    private boolean orderBySpillEnabled = true;
+    private boolean windowSpillEnabled = true;
+    private boolean topNRowNumberSpillEnabled = true;
+    private boolean markDistinctSpillEnabled = true;
     private DataSize aggregationOperatorUnspillMemoryLimit = new DataSize(4, DataSize.Unit.MEGABYTE);
     private List<Path> spillerSpillPaths = ImmutableList.of();
     private int spillerThreads = 4;
@@ -135,6 +142,9 @@ public class FeaturesConfig
     private int maxConcurrentMaterializations = 10;
 
     private boolean pushdownSubfieldsEnabled;
+    private boolean dynamicFilteringEnabled;
+    private int dynamicFilteringMaxDistinctValues = 1_000;
+    private boolean semiJoinBloomFilterEnabled;
 
     public enum JoinReorderingStrategy
     {
@@ -166,6 +176,14 @@ public class FeaturesConfig
         PUSH_THROUGH_LOW_MEMORY_OPERATORS
     }
 
+    public enum ExchangeCompressionCodec
+    {
+        LZ4,
+        SNAPPY,
+        ZSTD,
+        ADAPTIVE
+    }
+
     public double getCpuCostWeight()
     {
         return cpuCostWeight;
@@ -322,6 +340,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isUseObservedJoinSideSize()
+    {
+        return useObservedJoinSideSize;
+    }
+
+    @Config("optimizer.use-observed-join-side-size")
+    @ConfigDescription("Choose the join distribution from the output size of the join inputs observed in earlier queries")
+    public FeaturesConfig setUseObservedJoinSideSize(boolean useObservedJoinSideSize)
+    {
+        this.useObservedJoinSideSize = useObservedJoinSideSize;
+        return this;
+    }
+
     public boolean isGroupedExecutionForAggregationEnabled()
     {
         return groupedExecutionForAggregationEnabled;
@@ -374,6 +405,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isLeafTaskRetryEnabled()
+    {
+        return leafTaskRetryEnabled;
+    }
+
+    @Config("leaf-task-retry-enabled")
+    @ConfigDescription("Retry failed tasks of source partitioned leaf stages on other nodes while their splits are being scheduled")
+    public FeaturesConfig setLeafTaskRetryEnabled(boolean leafTaskRetryEnabled)
+    {
+        this.leafTaskRetryEnabled = leafTaskRetryEnabled;
+        return this;
+    }
+
     public double getMaxFailedTaskPercentage()
     {
         return maxFailedTaskPercentage;
@@ -652,6 +696,58 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isOrderBySpillEnabled()
+    {
+        return orderBySpillEnabled;
+    }
+
+    @Config("experimental.order-by-spill-enabled")
+    @ConfigDescription("Spill in OrderBy if spill_enabled is also set")
+    public FeaturesConfig setOrderBySpillEnabled(boolean orderBySpillEnabled)
+    {
+        this.orderBySpillEnabled = orderBySpillEnabled;
+        return this;
+    }
+
+    public boolean isWindowSpillEnabled()
+    {
+        return windowSpillEnabled;
+    }
+
+    @Config("experimental.window-spill-enabled")
+    @ConfigDescription("Spill in WindowOperator if spill_enabled is also set")
+    public FeaturesConfig setWindowSpillEnabled(boolean windowSpillEnabled)
+    {
+        this.windowSpillEnabled = windowSpillEnabled;
+        return this;
+    }
+
+    public boolean isTopNRowNumberSpillEnabled()
+    {
+        return topNRowNumberSpillEnabled;
+    }
+
+    @Config("experimental.topn-row-number-spill-enabled")
+    @ConfigDescription("Spill in TopNRowNumberOperator if spill_enabled is also set")
+    public FeaturesConfig setTopNRowNumberSpillEnabled(boolean topNRowNumberSpillEnabled)
+    {
+        this.topNRowNumberSpillEnabled = topNRowNumberSpillEnabled;
+        return this;
+    }
+
+    public boolean isMarkDistinctSpillEnabled()
+    {
+        return markDistinctSpillEnabled;
+    }
+
+    @Config("experimental.mark-distinct-spill-enabled")
+    @ConfigDescription("Spill in MarkDistinctOperator if spill_enabled is also set")
+    public FeaturesConfig setMarkDistinctSpillEnabled(boolean markDistinctSpillEnabled)
+    {
+        this.markDistinctSpillEnabled = markDistinctSpillEnabled;
+        return this;
+    }
+
     public boolean isIterativeOptimizerEnabled()
     {
         return iterativeOptimizerEnabled;
@@ -835,6 +931,20 @@ public class FeaturesConfig
         return this;
     }
 
+    @NotNull
+    public ExchangeCompressionCodec getExchangeCompressionCodec()
+    {
+        return exchangeCompressionCodec;
+    }
+
+    @Config("exchange.compression-codec")
+    @ConfigDescription("Codec used to compress exchanged pages, ADAPTIVE picks a codec or no compression for each page")
+    public FeaturesConfig setExchangeCompressionCodec(ExchangeCompressionCodec exchangeCompressionCodec)
+    {
+        this.exchangeCompressionCodec = exchangeCompressionCodec;
+        return this;
+    }
+
     public boolean isEnableIntermediateAggregations()
     {
         return enableIntermediateAggregations;
@@ -1044,4 +1154,44 @@ public class FeaturesConfig
     {
         return pushdownSubfieldsEnabled;
     }
+
+    @Config("experimental.dynamic-filtering-enabled")
+    @ConfigDescription("Experimental: prune the probe side table scan of a join using the join keys collected on the build side")
+    public FeaturesConfig setDynamicFilteringEnabled(boolean dynamicFilteringEnabled)
+    {
+        this.dynamicFilteringEnabled = dynamicFilteringEnabled;
+        return this;
+    }
+
+    public boolean isDynamicFilteringEnabled()
+    {
+        return dynamicFilteringEnabled;
+    }
+
+    @Config("experimental.dynamic-filtering-max-distinct-values")
+    @Min(1)
+    @ConfigDescription("Maximum number of distinct join keys kept in a dynamic filter before it is reduced to a range")
+    public FeaturesConfig setDynamicFilteringMaxDistinctValues(int dynamicFilteringMaxDistinctValues)
+    {
+        this.dynamicFilteringMaxDistinctValues = dynamicFilteringMaxDistinctValues;
+        return this;
+    }
+
+    public int getDynamicFilteringMaxDistinctValues()
+    {
+        return dynamicFilteringMaxDistinctValues;
+    }
+
+    @Config("experimental.semi-join-bloom-filter-enabled")
+    @ConfigDescription("Experimental: check a Bloom filter of the semi join build side before probing the hash set")
+    public FeaturesConfig setSemiJoinBloomFilterEnabled(boolean semiJoinBloomFilterEnabled)
+    {
+        this.semiJoinBloomFilterEnabled = semiJoinBloomFilterEnabled;
+        return this;
+    }
+
+    public boolean isSemiJoinBloomFilterEnabled()
+    {
+        return semiJoinBloomFilterEnabled;
+    }
 }
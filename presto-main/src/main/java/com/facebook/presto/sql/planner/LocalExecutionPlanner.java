@@ -40,6 +40,7 @@ import com.facebook.presto.operator.JoinBridgeManager;
 import com.facebook.presto.operator.JoinOperatorFactory;
 import com.facebook.presto.operator.JoinOperatorFactory.OuterOperatorFactoryResult;
 import com.facebook.presto.operator.LimitOperator.LimitOperatorFactory;
+import com.facebook.presto.operator.LocalDynamicFilter;
 import com.facebook.presto.operator.LocalPlannerAware;
 import com.facebook.presto.operator.LookupJoinOperators;
 import com.facebook.presto.operator.LookupOuterOperator.LookupOuterOperatorFactory;
@@ -105,6 +106,7 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.RecordSet;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.function.FunctionHandle;
@@ -115,6 +117,7 @@ import com.facebook.presto.spi.plan.PlanNode;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.plan.TableScanNode;
 import com.facebook.presto.spi.plan.ValuesNode;
+import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.relation.CallExpression;
 import com.facebook.presto.spi.relation.ConstantExpression;
 import com.facebook.presto.spi.relation.InputReferenceExpression;
@@ -176,6 +179,7 @@ import com.facebook.presto.sql.planner.plan.WindowNode.Frame;
 import com.facebook.presto.sql.relational.VariableToChannelTranslator;
 import com.facebook.presto.sql.tree.SymbolReference;
 import com.google.common.base.VerifyException;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ContiguousSet;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableBiMap;
@@ -185,6 +189,7 @@ import com.google.common.collect.ImmutableMap.Builder;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
@@ -192,6 +197,7 @@ import com.google.common.primitives.Ints;
 import io.airlift.json.JsonCodec;
 import io.airlift.units.DataSize;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import java.util.ArrayList;
@@ -205,6 +211,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -212,12 +220,19 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static com.facebook.presto.SystemSessionProperties.getAggregationOperatorUnspillMemoryLimit;
+import static com.facebook.presto.SystemSessionProperties.getDynamicFilteringMaxDistinctValues;
+import static com.facebook.presto.SystemSessionProperties.getExchangeCompressionCodec;
 import static com.facebook.presto.SystemSessionProperties.getFilterAndProjectMinOutputPageRowCount;
 import static com.facebook.presto.SystemSessionProperties.getFilterAndProjectMinOutputPageSize;
 import static com.facebook.presto.SystemSessionProperties.getTaskConcurrency;
 import static com.facebook.presto.SystemSessionProperties.getTaskWriterCount;
+import static com.facebook.presto.SystemSessionProperties.isDynamicFilteringEnabled;
 import static com.facebook.presto.SystemSessionProperties.isExchangeCompressionEnabled;
+import static com.facebook.presto.SystemSessionProperties.isMarkDistinctSpillEnabled;
+import static com.facebook.presto.SystemSessionProperties.isOrderBySpillEnabled;
 import static com.facebook.presto.SystemSessionProperties.isSpillEnabled;
+import static com.facebook.presto.SystemSessionProperties.isTopNRowNumberSpillEnabled;
+import static com.facebook.presto.SystemSessionProperties.isWindowSpillEnabled;
 import static com.facebook.presto.operator.DistinctLimitOperator.DistinctLimitOperatorFactory;
 import static com.facebook.presto.operator.NestedLoopBuildOperator.NestedLoopBuildOperatorFactory;
 import static com.facebook.presto.operator.NestedLoopJoinOperator.NestedLoopJoinOperatorFactory;
@@ -473,7 +488,7 @@ public class LocalExecutionPlanner
                                 plan.getId(),
                                 outputTypes,
                                 pagePreprocessor,
-                                new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session))))
+                                new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session), getExchangeCompressionCodec(session))))
                         .build(),
                 context.getDriverInstanceCount(),
                 physicalOperation.getPipelineExecutionStrategy());
@@ -529,8 +544,9 @@ public class LocalExecutionPlanner
         private final List<DriverFactory> driverFactories;
         private final Optional<IndexSourceContext> indexSourceContext;
 
-        // this is shared with all subContexts
+        // these are shared with all subContexts
         private final AtomicInteger nextPipelineId;
+        private final ListMultimap<PlanNodeId, LocalDynamicFilterTarget> dynamicFilterTargets;
 
         private int nextOperatorId;
         private boolean inputDriver = true;
@@ -538,7 +554,7 @@ public class LocalExecutionPlanner
 
         public LocalExecutionPlanContext(TaskContext taskContext, TypeProvider types, TaskExchangeClientManager taskExchangeClientManager)
         {
-            this(taskContext, types, taskExchangeClientManager, new ArrayList<>(), Optional.empty(), new AtomicInteger(0));
+            this(taskContext, types, taskExchangeClientManager, new ArrayList<>(), Optional.empty(), new AtomicInteger(0), ArrayListMultimap.create());
         }
 
         private LocalExecutionPlanContext(
@@ -547,7 +563,8 @@ public class LocalExecutionPlanner
                 TaskExchangeClientManager taskExchangeClientManager,
                 List<DriverFactory> driverFactories,
                 Optional<IndexSourceContext> indexSourceContext,
-                AtomicInteger nextPipelineId)
+                AtomicInteger nextPipelineId,
+                ListMultimap<PlanNodeId, LocalDynamicFilterTarget> dynamicFilterTargets)
         {
             this.taskContext = taskContext;
             this.types = types;
@@ -555,6 +572,7 @@ public class LocalExecutionPlanner
             this.driverFactories = driverFactories;
             this.indexSourceContext = indexSourceContext;
             this.nextPipelineId = nextPipelineId;
+            this.dynamicFilterTargets = dynamicFilterTargets;
         }
 
         public void addDriverFactory(boolean inputDriver, boolean outputDriver, List<OperatorFactory> operatorFactories, OptionalInt driverInstances, PipelineExecutionStrategy pipelineExecutionStrategy)
@@ -624,12 +642,28 @@ public class LocalExecutionPlanner
         public LocalExecutionPlanContext createSubContext()
         {
             checkState(!indexSourceContext.isPresent(), "index build plan can not have sub-contexts");
-            return new LocalExecutionPlanContext(taskContext, types, taskExchangeClientManager, driverFactories, indexSourceContext, nextPipelineId);
+            return new LocalExecutionPlanContext(taskContext, types, taskExchangeClientManager, driverFactories, indexSourceContext, nextPipelineId, dynamicFilterTargets);
         }
 
         public LocalExecutionPlanContext createIndexSourceSubContext(IndexSourceContext indexSourceContext)
         {
-            return new LocalExecutionPlanContext(taskContext, types, taskExchangeClientManager, driverFactories, Optional.of(indexSourceContext), nextPipelineId);
+            return new LocalExecutionPlanContext(taskContext, types, taskExchangeClientManager, driverFactories, Optional.of(indexSourceContext), nextPipelineId, dynamicFilterTargets);
+        }
+
+        public void addDynamicFilterTarget(LocalDynamicFilterTarget target)
+        {
+            dynamicFilterTargets.put(target.getTableScanId(), target);
+        }
+
+        public Supplier<TupleDomain<ColumnHandle>> getDynamicFilter(PlanNodeId tableScanId)
+        {
+            List<LocalDynamicFilterTarget> targets = ImmutableList.copyOf(dynamicFilterTargets.get(tableScanId));
+            if (targets.isEmpty()) {
+                return TupleDomain::all;
+            }
+            return () -> targets.stream()
+                    .map(LocalDynamicFilterTarget::getFilter)
+                    .reduce(TupleDomain.all(), TupleDomain::intersect);
         }
 
         public OptionalInt getDriverInstanceCount()
@@ -647,6 +681,57 @@ public class LocalExecutionPlanner
         }
     }
 
+    /**
+     * Table scan in the probe pipeline of a join whose columns can be pruned with the join keys
+     * collected by the {@link LocalDynamicFilter} of the join's build side.
+     */
+    private static class LocalDynamicFilterTarget
+    {
+        private final PlanNodeId tableScanId;
+        // index of the join clause for each key of the dynamic filter
+        private final List<Integer> joinClauses;
+        private final List<ColumnHandle> columns;
+
+        // set when the build side of the join is planned
+        @Nullable
+        private volatile LocalDynamicFilter dynamicFilter;
+
+        public LocalDynamicFilterTarget(PlanNodeId tableScanId, List<Integer> joinClauses, List<ColumnHandle> columns)
+        {
+            this.tableScanId = requireNonNull(tableScanId, "tableScanId is null");
+            this.joinClauses = ImmutableList.copyOf(requireNonNull(joinClauses, "joinClauses is null"));
+            this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
+            checkArgument(joinClauses.size() == columns.size(), "joinClauses and columns must have the same size");
+        }
+
+        public PlanNodeId getTableScanId()
+        {
+            return tableScanId;
+        }
+
+        public List<Integer> getJoinClauses()
+        {
+            return joinClauses;
+        }
+
+        public void setDynamicFilter(LocalDynamicFilter dynamicFilter)
+        {
+            checkState(this.dynamicFilter == null, "dynamicFilter is already set");
+            this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
+        }
+
+        public TupleDomain<ColumnHandle> getFilter()
+        {
+            LocalDynamicFilter dynamicFilter = this.dynamicFilter;
+            if (dynamicFilter == null) {
+                return TupleDomain.all();
+            }
+            return dynamicFilter.getResult()
+                    .map(result -> result.transform(columns::get))
+                    .orElse(TupleDomain.all());
+        }
+    }
+
     private static class IndexSourceContext
     {
         private final SetMultimap<VariableReferenceExpression, Integer> indexLookupToProbeInput;
@@ -734,7 +819,7 @@ public class LocalExecutionPlanner
                     context.getNextOperatorId(),
                     node.getId(),
                     context.getTaskExchangeClientManager(),
-                    new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session)),
+                    new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session), getExchangeCompressionCodec(session)),
                     orderingCompiler,
                     types,
                     outputChannels,
@@ -754,7 +839,7 @@ public class LocalExecutionPlanner
                     context.getNextOperatorId(),
                     node.getId(),
                     context.getTaskExchangeClientManager(),
-                    new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session)));
+                    new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session), getExchangeCompressionCodec(session)));
 
             return new PhysicalOperation(operatorFactory, makeLayout(node), context, UNGROUPED_EXECUTION);
         }
@@ -864,7 +949,9 @@ public class LocalExecutionPlanner
                     node.isPartial(),
                     hashChannel,
                     1000,
-                    joinCompiler);
+                    joinCompiler,
+                    isTopNRowNumberSpillEnabled(context.getSession()),
+                    Optional.of(partitioningSpillerFactory));
 
             return new PhysicalOperation(operatorFactory, makeLayout(node), context, source);
         }
@@ -949,7 +1036,10 @@ public class LocalExecutionPlanner
                     sortOrder,
                     node.getPreSortedOrderPrefix(),
                     10_000,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    isWindowSpillEnabled(context.getSession()),
+                    Optional.of(spillerFactory),
+                    orderingCompiler);
 
             return new PhysicalOperation(operatorFactory, outputMappings.build(), context, source);
         }
@@ -998,6 +1088,8 @@ public class LocalExecutionPlanner
                 outputChannels.add(i);
             }
 
+            boolean spillEnabled = isOrderBySpillEnabled(context.getSession());
+
             OperatorFactory operator = new OrderByOperatorFactory(
                     context.getNextOperatorId(),
                     node.getId(),
@@ -1006,7 +1098,10 @@ public class LocalExecutionPlanner
                     10_000,
                     orderByChannels,
                     sortOrder.build(),
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillEnabled,
+                    Optional.of(spillerFactory),
+                    orderingCompiler);
 
             return new PhysicalOperation(operator, source.getLayout(), context, source);
         }
@@ -1111,7 +1206,15 @@ public class LocalExecutionPlanner
 
             List<Integer> channels = getChannelsForVariables(node.getDistinctVariables(), source.getLayout());
             Optional<Integer> hashChannel = node.getHashVariable().map(variableChannelGetter(source));
-            MarkDistinctOperatorFactory operator = new MarkDistinctOperatorFactory(context.getNextOperatorId(), node.getId(), source.getTypes(), channels, hashChannel, joinCompiler);
+            MarkDistinctOperatorFactory operator = new MarkDistinctOperatorFactory(
+                    context.getNextOperatorId(),
+                    node.getId(),
+                    source.getTypes(),
+                    channels,
+                    hashChannel,
+                    joinCompiler,
+                    isMarkDistinctSpillEnabled(context.getSession()),
+                    Optional.of(partitioningSpillerFactory));
             return new PhysicalOperation(operator, makeLayout(node), context, source);
         }
 
@@ -1225,7 +1328,8 @@ public class LocalExecutionPlanner
                             columns,
                             projections.stream().map(RowExpression::getType).collect(toImmutableList()),
                             getFilterAndProjectMinOutputPageSize(session),
-                            getFilterAndProjectMinOutputPageRowCount(session));
+                            getFilterAndProjectMinOutputPageRowCount(session),
+                            context.getDynamicFilter(sourceNode.getId()));
 
                     return new PhysicalOperation(operatorFactory, outputMappings, context, stageExecutionDescriptor.isScanGroupedExecution(sourceNode.getId()) ? GROUPED_EXECUTION : UNGROUPED_EXECUTION);
                 }
@@ -1271,7 +1375,7 @@ public class LocalExecutionPlanner
                 columns.add(node.getAssignments().get(variable));
             }
 
-            OperatorFactory operatorFactory = new TableScanOperatorFactory(context.getNextOperatorId(), node.getId(), pageSourceProvider, columns);
+            OperatorFactory operatorFactory = new TableScanOperatorFactory(context.getNextOperatorId(), node.getId(), pageSourceProvider, columns, context.getDynamicFilter(node.getId()));
             return new PhysicalOperation(operatorFactory, makeLayout(node), context, stageExecutionDescriptor.isScanGroupedExecution(node.getId()) ? GROUPED_EXECUTION : UNGROUPED_EXECUTION);
         }
 
@@ -1894,12 +1998,16 @@ public class LocalExecutionPlanner
                 Optional<VariableReferenceExpression> buildHashVariable,
                 LocalExecutionPlanContext context)
         {
+            // The probe side table scan must know about the dynamic filter before it is planned
+            Optional<LocalDynamicFilterTarget> dynamicFilterTarget = getDynamicFilterTarget(node, probeNode, probeVariables);
+            dynamicFilterTarget.ifPresent(context::addDynamicFilterTarget);
+
             // Plan probe
             PhysicalOperation probeSource = probeNode.accept(this, context);
 
             // Plan build
             JoinBridgeManager<PartitionedLookupSourceFactory> lookupSourceFactory =
-                    createLookupSourceFactory(node, buildNode, buildVariables, buildHashVariable, probeSource, context);
+                    createLookupSourceFactory(node, buildNode, buildVariables, buildHashVariable, probeSource, dynamicFilterTarget, context);
 
             OperatorFactory operator = createLookupJoin(node, probeSource, probeVariables, probeHashVariable, lookupSourceFactory, context);
 
@@ -1918,6 +2026,7 @@ public class LocalExecutionPlanner
                 List<VariableReferenceExpression> buildVariables,
                 Optional<VariableReferenceExpression> buildHashVariable,
                 PhysicalOperation probeSource,
+                Optional<LocalDynamicFilterTarget> dynamicFilterTarget,
                 LocalExecutionPlanContext context)
         {
             LocalExecutionPlanContext buildContext = context.createSubContext();
@@ -1983,6 +2092,24 @@ public class LocalExecutionPlanner
                             buildSource.getLayout(),
                             buildOuter),
                     buildOutputTypes);
+
+            Optional<LocalDynamicFilter> dynamicFilter = Optional.empty();
+            if (dynamicFilterTarget.isPresent()
+                    && probeSource.getPipelineExecutionStrategy() == UNGROUPED_EXECUTION
+                    && buildSource.getPipelineExecutionStrategy() == UNGROUPED_EXECUTION) {
+                List<Integer> dynamicFilterChannels = dynamicFilterTarget.get().getJoinClauses().stream()
+                        .map(buildChannels::get)
+                        .collect(toImmutableList());
+                dynamicFilter = Optional.of(new LocalDynamicFilter(
+                        dynamicFilterChannels,
+                        dynamicFilterChannels.stream()
+                                .map(buildSource.getTypes()::get)
+                                .collect(toImmutableList()),
+                        partitionCount,
+                        getDynamicFilteringMaxDistinctValues(session)));
+                dynamicFilterTarget.get().setDynamicFilter(dynamicFilter.get());
+            }
+
             HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(
                     buildContext.getNextOperatorId(),
                     node.getId(),
@@ -1996,7 +2123,8 @@ public class LocalExecutionPlanner
                     10_000,
                     pagesIndexFactory,
                     spillEnabled && !buildOuter && partitionCount > 1,
-                    singleStreamSpillerFactory);
+                    singleStreamSpillerFactory,
+                    dynamicFilter);
 
             context.addDriverFactory(
                     buildContext.isInputDriver(),
@@ -2011,6 +2139,65 @@ public class LocalExecutionPlanner
             return lookupSourceFactoryManager;
         }
 
+        /**
+         * Finds the table scan producing the probe side join keys within the probe pipeline.
+         * Only rows without a match on the build side may be pruned, so the join must not
+         * preserve the unmatched probe rows.
+         */
+        private Optional<LocalDynamicFilterTarget> getDynamicFilterTarget(JoinNode node, PlanNode probeNode, List<VariableReferenceExpression> probeVariables)
+        {
+            if (!isDynamicFilteringEnabled(session) || (node.getType() != INNER && node.getType() != RIGHT)) {
+                return Optional.empty();
+            }
+
+            // join clause -> variable carrying the probe key at the current node
+            SortedMap<Integer, VariableReferenceExpression> keys = new TreeMap<>();
+            for (int clause = 0; clause < probeVariables.size(); clause++) {
+                Type type = probeVariables.get(clause).getType();
+                if (type.isOrderable() && type.getJavaType() != Block.class) {
+                    keys.put(clause, probeVariables.get(clause));
+                }
+            }
+
+            PlanNode current = probeNode;
+            while (!keys.isEmpty()) {
+                if (current instanceof TableScanNode) {
+                    TableScanNode tableScan = (TableScanNode) current;
+                    return Optional.of(new LocalDynamicFilterTarget(
+                            tableScan.getId(),
+                            ImmutableList.copyOf(keys.keySet()),
+                            keys.values().stream()
+                                    .map(tableScan.getAssignments()::get)
+                                    .collect(toImmutableList())));
+                }
+                if (current instanceof FilterNode) {
+                    current = ((FilterNode) current).getSource();
+                }
+                else if (current instanceof ProjectNode) {
+                    Assignments assignments = ((ProjectNode) current).getAssignments();
+                    SortedMap<Integer, VariableReferenceExpression> sourceKeys = new TreeMap<>();
+                    keys.forEach((clause, variable) -> {
+                        RowExpression expression = assignments.get(variable);
+                        if (expression instanceof VariableReferenceExpression) {
+                            sourceKeys.put(clause, (VariableReferenceExpression) expression);
+                        }
+                    });
+                    keys = sourceKeys;
+                    current = ((ProjectNode) current).getSource();
+                }
+                else if (current instanceof JoinNode) {
+                    // the probe side of a nested join is planned in the same pipeline
+                    PlanNode left = ((JoinNode) current).getLeft();
+                    keys.values().removeIf(variable -> !left.getOutputVariables().contains(variable));
+                    current = left;
+                }
+                else {
+                    return Optional.empty();
+                }
+            }
+            return Optional.empty();
+        }
+
         private JoinFilterFunctionFactory compileJoinFilterFunction(
                 RowExpression filterExpression,
                 Map<VariableReferenceExpression, Integer> probeLayout,
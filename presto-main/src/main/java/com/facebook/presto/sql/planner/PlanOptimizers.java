@@ -16,6 +16,7 @@ package com.facebook.presto.sql.planner;
 import com.facebook.presto.cost.CostCalculator;
 import com.facebook.presto.cost.CostCalculator.EstimatedExchanges;
 import com.facebook.presto.cost.CostComparator;
+import com.facebook.presto.cost.JoinSideSizeHistory;
 import com.facebook.presto.cost.StatsCalculator;
 import com.facebook.presto.cost.TaskCountEstimator;
 import com.facebook.presto.metadata.Metadata;
@@ -155,7 +156,8 @@ public class PlanOptimizers
             CostCalculator costCalculator,
             @EstimatedExchanges CostCalculator estimatedExchangesCostCalculator,
             CostComparator costComparator,
-            TaskCountEstimator taskCountEstimator)
+            TaskCountEstimator taskCountEstimator,
+            JoinSideSizeHistory joinSideSizeHistory)
     {
         this(metadata,
                 sqlParser,
@@ -169,7 +171,8 @@ public class PlanOptimizers
                 costCalculator,
                 estimatedExchangesCostCalculator,
                 costComparator,
-                taskCountEstimator);
+                taskCountEstimator,
+                joinSideSizeHistory);
     }
 
     @PostConstruct
@@ -200,6 +203,38 @@ public class PlanOptimizers
             CostCalculator estimatedExchangesCostCalculator,
             CostComparator costComparator,
             TaskCountEstimator taskCountEstimator)
+    {
+        this(metadata,
+                sqlParser,
+                featuresConfig,
+                forceSingleNode,
+                exporter,
+                splitManager,
+                planOptimizerManager,
+                pageSourceManager,
+                statsCalculator,
+                costCalculator,
+                estimatedExchangesCostCalculator,
+                costComparator,
+                taskCountEstimator,
+                new JoinSideSizeHistory());
+    }
+
+    public PlanOptimizers(
+            Metadata metadata,
+            SqlParser sqlParser,
+            FeaturesConfig featuresConfig,
+            boolean forceSingleNode,
+            MBeanExporter exporter,
+            SplitManager splitManager,
+            ConnectorPlanOptimizerManager planOptimizerManager,
+            PageSourceManager pageSourceManager,
+            StatsCalculator statsCalculator,
+            CostCalculator costCalculator,
+            CostCalculator estimatedExchangesCostCalculator,
+            CostComparator costComparator,
+            TaskCountEstimator taskCountEstimator,
+            JoinSideSizeHistory joinSideSizeHistory)
     {
         this.exporter = exporter;
         ImmutableList.Builder<PlanOptimizer> builder = ImmutableList.builder();
@@ -451,7 +486,7 @@ public class PlanOptimizers
                     statsCalculator,
                     estimatedExchangesCostCalculator,
                     ImmutableSet.of(
-                            new DetermineJoinDistributionType(costComparator, taskCountEstimator), // Must run before AddExchanges
+                            new DetermineJoinDistributionType(costComparator, taskCountEstimator, joinSideSizeHistory), // Must run before AddExchanges
                             // Must run before AddExchanges and after ReplicateSemiJoinInDelete
                             // to avoid temporarily having an invalid plan
                             new DetermineSemiJoinDistributionType(costComparator, taskCountEstimator)))));
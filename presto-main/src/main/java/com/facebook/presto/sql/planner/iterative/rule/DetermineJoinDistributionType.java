@@ -15,6 +15,7 @@
 package com.facebook.presto.sql.planner.iterative.rule;
 
 import com.facebook.presto.cost.CostComparator;
+import com.facebook.presto.cost.JoinSideSizeHistory;
 import com.facebook.presto.cost.LocalCostEstimate;
 import com.facebook.presto.cost.PlanNodeStatsEstimate;
 import com.facebook.presto.cost.StatsProvider;
@@ -35,6 +36,7 @@ import java.util.Optional;
 
 import static com.facebook.presto.SystemSessionProperties.getJoinDistributionType;
 import static com.facebook.presto.SystemSessionProperties.getJoinMaxBroadcastTableSize;
+import static com.facebook.presto.SystemSessionProperties.isUseObservedJoinSideSize;
 import static com.facebook.presto.cost.CostCalculatorWithEstimatedExchanges.calculateJoinCostWithoutOutput;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.JoinDistributionType.AUTOMATIC;
 import static com.facebook.presto.sql.planner.optimizations.QueryCardinalityUtil.isAtMostScalar;
@@ -50,11 +52,18 @@ public class DetermineJoinDistributionType
 
     private final CostComparator costComparator;
     private final TaskCountEstimator taskCountEstimator;
+    private final JoinSideSizeHistory joinSideSizeHistory;
 
     public DetermineJoinDistributionType(CostComparator costComparator, TaskCountEstimator taskCountEstimator)
+    {
+        this(costComparator, taskCountEstimator, new JoinSideSizeHistory());
+    }
+
+    public DetermineJoinDistributionType(CostComparator costComparator, TaskCountEstimator taskCountEstimator, JoinSideSizeHistory joinSideSizeHistory)
     {
         this.costComparator = requireNonNull(costComparator, "costComparator is null");
         this.taskCountEstimator = requireNonNull(taskCountEstimator, "taskCountEstimator is null");
+        this.joinSideSizeHistory = requireNonNull(joinSideSizeHistory, "joinSideSizeHistory is null");
     }
 
     @Override
@@ -67,10 +76,54 @@ public class DetermineJoinDistributionType
     public Result apply(JoinNode joinNode, Captures captures, Context context)
     {
         JoinDistributionType joinDistributionType = getJoinDistributionType(context.getSession());
+        PlanNode result;
         if (joinDistributionType == AUTOMATIC) {
-            return Result.ofPlanNode(getCostBasedJoin(joinNode, context));
+            result = getObservedSizeBasedJoin(joinNode, context)
+                    .orElseGet(() -> getCostBasedJoin(joinNode, context));
+        }
+        else {
+            result = getSyntacticOrderJoin(joinNode, context, joinDistributionType);
+        }
+
+        if (isUseObservedJoinSideSize(context.getSession())) {
+            // remember the inputs, so their actual size is known when the query is planned again
+            for (PlanNode source : result.getSources()) {
+                joinSideSizeHistory.recordPlannedJoinSide(context.getSession().getQueryId(), source, context.getLookup());
+            }
+        }
+        return Result.ofPlanNode(result);
+    }
+
+    private Optional<PlanNode> getObservedSizeBasedJoin(JoinNode joinNode, Context context)
+    {
+        Optional<DataSize> joinMaxBroadcastTableSize = getJoinMaxBroadcastTableSize(context.getSession());
+        if (!isUseObservedJoinSideSize(context.getSession()) || !joinMaxBroadcastTableSize.isPresent()) {
+            return Optional.empty();
+        }
+
+        long maxBroadcastBytes = joinMaxBroadcastTableSize.get().toBytes();
+        Optional<DataSize> buildSideSize = joinSideSizeHistory.getObservedOutputSize(joinNode.getRight(), context.getLookup());
+        if (buildSideSize.isPresent() && buildSideSize.get().toBytes() <= maxBroadcastBytes && !mustPartition(joinNode)) {
+            return Optional.of(joinNode.withDistributionType(REPLICATED));
+        }
+
+        JoinNode flippedJoinNode = joinNode.flipChildren();
+        Optional<DataSize> probeSideSize = joinSideSizeHistory.getObservedOutputSize(joinNode.getLeft(), context.getLookup());
+        if (probeSideSize.isPresent() && probeSideSize.get().toBytes() <= maxBroadcastBytes && !mustPartition(flippedJoinNode)) {
+            return Optional.of(flippedJoinNode.withDistributionType(REPLICATED));
+        }
+
+        if (!buildSideSize.isPresent() || !probeSideSize.isPresent()) {
+            // without the size of both sides it is not known which side is smaller, leave the choice to the cost model
+            return Optional.empty();
+        }
+
+        // neither side can be broadcast, so build the hash table on the smaller side
+        JoinNode partitionedJoinNode = probeSideSize.get().toBytes() < buildSideSize.get().toBytes() ? flippedJoinNode : joinNode;
+        if (!mustReplicate(partitionedJoinNode, context) && !partitionedJoinNode.getCriteria().isEmpty()) {
+            return Optional.of(partitionedJoinNode.withDistributionType(PARTITIONED));
         }
-        return Result.ofPlanNode(getSyntacticOrderJoin(joinNode, context, joinDistributionType));
+        return Optional.empty();
     }
 
     public static boolean isBelowMaxBroadcastSize(JoinNode joinNode, Context context)
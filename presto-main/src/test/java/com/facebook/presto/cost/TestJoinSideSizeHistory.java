@@ -0,0 +1,191 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import com.facebook.presto.execution.QueryInfo;
+import com.facebook.presto.execution.QueryStateMachine;
+import com.facebook.presto.execution.StageId;
+import com.facebook.presto.execution.StageInfo;
+import com.facebook.presto.execution.StageState;
+import com.facebook.presto.execution.StageStats;
+import com.facebook.presto.execution.warnings.WarningCollector;
+import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.operator.StageExecutionDescriptor;
+import com.facebook.presto.security.AccessControlManager;
+import com.facebook.presto.spi.eventlistener.StageGcStatistics;
+import com.facebook.presto.spi.plan.ValuesNode;
+import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.facebook.presto.spi.resourceGroups.ResourceGroupId;
+import com.facebook.presto.sql.planner.Partitioning;
+import com.facebook.presto.sql.planner.PartitioningScheme;
+import com.facebook.presto.sql.planner.PlanFragment;
+import com.facebook.presto.sql.planner.plan.PlanFragmentId;
+import com.facebook.presto.transaction.TransactionManager;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.stats.Distribution;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.joda.time.DateTime;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.execution.QueryState.FINISHED;
+import static com.facebook.presto.execution.QueryState.FINISHING;
+import static com.facebook.presto.operator.TestOperatorStats.EXPECTED;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
+import static com.facebook.presto.sql.planner.iterative.Lookup.noLookup;
+import static com.facebook.presto.sql.relational.Expressions.constant;
+import static com.facebook.presto.transaction.InMemoryTransactionManager.createTestTransactionManager;
+import static io.airlift.concurrent.MoreFutures.tryGetFutureValue;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class TestJoinSideSizeHistory
+{
+    private static final VariableReferenceExpression VARIABLE = new VariableReferenceExpression("a", BIGINT);
+    private static final ValuesNode JOIN_SIDE = new ValuesNode(
+            EXPECTED.getPlanNodeId(),
+            ImmutableList.of(VARIABLE),
+            ImmutableList.of(ImmutableList.of(constant(1L, BIGINT))));
+
+    private final ExecutorService executor = newCachedThreadPool(daemonThreadsNamed("test-%s"));
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRecordsOutputSizeOfFinishedQuery()
+    {
+        JoinSideSizeHistory history = new JoinSideSizeHistory();
+        QueryStateMachine stateMachine = createQueryStateMachine();
+        history.recordPlannedJoinSide(stateMachine.getQueryId(), JOIN_SIDE, noLookup());
+        assertFalse(history.getObservedOutputSize(JOIN_SIDE, noLookup()).isPresent());
+
+        stateMachine.transitionToFinishing();
+        tryGetFutureValue(stateMachine.getStateChange(FINISHING), 2, SECONDS);
+        assertEquals(stateMachine.getQueryState(), FINISHED);
+        history.queryFinished(createQueryInfo(stateMachine));
+
+        assertEquals(history.getObservedOutputSize(JOIN_SIDE, noLookup()), Optional.of(EXPECTED.getOutputDataSize()));
+    }
+
+    @Test
+    public void testIgnoresFailedQuery()
+    {
+        JoinSideSizeHistory history = new JoinSideSizeHistory();
+        QueryStateMachine stateMachine = createQueryStateMachine();
+        history.recordPlannedJoinSide(stateMachine.getQueryId(), JOIN_SIDE, noLookup());
+
+        stateMachine.transitionToFailed(new RuntimeException("failed"));
+        history.queryFinished(createQueryInfo(stateMachine));
+
+        assertFalse(history.getObservedOutputSize(JOIN_SIDE, noLookup()).isPresent());
+    }
+
+    private QueryStateMachine createQueryStateMachine()
+    {
+        TransactionManager transactionManager = createTestTransactionManager();
+        return QueryStateMachine.begin(
+                "sql",
+                TEST_SESSION,
+                URI.create("fake://fake-query"),
+                new ResourceGroupId("test"),
+                Optional.empty(),
+                false,
+                transactionManager,
+                new AccessControlManager(transactionManager),
+                executor,
+                MetadataManager.createTestMetadataManager(),
+                WarningCollector.NOOP);
+    }
+
+    private static QueryInfo createQueryInfo(QueryStateMachine stateMachine)
+    {
+        PlanFragment fragment = new PlanFragment(
+                new PlanFragmentId(0),
+                JOIN_SIDE,
+                ImmutableSet.of(VARIABLE),
+                SINGLE_DISTRIBUTION,
+                ImmutableList.of(),
+                new PartitioningScheme(Partitioning.create(SINGLE_DISTRIBUTION, ImmutableList.of()), ImmutableList.of(VARIABLE)),
+                StageExecutionDescriptor.ungroupedExecution(),
+                false,
+                StatsAndCosts.empty(),
+                Optional.empty());
+        StageInfo stageInfo = new StageInfo(
+                new StageId(stateMachine.getQueryId(), 0),
+                StageState.FINISHED,
+                URI.create("fake://fake-stage"),
+                Optional.of(fragment),
+                ImmutableList.of(BIGINT),
+                createStageStats(),
+                ImmutableList.of(),
+                ImmutableList.of(),
+                Optional.empty());
+        return stateMachine.updateQueryInfo(Optional.of(stageInfo));
+    }
+
+    private static StageStats createStageStats()
+    {
+        DataSize zero = new DataSize(0, BYTE);
+        Duration zeroDuration = new Duration(0, NANOSECONDS);
+        return new StageStats(
+                new DateTime(0),
+                new Distribution().snapshot(),
+                0,
+                0,
+                0,
+                0,
+                0,
+                0,
+                0,
+                0,
+                0,
+                0,
+                0.0,
+                zero,
+                zero,
+                zero,
+                zeroDuration,
+                zeroDuration,
+                zeroDuration,
+                false,
+                ImmutableSet.of(),
+                zero,
+                0,
+                zero,
+                0,
+                zero,
+                zero,
+                0,
+                zero,
+                new StageGcStatistics(0, 0, 0, 0, 0, 0, 0),
+                ImmutableList.of(EXPECTED));
+    }
+}
@@ -375,7 +375,7 @@ public class MockRemoteTaskFactory
         }
 
         @Override
-        public ListenableFuture<?> removeRemoteSource(TaskId remoteSourceTaskId)
+        public ListenableFuture<?> removeRemoteSource(TaskId remoteSourceTaskId, boolean discardOutput)
         {
             throw new UnsupportedOperationException();
         }
@@ -418,6 +418,11 @@ public class MockRemoteTaskFactory
             clearSplits();
         }
 
+        public void fail(Throwable cause)
+        {
+            taskStateMachine.failed(cause);
+        }
+
         @Override
         public int getPartitionedSplitCount()
         {
@@ -32,6 +32,7 @@ import com.facebook.presto.testing.TestingTransactionHandle;
 import com.facebook.presto.util.FinalizerService;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -48,6 +49,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
@@ -271,6 +273,59 @@ public class TestNodeScheduler
         assertEquals(assignments.size(), 1);
     }
 
+    @Test
+    public void testSoftAffinityScheduling()
+    {
+        NodeSchedulerConfig nodeSchedulerConfig = new NodeSchedulerConfig()
+                .setMaxSplitsPerNode(20)
+                .setIncludeCoordinator(false)
+                .setMaxPendingSplitsPerTask(10)
+                .setSoftAffinityEnabled(true)
+                .setSoftAffinityPreferredNodes(1);
+        NodeScheduler nodeScheduler = new NodeScheduler(new LegacyNetworkTopology(), nodeManager, nodeSchedulerConfig, nodeTaskMap);
+        NodeSelector nodeSelector = nodeScheduler.createNodeSelector(CONNECTOR_ID);
+
+        // the same keys are placed on the same nodes every time
+        Map<String, InternalNode> placement = placeAffinitySplits(nodeSelector, 30);
+        assertEquals(placeAffinitySplits(nodeSelector, 30), placement);
+        assertEquals(ImmutableSet.copyOf(placement.values()), nodeManager.getActiveConnectorNodes(CONNECTOR_ID));
+
+        // a new node only takes over keys, the others stay where they were
+        InternalNode newNode = new InternalNode("other4", URI.create("http://127.0.0.1:14"), NodeVersion.UNKNOWN, false);
+        nodeManager.addNode(CONNECTOR_ID, newNode);
+        nodeSelector = nodeScheduler.createNodeSelector(CONNECTOR_ID);
+        Map<String, InternalNode> newPlacement = placeAffinitySplits(nodeSelector, 30);
+        for (Map.Entry<String, InternalNode> entry : newPlacement.entrySet()) {
+            if (!entry.getValue().equals(newNode)) {
+                assertEquals(entry.getValue(), placement.get(entry.getKey()));
+            }
+        }
+        assertTrue(newPlacement.containsValue(newNode));
+
+        // splits only go to other nodes once the preferred node is full
+        Set<Split> splits = new HashSet<>();
+        for (int i = 0; i < 25; i++) {
+            splits.add(new Split(CONNECTOR_ID, TestingTransactionHandle.create(), new TestSplitAffinity("file")));
+        }
+        Multimap<InternalNode, Split> assignments = nodeSelector.computeAssignments(splits, ImmutableList.copyOf(taskMap.values())).getAssignments();
+        assertEquals(assignments.size(), 25);
+        assertTrue(assignments.asMap().values().stream().anyMatch(assigned -> assigned.size() == 20));
+    }
+
+    private Map<String, InternalNode> placeAffinitySplits(NodeSelector nodeSelector, int count)
+    {
+        Set<Split> splits = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            splits.add(new Split(CONNECTOR_ID, TestingTransactionHandle.create(), new TestSplitAffinity("file" + i)));
+        }
+        Multimap<InternalNode, Split> assignments = nodeSelector.computeAssignments(splits, ImmutableList.copyOf(taskMap.values())).getAssignments();
+        ImmutableMap.Builder<String, InternalNode> placement = ImmutableMap.builder();
+        for (Map.Entry<InternalNode, Split> entry : assignments.entries()) {
+            placement.put(entry.getValue().getAffinityKey().get(), entry.getKey());
+        }
+        return placement.build();
+    }
+
     @Test
     public void testBasicAssignment()
     {
@@ -286,6 +341,22 @@ public class TestNodeScheduler
         }
     }
 
+    @Test
+    public void testExcludeNode()
+    {
+        InternalNode excludedNode = nodeManager.getActiveConnectorNodes(CONNECTOR_ID).iterator().next();
+        nodeSelector.excludeNode(excludedNode);
+        assertFalse(nodeSelector.allNodes().contains(excludedNode));
+
+        Set<Split> splits = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            splits.add(new Split(CONNECTOR_ID, TestingTransactionHandle.create(), new TestSplitRemote()));
+        }
+        Multimap<InternalNode, Split> assignments = nodeSelector.computeAssignments(splits, ImmutableList.copyOf(taskMap.values())).getAssignments();
+        assertEquals(assignments.size(), 20);
+        assertFalse(assignments.containsKey(excludedNode));
+    }
+
     @Test
     public void testMaxSplitsPerNode()
     {
@@ -480,6 +551,41 @@ public class TestNodeScheduler
         }
     }
 
+    private static class TestSplitAffinity
+            implements ConnectorSplit
+    {
+        private final String key;
+
+        public TestSplitAffinity(String key)
+        {
+            this.key = requireNonNull(key, "key is null");
+        }
+
+        @Override
+        public boolean isRemotelyAccessible()
+        {
+            return true;
+        }
+
+        @Override
+        public List<HostAddress> getAddresses()
+        {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Object getInfo()
+        {
+            return this;
+        }
+
+        @Override
+        public Optional<String> getAffinityKey()
+        {
+            return Optional.of(key);
+        }
+    }
+
     private static class TestNetworkTopology
             implements NetworkTopology
     {
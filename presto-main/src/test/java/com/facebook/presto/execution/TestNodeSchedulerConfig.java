@@ -32,7 +32,9 @@ public class TestNodeSchedulerConfig
                 .setMinCandidates(10)
                 .setMaxSplitsPerNode(100)
                 .setMaxPendingSplitsPerTask(10)
-                .setIncludeCoordinator(true));
+                .setIncludeCoordinator(true)
+                .setSoftAffinityEnabled(false)
+                .setSoftAffinityPreferredNodes(2));
     }
 
     @Test
@@ -44,6 +46,8 @@ public class TestNodeSchedulerConfig
                 .put("node-scheduler.include-coordinator", "false")
                 .put("node-scheduler.max-pending-splits-per-task", "11")
                 .put("node-scheduler.max-splits-per-node", "101")
+                .put("node-scheduler.soft-affinity-enabled", "true")
+                .put("node-scheduler.soft-affinity-preferred-nodes", "3")
                 .build();
 
         NodeSchedulerConfig expected = new NodeSchedulerConfig()
@@ -51,7 +55,9 @@ public class TestNodeSchedulerConfig
                 .setIncludeCoordinator(false)
                 .setMaxSplitsPerNode(101)
                 .setMaxPendingSplitsPerTask(11)
-                .setMinCandidates(11);
+                .setMinCandidates(11)
+                .setSoftAffinityEnabled(true)
+                .setSoftAffinityPreferredNodes(3);
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
@@ -59,4 +59,54 @@ public class TestSplitConcurrencyController
             assertEquals(controller.getTargetConcurrency(), i + 2);
         }
     }
+
+    @Test
+    public void testAdaptiveRampupForIoBoundSplits()
+    {
+        SplitConcurrencyController controller = new SplitConcurrencyController(2, new Duration(1, SECONDS), true);
+        for (int i = 0; i < 10; i++) {
+            controller.recordLeafSplitTime(SECONDS.toNanos(2), MILLISECONDS.toNanos(500), SECONDS.toNanos(1));
+            controller.update(SECONDS.toNanos(2), 0, i + 2);
+            assertEquals(controller.getTargetConcurrency(), i + 3);
+        }
+
+        // not raised while the task is not running as many splits as it could
+        controller.recordLeafSplitTime(SECONDS.toNanos(2), MILLISECONDS.toNanos(500), SECONDS.toNanos(1));
+        controller.update(SECONDS.toNanos(2), 0, 5);
+        assertEquals(controller.getTargetConcurrency(), 12);
+    }
+
+    @Test
+    public void testAdaptiveRampdownForCpuBoundSplits()
+    {
+        SplitConcurrencyController controller = new SplitConcurrencyController(2, new Duration(1, SECONDS), true);
+        for (int i = 0; i < 3; i++) {
+            controller.recordLeafSplitTime(SECONDS.toNanos(2), 0, 0);
+            controller.update(SECONDS.toNanos(2), 0, i + 2);
+        }
+        assertEquals(controller.getTargetConcurrency(), 5);
+
+        // CPU bound splits lower the concurrency back to the initial concurrency, but not below it
+        for (int i = 0; i < 5; i++) {
+            controller.recordLeafSplitTime(SECONDS.toNanos(2), MILLISECONDS.toNanos(1950), 0);
+            controller.update(SECONDS.toNanos(2), 0, 5);
+            assertEquals(controller.getTargetConcurrency(), Math.max(5 - i - 1, 2));
+        }
+
+        // splits that are neither IO bound nor CPU bound keep the concurrency
+        controller.recordLeafSplitTime(SECONDS.toNanos(1), MILLISECONDS.toNanos(1500), SECONDS.toNanos(1));
+        controller.update(SECONDS.toNanos(2), 0, 2);
+        assertEquals(controller.getTargetConcurrency(), 2);
+    }
+
+    @Test
+    public void testAdaptiveRampdownWhenWaitingForOutput()
+    {
+        SplitConcurrencyController controller = new SplitConcurrencyController(10, new Duration(1, SECONDS), true);
+        for (int i = 0; i < 12; i++) {
+            controller.recordLeafSplitTime(SECONDS.toNanos(2), 0, SECONDS.toNanos(1));
+            controller.update(SECONDS.toNanos(2), 1, 10);
+            assertEquals(controller.getTargetConcurrency(), Math.max(10 - i - 1, 1));
+        }
+    }
 }
@@ -15,6 +15,7 @@ package com.facebook.presto.execution;
 
 import com.facebook.presto.execution.buffer.BufferResult;
 import com.facebook.presto.execution.buffer.BufferState;
+import com.facebook.presto.execution.buffer.FilePageSpoolFactory;
 import com.facebook.presto.execution.buffer.OutputBuffers;
 import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
 import com.facebook.presto.execution.executor.TaskExecutor;
@@ -27,6 +28,7 @@ import com.facebook.presto.operator.ExchangeClientSupplier;
 import com.facebook.presto.spi.QueryId;
 import com.facebook.presto.spiller.LocalSpillManager;
 import com.facebook.presto.spiller.NodeSpillConfig;
+import com.facebook.presto.sql.analyzer.FeaturesConfig;
 import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -244,6 +246,7 @@ public class TestSqlTaskManager
                 config,
                 new NodeMemoryConfig(),
                 localSpillManager,
+                new FilePageSpoolFactory(new FeaturesConfig(), new NodeSpillConfig(), localSpillManager),
                 new MockExchangeClientSupplier(),
                 new NodeSpillConfig(),
                 new TestingGcMonitor());
@@ -19,6 +19,7 @@ import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
 import com.facebook.presto.memory.context.SimpleLocalMemoryContext;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.type.BigintType;
+import com.facebook.presto.spiller.SpillSpaceTracker;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.DataSize;
@@ -27,8 +28,10 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
 
 import static com.facebook.presto.execution.buffer.BufferResult.emptyResults;
@@ -50,8 +53,12 @@ import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.ARBI
 import static com.facebook.presto.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
 import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.nio.file.Files.createTempDirectory;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -100,6 +107,40 @@ public class TestArbitraryOutputBuffer
         }
     }
 
+    @Test
+    public void testSpoolingDoesNotBlockWriter()
+            throws Exception
+    {
+        Path spoolPath = createTempDirectory("spool");
+        SpillSpaceTracker spillSpaceTracker = new SpillSpaceTracker(new DataSize(1, MEGABYTE));
+        try {
+            ArbitraryOutputBuffer buffer = createArbitraryBuffer(
+                    createInitialEmptyOutputBuffers(ARBITRARY)
+                            .withBuffer(FIRST, BROADCAST_PARTITION_ID)
+                            .withNoMoreBufferIds(),
+                    sizeOfPages(2),
+                    Optional.of(new FilePageSpoolFactory(ImmutableList.of(spoolPath), 1.0, false, spillSpaceTracker)));
+
+            // the buffer holds two pages, the other pages are spooled instead of blocking the writer
+            for (int i = 0; i < 5; i++) {
+                addPage(buffer, createPage(i));
+            }
+            assertTrue(buffer.getMemoryManager().getBufferedBytes() <= sizeOfPages(2).toBytes());
+            assertTrue(spillSpaceTracker.getCurrentBytes() > 0);
+
+            // the pages are read in order, regardless of where they are stored
+            assertBufferResultEquals(TYPES, getBufferResult(buffer, FIRST, 0, sizeOfPages(10), NO_WAIT), bufferResult(0, createPage(0), createPage(1), createPage(2), createPage(3), createPage(4)));
+
+            // destroying the buffer deletes the spool file
+            buffer.destroy();
+            assertEquals(spillSpaceTracker.getCurrentBytes(), 0);
+            assertEquals(spoolPath.toFile().list(), new String[0]);
+        }
+        finally {
+            deleteRecursively(spoolPath, ALLOW_INSECURE);
+        }
+    }
+
     @Test
     public void testSimple()
     {
@@ -1020,13 +1061,19 @@ public class TestArbitraryOutputBuffer
     }
 
     private ArbitraryOutputBuffer createArbitraryBuffer(OutputBuffers buffers, DataSize dataSize)
+    {
+        return createArbitraryBuffer(buffers, dataSize, Optional.empty());
+    }
+
+    private ArbitraryOutputBuffer createArbitraryBuffer(OutputBuffers buffers, DataSize dataSize, Optional<PageSpoolFactory> pageSpoolFactory)
     {
         ArbitraryOutputBuffer buffer = new ArbitraryOutputBuffer(
                 TASK_INSTANCE_ID,
                 new StateMachine<>("bufferState", stateNotificationExecutor, OPEN, TERMINAL_BUFFER_STATES),
                 dataSize,
                 () -> new SimpleLocalMemoryContext(newSimpleAggregatedMemoryContext(), "test"),
-                stateNotificationExecutor);
+                stateNotificationExecutor,
+                pageSpoolFactory);
         buffer.setOutputBuffers(buffers);
         buffer.registerLifespanCompletionCallback(ignore -> {});
         return buffer;
@@ -0,0 +1,214 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.spiller.AesSpillCipher;
+import com.facebook.presto.spiller.SpillCipher;
+import com.facebook.presto.spiller.SpillSpaceTracker;
+import io.airlift.units.DataSize;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Optional;
+
+import static com.facebook.presto.execution.buffer.PageCodecMarker.COMPRESSED;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.lang.String.format;
+import static java.nio.file.Files.createTempDirectory;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestFilePageSpool
+{
+    private Path spoolPath;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        spoolPath = createTempDirectory("spool");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(spoolPath, ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        testRoundTrip(Optional.empty());
+    }
+
+    @Test
+    public void testRoundTripEncrypted()
+    {
+        testRoundTrip(Optional.of(new AesSpillCipher()));
+    }
+
+    private void testRoundTrip(Optional<SpillCipher> spillCipher)
+    {
+        SpillSpaceTracker spillSpaceTracker = new SpillSpaceTracker(new DataSize(1, MEGABYTE));
+        FilePageSpool spool = new FilePageSpool(spoolPath, spillSpaceTracker, spillCipher);
+
+        SerializedPage first = new SerializedPage(utf8Slice("first page"), PageCodecMarker.none(), 3, 10);
+        SerializedPage second = new SerializedPage(utf8Slice("second"), COMPRESSED.set(PageCodecMarker.none()), 7, 42);
+        SpooledPage spooledFirst = spool.spool(first).get();
+        SpooledPage spooledSecond = spool.spool(second).get();
+        assertTrue(spillSpaceTracker.getCurrentBytes() >= first.getSizeInBytes() + second.getSizeInBytes());
+
+        // pages can be read in any order, and more than once
+        assertSerializedPageEquals(spool.read(spooledSecond), second);
+        assertSerializedPageEquals(spool.read(spooledFirst), first);
+        assertSerializedPageEquals(spool.read(spooledSecond), second);
+
+        spool.close();
+        assertEquals(spillSpaceTracker.getCurrentBytes(), 0);
+        assertEquals(spoolPath.toFile().list(), new String[0]);
+    }
+
+    @Test
+    public void testOutOfSpace()
+    {
+        SpillSpaceTracker spillSpaceTracker = new SpillSpaceTracker(new DataSize(16, BYTE));
+        FilePageSpool spool = new FilePageSpool(spoolPath, spillSpaceTracker, Optional.empty());
+
+        assertTrue(spool.spool(new SerializedPage(utf8Slice("12345678"), PageCodecMarker.none(), 1, 8)).isPresent());
+        assertFalse(spool.spool(new SerializedPage(utf8Slice("123456789012"), PageCodecMarker.none(), 1, 12)).isPresent());
+        // once the space ran out, the spool stops accepting pages, even small ones
+        assertFalse(spool.spool(new SerializedPage(utf8Slice("1"), PageCodecMarker.none(), 1, 1)).isPresent());
+        assertEquals(spillSpaceTracker.getCurrentBytes(), 8);
+
+        spool.close();
+        assertEquals(spillSpaceTracker.getCurrentBytes(), 0);
+    }
+
+    @Test
+    public void testRelease()
+    {
+        SpillSpaceTracker spillSpaceTracker = new SpillSpaceTracker(new DataSize(1, MEGABYTE));
+        FilePageSpool spool = new FilePageSpool(spoolPath, spillSpaceTracker, Optional.empty(), new DataSize(10, BYTE));
+
+        // the second page fills the first segment, so the third one starts a new segment
+        SpooledPage first = spool.spool(new SerializedPage(utf8Slice("1234"), PageCodecMarker.none(), 1, 4)).get();
+        SpooledPage second = spool.spool(new SerializedPage(utf8Slice("12345678"), PageCodecMarker.none(), 1, 8)).get();
+        SpooledPage third = spool.spool(new SerializedPage(utf8Slice("12"), PageCodecMarker.none(), 1, 2)).get();
+        assertEquals(spool.getDiskUsage(), 14);
+        assertEquals(spillSpaceTracker.getCurrentBytes(), 14);
+        assertEquals(getSpoolFileCount(), 2);
+
+        // the space of a segment is freed only once all of its pages are released
+        spool.release(second);
+        assertEquals(spillSpaceTracker.getCurrentBytes(), 14);
+        assertEquals(spool.getDiskUsage(), 14);
+        spool.release(first);
+        assertEquals(spillSpaceTracker.getCurrentBytes(), 2);
+        assertEquals(spool.getDiskUsage(), 2);
+        assertEquals(getSpoolFileCount(), 1);
+
+        // new pages are appended to the last segment, and all the pages keep their offsets
+        SerializedPage fourth = new SerializedPage(utf8Slice("123"), PageCodecMarker.none(), 1, 3);
+        SpooledPage spooledFourth = spool.spool(fourth).get();
+        assertEquals(spooledFourth.getOffset(), 14);
+        assertSerializedPageEquals(spool.read(spooledFourth), fourth);
+        assertEquals(spillSpaceTracker.getCurrentBytes(), 5);
+
+        spool.release(third);
+        spool.release(spooledFourth);
+        assertEquals(spillSpaceTracker.getCurrentBytes(), 0);
+        assertEquals(spool.getDiskUsage(), 0);
+        assertEquals(getSpoolFileCount(), 0);
+
+        spool.close();
+        assertEquals(spillSpaceTracker.getCurrentBytes(), 0);
+    }
+
+    @Test
+    public void testDiskUsageBoundedWithOldestFirstRelease()
+    {
+        int segmentSize = 64;
+        int liveLimit = 10;
+        SpillSpaceTracker spillSpaceTracker = new SpillSpaceTracker(new DataSize(1, MEGABYTE));
+        FilePageSpool spool = new FilePageSpool(spoolPath, spillSpaceTracker, Optional.empty(), new DataSize(segmentSize, BYTE));
+
+        Deque<SpooledPage> livePages = new ArrayDeque<>();
+        long liveBytes = 0;
+        for (int i = 0; i < 1000; i++) {
+            String value = "page " + i;
+            SpooledPage page = spool.spool(new SerializedPage(utf8Slice(value), PageCodecMarker.none(), 1, value.length())).get();
+            livePages.addLast(page);
+            liveBytes += page.getLength();
+            if (livePages.size() > liveLimit) {
+                SpooledPage oldest = livePages.removeFirst();
+                liveBytes -= oldest.getLength();
+                spool.release(oldest);
+            }
+
+            // the spill space matches the files, which hold the live pages and at most the rest of their first and last segment
+            long diskUsage = getSpoolDiskUsage();
+            assertEquals(spillSpaceTracker.getCurrentBytes(), diskUsage);
+            assertEquals(spool.getDiskUsage(), diskUsage);
+            assertTrue(diskUsage <= liveBytes + 2 * segmentSize, format("%s bytes on disk for %s live bytes", diskUsage, liveBytes));
+        }
+        assertEquals(spool.read(livePages.getFirst()).getSlice(), utf8Slice("page 990"));
+
+        spool.close();
+        assertEquals(spillSpaceTracker.getCurrentBytes(), 0);
+        assertEquals(spoolPath.toFile().list(), new String[0]);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "Spool is closed")
+    public void testReadAfterClose()
+    {
+        FilePageSpool spool = new FilePageSpool(spoolPath, new SpillSpaceTracker(new DataSize(1, MEGABYTE)), Optional.empty());
+        SpooledPage page = spool.spool(new SerializedPage(utf8Slice("1234"), PageCodecMarker.none(), 1, 4)).get();
+        spool.close();
+        spool.read(page);
+    }
+
+    private int getSpoolFileCount()
+    {
+        return spoolPath.toFile().list().length;
+    }
+
+    private long getSpoolDiskUsage()
+    {
+        return Arrays.stream(spoolPath.toFile().listFiles())
+                .mapToLong(File::length)
+                .sum();
+    }
+
+    private static void assertSerializedPageEquals(SerializedPage actual, SerializedPage expected)
+    {
+        assertEquals(actual.getSlice(), expected.getSlice());
+        assertEquals(actual.getPageCodecMarkers(), expected.getPageCodecMarkers());
+        assertEquals(actual.getPositionCount(), expected.getPositionCount());
+        assertEquals(actual.getUncompressedSizeInBytes(), expected.getUncompressedSizeInBytes());
+    }
+}
@@ -13,9 +13,11 @@
  */
 package com.facebook.presto.execution.buffer;
 
+import com.facebook.presto.block.BlockEncodingManager;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.type.TestingTypeManager;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.ImmutableList;
 import io.airlift.slice.DynamicSliceOutput;
@@ -24,14 +26,20 @@ import org.testng.annotations.Test;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Random;
 
+import static com.facebook.presto.execution.buffer.PageCodecMarker.COMPRESSED;
+import static com.facebook.presto.execution.buffer.PageCodecMarker.ENCRYPTED;
 import static com.facebook.presto.execution.buffer.PagesSerdeUtil.readPages;
 import static com.facebook.presto.execution.buffer.PagesSerdeUtil.writePages;
 import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static io.airlift.testing.Assertions.assertLessThan;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestPagesSerde
 {
@@ -59,6 +67,104 @@ public class TestPagesSerde
         assertFalse(pageIterator.hasNext());
     }
 
+    @Test
+    public void testSerializedPagesOutliveSerializer()
+    {
+        PagesSerde serde = new TestingPagesSerdeFactory().createPagesSerde();
+        List<Type> types = ImmutableList.of(BIGINT, VARCHAR);
+
+        ImmutableList.Builder<Page> expectedPages = ImmutableList.builder();
+        ImmutableList.Builder<SerializedPage> serializedPages = ImmutableList.builder();
+        for (int pageIndex = 0; pageIndex < 5; pageIndex++) {
+            BlockBuilder bigintBlockBuilder = BIGINT.createBlockBuilder(null, 100);
+            BlockBuilder varcharBlockBuilder = VARCHAR.createBlockBuilder(null, 100);
+            // pages of different size, both compressible and not
+            for (int position = 0; position < 100 * (pageIndex + 1); position++) {
+                BIGINT.writeLong(bigintBlockBuilder, pageIndex % 2 == 0 ? pageIndex : position * 31L + pageIndex);
+                VARCHAR.writeString(varcharBlockBuilder, "value " + pageIndex);
+            }
+            Page page = new Page(bigintBlockBuilder.build(), varcharBlockBuilder.build());
+            expectedPages.add(page);
+            serializedPages.add(serde.serialize(page));
+        }
+
+        Iterator<Page> expected = expectedPages.build().iterator();
+        for (SerializedPage serializedPage : serializedPages.build()) {
+            assertPageEquals(types, serde.deserialize(serializedPage), expected.next());
+        }
+    }
+
+    @Test
+    public void testCompressionCodecs()
+    {
+        Page page = createCompressiblePage(1000);
+        List<Type> types = ImmutableList.of(BIGINT, VARCHAR);
+        // pages can be read regardless of the codecs of the reader
+        PagesSerde reader = createPagesSerde(ImmutableList.of());
+        for (PageCompressionCodec codec : PageCompressionCodec.values()) {
+            SerializedPage serializedPage = createPagesSerde(ImmutableList.of(codec)).serialize(page);
+            assertTrue(COMPRESSED.isSet(serializedPage.getPageCodecMarkers()));
+            assertEquals(PageCompressionCodec.fromMarkers(serializedPage.getPageCodecMarkers()), codec);
+            assertLessThan(serializedPage.getSizeInBytes(), serializedPage.getUncompressedSizeInBytes());
+            assertPageEquals(types, reader.deserialize(serializedPage), page);
+        }
+    }
+
+    @Test
+    public void testAdaptiveCompression()
+    {
+        PagesSerde serde = createPagesSerde(ImmutableList.copyOf(PageCompressionCodec.values()));
+        List<Type> types = ImmutableList.of(BIGINT, VARCHAR);
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            Page page = i % 3 == 0 ? createRandomPage(random, 100 + i) : createCompressiblePage(100 + i);
+            SerializedPage serializedPage = serde.serialize(page);
+            if (COMPRESSED.isSet(serializedPage.getPageCodecMarkers())) {
+                assertLessThan(serializedPage.getSizeInBytes(), serializedPage.getUncompressedSizeInBytes());
+            }
+            else {
+                assertEquals(serializedPage.getSizeInBytes(), serializedPage.getUncompressedSizeInBytes());
+            }
+            assertPageEquals(types, serde.deserialize(serializedPage), page);
+        }
+    }
+
+    @Test
+    public void testLegacyMarkers()
+    {
+        // pages written by the LZ4 codec can be read by older versions
+        assertEquals(PageCompressionCodec.LZ4.setMarkers(PageCodecMarker.none()), COMPRESSED.set(PageCodecMarker.none()));
+        assertEquals(PageCompressionCodec.fromMarkers(COMPRESSED.set(PageCodecMarker.none())), PageCompressionCodec.LZ4);
+        assertEquals(PageCompressionCodec.fromMarkers(PageCompressionCodec.ZSTD.setMarkers(ENCRYPTED.set(PageCodecMarker.none()))), PageCompressionCodec.ZSTD);
+    }
+
+    private static PagesSerde createPagesSerde(List<PageCompressionCodec> codecs)
+    {
+        return new PagesSerde(new BlockEncodingManager(new TestingTypeManager()), codecs, Optional.empty());
+    }
+
+    private static Page createRandomPage(Random random, int positionCount)
+    {
+        BlockBuilder bigintBlockBuilder = BIGINT.createBlockBuilder(null, positionCount);
+        BlockBuilder varcharBlockBuilder = VARCHAR.createBlockBuilder(null, positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            BIGINT.writeLong(bigintBlockBuilder, random.nextLong());
+            VARCHAR.writeString(varcharBlockBuilder, Long.toHexString(random.nextLong()));
+        }
+        return new Page(bigintBlockBuilder.build(), varcharBlockBuilder.build());
+    }
+
+    private static Page createCompressiblePage(int positionCount)
+    {
+        BlockBuilder bigintBlockBuilder = BIGINT.createBlockBuilder(null, positionCount);
+        BlockBuilder varcharBlockBuilder = VARCHAR.createBlockBuilder(null, positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            BIGINT.writeLong(bigintBlockBuilder, position % 10);
+            VARCHAR.writeString(varcharBlockBuilder, "value " + (position % 10));
+        }
+        return new Page(bigintBlockBuilder.build(), varcharBlockBuilder.build());
+    }
+
     @Test
     public void testBigintSerializedSize()
     {
@@ -18,6 +18,7 @@ import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
 import com.facebook.presto.memory.context.SimpleLocalMemoryContext;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.type.BigintType;
+import com.facebook.presto.spiller.SpillSpaceTracker;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.DataSize;
@@ -25,8 +26,10 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
 
 import static com.facebook.presto.execution.buffer.BufferResult.emptyResults;
@@ -52,8 +55,12 @@ import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.PART
 import static com.facebook.presto.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
 import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.nio.file.Files.createTempDirectory;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -389,6 +396,47 @@ public class TestPartitionedOutputBuffer
         enqueuePage(buffer, createPage(3), secondPartition);
     }
 
+    @Test
+    public void testSpoolingDoesNotBlockWriter()
+            throws Exception
+    {
+        Path spoolPath = createTempDirectory("spool");
+        SpillSpaceTracker spillSpaceTracker = new SpillSpaceTracker(new DataSize(1, MEGABYTE));
+        try {
+            PartitionedOutputBuffer buffer = createPartitionedBuffer(
+                    createInitialEmptyOutputBuffers(PARTITIONED)
+                            .withBuffer(FIRST, 0)
+                            .withNoMoreBufferIds(),
+                    sizeOfPages(2),
+                    Optional.of(new FilePageSpoolFactory(ImmutableList.of(spoolPath), 1.0, false, spillSpaceTracker)));
+
+            // the buffer holds two pages, the other pages are spooled instead of blocking the writer
+            for (int i = 0; i < 5; i++) {
+                addPage(buffer, createPage(i));
+            }
+            assertTrue(buffer.getMemoryManager().getBufferedBytes() <= sizeOfPages(2).toBytes());
+            assertTrue(spillSpaceTracker.getCurrentBytes() > 0);
+
+            // the pages are read in order, regardless of where they are stored
+            assertBufferResultEquals(TYPES, getBufferResult(buffer, FIRST, 0, sizeOfPages(10), NO_WAIT), bufferResult(0, createPage(0), createPage(1), createPage(2), createPage(3), createPage(4)));
+            // the pages read back from the spool are kept in memory until they are acknowledged
+            assertTrue(buffer.getMemoryManager().getBufferedBytes() > sizeOfPages(2).toBytes());
+
+            // acknowledging the pages releases their memory and spill space, and deletes the spool file
+            acknowledgeBufferResult(buffer, FIRST, 5);
+            assertEquals(buffer.getMemoryManager().getBufferedBytes(), 0);
+            assertEquals(spillSpaceTracker.getCurrentBytes(), 0);
+            assertEquals(spoolPath.toFile().list(), new String[0]);
+
+            buffer.destroy();
+            assertEquals(spillSpaceTracker.getCurrentBytes(), 0);
+            assertEquals(spoolPath.toFile().list(), new String[0]);
+        }
+        finally {
+            deleteRecursively(spoolPath, ALLOW_INSECURE);
+        }
+    }
+
     @Test
     public void testAcknowledgementFreesWriters()
     {
@@ -838,6 +886,11 @@ public class TestPartitionedOutputBuffer
     }
 
     private PartitionedOutputBuffer createPartitionedBuffer(OutputBuffers buffers, DataSize dataSize)
+    {
+        return createPartitionedBuffer(buffers, dataSize, Optional.empty());
+    }
+
+    private PartitionedOutputBuffer createPartitionedBuffer(OutputBuffers buffers, DataSize dataSize, Optional<PageSpoolFactory> pageSpoolFactory)
     {
         PartitionedOutputBuffer buffer = new PartitionedOutputBuffer(
                 TASK_INSTANCE_ID,
@@ -845,7 +898,8 @@ public class TestPartitionedOutputBuffer
                 buffers,
                 dataSize,
                 () -> new SimpleLocalMemoryContext(newSimpleAggregatedMemoryContext(), "test"),
-                stateNotificationExecutor);
+                stateNotificationExecutor,
+                pageSpoolFactory);
         buffer.registerLifespanCompletionCallback(ignore -> {});
         return buffer;
     }
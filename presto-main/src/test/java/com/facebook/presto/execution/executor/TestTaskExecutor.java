@@ -19,6 +19,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.TimeStat;
 import io.airlift.testing.TestingTicker;
 import io.airlift.units.Duration;
 import org.testng.annotations.Test;
@@ -41,6 +43,7 @@ import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 public class TestTaskExecutor
@@ -353,6 +356,35 @@ public class TestTaskExecutor
         }
     }
 
+    @Test
+    public void testLocalQueueWorkStealing()
+            throws Exception
+    {
+        MultilevelSplitQueue splitQueue = new MultilevelSplitQueue(2, 2);
+        TestingTicker ticker = new TestingTicker();
+        TaskHandle handle = new TaskHandle(new TaskId("test", 0, 0), splitQueue, () -> 1, 1, new Duration(1, SECONDS), OptionalInt.empty());
+        PrioritizedSplitRunner first = createSplitRunner(handle, ticker);
+        PrioritizedSplitRunner second = createSplitRunner(handle, ticker);
+
+        splitQueue.offer(first, 0);
+        splitQueue.offer(second, 1);
+        assertEquals(splitQueue.size(), 2);
+
+        // a runner takes the splits of its own local queue first
+        assertSame(splitQueue.take(1), second);
+        assertEquals(splitQueue.getStolenSplits().getTotalCount(), 0);
+
+        // and steals from the other local queues once it is empty
+        assertSame(splitQueue.take(1), first);
+        assertEquals(splitQueue.getStolenSplits().getTotalCount(), 1);
+        assertEquals(splitQueue.size(), 0);
+
+        splitQueue.offer(first, 0);
+        splitQueue.offer(second, 1);
+        splitQueue.removeAll(ImmutableList.of(first, second));
+        assertEquals(splitQueue.size(), 0);
+    }
+
     @Test
     public void testUpdateLevelWithCap()
     {
@@ -449,6 +481,18 @@ public class TestTaskExecutor
         }
     }
 
+    private static PrioritizedSplitRunner createSplitRunner(TaskHandle handle, TestingTicker ticker)
+    {
+        return new PrioritizedSplitRunner(
+                handle,
+                new TestingJob(ticker, new Phaser(), new Phaser(), new Phaser(), 1, 0),
+                ticker,
+                new CounterStat(),
+                new CounterStat(),
+                new TimeStat(),
+                new TimeStat());
+    }
+
     private void assertSplitStates(int endIndex, TestingJob[] splits)
     {
         // assert that splits up to and including endIndex are all started
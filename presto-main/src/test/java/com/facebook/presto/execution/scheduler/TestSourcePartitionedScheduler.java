@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.execution.scheduler;
 
+import com.facebook.presto.Session;
 import com.facebook.presto.client.NodeVersion;
 import com.facebook.presto.cost.StatsAndCosts;
 import com.facebook.presto.execution.LocationFactory;
@@ -72,10 +73,12 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.SystemSessionProperties.MAX_FAILED_TASK_PERCENTAGE;
 import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
 import static com.facebook.presto.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
 import static com.facebook.presto.execution.scheduler.SourcePartitionedScheduler.newSourcePartitionedSchedulerAsStageScheduler;
 import static com.facebook.presto.spi.StandardErrorCode.NO_NODES_AVAILABLE;
+import static com.facebook.presto.spi.StandardErrorCode.REMOTE_TASK_ERROR;
 import static com.facebook.presto.spi.connector.NotPartitionedPartitionHandle.NOT_PARTITIONED;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
@@ -83,11 +86,13 @@ import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SOURCE_DI
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.Type.GATHER;
 import static com.facebook.presto.sql.planner.plan.JoinNode.Type.INNER;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.MoreCollectors.onlyElement;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static java.lang.Integer.min;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -412,6 +417,70 @@ public class TestSourcePartitionedScheduler
         secondStage.abort();
     }
 
+    @Test
+    public void testRecoverFailedTask()
+            throws Exception
+    {
+        SubPlan plan = createPlan();
+        NodeTaskMap nodeTaskMap = new NodeTaskMap(finalizerService);
+        Session session = Session.builder(TEST_SESSION)
+                .setSystemProperty(MAX_FAILED_TASK_PERCENTAGE, "1.0")
+                .build();
+        SqlStageExecution stage = createSqlStageExecution(plan, nodeTaskMap, session);
+
+        NodeSelector nodeSelector = createNodeSelector(nodeManager, nodeTaskMap);
+        RecoverableStageScheduler scheduler = getSourcePartitionedScheduler(createFixedSplitSource(3, TestingSplit::createRemoteSplit), stage, nodeSelector, 1);
+        stage.retainScheduledSplits();
+        stage.registerStageTaskRecoveryCallback(taskId -> {
+            String nodeId = stage.getAllTasks().stream()
+                    .filter(task -> task.getTaskId().equals(taskId))
+                    .collect(onlyElement())
+                    .getNodeId();
+            nodeSelector.allNodes().stream()
+                    .filter(node -> node.getNodeIdentifier().equals(nodeId))
+                    .forEach(nodeSelector::excludeNode);
+            scheduler.recover(taskId);
+        });
+
+        // one split on every node
+        for (int i = 0; i < 3; i++) {
+            assertFalse(scheduler.schedule().isFinished());
+        }
+        assertPartitionedSplitCount(stage, 3);
+
+        MockRemoteTask failedTask = (MockRemoteTask) stage.getAllTasks().get(0);
+        failedTask.fail(new PrestoException(REMOTE_TASK_ERROR, "test"));
+        while (!stage.getScheduledSplits(failedTask.getTaskId()).isEmpty()) {
+            MILLISECONDS.sleep(10);
+        }
+
+        // the split of the failed task is scheduled on a task on another node
+        ScheduleResult scheduleResult = scheduler.schedule();
+        assertEquals(scheduleResult.getSplitsScheduled(), 1);
+        assertTrue(scheduleResult.getNewTasks().isEmpty());
+        assertEquals(stage.getAllTasks().stream().filter(task -> task.getNodeId().equals(failedTask.getNodeId())).count(), 1);
+        assertPartitionedSplitCount(stage, 3);
+        assertEffectivelyFinished(scheduleResult, scheduler);
+        assertFalse(stage.getState().isDone());
+
+        // the scheduled splits are dropped once the tasks are told there are no more splits
+        RemoteTask runningTask = stage.getAllTasks().get(1);
+        assertFalse(stage.getScheduledSplits(runningTask.getTaskId()).isEmpty());
+        stage.schedulingComplete();
+        assertTrue(stage.getScheduledSplits(runningTask.getTaskId()).isEmpty());
+
+        // once all splits have been scheduled, failed tasks can no longer be recovered
+        try {
+            scheduler.recover(failedTask.getTaskId());
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Recover after all splits have been scheduled is not supported");
+        }
+
+        stage.abort();
+    }
+
     private static void assertPartitionedSplitCount(SqlStageExecution stage, int expectedPartitionedSplitCount)
     {
         assertEquals(stage.getAllTasks().stream().mapToInt(RemoteTask::getPartitionedSplitCount).sum(), expectedPartitionedSplitCount);
@@ -438,15 +507,29 @@ public class TestSourcePartitionedScheduler
             InternalNodeManager nodeManager,
             NodeTaskMap nodeTaskMap,
             int splitBatchSize)
+    {
+        return getSourcePartitionedScheduler(connectorSplitSource, stage, createNodeSelector(nodeManager, nodeTaskMap), splitBatchSize);
+    }
+
+    private static RecoverableStageScheduler getSourcePartitionedScheduler(
+            ConnectorSplitSource connectorSplitSource,
+            SqlStageExecution stage,
+            NodeSelector nodeSelector,
+            int splitBatchSize)
+    {
+        SplitSource splitSource = new ConnectorAwareSplitSource(CONNECTOR_ID, TestingTransactionHandle.create(), connectorSplitSource);
+        SplitPlacementPolicy placementPolicy = new DynamicSplitPlacementPolicy(nodeSelector, stage::getAllTasks);
+        return newSourcePartitionedSchedulerAsStageScheduler(stage, TABLE_SCAN_NODE_ID, splitSource, placementPolicy, splitBatchSize);
+    }
+
+    private static NodeSelector createNodeSelector(InternalNodeManager nodeManager, NodeTaskMap nodeTaskMap)
     {
         NodeSchedulerConfig nodeSchedulerConfig = new NodeSchedulerConfig()
                 .setIncludeCoordinator(false)
                 .setMaxSplitsPerNode(20)
                 .setMaxPendingSplitsPerTask(0);
         NodeScheduler nodeScheduler = new NodeScheduler(new LegacyNetworkTopology(), nodeManager, nodeSchedulerConfig, nodeTaskMap);
-        SplitSource splitSource = new ConnectorAwareSplitSource(CONNECTOR_ID, TestingTransactionHandle.create(), connectorSplitSource);
-        SplitPlacementPolicy placementPolicy = new DynamicSplitPlacementPolicy(nodeScheduler.createNodeSelector(splitSource.getConnectorId()), stage::getAllTasks);
-        return newSourcePartitionedSchedulerAsStageScheduler(stage, TABLE_SCAN_NODE_ID, splitSource, placementPolicy, splitBatchSize);
+        return nodeScheduler.createNodeSelector(CONNECTOR_ID);
     }
 
     private static SubPlan createPlan()
@@ -499,13 +582,18 @@ public class TestSourcePartitionedScheduler
     }
 
     private SqlStageExecution createSqlStageExecution(SubPlan tableScanPlan, NodeTaskMap nodeTaskMap)
+    {
+        return createSqlStageExecution(tableScanPlan, nodeTaskMap, TEST_SESSION);
+    }
+
+    private SqlStageExecution createSqlStageExecution(SubPlan tableScanPlan, NodeTaskMap nodeTaskMap, Session session)
     {
         StageId stageId = new StageId(new QueryId("query"), 0);
         SqlStageExecution stage = SqlStageExecution.createSqlStageExecution(stageId,
                 locationFactory.createStageLocation(stageId),
                 tableScanPlan.getFragment(),
                 new MockRemoteTaskFactory(queryExecutor, scheduledExecutor),
-                TEST_SESSION,
+                session,
                 true,
                 nodeTaskMap,
                 queryExecutor,
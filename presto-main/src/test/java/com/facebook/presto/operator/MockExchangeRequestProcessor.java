@@ -34,6 +34,7 @@ import io.airlift.units.DataSize;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -59,11 +60,16 @@ public class MockExchangeRequestProcessor
 
     private final LoadingCache<URI, MockBuffer> buffers = CacheBuilder.newBuilder().build(CacheLoader.from(MockBuffer::new));
 
-    private final DataSize expectedMaxSize;
+    private final Optional<DataSize> expectedMaxSize;
+
+    public MockExchangeRequestProcessor()
+    {
+        this.expectedMaxSize = Optional.empty();
+    }
 
     public MockExchangeRequestProcessor(DataSize expectedMaxSize)
     {
-        this.expectedMaxSize = expectedMaxSize;
+        this.expectedMaxSize = Optional.of(expectedMaxSize);
     }
 
     public void addPage(URI location, Page page)
@@ -86,7 +92,7 @@ public class MockExchangeRequestProcessor
         // verify we got a data size and it parses correctly
         assertTrue(!request.getHeaders().get(PrestoHeaders.PRESTO_MAX_SIZE).isEmpty());
         DataSize maxSize = DataSize.valueOf(request.getHeader(PrestoHeaders.PRESTO_MAX_SIZE));
-        assertEquals(maxSize, expectedMaxSize);
+        expectedMaxSize.ifPresent(expected -> assertEquals(maxSize, expected));
 
         RequestLocation requestLocation = new RequestLocation(request.getUri());
         URI location = requestLocation.getLocation();
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.type.BigintType;
+import org.testng.annotations.Test;
+
+import static io.airlift.testing.Assertions.assertLessThan;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestBlockedBloomFilter
+{
+    @Test
+    public void testNoFalseNegatives()
+    {
+        BlockedBloomFilter filter = new BlockedBloomFilter(10_000);
+        for (long value = 0; value < 10_000; value++) {
+            filter.add(BigintType.hash(value * 7));
+        }
+        for (long value = 0; value < 10_000; value++) {
+            assertTrue(filter.mightContain(BigintType.hash(value * 7)));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate()
+    {
+        BlockedBloomFilter filter = new BlockedBloomFilter(10_000);
+        for (long value = 0; value < 10_000; value++) {
+            filter.add(BigintType.hash(value));
+        }
+        int falsePositives = 0;
+        for (long value = 10_000; value < 110_000; value++) {
+            if (filter.mightContain(BigintType.hash(value))) {
+                falsePositives++;
+            }
+        }
+        assertLessThan(falsePositives, 5_000);
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        BlockedBloomFilter filter = new BlockedBloomFilter(0);
+        assertFalse(filter.mightContain(BigintType.hash(42)));
+        filter.add(BigintType.hash(42));
+        assertTrue(filter.mightContain(BigintType.hash(42)));
+    }
+}
@@ -15,10 +15,14 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.block.BlockAssertions;
 import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.buffer.BufferResult;
 import com.facebook.presto.execution.buffer.PagesSerde;
 import com.facebook.presto.execution.buffer.SerializedPage;
 import com.facebook.presto.memory.context.SimpleLocalMemoryContext;
+import com.facebook.presto.operator.LocalTaskResultsReader.LocalTaskResults;
 import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PrestoException;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -30,22 +34,36 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_MAX_SIZE;
+import static com.facebook.presto.execution.buffer.BufferResult.emptyResults;
 import static com.facebook.presto.execution.buffer.TestingPagesSerdeFactory.testingPagesSerde;
 import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static com.facebook.presto.spi.StandardErrorCode.GENERIC_RECOVERY_ERROR;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Maps.uniqueIndex;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
 import static io.airlift.concurrent.MoreFutures.tryGetFutureValue;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.testing.Assertions.assertLessThan;
+import static io.airlift.testing.Assertions.assertLessThanOrEqual;
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.lang.Math.toIntExact;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -56,6 +74,7 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 @Test(singleThreaded = true)
 public class TestExchangeClient
@@ -202,6 +221,193 @@ public class TestExchangeClient
         assertStatus(statuses.get(location2), location2, "closed", 3, 3, 3, "not scheduled");
     }
 
+    @Test(timeOut = 10000)
+    public void testCreditBasedFlowControl()
+            throws Exception
+    {
+        DataSize maxResponseSize = new DataSize(1, MEGABYTE);
+        MockExchangeRequestProcessor processor = new MockExchangeRequestProcessor(maxResponseSize);
+
+        List<URI> locations = ImmutableList.of(
+                URI.create("http://localhost:8081/foo"),
+                URI.create("http://localhost:8082/bar"),
+                URI.create("http://localhost:8083/baz"));
+        for (URI location : locations) {
+            processor.addPage(location, createPage(1));
+            processor.addPage(location, createPage(2));
+            processor.setComplete(location);
+        }
+
+        // the credit of each source is capped by the max response size, which is checked by the processor
+        @SuppressWarnings("resource")
+        ExchangeClient exchangeClient = new ExchangeClient(
+                new DataSize(32, MEGABYTE),
+                maxResponseSize,
+                1,
+                new Duration(1, MINUTES),
+                true,
+                true,
+                new TestingHttpClient(processor, testingHttpClientExecutor),
+                scheduler,
+                new SimpleLocalMemoryContext(newSimpleAggregatedMemoryContext(), "test"),
+                pageBufferClientCallbackExecutor);
+
+        for (int i = 0; i < locations.size(); i++) {
+            exchangeClient.addLocation(locations.get(i), TaskId.valueOf("task" + i));
+        }
+        exchangeClient.noMoreLocations();
+
+        int pages = 0;
+        while (getNextPage(exchangeClient) != null) {
+            pages++;
+        }
+        assertEquals(pages, 6);
+        while (!exchangeClient.isClosed()) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test(timeOut = 10000)
+    public void testCreditsDoNotExceedBufferCapacity()
+            throws Exception
+    {
+        DataSize bufferCapacity = new DataSize(4, MEGABYTE);
+        MockExchangeRequestProcessor delegate = new MockExchangeRequestProcessor();
+
+        List<URI> locations = IntStream.range(0, 16)
+                .mapToObj(i -> URI.create("http://localhost:" + (8080 + i) + "/foo"))
+                .collect(toImmutableList());
+        for (URI location : locations) {
+            delegate.addPage(location, createPage(1));
+            delegate.addPage(location, createPage(2));
+            delegate.setComplete(location);
+        }
+
+        // the requests are held for a while, so the credits of all the scheduled requests overlap
+        AtomicLong requestedBytes = new AtomicLong();
+        AtomicLong maxRequestedBytes = new AtomicLong();
+        TestingHttpClient.Processor processor = request -> {
+            if (request.getMethod().equalsIgnoreCase("DELETE")) {
+                return delegate.handle(request);
+            }
+            long maxSize = DataSize.valueOf(request.getHeader(PRESTO_MAX_SIZE)).toBytes();
+            maxRequestedBytes.accumulateAndGet(requestedBytes.addAndGet(maxSize), Math::max);
+            try {
+                sleepUninterruptibly(10, MILLISECONDS);
+                return delegate.handle(request);
+            }
+            finally {
+                requestedBytes.addAndGet(-maxSize);
+            }
+        };
+
+        @SuppressWarnings("resource")
+        ExchangeClient exchangeClient = new ExchangeClient(
+                bufferCapacity,
+                new DataSize(1, MEGABYTE),
+                1,
+                new Duration(1, MINUTES),
+                true,
+                true,
+                new TestingHttpClient(processor, testingHttpClientExecutor),
+                scheduler,
+                new SimpleLocalMemoryContext(newSimpleAggregatedMemoryContext(), "test"),
+                pageBufferClientCallbackExecutor);
+
+        for (int i = 0; i < locations.size(); i++) {
+            exchangeClient.addLocation(locations.get(i), TaskId.valueOf("task" + i));
+        }
+        exchangeClient.noMoreLocations();
+
+        int pages = 0;
+        while (getNextPage(exchangeClient) != null) {
+            pages++;
+        }
+        assertEquals(pages, 32);
+        assertTrue(maxRequestedBytes.get() > 0);
+        assertLessThanOrEqual(maxRequestedBytes.get(), bufferCapacity.toBytes());
+        while (!exchangeClient.isClosed()) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test(timeOut = 10000)
+    public void testLocalTaskResults()
+            throws Exception
+    {
+        URI localLocation = URI.create("http://localhost:8080/v1/task/local/results/0");
+        URI remoteLocation = URI.create("http://localhost:8081/v1/task/remote/results/0");
+
+        DataSize maxResponseSize = new DataSize(10, MEGABYTE);
+        MockExchangeRequestProcessor processor = new MockExchangeRequestProcessor(maxResponseSize);
+        processor.addPage(remoteLocation, createPage(1));
+        processor.setComplete(remoteLocation);
+
+        List<SerializedPage> localPages = ImmutableList.of(PAGES_SERDE.serialize(createPage(2)), PAGES_SERDE.serialize(createPage(3)));
+        AtomicLong acknowledgedToken = new AtomicLong(-1);
+        AtomicBoolean aborted = new AtomicBoolean();
+        LocalTaskResults localTaskResults = new LocalTaskResults()
+        {
+            @Override
+            public ListenableFuture<BufferResult> getResults(long token, DataSize maxSize)
+            {
+                // one page per request, the pages are served as is without going through the HTTP client
+                int index = toIntExact(token);
+                if (index >= localPages.size()) {
+                    return immediateFuture(emptyResults("local", token, true));
+                }
+                return immediateFuture(new BufferResult("local", token, token + 1, false, ImmutableList.of(localPages.get(index))));
+            }
+
+            @Override
+            public void acknowledge(long token)
+            {
+                acknowledgedToken.set(token);
+            }
+
+            @Override
+            public ListenableFuture<?> abort()
+            {
+                aborted.set(true);
+                return immediateFuture(null);
+            }
+        };
+
+        @SuppressWarnings("resource")
+        ExchangeClient exchangeClient = new ExchangeClient(
+                new DataSize(32, MEGABYTE),
+                maxResponseSize,
+                1,
+                new Duration(1, MINUTES),
+                true,
+                false,
+                location -> location.equals(localLocation) ? Optional.of(localTaskResults) : Optional.empty(),
+                new TestingHttpClient(processor, testingHttpClientExecutor),
+                scheduler,
+                new SimpleLocalMemoryContext(newSimpleAggregatedMemoryContext(), "test"),
+                pageBufferClientCallbackExecutor);
+
+        exchangeClient.addLocation(localLocation, TaskId.valueOf("local"));
+        exchangeClient.addLocation(remoteLocation, TaskId.valueOf("remote"));
+        exchangeClient.noMoreLocations();
+
+        Set<SerializedPage> receivedPages = new HashSet<>();
+        long receivedPositions = 0;
+        SerializedPage page;
+        while ((page = getNextPage(exchangeClient)) != null) {
+            receivedPages.add(page);
+            receivedPositions += page.getPositionCount();
+        }
+        assertEquals(receivedPositions, 1 + 2 + 3);
+        // local pages are handed over by reference
+        assertTrue(receivedPages.containsAll(localPages));
+        assertEquals(acknowledgedToken.get(), 2);
+        while (!exchangeClient.isClosed()) {
+            Thread.sleep(1);
+        }
+        assertTrue(aborted.get());
+    }
+
     @Test
     public void testBufferLimit()
     {
@@ -368,7 +574,7 @@ public class TestExchangeClient
         assertEquals(exchangeClient.getStatus().getBufferedPages(), 1);
 
         // remove remote source
-        exchangeClient.removeRemoteSource(taskId1);
+        exchangeClient.removeRemoteSource(taskId1, false);
 
         // the previously buffered page will still be read out
         assertPageEquals(getNextPage(exchangeClient), createPage(1));
@@ -407,6 +613,50 @@ public class TestExchangeClient
         assertStatus(clientStatus2, location2, "closed", "not scheduled");
     }
 
+    @Test
+    public void testDiscardRemoteSource()
+    {
+        DataSize maxResponseSize = new DataSize(1, BYTE);
+        MockExchangeRequestProcessor processor = new MockExchangeRequestProcessor(maxResponseSize);
+
+        URI location1 = URI.create("http://localhost:8081/foo");
+        TaskId taskId1 = TaskId.valueOf("foo");
+        URI location2 = URI.create("http://localhost:8082/bar");
+        TaskId taskId2 = TaskId.valueOf("bar");
+
+        processor.addPage(location1, createPage(1));
+        processor.addPage(location1, createPage(2));
+
+        ExchangeClient exchangeClient = new ExchangeClient(
+                new DataSize(1, BYTE),
+                maxResponseSize,
+                1,
+                new Duration(1, MINUTES),
+                true,
+                new TestingHttpClient(processor, testingHttpClientExecutor),
+                scheduler,
+                new SimpleLocalMemoryContext(newSimpleAggregatedMemoryContext(), "test"),
+                pageBufferClientCallbackExecutor);
+        exchangeClient.addLocation(location1, taskId1);
+        exchangeClient.addLocation(location2, taskId2);
+        waitUntilEquals(() -> exchangeClient.getStatus().getBufferedPages(), 1, new Duration(5, SECONDS));
+
+        // discarding the output of a source is possible as long as none of it has been received
+        exchangeClient.removeRemoteSource(taskId2, true);
+        assertPageEquals(getNextPage(exchangeClient), createPage(1));
+
+        // the output received from the source cannot be taken back
+        exchangeClient.removeRemoteSource(taskId1, true);
+        try {
+            exchangeClient.pollPage();
+            fail("expected exception");
+        }
+        catch (PrestoException e) {
+            assertEquals(e.getErrorCode(), GENERIC_RECOVERY_ERROR.toErrorCode());
+        }
+        exchangeClient.close();
+    }
+
     private static Page createPage(int size)
     {
         return new Page(BlockAssertions.createLongSequenceBlock(0, size));
@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertEquals;
+
+public class TestLocalDynamicFilter
+{
+    @Test
+    public void testDistinctValues()
+    {
+        LocalDynamicFilter filter = new LocalDynamicFilter(ImmutableList.of(1, 0), ImmutableList.of(BIGINT, VARCHAR), 2, 10);
+        LocalDynamicFilter.Collector first = filter.createCollector();
+        LocalDynamicFilter.Collector second = filter.createCollector();
+
+        rowPagesBuilder(VARCHAR, BIGINT)
+                .row("a", 1L)
+                .row("b", null)
+                .pageBreak()
+                .row(null, 3L)
+                .build()
+                .forEach(first::addPage);
+        first.finish();
+        assertEquals(filter.getResult(), Optional.empty());
+
+        rowPagesBuilder(VARCHAR, BIGINT)
+                .row("a", 5L)
+                .build()
+                .forEach(second::addPage);
+        second.finish();
+        // finishing twice is a no-op
+        second.finish();
+
+        assertEquals(filter.getResult(), Optional.of(TupleDomain.withColumnDomains(ImmutableMap.of(
+                0, Domain.multipleValues(BIGINT, ImmutableList.of(1L, 3L, 5L)),
+                1, Domain.multipleValues(VARCHAR, ImmutableList.of(utf8Slice("a"), utf8Slice("b")))))));
+    }
+
+    @Test
+    public void testRangeAfterTooManyValues()
+    {
+        LocalDynamicFilter filter = new LocalDynamicFilter(ImmutableList.of(0), ImmutableList.of(BIGINT), 2, 2);
+        LocalDynamicFilter.Collector first = filter.createCollector();
+        LocalDynamicFilter.Collector second = filter.createCollector();
+
+        rowPagesBuilder(BIGINT)
+                .row(10L)
+                .row(20L)
+                .row(30L)
+                .pageBreak()
+                .row(-5L)
+                .row((Object) null)
+                .build()
+                .forEach(first::addPage);
+        first.finish();
+
+        rowPagesBuilder(BIGINT)
+                .row(100L)
+                .build()
+                .forEach(second::addPage);
+        second.finish();
+
+        assertEquals(filter.getResult(), Optional.of(TupleDomain.withColumnDomains(ImmutableMap.of(
+                0, Domain.create(ValueSet.ofRanges(Range.range(BIGINT, -5L, true, 30L, true), Range.equal(BIGINT, 100L)), false)))));
+    }
+
+    @Test
+    public void testCompactUnion()
+    {
+        LocalDynamicFilter filter = new LocalDynamicFilter(ImmutableList.of(0), ImmutableList.of(BIGINT), 2, 2);
+        LocalDynamicFilter.Collector first = filter.createCollector();
+        LocalDynamicFilter.Collector second = filter.createCollector();
+
+        rowPagesBuilder(BIGINT)
+                .row(1L)
+                .row(2L)
+                .build()
+                .forEach(first::addPage);
+        first.finish();
+
+        rowPagesBuilder(BIGINT)
+                .row(7L)
+                .build()
+                .forEach(second::addPage);
+        second.finish();
+
+        // the union has more than two values, so it is reduced to its span
+        assertEquals(filter.getResult(), Optional.of(TupleDomain.withColumnDomains(ImmutableMap.of(
+                0, Domain.create(ValueSet.ofRanges(Range.range(BIGINT, 1L, true, 7L, true)), false)))));
+    }
+
+    @Test
+    public void testEmptyBuildSide()
+    {
+        LocalDynamicFilter filter = new LocalDynamicFilter(ImmutableList.of(0), ImmutableList.of(BIGINT), 1, 10);
+        LocalDynamicFilter.Collector collector = filter.createCollector();
+        rowPagesBuilder(BIGINT)
+                .row((Object) null)
+                .build()
+                .forEach(collector::addPage);
+        collector.finish();
+
+        assertEquals(filter.getResult(), Optional.of(TupleDomain.none()));
+    }
+}
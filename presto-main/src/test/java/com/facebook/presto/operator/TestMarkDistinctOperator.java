@@ -19,6 +19,7 @@ import com.facebook.presto.operator.MarkDistinctOperator.MarkDistinctOperatorFac
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.GenericPartitioningSpillerFactory;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.facebook.presto.testing.MaterializedResult;
@@ -56,6 +57,7 @@ public class TestMarkDistinctOperator
     private ScheduledExecutorService scheduledExecutor;
     private DriverContext driverContext;
     private JoinCompiler joinCompiler = new JoinCompiler(MetadataManager.createTestMetadataManager(), new FeaturesConfig());
+    private DummySingleStreamSpillerFactory spillerFactory;
 
     @BeforeMethod
     public void setUp()
@@ -65,6 +67,7 @@ public class TestMarkDistinctOperator
         driverContext = createTaskContext(executor, scheduledExecutor, TEST_SESSION)
                 .addPipelineContext(0, true, true, false)
                 .addDriverContext();
+        spillerFactory = new DummySingleStreamSpillerFactory();
     }
 
     @AfterMethod
@@ -80,14 +83,14 @@ public class TestMarkDistinctOperator
         return new Object[][] {{VARCHAR}, {BIGINT}};
     }
 
-    @DataProvider(name = "hashEnabledValues")
-    public static Object[][] hashEnabledValuesProvider()
+    @DataProvider
+    public static Object[][] hashEnabledAndSpillEnabledValues()
     {
-        return new Object[][] {{true}, {false}};
+        return new Object[][] {{true, true}, {true, false}, {false, true}, {false, false}};
     }
 
-    @Test(dataProvider = "hashEnabledValues")
-    public void testMarkDistinct(boolean hashEnabled)
+    @Test(dataProvider = "hashEnabledAndSpillEnabledValues")
+    public void testMarkDistinct(boolean hashEnabled, boolean spillEnabled)
     {
         RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, Ints.asList(0), BIGINT);
         List<Page> input = rowPagesBuilder
@@ -95,7 +98,7 @@ public class TestMarkDistinctOperator
                 .addSequencePage(100, 0)
                 .build();
 
-        OperatorFactory operatorFactory = new MarkDistinctOperatorFactory(0, new PlanNodeId("test"), rowPagesBuilder.getTypes(), ImmutableList.of(0), rowPagesBuilder.getHashChannel(), joinCompiler);
+        OperatorFactory operatorFactory = createFactory(rowPagesBuilder, spillEnabled);
 
         MaterializedResult.Builder expected = resultBuilder(driverContext.getSession(), BIGINT, BOOLEAN);
         for (long i = 0; i < 100; i++) {
@@ -104,6 +107,31 @@ public class TestMarkDistinctOperator
         }
 
         OperatorAssertion.assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected.build(), hashEnabled, Optional.of(1));
+        assertEquals(spillerFactory.getSpillsCount() > 0, spillEnabled);
+    }
+
+    @Test(dataProvider = "hashEnabledAndSpillEnabledValues")
+    public void testMarkDistinctOverlappingPages(boolean hashEnabled, boolean spillEnabled)
+    {
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, Ints.asList(0), BIGINT);
+        List<Page> input = rowPagesBuilder
+                .addSequencePage(100, 0)
+                .addSequencePage(100, 50)
+                .addSequencePage(100, 100)
+                .build();
+
+        OperatorFactory operatorFactory = createFactory(rowPagesBuilder, spillEnabled);
+
+        MaterializedResult.Builder expected = resultBuilder(driverContext.getSession(), BIGINT, BOOLEAN);
+        for (long i = 0; i < 200; i++) {
+            expected.row(i, true);
+            if (i >= 50 && i < 150) {
+                expected.row(i, false);
+            }
+        }
+
+        OperatorAssertion.assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected.build(), hashEnabled, Optional.of(1));
+        assertEquals(spillerFactory.getSpillsCount() > 0, spillEnabled);
     }
 
     @Test(dataProvider = "dataType")
@@ -128,4 +156,17 @@ public class TestMarkDistinctOperator
         }
         assertEquals(count, 6_000 * 600);
     }
+
+    private OperatorFactory createFactory(RowPagesBuilder rowPagesBuilder, boolean spillEnabled)
+    {
+        return new MarkDistinctOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                rowPagesBuilder.getTypes(),
+                ImmutableList.of(0),
+                rowPagesBuilder.getHashChannel(),
+                joinCompiler,
+                spillEnabled,
+                Optional.of(new GenericPartitioningSpillerFactory(spillerFactory)));
+    }
 }
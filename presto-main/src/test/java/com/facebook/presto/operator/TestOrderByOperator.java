@@ -17,21 +17,27 @@ import com.facebook.presto.ExceededMemoryLimitException;
 import com.facebook.presto.operator.OrderByOperator.OrderByOperatorFactory;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.sql.gen.OrderingCompiler;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.finishOperator;
+import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
 import static com.facebook.presto.operator.OperatorAssertion.toPages;
 import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
 import static com.facebook.presto.spi.block.SortOrder.DESC_NULLS_LAST;
@@ -43,6 +49,9 @@ import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestOrderByOperator
@@ -50,6 +59,13 @@ public class TestOrderByOperator
     private ExecutorService executor;
     private ScheduledExecutorService scheduledExecutor;
     private DriverContext driverContext;
+    private DummySpillerFactory spillerFactory;
+
+    @DataProvider
+    public static Object[][] spillEnabled()
+    {
+        return new Object[][] {{false}, {true}};
+    }
 
     @BeforeMethod
     public void setUp()
@@ -59,6 +75,7 @@ public class TestOrderByOperator
         driverContext = createTaskContext(executor, scheduledExecutor, TEST_SESSION)
                 .addPipelineContext(0, true, true, false)
                 .addDriverContext();
+        spillerFactory = new DummySpillerFactory();
     }
 
     @AfterMethod
@@ -68,8 +85,8 @@ public class TestOrderByOperator
         scheduledExecutor.shutdownNow();
     }
 
-    @Test
-    public void testSingleFieldKey()
+    @Test(dataProvider = "spillEnabled")
+    public void testSingleFieldKey(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, DOUBLE)
                 .row(1L, 0.1)
@@ -87,7 +104,10 @@ public class TestOrderByOperator
                 10,
                 ImmutableList.of(0),
                 ImmutableList.of(ASC_NULLS_LAST),
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                spillEnabled,
+                Optional.of(spillerFactory),
+                new OrderingCompiler());
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), DOUBLE)
                 .row(-0.1)
@@ -97,10 +117,11 @@ public class TestOrderByOperator
                 .build();
 
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
+        assertEquals(spillerFactory.getSpillsCount() > 0, spillEnabled);
     }
 
-    @Test
-    public void testMultiFieldKey()
+    @Test(dataProvider = "spillEnabled")
+    public void testMultiFieldKey(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, BIGINT)
                 .row("a", 1L)
@@ -118,7 +139,10 @@ public class TestOrderByOperator
                 10,
                 ImmutableList.of(0, 1),
                 ImmutableList.of(ASC_NULLS_LAST, DESC_NULLS_LAST),
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                spillEnabled,
+                Optional.of(spillerFactory),
+                new OrderingCompiler());
 
         MaterializedResult expected = MaterializedResult.resultBuilder(driverContext.getSession(), VARCHAR, BIGINT)
                 .row("a", 4L)
@@ -128,10 +152,11 @@ public class TestOrderByOperator
                 .build();
 
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
+        assertEquals(spillerFactory.getSpillsCount() > 0, spillEnabled);
     }
 
-    @Test
-    public void testReverseOrder()
+    @Test(dataProvider = "spillEnabled")
+    public void testReverseOrder(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, DOUBLE)
                 .row(1L, 0.1)
@@ -149,7 +174,10 @@ public class TestOrderByOperator
                 10,
                 ImmutableList.of(0),
                 ImmutableList.of(DESC_NULLS_LAST),
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                spillEnabled,
+                Optional.of(spillerFactory),
+                new OrderingCompiler());
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT)
                 .row(4L)
@@ -159,6 +187,55 @@ public class TestOrderByOperator
                 .build();
 
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
+        assertEquals(spillerFactory.getSpillsCount() > 0, spillEnabled);
+    }
+
+    @Test
+    public void testFinishWhileMemoryRevokePending()
+    {
+        List<Page> input = rowPagesBuilder(BIGINT, DOUBLE)
+                .row(2L, 0.2)
+                .row(1L, 0.1)
+                .pageBreak()
+                .row(4L, 0.4)
+                .row(-1L, -0.1)
+                .build();
+
+        OrderByOperatorFactory operatorFactory = new OrderByOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT, DOUBLE),
+                ImmutableList.of(1),
+                10,
+                ImmutableList.of(0),
+                ImmutableList.of(ASC_NULLS_LAST),
+                new PagesIndex.TestingFactory(false),
+                true,
+                Optional.of(spillerFactory),
+                new OrderingCompiler());
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+        operator.addInput(input.get(0));
+        operator.addInput(input.get(1));
+
+        // the spill completes before the driver gets to finish the revoke
+        ListenableFuture<?> spill = operator.startMemoryRevoke();
+        assertTrue(spill.isDone());
+        operator.finish();
+        assertTrue(operator.needsInput());
+        assertNull(operator.getOutput());
+
+        operator.finishMemoryRevoke();
+        List<Page> output = finishOperator(operator);
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), DOUBLE)
+                .row(-0.1)
+                .row(0.1)
+                .row(0.2)
+                .row(0.4)
+                .build();
+        assertEquals(toMaterializedResult(driverContext.getSession(), expected.getTypes(), output), expected);
+        assertEquals(spillerFactory.getSpillsCount(), 1);
     }
 
     @Test(expectedExceptions = ExceededMemoryLimitException.class, expectedExceptionsMessageRegExp = "Query exceeded per-node user memory limit of 10B.*")
@@ -184,7 +261,10 @@ public class TestOrderByOperator
                 10,
                 ImmutableList.of(0),
                 ImmutableList.of(ASC_NULLS_LAST),
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                false,
+                Optional.of(spillerFactory),
+                new OrderingCompiler());
 
         toPages(operatorFactory, driverContext, input);
     }
@@ -19,6 +19,7 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.GenericPartitioningSpillerFactory;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.facebook.presto.testing.MaterializedResult;
@@ -39,6 +40,7 @@ import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.operator.GroupByHashYieldAssertion.createPagesWithDistinctHashKeys;
 import static com.facebook.presto.operator.GroupByHashYieldAssertion.finishOperatorWithYieldingGroupByHash;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEqualsIgnoreOrder;
 import static com.facebook.presto.operator.TopNRowNumberOperator.TopNRowNumberOperatorFactory;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
@@ -57,6 +59,7 @@ public class TestTopNRowNumberOperator
     private ScheduledExecutorService scheduledExecutor;
     private DriverContext driverContext;
     private JoinCompiler joinCompiler;
+    private DummySingleStreamSpillerFactory spillerFactory;
 
     @BeforeMethod
     public void setUp()
@@ -67,6 +70,7 @@ public class TestTopNRowNumberOperator
                 .addPipelineContext(0, true, true, false)
                 .addDriverContext();
         joinCompiler = new JoinCompiler(MetadataManager.createTestMetadataManager(), new FeaturesConfig());
+        spillerFactory = new DummySingleStreamSpillerFactory();
     }
 
     @AfterMethod
@@ -76,10 +80,10 @@ public class TestTopNRowNumberOperator
         scheduledExecutor.shutdownNow();
     }
 
-    @DataProvider(name = "hashEnabledValues")
-    public static Object[][] hashEnabledValuesProvider()
+    @DataProvider
+    public static Object[][] hashEnabledAndSpillEnabledValues()
     {
-        return new Object[][] {{true}, {false}};
+        return new Object[][] {{true, true}, {true, false}, {false, true}, {false, false}};
     }
 
     @DataProvider
@@ -88,8 +92,8 @@ public class TestTopNRowNumberOperator
         return new Object[][] {{true}, {false}};
     }
 
-    @Test(dataProvider = "hashEnabledValues")
-    public void testPartitioned(boolean hashEnabled)
+    @Test(dataProvider = "hashEnabledAndSpillEnabledValues")
+    public void testPartitioned(boolean hashEnabled, boolean spillEnabled)
     {
         RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, Ints.asList(0), BIGINT, DOUBLE);
         List<Page> input = rowPagesBuilder
@@ -121,7 +125,9 @@ public class TestTopNRowNumberOperator
                 false,
                 Optional.empty(),
                 10,
-                joinCompiler);
+                joinCompiler,
+                spillEnabled,
+                Optional.of(new GenericPartitioningSpillerFactory(spillerFactory)));
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), DOUBLE, BIGINT, BIGINT)
                 .row(0.3, 1L, 1L)
@@ -134,7 +140,14 @@ public class TestTopNRowNumberOperator
                 .row(0.91, 3L, 2L)
                 .build();
 
-        assertOperatorEquals(operatorFactory, driverContext, input, expected);
+        if (spillEnabled) {
+            // spilled groups are produced in the order of their spill partitions
+            assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected);
+        }
+        else {
+            assertOperatorEquals(operatorFactory, driverContext, input, expected);
+        }
+        assertEquals(spillerFactory.getSpillsCount() > 0, spillEnabled);
     }
 
     @Test(dataProvider = "partial")
@@ -27,6 +27,8 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.SpillerFactory;
+import com.facebook.presto.sql.gen.OrderingCompiler;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
@@ -34,6 +36,7 @@ import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.List;
@@ -87,6 +90,13 @@ public class TestWindowOperator
     private ExecutorService executor;
     private ScheduledExecutorService scheduledExecutor;
     private DriverContext driverContext;
+    private DummySpillerFactory spillerFactory;
+
+    @DataProvider
+    public static Object[][] spillEnabled()
+    {
+        return new Object[][] {{false}, {true}};
+    }
 
     @BeforeMethod
     public void setUp()
@@ -96,6 +106,7 @@ public class TestWindowOperator
         driverContext = createTaskContext(executor, scheduledExecutor, TEST_SESSION)
                 .addPipelineContext(0, true, true, false)
                 .addDriverContext();
+        spillerFactory = new DummySpillerFactory();
     }
 
     @AfterMethod
@@ -105,8 +116,8 @@ public class TestWindowOperator
         scheduledExecutor.shutdownNow();
     }
 
-    @Test
-    public void testRowNumber()
+    @Test(dataProvider = "spillEnabled")
+    public void testRowNumber(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, DOUBLE)
                 .row(2L, 0.3)
@@ -123,7 +134,8 @@ public class TestWindowOperator
                 ROW_NUMBER,
                 Ints.asList(),
                 Ints.asList(0),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), DOUBLE, BIGINT, BIGINT)
                 .row(-0.1, -1L, 1L)
@@ -136,8 +148,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testRowNumberPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testRowNumberPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, BIGINT, DOUBLE, BOOLEAN)
                 .row("b", -1L, -0.1, true)
@@ -154,7 +166,8 @@ public class TestWindowOperator
                 ROW_NUMBER,
                 Ints.asList(0),
                 Ints.asList(1),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT, DOUBLE, BOOLEAN, BIGINT)
                 .row("a", 2L, 0.3, false, 1L)
@@ -165,6 +178,7 @@ public class TestWindowOperator
                 .build();
 
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
+        assertEquals(spillerFactory.getSpillsCount() > 0, spillEnabled);
     }
 
     @Test
@@ -188,7 +202,8 @@ public class TestWindowOperator
                 ROW_NUMBER,
                 Ints.asList(),
                 Ints.asList(),
-                ImmutableList.copyOf(new SortOrder[] {}));
+                ImmutableList.copyOf(new SortOrder[] {}),
+                false);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, BIGINT)
                 .row(1L, 1L)
@@ -225,13 +240,14 @@ public class TestWindowOperator
                 ROW_NUMBER,
                 Ints.asList(),
                 Ints.asList(0),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                false);
 
         toPages(operatorFactory, driverContext, input);
     }
 
-    @Test
-    public void testFirstValuePartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testFirstValuePartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("b", "A1", 1L, true, "")
@@ -249,7 +265,8 @@ public class TestWindowOperator
                 FIRST_VALUE,
                 Ints.asList(0),
                 Ints.asList(2),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("a", "A2", 1L, false, "A2")
@@ -263,8 +280,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testLastValuePartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testLastValuePartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("b", "A1", 1L, true, "")
@@ -282,7 +299,8 @@ public class TestWindowOperator
                 LAST_VALUE,
                 Ints.asList(0),
                 Ints.asList(2),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("a", "A2", 1L, false, "C2")
@@ -295,8 +313,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testNthValuePartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testNthValuePartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BIGINT, BOOLEAN, VARCHAR)
                 .row("b", "A1", 1L, 2L, true, "")
@@ -314,7 +332,8 @@ public class TestWindowOperator
                 NTH_VALUE,
                 Ints.asList(0),
                 Ints.asList(2),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("a", "A2", 1L, false, "C2")
@@ -328,8 +347,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testLagPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testLagPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BIGINT, VARCHAR, BOOLEAN, VARCHAR)
                 .row("b", "A1", 1L, 1L, "D", true, "")
@@ -347,7 +366,8 @@ public class TestWindowOperator
                 LAG,
                 Ints.asList(0),
                 Ints.asList(2),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("a", "A2", 1L, false, "D")
@@ -361,8 +381,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testLeadPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testLeadPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BIGINT, VARCHAR, BOOLEAN, VARCHAR)
                 .row("b", "A1", 1L, 1L, "D", true, "")
@@ -380,7 +400,8 @@ public class TestWindowOperator
                 LEAD,
                 Ints.asList(0),
                 Ints.asList(2),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("a", "A2", 1L, false, "C2")
@@ -394,8 +415,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testPartiallyPreGroupedPartitionWithEmptyInput()
+    @Test(dataProvider = "spillEnabled")
+    public void testPartiallyPreGroupedPartitionWithEmptyInput(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
                 .pageBreak()
@@ -410,7 +431,8 @@ public class TestWindowOperator
                 Ints.asList(1),
                 Ints.asList(3),
                 ImmutableList.of(SortOrder.ASC_NULLS_LAST),
-                0);
+                0,
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, VARCHAR, BIGINT)
                 .build();
@@ -418,8 +440,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testPartiallyPreGroupedPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testPartiallyPreGroupedPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
                 .pageBreak()
@@ -442,7 +464,8 @@ public class TestWindowOperator
                 Ints.asList(1),
                 Ints.asList(3),
                 ImmutableList.of(SortOrder.ASC_NULLS_LAST),
-                0);
+                0,
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, VARCHAR, BIGINT)
                 .row(1L, "a", 100L, "A", 1L)
@@ -456,8 +479,8 @@ public class TestWindowOperator
         assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testFullyPreGroupedPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testFullyPreGroupedPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
                 .pageBreak()
@@ -481,7 +504,8 @@ public class TestWindowOperator
                 Ints.asList(0, 1),
                 Ints.asList(3),
                 ImmutableList.of(SortOrder.ASC_NULLS_LAST),
-                0);
+                0,
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, VARCHAR, BIGINT)
                 .row(1L, "a", 100L, "A", 1L)
@@ -496,8 +520,8 @@ public class TestWindowOperator
         assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testFullyPreGroupedAndPartiallySortedPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testFullyPreGroupedAndPartiallySortedPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
                 .pageBreak()
@@ -522,7 +546,8 @@ public class TestWindowOperator
                 Ints.asList(0, 1),
                 Ints.asList(3, 2),
                 ImmutableList.of(SortOrder.ASC_NULLS_LAST, SortOrder.ASC_NULLS_LAST),
-                1);
+                1,
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, VARCHAR, BIGINT)
                 .row(1L, "a", 100L, "A", 1L)
@@ -538,8 +563,8 @@ public class TestWindowOperator
         assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testFullyPreGroupedAndFullySortedPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testFullyPreGroupedAndFullySortedPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
                 .pageBreak()
@@ -564,7 +589,8 @@ public class TestWindowOperator
                 Ints.asList(0, 1),
                 Ints.asList(3),
                 ImmutableList.of(SortOrder.ASC_NULLS_LAST),
-                1);
+                1,
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, VARCHAR, BIGINT)
                 .row(1L, "a", 100L, "A", 1L)
@@ -579,6 +605,7 @@ public class TestWindowOperator
 
         // Since fully grouped and sorted already, should respect original input order
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
+        assertEquals(spillerFactory.getSpillsCount() > 0, spillEnabled);
     }
 
     @Test
@@ -613,13 +640,14 @@ public class TestWindowOperator
         assertEquals(WindowOperator.findEndPosition(0, array.length, (first, second) -> array[first] == array[second]), expected);
     }
 
-    private static WindowOperatorFactory createFactoryUnbounded(
+    private WindowOperatorFactory createFactoryUnbounded(
             List<? extends Type> sourceTypes,
             List<Integer> outputChannels,
             List<WindowFunctionDefinition> functions,
             List<Integer> partitionChannels,
             List<Integer> sortChannels,
-            List<SortOrder> sortOrder)
+            List<SortOrder> sortOrder,
+            boolean spillEnabled)
     {
         return createFactoryUnbounded(
                 sourceTypes,
@@ -629,7 +657,32 @@ public class TestWindowOperator
                 ImmutableList.of(),
                 sortChannels,
                 sortOrder,
-                0);
+                0,
+                spillEnabled);
+    }
+
+    private WindowOperatorFactory createFactoryUnbounded(
+            List<? extends Type> sourceTypes,
+            List<Integer> outputChannels,
+            List<WindowFunctionDefinition> functions,
+            List<Integer> partitionChannels,
+            List<Integer> preGroupedChannels,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrder,
+            int preSortedChannelPrefix,
+            boolean spillEnabled)
+    {
+        return createFactoryUnbounded(
+                sourceTypes,
+                outputChannels,
+                functions,
+                partitionChannels,
+                preGroupedChannels,
+                sortChannels,
+                sortOrder,
+                preSortedChannelPrefix,
+                spillEnabled,
+                Optional.of(spillerFactory));
     }
 
     public static WindowOperatorFactory createFactoryUnbounded(
@@ -641,6 +694,31 @@ public class TestWindowOperator
             List<Integer> sortChannels,
             List<SortOrder> sortOrder,
             int preSortedChannelPrefix)
+    {
+        return createFactoryUnbounded(
+                sourceTypes,
+                outputChannels,
+                functions,
+                partitionChannels,
+                preGroupedChannels,
+                sortChannels,
+                sortOrder,
+                preSortedChannelPrefix,
+                false,
+                Optional.empty());
+    }
+
+    private static WindowOperatorFactory createFactoryUnbounded(
+            List<? extends Type> sourceTypes,
+            List<Integer> outputChannels,
+            List<WindowFunctionDefinition> functions,
+            List<Integer> partitionChannels,
+            List<Integer> preGroupedChannels,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrder,
+            int preSortedChannelPrefix,
+            boolean spillEnabled,
+            Optional<SpillerFactory> spillerFactory)
     {
         return new WindowOperatorFactory(
                 0,
@@ -654,6 +732,9 @@ public class TestWindowOperator
                 sortOrder,
                 preSortedChannelPrefix,
                 10,
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                spillEnabled,
+                spillerFactory,
+                new OrderingCompiler());
     }
 }
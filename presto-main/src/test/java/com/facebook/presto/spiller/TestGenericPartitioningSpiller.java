@@ -39,6 +39,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.IntPredicate;
+import java.util.stream.Stream;
 
 import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
@@ -52,6 +53,7 @@ import static java.lang.Math.toIntExact;
 import static java.nio.file.Files.createTempDirectory;
 import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.fail;
 
 public class TestGenericPartitioningSpiller
@@ -200,6 +202,38 @@ public class TestGenericPartitioningSpiller
         assertEquals(memoryContext.getBytes(), 0, "Reserved bytes should be zeroed after spiller is closed");
     }
 
+    @Test
+    public void testSpillPageIterator()
+            throws Exception
+    {
+        List<Type> types = ImmutableList.of(BIGINT);
+        int partitionCount = 4;
+        int pageCount = 100;
+        int positionsPerPage = 10_000;
+
+        try (PartitioningSpiller spiller = factory.create(
+                types,
+                new ModuloPartitionFunction(0, partitionCount),
+                mockSpillContext(),
+                mockMemoryContext(scheduledExecutor))) {
+            // the pages fill the partition buffers many times, and each full buffer is written by the spilling threads
+            Iterator<Page> pages = Stream.generate(() -> SequencePageBuilder.createSequencePage(types, positionsPerPage, 0))
+                    .limit(pageCount)
+                    .iterator();
+            getFutureValue(spiller.partitionAndSpill(pages));
+            assertFalse(pages.hasNext());
+
+            long spilledPositions = 0;
+            for (int partition = 0; partition < partitionCount; partition++) {
+                Iterator<Page> spilledPages = spiller.getSpilledPages(partition);
+                while (spilledPages.hasNext()) {
+                    spilledPositions += spilledPages.next().getPositionCount();
+                }
+            }
+            assertEquals(spilledPositions, (long) pageCount * positionsPerPage);
+        }
+    }
+
     private void assertSpilledPages(
             List<Type> types,
             PartitioningSpiller spiller,
@@ -16,6 +16,7 @@ package com.facebook.presto.sql.analyzer;
 import com.facebook.presto.operator.aggregation.arrayagg.ArrayAggGroupImplementation;
 import com.facebook.presto.operator.aggregation.histogram.HistogramGroupImplementation;
 import com.facebook.presto.operator.aggregation.multimapagg.MultimapAggGroupImplementation;
+import com.facebook.presto.sql.analyzer.FeaturesConfig.ExchangeCompressionCodec;
 import com.google.common.collect.ImmutableMap;
 import io.airlift.configuration.ConfigurationFactory;
 import io.airlift.configuration.testing.ConfigAssertions;
@@ -54,10 +55,12 @@ public class TestFeaturesConfig
                 .setDistributedIndexJoinsEnabled(false)
                 .setJoinDistributionType(PARTITIONED)
                 .setJoinMaxBroadcastTableSize(null)
+                .setUseObservedJoinSideSize(false)
                 .setGroupedExecutionForAggregationEnabled(false)
                 .setGroupedExecutionForEligibleTableScansEnabled(false)
                 .setDynamicScheduleForGroupedExecutionEnabled(false)
                 .setRecoverableGroupedExecutionEnabled(false)
+                .setLeafTaskRetryEnabled(false)
                 .setMaxFailedTaskPercentage(0.3)
                 .setConcurrentLifespansPerTask(0)
                 .setFastInequalityJoins(true)
@@ -80,6 +83,10 @@ public class TestFeaturesConfig
                 .setRe2JDfaStatesLimit(Integer.MAX_VALUE)
                 .setRe2JDfaRetries(5)
                 .setSpillEnabled(false)
+                .setOrderBySpillEnabled(true)
+                .setWindowSpillEnabled(true)
+                .setTopNRowNumberSpillEnabled(true)
+                .setMarkDistinctSpillEnabled(true)
                 .setAggregationOperatorUnspillMemoryLimit(DataSize.valueOf("4MB"))
                 .setSpillerSpillPaths("")
                 .setSpillerThreads(4)
@@ -95,6 +102,7 @@ public class TestFeaturesConfig
                 .setPrintStatsForNonJoinQuery(false)
                 .setDefaultFilterFactorEnabled(false)
                 .setExchangeCompressionEnabled(false)
+                .setExchangeCompressionCodec(ExchangeCompressionCodec.LZ4)
                 .setLegacyTimestamp(true)
                 .setLegacyRowFieldOrdinalAccess(false)
                 .setLegacyCharToVarcharCoercion(false)
@@ -117,7 +125,10 @@ public class TestFeaturesConfig
                 .setJsonSerdeCodeGenerationEnabled(false)
                 .setPushLimitThroughOuterJoin(true)
                 .setMaxConcurrentMaterializations(10)
-                .setPushdownSubfieldsEnabled(false));
+                .setPushdownSubfieldsEnabled(false)
+                .setDynamicFilteringEnabled(false)
+                .setDynamicFilteringMaxDistinctValues(1_000)
+                .setSemiJoinBloomFilterEnabled(false));
     }
 
     @Test
@@ -142,10 +153,12 @@ public class TestFeaturesConfig
                 .put("distributed-index-joins-enabled", "true")
                 .put("join-distribution-type", "BROADCAST")
                 .put("join-max-broadcast-table-size", "42GB")
+                .put("optimizer.use-observed-join-side-size", "true")
                 .put("grouped-execution-for-aggregation-enabled", "true")
                 .put("experimental.grouped-execution-for-eligible-table-scans-enabled", "true")
                 .put("dynamic-schedule-for-grouped-execution", "true")
                 .put("recoverable-grouped-execution-enabled", "true")
+                .put("leaf-task-retry-enabled", "true")
                 .put("max-failed-task-percentage", "0.8")
                 .put("concurrent-lifespans-per-task", "1")
                 .put("fast-inequality-joins", "false")
@@ -167,6 +180,10 @@ public class TestFeaturesConfig
                 .put("re2j.dfa-states-limit", "42")
                 .put("re2j.dfa-retries", "42")
                 .put("experimental.spill-enabled", "true")
+                .put("experimental.order-by-spill-enabled", "false")
+                .put("experimental.window-spill-enabled", "false")
+                .put("experimental.topn-row-number-spill-enabled", "false")
+                .put("experimental.mark-distinct-spill-enabled", "false")
                 .put("experimental.aggregation-operator-unspill-memory-limit", "100MB")
                 .put("experimental.spiller-spill-path", "/tmp/custom/spill/path1,/tmp/custom/spill/path2")
                 .put("experimental.spiller-threads", "42")
@@ -174,6 +191,7 @@ public class TestFeaturesConfig
                 .put("experimental.memory-revoking-threshold", "0.2")
                 .put("experimental.memory-revoking-target", "0.8")
                 .put("exchange.compression-enabled", "true")
+                .put("exchange.compression-codec", "ADAPTIVE")
                 .put("deprecated.legacy-timestamp", "false")
                 .put("optimizer.enable-intermediate-aggregations", "true")
                 .put("parse-decimal-literals-as-double", "true")
@@ -194,6 +212,9 @@ public class TestFeaturesConfig
                 .put("optimizer.push-limit-through-outer-join", "false")
                 .put("max-concurrent-materializations", "5")
                 .put("experimental.pushdown-subfields-enabled", "true")
+                .put("experimental.dynamic-filtering-enabled", "true")
+                .put("experimental.dynamic-filtering-max-distinct-values", "500")
+                .put("experimental.semi-join-bloom-filter-enabled", "true")
                 .build();
 
         FeaturesConfig expected = new FeaturesConfig()
@@ -208,10 +229,12 @@ public class TestFeaturesConfig
                 .setDistributedIndexJoinsEnabled(true)
                 .setJoinDistributionType(BROADCAST)
                 .setJoinMaxBroadcastTableSize(new DataSize(42, GIGABYTE))
+                .setUseObservedJoinSideSize(true)
                 .setGroupedExecutionForAggregationEnabled(true)
                 .setGroupedExecutionForEligibleTableScansEnabled(true)
                 .setDynamicScheduleForGroupedExecutionEnabled(true)
                 .setRecoverableGroupedExecutionEnabled(true)
+                .setLeafTaskRetryEnabled(true)
                 .setMaxFailedTaskPercentage(0.8)
                 .setConcurrentLifespansPerTask(1)
                 .setFastInequalityJoins(false)
@@ -236,6 +259,10 @@ public class TestFeaturesConfig
                 .setRe2JDfaStatesLimit(42)
                 .setRe2JDfaRetries(42)
                 .setSpillEnabled(true)
+                .setOrderBySpillEnabled(false)
+                .setWindowSpillEnabled(false)
+                .setTopNRowNumberSpillEnabled(false)
+                .setMarkDistinctSpillEnabled(false)
                 .setAggregationOperatorUnspillMemoryLimit(DataSize.valueOf("100MB"))
                 .setSpillerSpillPaths("/tmp/custom/spill/path1,/tmp/custom/spill/path2")
                 .setSpillerThreads(42)
@@ -244,6 +271,7 @@ public class TestFeaturesConfig
                 .setMemoryRevokingTarget(0.8)
                 .setLegacyLogFunction(true)
                 .setExchangeCompressionEnabled(true)
+                .setExchangeCompressionCodec(ExchangeCompressionCodec.ADAPTIVE)
                 .setLegacyTimestamp(false)
                 .setLegacyRowFieldOrdinalAccess(true)
                 .setLegacyCharToVarcharCoercion(true)
@@ -266,7 +294,10 @@ public class TestFeaturesConfig
                 .setJsonSerdeCodeGenerationEnabled(true)
                 .setPushLimitThroughOuterJoin(false)
                 .setMaxConcurrentMaterializations(5)
-                .setPushdownSubfieldsEnabled(true);
+                .setPushdownSubfieldsEnabled(true)
+                .setDynamicFilteringEnabled(true)
+                .setDynamicFilteringMaxDistinctValues(500)
+                .setSemiJoinBloomFilterEnabled(true);
         assertFullMapping(properties, expected);
     }
 
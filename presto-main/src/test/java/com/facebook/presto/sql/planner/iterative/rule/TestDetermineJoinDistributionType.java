@@ -14,10 +14,12 @@
 package com.facebook.presto.sql.planner.iterative.rule;
 
 import com.facebook.presto.cost.CostComparator;
+import com.facebook.presto.cost.JoinSideSizeHistory;
 import com.facebook.presto.cost.PlanNodeStatsEstimate;
 import com.facebook.presto.cost.TaskCountEstimator;
 import com.facebook.presto.cost.VariableStatsEstimate;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.plan.ValuesNode;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
 import com.facebook.presto.sql.analyzer.FeaturesConfig.JoinDistributionType;
 import com.facebook.presto.sql.planner.iterative.rule.test.RuleAssert;
@@ -27,6 +29,7 @@ import com.facebook.presto.sql.planner.plan.JoinNode.DistributionType;
 import com.facebook.presto.sql.planner.plan.JoinNode.Type;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -35,11 +38,13 @@ import java.util.Optional;
 
 import static com.facebook.presto.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
 import static com.facebook.presto.SystemSessionProperties.JOIN_MAX_BROADCAST_TABLE_SIZE;
+import static com.facebook.presto.SystemSessionProperties.USE_OBSERVED_JOIN_SIDE_SIZE;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.enforceSingleRow;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.equiJoinClause;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.join;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.values;
+import static com.facebook.presto.sql.planner.iterative.Lookup.noLookup;
 import static com.facebook.presto.sql.planner.iterative.rule.test.PlanBuilder.castToRowExpression;
 import static com.facebook.presto.sql.planner.iterative.rule.test.PlanBuilder.constantExpressions;
 import static com.facebook.presto.sql.planner.plan.JoinNode.DistributionType.PARTITIONED;
@@ -48,6 +53,9 @@ import static com.facebook.presto.sql.planner.plan.JoinNode.Type.FULL;
 import static com.facebook.presto.sql.planner.plan.JoinNode.Type.INNER;
 import static com.facebook.presto.sql.planner.plan.JoinNode.Type.LEFT;
 import static com.facebook.presto.sql.planner.plan.JoinNode.Type.RIGHT;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static io.airlift.units.DataSize.Unit.TERABYTE;
 
 @Test(singleThreaded = true)
 public class TestDetermineJoinDistributionType
@@ -688,6 +696,117 @@ public class TestDetermineJoinDistributionType
                         values(ImmutableMap.of("A1", 0))));
     }
 
+    @Test
+    public void testReplicatesWhenObservedBuildSideIsSmall()
+    {
+        JoinSideSizeHistory joinSideSizeHistory = new JoinSideSizeHistory();
+        assertDetermineJoinDistributionType(joinSideSizeHistory)
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, JoinDistributionType.AUTOMATIC.name())
+                .setSystemProperty(JOIN_MAX_BROADCAST_TABLE_SIZE, "100MB")
+                .setSystemProperty(USE_OBSERVED_JOIN_SIDE_SIZE, "true")
+                .overrideStats("valuesA", PlanNodeStatsEstimate.unknown())
+                .overrideStats("valuesB", PlanNodeStatsEstimate.unknown())
+                .on(p -> {
+                    ValuesNode valuesB = p.values(new PlanNodeId("valuesB"), 10, p.variable("B1", BIGINT));
+                    joinSideSizeHistory.recordObservedOutputSize(valuesB, noLookup(), new DataSize(10, MEGABYTE));
+                    return p.join(
+                            INNER,
+                            p.values(new PlanNodeId("valuesA"), 100, p.variable("A1", BIGINT)),
+                            valuesB,
+                            ImmutableList.of(new JoinNode.EquiJoinClause(p.variable("A1", BIGINT), p.variable("B1", BIGINT))),
+                            ImmutableList.of(p.variable("A1", BIGINT), p.variable("B1", BIGINT)),
+                            Optional.empty());
+                })
+                .matches(join(
+                        INNER,
+                        ImmutableList.of(equiJoinClause("A1", "B1")),
+                        Optional.empty(),
+                        Optional.of(REPLICATED),
+                        values(ImmutableMap.of("A1", 0)),
+                        values(ImmutableMap.of("B1", 0))));
+    }
+
+    @Test
+    public void testPartitionsWhenObservedJoinSidesAreLarge()
+    {
+        int aRows = 100;
+        int bRows = 10_000;
+        JoinSideSizeHistory joinSideSizeHistory = new JoinSideSizeHistory();
+        assertDetermineJoinDistributionType(joinSideSizeHistory)
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, JoinDistributionType.AUTOMATIC.name())
+                .setSystemProperty(JOIN_MAX_BROADCAST_TABLE_SIZE, "100MB")
+                .setSystemProperty(USE_OBSERVED_JOIN_SIDE_SIZE, "true")
+                .overrideStats("valuesA", PlanNodeStatsEstimate.builder()
+                        .setOutputRowCount(aRows)
+                        .addVariableStatistics(ImmutableMap.of(new VariableReferenceExpression("A1", BIGINT), new VariableStatsEstimate(0, 100, 0, 6400, 100)))
+                        .build())
+                .overrideStats("valuesB", PlanNodeStatsEstimate.builder()
+                        .setOutputRowCount(bRows)
+                        .addVariableStatistics(ImmutableMap.of(new VariableReferenceExpression("B1", BIGINT), new VariableStatsEstimate(0, 100, 0, 640000, 100)))
+                        .build())
+                .on(p -> {
+                    ValuesNode valuesA = p.values(new PlanNodeId("valuesA"), aRows, p.variable("A1", BIGINT));
+                    ValuesNode valuesB = p.values(new PlanNodeId("valuesB"), bRows, p.variable("B1", BIGINT));
+                    joinSideSizeHistory.recordObservedOutputSize(valuesA, noLookup(), new DataSize(5, GIGABYTE));
+                    joinSideSizeHistory.recordObservedOutputSize(valuesB, noLookup(), new DataSize(1, TERABYTE));
+                    return p.join(
+                            INNER,
+                            valuesA,
+                            valuesB,
+                            ImmutableList.of(new JoinNode.EquiJoinClause(p.variable("A1", BIGINT), p.variable("B1", BIGINT))),
+                            ImmutableList.of(p.variable("A1", BIGINT), p.variable("B1", BIGINT)),
+                            Optional.empty());
+                })
+                // the hash table is built on the smaller observed side, even if the estimates say otherwise
+                .matches(join(
+                        INNER,
+                        ImmutableList.of(equiJoinClause("B1", "A1")),
+                        Optional.empty(),
+                        Optional.of(PARTITIONED),
+                        values(ImmutableMap.of("B1", 0)),
+                        values(ImmutableMap.of("A1", 0))));
+    }
+
+    @Test
+    public void testUsesCostWhenOnlyLargeBuildSideIsObserved()
+    {
+        int aRows = 100;
+        int bRows = 10_000;
+        JoinSideSizeHistory joinSideSizeHistory = new JoinSideSizeHistory();
+        assertDetermineJoinDistributionType(joinSideSizeHistory)
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, JoinDistributionType.AUTOMATIC.name())
+                .setSystemProperty(JOIN_MAX_BROADCAST_TABLE_SIZE, "100MB")
+                .setSystemProperty(USE_OBSERVED_JOIN_SIDE_SIZE, "true")
+                .overrideStats("valuesA", PlanNodeStatsEstimate.builder()
+                        .setOutputRowCount(aRows)
+                        .addVariableStatistics(ImmutableMap.of(new VariableReferenceExpression("A1", BIGINT), new VariableStatsEstimate(0, 100, 0, 6400, 100)))
+                        .build())
+                .overrideStats("valuesB", PlanNodeStatsEstimate.builder()
+                        .setOutputRowCount(bRows)
+                        .addVariableStatistics(ImmutableMap.of(new VariableReferenceExpression("B1", BIGINT), new VariableStatsEstimate(0, 100, 0, 640000, 100)))
+                        .build())
+                .on(p -> {
+                    ValuesNode valuesA = p.values(new PlanNodeId("valuesA"), aRows, p.variable("A1", BIGINT));
+                    ValuesNode valuesB = p.values(new PlanNodeId("valuesB"), bRows, p.variable("B1", BIGINT));
+                    joinSideSizeHistory.recordObservedOutputSize(valuesB, noLookup(), new DataSize(1, TERABYTE));
+                    return p.join(
+                            INNER,
+                            valuesA,
+                            valuesB,
+                            ImmutableList.of(new JoinNode.EquiJoinClause(p.variable("A1", BIGINT), p.variable("B1", BIGINT))),
+                            ImmutableList.of(p.variable("A1", BIGINT), p.variable("B1", BIGINT)),
+                            Optional.empty());
+                })
+                // the probe side may be even larger, so the sides are chosen by the estimates
+                .matches(join(
+                        INNER,
+                        ImmutableList.of(equiJoinClause("B1", "A1")),
+                        Optional.empty(),
+                        Optional.of(REPLICATED),
+                        values(ImmutableMap.of("B1", 0)),
+                        values(ImmutableMap.of("A1", 0))));
+    }
+
     private RuleAssert assertDetermineJoinDistributionType()
     {
         return assertDetermineJoinDistributionType(COST_COMPARATOR);
@@ -697,4 +816,9 @@ public class TestDetermineJoinDistributionType
     {
         return tester.assertThat(new DetermineJoinDistributionType(costComparator, new TaskCountEstimator(() -> NODES_COUNT)));
     }
+
+    private RuleAssert assertDetermineJoinDistributionType(JoinSideSizeHistory joinSideSizeHistory)
+    {
+        return tester.assertThat(new DetermineJoinDistributionType(COST_COMPARATOR, new TaskCountEstimator(() -> NODES_COUNT), joinSideSizeHistory));
+    }
 }
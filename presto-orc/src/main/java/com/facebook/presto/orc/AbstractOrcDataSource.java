@@ -25,17 +25,27 @@ import io.airlift.units.DataSize;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
 import static com.facebook.presto.orc.OrcDataSourceUtils.getDiskRangeSlice;
 import static com.facebook.presto.orc.OrcDataSourceUtils.mergeAdjacentDiskRanges;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
 import static com.google.common.base.Verify.verify;
+import static io.airlift.units.DataSize.Unit.BYTE;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
 
 public abstract class AbstractOrcDataSource
         implements OrcDataSource
@@ -46,10 +56,31 @@ public abstract class AbstractOrcDataSource
     private final DataSize maxBufferSize;
     private final DataSize streamBufferSize;
     private final boolean lazyReadSmallRanges;
-    private long readTimeNanos;
-    private long readBytes;
+    private final Optional<Executor> readExecutor;
+    private final long maxConcurrentReadBytes;
+    private final AtomicLong readTimeNanos = new AtomicLong();
+    private final AtomicLong readBytes = new AtomicLong();
 
     public AbstractOrcDataSource(OrcDataSourceId id, long size, DataSize maxMergeDistance, DataSize maxBufferSize, DataSize streamBufferSize, boolean lazyReadSmallRanges)
+    {
+        this(id, size, maxMergeDistance, maxBufferSize, streamBufferSize, lazyReadSmallRanges, Optional.empty(), new DataSize(0, BYTE));
+    }
+
+    /**
+     * When a read executor is given, the merged small ranges of each {@link #readFully(Map)}
+     * call are read concurrently on it, in order, until {@code maxConcurrentReadSize} bytes
+     * are in flight. The remaining ranges are read when they are first used.
+     * {@link #readInternal} must then be safe to call from several threads at once.
+     */
+    public AbstractOrcDataSource(
+            OrcDataSourceId id,
+            long size,
+            DataSize maxMergeDistance,
+            DataSize maxBufferSize,
+            DataSize streamBufferSize,
+            boolean lazyReadSmallRanges,
+            Optional<Executor> readExecutor,
+            DataSize maxConcurrentReadSize)
     {
         this.id = requireNonNull(id, "id is null");
 
@@ -60,6 +91,8 @@ public abstract class AbstractOrcDataSource
         this.maxBufferSize = requireNonNull(maxBufferSize, "maxBufferSize is null");
         this.streamBufferSize = requireNonNull(streamBufferSize, "streamBufferSize is null");
         this.lazyReadSmallRanges = lazyReadSmallRanges;
+        this.readExecutor = requireNonNull(readExecutor, "readExecutor is null");
+        this.maxConcurrentReadBytes = requireNonNull(maxConcurrentReadSize, "maxConcurrentReadSize is null").toBytes();
     }
 
     protected abstract void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
@@ -74,13 +107,13 @@ public abstract class AbstractOrcDataSource
     @Override
     public final long getReadBytes()
     {
-        return readBytes;
+        return readBytes.get();
     }
 
     @Override
     public final long getReadTimeNanos()
     {
-        return readTimeNanos;
+        return readTimeNanos.get();
     }
 
     @Override
@@ -104,8 +137,8 @@ public abstract class AbstractOrcDataSource
 
         readInternal(position, buffer, bufferOffset, bufferLength);
 
-        readTimeNanos += System.nanoTime() - start;
-        readBytes += bufferLength;
+        readTimeNanos.addAndGet(System.nanoTime() - start);
+        readBytes.addAndGet(bufferLength);
     }
 
     @Override
@@ -152,12 +185,24 @@ public abstract class AbstractOrcDataSource
             return ImmutableMap.of();
         }
 
-        Iterable<DiskRange> mergedRanges = mergeAdjacentDiskRanges(diskRanges.values(), maxMergeDistance, maxBufferSize);
+        List<DiskRange> mergedRanges = mergeAdjacentDiskRanges(diskRanges.values(), maxMergeDistance, maxBufferSize);
+
+        // on high latency storage, waiting for the ranges one at a time dominates the read time
+        List<LazyBufferLoader> loaders = new ArrayList<>(mergedRanges.size());
+        long concurrentReadBytes = 0;
+        for (DiskRange mergedRange : mergedRanges) {
+            LazyBufferLoader loader = new LazyBufferLoader(mergedRange);
+            if (readExecutor.isPresent() && mergedRanges.size() > 1 && concurrentReadBytes + mergedRange.getLength() <= maxConcurrentReadBytes) {
+                loader.startRead(readExecutor.get());
+                concurrentReadBytes += mergedRange.getLength();
+            }
+            loaders.add(loader);
+        }
 
         ImmutableMap.Builder<K, OrcDataSourceInput> slices = ImmutableMap.builder();
         if (lazyReadSmallRanges) {
-            for (DiskRange mergedRange : mergedRanges) {
-                LazyBufferLoader mergedRangeLazyLoader = new LazyBufferLoader(mergedRange);
+            for (LazyBufferLoader mergedRangeLazyLoader : loaders) {
+                DiskRange mergedRange = mergedRangeLazyLoader.getDiskRange();
                 for (Entry<K, DiskRange> diskRangeEntry : diskRanges.entrySet()) {
                     DiskRange diskRange = diskRangeEntry.getValue();
                     if (mergedRange.contains(diskRange)) {
@@ -169,11 +214,9 @@ public abstract class AbstractOrcDataSource
         }
         else {
             Map<DiskRange, byte[]> buffers = new LinkedHashMap<>();
-            for (DiskRange mergedRange : mergedRanges) {
+            for (LazyBufferLoader loader : loaders) {
                 // read full range in one request
-                byte[] buffer = new byte[mergedRange.getLength()];
-                readFully(mergedRange.getOffset(), buffer);
-                buffers.put(mergedRange, buffer);
+                buffers.put(loader.getDiskRange(), loader.loadBuffer());
             }
 
             for (Entry<K, DiskRange> entry : diskRanges.entrySet()) {
@@ -211,6 +254,7 @@ public abstract class AbstractOrcDataSource
     private final class LazyBufferLoader
     {
         private final DiskRange diskRange;
+        private CompletableFuture<byte[]> pendingRead;
         private Slice bufferSlice;
 
         public LazyBufferLoader(DiskRange diskRange)
@@ -218,6 +262,16 @@ public abstract class AbstractOrcDataSource
             this.diskRange = requireNonNull(diskRange, "diskRange is null");
         }
 
+        public DiskRange getDiskRange()
+        {
+            return diskRange;
+        }
+
+        public void startRead(Executor executor)
+        {
+            pendingRead = supplyAsync(this::readBuffer, executor);
+        }
+
         public Slice loadNestedDiskRangeBuffer(DiskRange nestedDiskRange)
         {
             load();
@@ -232,10 +286,30 @@ public abstract class AbstractOrcDataSource
             if (bufferSlice != null) {
                 return;
             }
+            bufferSlice = Slices.wrappedBuffer(loadBuffer());
+        }
+
+        public byte[] loadBuffer()
+        {
+            if (pendingRead == null) {
+                return readBuffer();
+            }
+            try {
+                return pendingRead.join();
+            }
+            catch (CompletionException e) {
+                // rethrow the failure of the read, such as a PrestoException from the file system
+                throwIfUnchecked(e.getCause());
+                throw e;
+            }
+        }
+
+        private byte[] readBuffer()
+        {
             try {
                 byte[] buffer = new byte[diskRange.getLength()];
                 readFully(diskRange.getOffset(), buffer);
-                bufferSlice = Slices.wrappedBuffer(buffer);
+                return buffer;
             }
             catch (IOException e) {
                 throw new UncheckedIOException(e);
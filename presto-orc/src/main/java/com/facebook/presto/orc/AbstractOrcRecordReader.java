@@ -125,6 +125,7 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
             DateTimeZone hiveStorageTimeZone,
             PostScript.HiveWriterVersion hiveWriterVersion,
             MetadataReader metadataReader,
+            OrcFileMetadataSource fileMetadataSource,
             DataSize maxMergeDistance,
             DataSize tinyStripeThreshold,
             DataSize maxBlockSize,
@@ -224,6 +225,7 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
                 predicate,
                 hiveWriterVersion,
                 metadataReader,
+                fileMetadataSource,
                 writeValidation);
 
         this.streamReaders = requireNonNull(streamReaders, "streamReaders is null");
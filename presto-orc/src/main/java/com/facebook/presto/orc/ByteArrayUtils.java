@@ -50,18 +50,16 @@ public class ByteArrayUtils
     {
         int minLength = min(leftLength, rightLength);
         int i = 0;
-        if (minLength >= SIZE_OF_LONG) {
-            while (i < minLength) {
-                long leftLong = unsafe.getLong(left, (long) ARRAY_BYTE_BASE_OFFSET + leftOffset + i);
-                long rightLong = unsafe.getLong(right, (long) ARRAY_BYTE_BASE_OFFSET + rightOffset + i);
+        // compare 8 bytes at a time, but never read past the end of the shorter range
+        while (minLength - i >= SIZE_OF_LONG) {
+            long leftLong = unsafe.getLong(left, (long) ARRAY_BYTE_BASE_OFFSET + leftOffset + i);
+            long rightLong = unsafe.getLong(right, (long) ARRAY_BYTE_BASE_OFFSET + rightOffset + i);
 
-                if (leftLong != rightLong) {
-                    return longBytesToLong(leftLong) < longBytesToLong(rightLong) ? -1 : 1;
-                }
-
-                i += SIZE_OF_LONG;
+            if (leftLong != rightLong) {
+                return longBytesToLong(leftLong) < longBytesToLong(rightLong) ? -1 : 1;
             }
-            i -= SIZE_OF_LONG;
+
+            i += SIZE_OF_LONG;
         }
 
         while (i < minLength) {
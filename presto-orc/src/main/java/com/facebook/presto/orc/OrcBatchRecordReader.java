@@ -59,6 +59,7 @@ public class OrcBatchRecordReader
             DateTimeZone hiveStorageTimeZone,
             HiveWriterVersion hiveWriterVersion,
             MetadataReader metadataReader,
+            OrcFileMetadataSource fileMetadataSource,
             DataSize maxMergeDistance,
             DataSize tinyStripeThreshold,
             DataSize maxBlockSize,
@@ -88,6 +89,7 @@ public class OrcBatchRecordReader
                 hiveStorageTimeZone,
                 hiveWriterVersion,
                 metadataReader,
+                fileMetadataSource,
                 maxMergeDistance,
                 tinyStripeThreshold,
                 maxBlockSize,
@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.facebook.presto.orc.metadata.RowGroupIndex;
+import com.facebook.presto.orc.metadata.StripeFooter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Supplies the parsed metadata of a single ORC file. Implementations may return
+ * metadata loaded by an earlier reader of the same file instead of calling the loader.
+ */
+public interface OrcFileMetadataSource
+{
+    OrcFileMetadataSource UNCACHED = new OrcFileMetadataSource() {};
+
+    default OrcFileTail getFileTail(MetadataLoader<OrcFileTail> loader)
+            throws IOException
+    {
+        return loader.load();
+    }
+
+    default StripeFooter getStripeFooter(long stripeOffset, MetadataLoader<StripeFooter> loader)
+            throws IOException
+    {
+        return loader.load();
+    }
+
+    default List<RowGroupIndex> getRowIndexes(long stripeOffset, StreamId streamId, MetadataLoader<List<RowGroupIndex>> loader)
+            throws IOException
+    {
+        return loader.load();
+    }
+
+    interface MetadataLoader<T>
+    {
+        T load()
+                throws IOException;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.facebook.presto.orc.metadata.Footer;
+import com.facebook.presto.orc.metadata.Metadata;
+import com.facebook.presto.orc.metadata.PostScript;
+import org.openjdk.jol.info.ClassLayout;
+
+import static java.util.Objects.requireNonNull;
+
+public class OrcFileTail
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(OrcFileTail.class).instanceSize();
+    private static final int POST_SCRIPT_INSTANCE_SIZE = ClassLayout.parseClass(PostScript.class).instanceSize();
+
+    private final PostScript postScript;
+    private final Footer footer;
+    private final Metadata metadata;
+
+    public OrcFileTail(PostScript postScript, Footer footer, Metadata metadata)
+    {
+        this.postScript = requireNonNull(postScript, "postScript is null");
+        this.footer = requireNonNull(footer, "footer is null");
+        this.metadata = requireNonNull(metadata, "metadata is null");
+    }
+
+    public PostScript getPostScript()
+    {
+        return postScript;
+    }
+
+    public Footer getFooter()
+    {
+        return footer;
+    }
+
+    public Metadata getMetadata()
+    {
+        return metadata;
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + POST_SCRIPT_INSTANCE_SIZE + footer.getRetainedSizeInBytes() + metadata.getRetainedSizeInBytes();
+    }
+}
@@ -18,6 +18,7 @@ import com.facebook.presto.orc.metadata.CompressionKind;
 import com.facebook.presto.orc.metadata.ExceptionWrappingMetadataReader;
 import com.facebook.presto.orc.metadata.Footer;
 import com.facebook.presto.orc.metadata.Metadata;
+import com.facebook.presto.orc.metadata.MetadataReader;
 import com.facebook.presto.orc.metadata.PostScript;
 import com.facebook.presto.orc.metadata.PostScript.HiveWriterVersion;
 import com.facebook.presto.orc.stream.OrcInputStream;
@@ -71,6 +72,7 @@ public class OrcReader
     private final Optional<OrcDecompressor> decompressor;
     private final Footer footer;
     private final Metadata metadata;
+    private final OrcFileMetadataSource fileMetadataSource;
 
     private final Optional<OrcWriteValidation> writeValidation;
 
@@ -78,7 +80,20 @@ public class OrcReader
     public OrcReader(OrcDataSource orcDataSource, OrcEncoding orcEncoding, DataSize maxMergeDistance, DataSize maxReadSize, DataSize tinyStripeThreshold, DataSize maxBlockSize)
             throws IOException
     {
-        this(orcDataSource, orcEncoding, maxMergeDistance, maxReadSize, tinyStripeThreshold, maxBlockSize, Optional.empty());
+        this(orcDataSource, orcEncoding, maxMergeDistance, maxReadSize, tinyStripeThreshold, maxBlockSize, OrcFileMetadataSource.UNCACHED);
+    }
+
+    public OrcReader(
+            OrcDataSource orcDataSource,
+            OrcEncoding orcEncoding,
+            DataSize maxMergeDistance,
+            DataSize maxReadSize,
+            DataSize tinyStripeThreshold,
+            DataSize maxBlockSize,
+            OrcFileMetadataSource fileMetadataSource)
+            throws IOException
+    {
+        this(orcDataSource, orcEncoding, maxMergeDistance, maxReadSize, tinyStripeThreshold, maxBlockSize, fileMetadataSource, Optional.empty());
     }
 
     OrcReader(
@@ -90,6 +105,20 @@ public class OrcReader
             DataSize maxBlockSize,
             Optional<OrcWriteValidation> writeValidation)
             throws IOException
+    {
+        this(orcDataSource, orcEncoding, maxMergeDistance, maxReadSize, tinyStripeThreshold, maxBlockSize, OrcFileMetadataSource.UNCACHED, writeValidation);
+    }
+
+    private OrcReader(
+            OrcDataSource orcDataSource,
+            OrcEncoding orcEncoding,
+            DataSize maxMergeDistance,
+            DataSize maxReadSize,
+            DataSize tinyStripeThreshold,
+            DataSize maxBlockSize,
+            OrcFileMetadataSource fileMetadataSource,
+            Optional<OrcWriteValidation> writeValidation)
+            throws IOException
     {
         orcDataSource = wrapWithCacheIfTiny(orcDataSource, tinyStripeThreshold);
         this.orcDataSource = orcDataSource;
@@ -99,9 +128,39 @@ public class OrcReader
         this.maxReadSize = requireNonNull(maxReadSize, "maxReadSize is null");
         this.tinyStripeThreshold = requireNonNull(tinyStripeThreshold, "tinyStripeThreshold is null");
         this.maxBlockSize = requireNonNull(maxBlockSize, "maxBlockSize is null");
+        this.fileMetadataSource = requireNonNull(fileMetadataSource, "fileMetadataSource is null");
 
         this.writeValidation = requireNonNull(writeValidation, "writeValidation is null");
 
+        OrcDataSource dataSource = orcDataSource;
+        OrcFileTail fileTail = fileMetadataSource.getFileTail(() -> readFileTail(dataSource, metadataReader));
+        PostScript postScript = fileTail.getPostScript();
+
+        validateWrite(validation -> validation.getVersion().equals(postScript.getVersion()), "Unexpected version");
+
+        this.bufferSize = toIntExact(postScript.getCompressionBlockSize());
+
+        // check compression codec is supported
+        this.compressionKind = postScript.getCompression();
+        this.decompressor = createOrcDecompressor(orcDataSource.getId(), compressionKind, bufferSize);
+        validateWrite(validation -> validation.getCompression() == compressionKind, "Unexpected compression");
+
+        this.hiveWriterVersion = postScript.getHiveWriterVersion();
+        this.footer = fileTail.getFooter();
+        this.metadata = fileTail.getMetadata();
+
+        validateWrite(validation -> validation.getColumnNames().equals(getColumnNames()), "Unexpected column names");
+        validateWrite(validation -> validation.getRowGroupMaxRowCount() == footer.getRowsInRowGroup(), "Unexpected rows in group");
+        if (writeValidation.isPresent()) {
+            writeValidation.get().validateMetadata(orcDataSource.getId(), footer.getUserMetadata());
+            writeValidation.get().validateFileStatistics(orcDataSource.getId(), footer.getFileStats());
+            writeValidation.get().validateStripeStatistics(orcDataSource.getId(), footer.getStripes(), metadata.getStripeStatsList());
+        }
+    }
+
+    private static OrcFileTail readFileTail(OrcDataSource orcDataSource, MetadataReader metadataReader)
+            throws IOException
+    {
         //
         // Read the file tail:
         //
@@ -141,16 +200,10 @@ public class OrcReader
 
         // verify this is a supported version
         checkOrcVersion(orcDataSource, postScript.getVersion());
-        validateWrite(validation -> validation.getVersion().equals(postScript.getVersion()), "Unexpected version");
 
-        this.bufferSize = toIntExact(postScript.getCompressionBlockSize());
-
-        // check compression codec is supported
-        this.compressionKind = postScript.getCompression();
-        this.decompressor = createOrcDecompressor(orcDataSource.getId(), compressionKind, bufferSize);
-        validateWrite(validation -> validation.getCompression() == compressionKind, "Unexpected compression");
-
-        this.hiveWriterVersion = postScript.getHiveWriterVersion();
+        int bufferSize = toIntExact(postScript.getCompressionBlockSize());
+        Optional<OrcDecompressor> decompressor = createOrcDecompressor(orcDataSource.getId(), postScript.getCompression(), bufferSize);
+        HiveWriterVersion hiveWriterVersion = postScript.getHiveWriterVersion();
 
         int footerSize = toIntExact(postScript.getFooterLength());
         int metadataSize = toIntExact(postScript.getMetadataLength());
@@ -175,27 +228,23 @@ public class OrcReader
         }
 
         // read metadata
+        Metadata metadata;
         Slice metadataSlice = completeFooterSlice.slice(0, metadataSize);
         try (InputStream metadataInputStream = new OrcInputStream(orcDataSource.getId(), metadataSlice.getInput(), decompressor, newSimpleAggregatedMemoryContext(), metadataSize)) {
-            this.metadata = metadataReader.readMetadata(hiveWriterVersion, metadataInputStream);
+            metadata = metadataReader.readMetadata(hiveWriterVersion, metadataInputStream);
         }
 
         // read footer
+        Footer footer;
         Slice footerSlice = completeFooterSlice.slice(metadataSize, footerSize);
         try (InputStream footerInputStream = new OrcInputStream(orcDataSource.getId(), footerSlice.getInput(), decompressor, newSimpleAggregatedMemoryContext(), footerSize)) {
-            this.footer = metadataReader.readFooter(hiveWriterVersion, footerInputStream);
+            footer = metadataReader.readFooter(hiveWriterVersion, footerInputStream);
         }
         if (footer.getTypes().size() == 0) {
             throw new OrcCorruptionException(orcDataSource.getId(), "File has no columns");
         }
 
-        validateWrite(validation -> validation.getColumnNames().equals(getColumnNames()), "Unexpected column names");
-        validateWrite(validation -> validation.getRowGroupMaxRowCount() == footer.getRowsInRowGroup(), "Unexpected rows in group");
-        if (writeValidation.isPresent()) {
-            writeValidation.get().validateMetadata(orcDataSource.getId(), footer.getUserMetadata());
-            writeValidation.get().validateFileStatistics(orcDataSource.getId(), footer.getFileStats());
-            writeValidation.get().validateStripeStatistics(orcDataSource.getId(), footer.getStripes(), metadata.getStripeStatsList());
-        }
+        return new OrcFileTail(postScript, footer, metadata);
     }
 
     public List<String> getColumnNames()
@@ -253,6 +302,7 @@ public class OrcReader
                 requireNonNull(hiveStorageTimeZone, "hiveStorageTimeZone is null"),
                 hiveWriterVersion,
                 metadataReader,
+                fileMetadataSource,
                 maxMergeDistance,
                 tinyStripeThreshold,
                 maxBlockSize,
@@ -265,7 +315,7 @@ public class OrcReader
     public OrcSelectiveRecordReader createSelectiveRecordReader(
             Map<Integer, Type> includedColumns,
             List<Integer> outputColumns,
-            Map<Integer, TupleDomainFilter> filters,
+            Map<Integer, Map<Subfield, TupleDomainFilter>> filters,
             List<FilterFunction> filterFunctions,
             Map<Integer, Integer> filterFunctionInputs,
             Map<Integer, List<Subfield>> requiredSubfields,
@@ -300,6 +350,7 @@ public class OrcReader
                 hiveStorageTimeZone,
                 hiveWriterVersion,
                 metadataReader,
+                fileMetadataSource,
                 maxMergeDistance,
                 tinyStripeThreshold,
                 maxBlockSize,
@@ -28,6 +28,7 @@ import com.facebook.presto.spi.block.BlockLease;
 import com.facebook.presto.spi.block.RunLengthEncodedBlock;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.io.Closer;
 import io.airlift.slice.Slice;
@@ -53,6 +54,9 @@ import static java.util.Objects.requireNonNull;
 public class OrcSelectiveRecordReader
         extends AbstractOrcRecordReader<SelectiveStreamReader>
 {
+    // Number of row groups to read between re-evaluations of the order of filters
+    private static final int FILTER_REORDER_INTERVAL_ROW_GROUPS = 3;
+
     private final int[] hiveColumnIndices;                            // elements are hive column indices
     private final List<Integer> outputColumns;                        // elements are hive column indices
     private final Map<Integer, Type> columnTypes;                     // key: index into hiveColumnIndices array
@@ -65,18 +69,31 @@ public class OrcSelectiveRecordReader
     // Optimal order of stream readers
     private int[] streamReaderOrder;                                  // elements are indices into hiveColumnIndices array
 
+    // Readers with simple filters come first in streamReaderOrder and are re-ordered at runtime
+    // based on the observed cost and selectivity of the filters
+    private final int filterReaderCount;
+    private final FilterStats[] filterStats;                          // aligned with hiveColumnIndices array; null for columns without filters
+    private final int filterReorderInterval;                          // number of rows
+    private int rowsSinceFilterReorder;
+
     // An immutable list of initial positions; includes all positions: 0,1,2,3,4,..
     // This array may grow, but cannot shrink. The values don't change.
     private int[] positions;
 
-    // Used in applyFilterFunctions; mutable
+    // Used in applyFilterFunction; mutable
     private int[] outputPositions;
     private RuntimeException[] errors;
 
+    // Per-batch state of filter functions. A filter function is applied as soon as all of its inputs
+    // have been read, so that inputs of the remaining functions are decoded only for the positions that passed.
+    private final boolean[] filterFunctionApplied;                    // aligned with filterFunctions list
+    private final int[][] filterFunctionOutputPositions;              // aligned with filterFunctions list
+    private final int[] readPositionCounts;                           // aligned with hiveColumnIndices array; -1 if the column hasn't been read yet
+
     public OrcSelectiveRecordReader(
             Map<Integer, Type> includedColumns,                 // key: hiveColumnIndex
             List<Integer> outputColumns,                        // elements are hive column indices
-            Map<Integer, TupleDomainFilter> filters,            // key: hiveColumnIndex
+            Map<Integer, Map<Subfield, TupleDomainFilter>> filters, // key: hiveColumnIndex
             List<FilterFunction> filterFunctions,
             Map<Integer, Integer> filterFunctionInputMapping,   // channel-to-hiveColumnIndex mapping for all filter function inputs
             Map<Integer, List<Subfield>> requiredSubfields,     // key: hiveColumnIndex
@@ -95,6 +112,7 @@ public class OrcSelectiveRecordReader
             DateTimeZone hiveStorageTimeZone,
             PostScript.HiveWriterVersion hiveWriterVersion,
             MetadataReader metadataReader,
+            OrcFileMetadataSource fileMetadataSource,
             DataSize maxMergeDistance,
             DataSize tinyStripeThreshold,
             DataSize maxBlockSize,
@@ -129,6 +147,7 @@ public class OrcSelectiveRecordReader
                 hiveStorageTimeZone,
                 hiveWriterVersion,
                 metadataReader,
+                fileMetadataSource,
                 maxMergeDistance,
                 tinyStripeThreshold,
                 maxBlockSize,
@@ -167,7 +186,19 @@ public class OrcSelectiveRecordReader
         //  - readers with simple filters
         //  - followed by readers for columns that provide input to filter functions
         //  - followed by readers for columns that doesn't have any filtering
-        streamReaderOrder = orderStreamReaders(columnTypes.keySet().stream().filter(index -> this.constantValues[index] == null).collect(toImmutableSet()), columnsWithFilters, filterFunctionInputs);
+        Set<Integer> columnsToRead = columnTypes.keySet().stream().filter(index -> this.constantValues[index] == null).collect(toImmutableSet());
+        streamReaderOrder = orderStreamReaders(columnsToRead, columnsWithFilters, filterFunctionInputs);
+
+        filterReaderCount = (int) columnsWithFilters.stream().filter(columnsToRead::contains).count();
+        filterStats = new FilterStats[this.hiveColumnIndices.length];
+        for (int i = 0; i < filterReaderCount; i++) {
+            filterStats[streamReaderOrder[i]] = new FilterStats();
+        }
+        filterReorderInterval = FILTER_REORDER_INTERVAL_ROW_GROUPS * rowsInRowGroup;
+
+        filterFunctionApplied = new boolean[filterFunctions.size()];
+        filterFunctionOutputPositions = new int[filterFunctions.size()][];
+        readPositionCounts = new int[this.hiveColumnIndices.length];
     }
 
     private static int[] orderStreamReaders(Collection<Integer> columnIndices, Set<Integer> columnsWithFilters, Set<Integer> filterFunctionInputs)
@@ -199,7 +230,7 @@ public class OrcSelectiveRecordReader
             DateTimeZone hiveStorageTimeZone,
             Map<Integer, Type> includedColumns,
             List<Integer> outputColumns,
-            Map<Integer, TupleDomainFilter> filters,
+            Map<Integer, Map<Subfield, TupleDomainFilter>> filters,
             List<FilterFunction> filterFunctions,
             Map<Integer, Integer> filterFunctionInputMapping,
             Map<Integer, List<Subfield>> requiredSubfields,
@@ -224,7 +255,7 @@ public class OrcSelectiveRecordReader
                 boolean outputRequired = outputColumns.contains(columnId) || filterFunctionInputColumns.contains(columnId);
                 streamReaders[columnId] = createStreamReader(
                         streamDescriptor,
-                        Optional.ofNullable(filters.get(columnId)),
+                        Optional.ofNullable(filters.get(columnId)).orElse(ImmutableMap.of()),
                         outputRequired ? Optional.of(includedColumns.get(columnId)) : Optional.empty(),
                         Optional.ofNullable(requiredSubfields.get(columnId)).orElse(ImmutableList.of()),
                         hiveStorageTimeZone,
@@ -246,34 +277,73 @@ public class OrcSelectiveRecordReader
 
         int[] positionsToRead = this.positions;
         int positionCount = batchSize;
-        boolean filterFunctionsApplied = filterFunctions.isEmpty();
+
+        Arrays.fill(filterFunctionApplied, false);
+        Arrays.fill(readPositionCounts, -1);
+        int remainingFilterFunctions = filterFunctions.size();
+        if (remainingFilterFunctions > 0) {
+            initializeErrors(positionCount);
+        }
+
         for (int columnIndex : streamReaderOrder) {
-            if (!filterFunctionsApplied && !hasAnyFilter(columnIndex)) {
-                positionCount = applyFilterFunctions(positionsToRead, positionCount);
+            if (remainingFilterFunctions > 0 && !columnsWithFilters.contains(columnIndex)) {
+                // all simple filters have been applied; apply filter functions with all inputs available
+                // before reading more columns
+                for (int i = 0; i < filterFunctions.size() && positionCount > 0; i++) {
+                    if (!filterFunctionApplied[i] && isReady(filterFunctions.get(i))) {
+                        positionCount = applyFilterFunction(i, positionsToRead, positionCount);
+                        positionsToRead = filterFunctionOutputPositions[i];
+                        filterFunctionApplied[i] = true;
+                        remainingFilterFunctions--;
+                    }
+                }
                 if (positionCount == 0) {
                     break;
                 }
-
-                positionsToRead = outputPositions;
-                filterFunctionsApplied = true;
             }
 
             SelectiveStreamReader streamReader = getStreamReader(columnIndex);
-            positionCount = streamReader.read(getNextRowInGroup(), positionsToRead, positionCount);
+            FilterStats stats = filterStats[columnIndex];
+            if (stats != null) {
+                long start = System.nanoTime();
+                int inputPositionCount = positionCount;
+                positionCount = streamReader.read(getNextRowInGroup(), positionsToRead, positionCount);
+                stats.add(System.nanoTime() - start, inputPositionCount, positionCount);
+            }
+            else {
+                positionCount = streamReader.read(getNextRowInGroup(), positionsToRead, positionCount);
+            }
             if (positionCount == 0) {
                 break;
             }
 
             positionsToRead = streamReader.getReadPositions();
+            readPositionCounts[columnIndex] = positionCount;
+        }
+
+        for (int i = 0; i < filterFunctions.size() && positionCount > 0; i++) {
+            if (!filterFunctionApplied[i]) {
+                positionCount = applyFilterFunction(i, positionsToRead, positionCount);
+                positionsToRead = filterFunctionOutputPositions[i];
+            }
         }
 
-        if (positionCount > 0 && !filterFunctionsApplied) {
-            positionCount = applyFilterFunctions(positionsToRead, positionCount);
-            positionsToRead = outputPositions;
+        if (!filterFunctions.isEmpty()) {
+            for (int i = 0; i < positionCount; i++) {
+                if (errors[i] != null) {
+                    throw errors[i];
+                }
+            }
         }
 
         batchRead(batchSize);
 
+        rowsSinceFilterReorder += batchSize;
+        if (rowsSinceFilterReorder >= filterReorderInterval) {
+            reorderFilters();
+            rowsSinceFilterReorder = 0;
+        }
+
         if (positionCount == 0) {
             return new Page(0);
         }
@@ -298,14 +368,45 @@ public class OrcSelectiveRecordReader
         return page;
     }
 
+    private void reorderFilters()
+    {
+        if (filterReaderCount < 2) {
+            return;
+        }
+
+        // Run filters with the lowest cost per dropped position first; the insertion sort
+        // keeps the current order of filters with the same cost
+        for (int i = 1; i < filterReaderCount; i++) {
+            int columnIndex = streamReaderOrder[i];
+            double cost = filterStats[columnIndex].getTimePerDroppedPosition();
+            int j = i - 1;
+            while (j >= 0 && filterStats[streamReaderOrder[j]].getTimePerDroppedPosition() > cost) {
+                streamReaderOrder[j + 1] = streamReaderOrder[j];
+                j--;
+            }
+            streamReaderOrder[j + 1] = columnIndex;
+        }
+
+        // Give more weight to recent row groups
+        for (int i = 0; i < filterReaderCount; i++) {
+            filterStats[streamReaderOrder[i]].decay();
+        }
+    }
+
     private SelectiveStreamReader getStreamReader(int columnIndex)
     {
         return getStreamReaders()[hiveColumnIndices[columnIndex]];
     }
 
-    private boolean hasAnyFilter(int columnIndex)
+    private boolean isReady(FilterFunction function)
     {
-        return columnsWithFilters.contains(columnIndex) || filterFunctionInputs.contains(columnIndex);
+        for (int channel : function.getInputChannels()) {
+            int columnIndex = filterFunctionInputMapping.get(channel);
+            if (constantValues[columnIndex] == null && readPositionCounts[columnIndex] < 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private void initializePositions(int batchSize)
@@ -318,51 +419,47 @@ public class OrcSelectiveRecordReader
         }
     }
 
-    private int applyFilterFunctions(int[] positions, int positionCount)
+    private int applyFilterFunction(int functionIndex, int[] positions, int positionCount)
     {
-        BlockLease[] blockLeases = new BlockLease[hiveColumnIndices.length];
-        Block[] blocks = new Block[hiveColumnIndices.length];
-        for (int columnIndex : filterFunctionInputs) {
-            if (constantValues[columnIndex] != null) {
-                blocks[columnIndex] = RunLengthEncodedBlock.create(columnTypes.get(columnIndex), constantValues[columnIndex], positionCount);
-            }
-            else {
-                blockLeases[columnIndex] = getStreamReader(columnIndex).getBlockView(positions, positionCount);
-                blocks[columnIndex] = blockLeases[columnIndex].get();
-            }
-        }
+        FilterFunction function = filterFunctions.get(functionIndex);
+        int[] inputs = function.getInputChannels();
+        BlockLease[] blockLeases = new BlockLease[inputs.length];
+        Block[] inputBlocks = new Block[inputs.length];
 
         try {
-            initializeOutputPositions(positionCount);
-
-            for (FilterFunction function : filterFunctions) {
-                int[] inputs = function.getInputChannels();
-                Block[] inputBlocks = new Block[inputs.length];
-
-                for (int i = 0; i < inputs.length; i++) {
-                    inputBlocks[i] = blocks[filterFunctionInputMapping.get(inputs[i])];
+            for (int i = 0; i < inputs.length; i++) {
+                int columnIndex = filterFunctionInputMapping.get(inputs[i]);
+                if (constantValues[columnIndex] != null) {
+                    inputBlocks[i] = RunLengthEncodedBlock.create(columnTypes.get(columnIndex), constantValues[columnIndex], positionCount);
                 }
-
-                Page page = new Page(positionCount, inputBlocks);
-                positionCount = function.filter(page, outputPositions, positionCount, errors);
-                if (positionCount == 0) {
-                    break;
+                else if (readPositionCounts[columnIndex] == positionCount) {
+                    blockLeases[i] = getStreamReader(columnIndex).getBlockView(positions, positionCount);
+                    inputBlocks[i] = blockLeases[i].get();
                 }
-            }
-
-            for (int i = 0; i < positionCount; i++) {
-                if (errors[i] != null) {
-                    throw errors[i];
+                else {
+                    // getBlockView compacts the values in place, which is not safe once other readers
+                    // have been read using the positions array of this reader
+                    inputBlocks[i] = getStreamReader(columnIndex).getBlock(positions, positionCount);
                 }
             }
 
+            initializeOutputPositions(positionCount);
+
+            Page page = new Page(positionCount, inputBlocks);
+            int outputPositionCount = function.filter(page, outputPositions, positionCount, errors);
+
             // at this point outputPositions are relative to page, e.g. they are indices into positions array
             // translate outputPositions to positions relative to the start of the row group,
             // e.g. make outputPositions a subset of positions array
-            for (int i = 0; i < positionCount; i++) {
-                outputPositions[i] = positions[outputPositions[i]];
+            int[] functionOutputPositions = filterFunctionOutputPositions[functionIndex];
+            if (functionOutputPositions == null || functionOutputPositions.length < outputPositionCount) {
+                functionOutputPositions = new int[positions.length];
+                filterFunctionOutputPositions[functionIndex] = functionOutputPositions;
+            }
+            for (int i = 0; i < outputPositionCount; i++) {
+                functionOutputPositions[i] = positions[outputPositions[i]];
             }
-            return positionCount;
+            return outputPositionCount;
         }
         finally {
             for (BlockLease blockLease : blockLeases) {
@@ -382,7 +479,10 @@ public class OrcSelectiveRecordReader
         for (int i = 0; i < positionCount; i++) {
             outputPositions[i] = i;
         }
+    }
 
+    private void initializeErrors(int positionCount)
+    {
         if (errors == null || errors.length < positionCount) {
             errors = new RuntimeException[positionCount];
         }
@@ -405,4 +505,31 @@ public class OrcSelectiveRecordReader
 
         super.close();
     }
+
+    private static final class FilterStats
+    {
+        private long nanos;
+        private long inputPositions;
+        private long outputPositions;
+
+        void add(long nanos, int inputPositions, int outputPositions)
+        {
+            this.nanos += nanos;
+            this.inputPositions += inputPositions;
+            this.outputPositions += outputPositions;
+        }
+
+        double getTimePerDroppedPosition()
+        {
+            // adding 1 avoids division by zero for filters that haven't dropped any positions yet
+            return (double) nanos / (1 + inputPositions - outputPositions);
+        }
+
+        void decay()
+        {
+            nanos /= 2;
+            inputPositions /= 2;
+            outputPositions /= 2;
+        }
+    }
 }
@@ -83,6 +83,7 @@ public class StripeReader
     private final int rowsInRowGroup;
     private final OrcPredicate predicate;
     private final MetadataReader metadataReader;
+    private final OrcFileMetadataSource fileMetadataSource;
     private final Optional<OrcWriteValidation> writeValidation;
 
     public StripeReader(OrcDataSource orcDataSource,
@@ -93,6 +94,7 @@ public class StripeReader
             OrcPredicate predicate,
             HiveWriterVersion hiveWriterVersion,
             MetadataReader metadataReader,
+            OrcFileMetadataSource fileMetadataSource,
             Optional<OrcWriteValidation> writeValidation)
     {
         this.orcDataSource = requireNonNull(orcDataSource, "orcDataSource is null");
@@ -103,6 +105,7 @@ public class StripeReader
         this.predicate = requireNonNull(predicate, "predicate is null");
         this.hiveWriterVersion = requireNonNull(hiveWriterVersion, "hiveWriterVersion is null");
         this.metadataReader = requireNonNull(metadataReader, "metadataReader is null");
+        this.fileMetadataSource = requireNonNull(fileMetadataSource, "fileMetadataSource is null");
         this.writeValidation = requireNonNull(writeValidation, "writeValidation is null");
     }
 
@@ -152,7 +155,7 @@ public class StripeReader
             Map<StreamId, List<HiveBloomFilter>> bloomFilterIndexes = readBloomFilterIndexes(streams, streamsData);
 
             // read the row index for each column
-            Map<StreamId, List<RowGroupIndex>> columnIndexes = readColumnIndexes(streams, streamsData, bloomFilterIndexes);
+            Map<StreamId, List<RowGroupIndex>> columnIndexes = readColumnIndexes(stripe.getOffset(), streams, streamsData, bloomFilterIndexes);
             if (writeValidation.isPresent()) {
                 writeValidation.get().validateRowGroupStatistics(orcDataSource.getId(), stripe.getOffset(), columnIndexes);
             }
@@ -212,7 +215,8 @@ public class StripeReader
         long minAverageRowBytes = 0;
         for (Entry<StreamId, Stream> entry : streams.entrySet()) {
             if (entry.getKey().getStreamKind() == ROW_INDEX) {
-                List<RowGroupIndex> rowGroupIndexes = metadataReader.readRowIndexes(hiveWriterVersion, streamsData.get(entry.getKey()));
+                OrcInputStream inputStream = streamsData.get(entry.getKey());
+                List<RowGroupIndex> rowGroupIndexes = fileMetadataSource.getRowIndexes(stripe.getOffset(), entry.getKey(), () -> metadataReader.readRowIndexes(hiveWriterVersion, inputStream));
                 checkState(rowGroupIndexes.size() == 1 || invalidCheckPoint, "expect a single row group or an invalid check point");
                 long totalBytes = 0;
                 long totalRows = 0;
@@ -380,12 +384,14 @@ public class StripeReader
         long offset = stripe.getOffset() + stripe.getIndexLength() + stripe.getDataLength();
         int tailLength = toIntExact(stripe.getFooterLength());
 
-        // read the footer
-        byte[] tailBuffer = new byte[tailLength];
-        orcDataSource.readFully(offset, tailBuffer);
-        try (InputStream inputStream = new OrcInputStream(orcDataSource.getId(), Slices.wrappedBuffer(tailBuffer).getInput(), decompressor, systemMemoryUsage, tailLength)) {
-            return metadataReader.readStripeFooter(types, inputStream);
-        }
+        return fileMetadataSource.getStripeFooter(stripe.getOffset(), () -> {
+            // read the footer
+            byte[] tailBuffer = new byte[tailLength];
+            orcDataSource.readFully(offset, tailBuffer);
+            try (InputStream inputStream = new OrcInputStream(orcDataSource.getId(), Slices.wrappedBuffer(tailBuffer).getInput(), decompressor, systemMemoryUsage, tailLength)) {
+                return metadataReader.readStripeFooter(types, inputStream);
+            }
+        });
     }
 
     static boolean isIndexStream(Stream stream)
@@ -408,7 +414,7 @@ public class StripeReader
         return bloomFilters.build();
     }
 
-    private Map<StreamId, List<RowGroupIndex>> readColumnIndexes(Map<StreamId, Stream> streams, Map<StreamId, OrcInputStream> streamsData, Map<StreamId, List<HiveBloomFilter>> bloomFilterIndexes)
+    private Map<StreamId, List<RowGroupIndex>> readColumnIndexes(long stripeOffset, Map<StreamId, Stream> streams, Map<StreamId, OrcInputStream> streamsData, Map<StreamId, List<HiveBloomFilter>> bloomFilterIndexes)
             throws IOException
     {
         ImmutableMap.Builder<StreamId, List<RowGroupIndex>> columnIndexes = ImmutableMap.builder();
@@ -417,7 +423,7 @@ public class StripeReader
             if (stream.getStreamKind() == ROW_INDEX) {
                 OrcInputStream inputStream = streamsData.get(entry.getKey());
                 List<HiveBloomFilter> bloomFilters = bloomFilterIndexes.get(entry.getKey());
-                List<RowGroupIndex> rowGroupIndexes = metadataReader.readRowIndexes(hiveWriterVersion, inputStream);
+                List<RowGroupIndex> rowGroupIndexes = fileMetadataSource.getRowIndexes(stripeOffset, entry.getKey(), () -> metadataReader.readRowIndexes(hiveWriterVersion, inputStream));
                 if (bloomFilters != null && !bloomFilters.isEmpty()) {
                     ImmutableList.Builder<RowGroupIndex> newRowGroupIndexes = ImmutableList.builder();
                     for (int i = 0; i < rowGroupIndexes.size(); i++) {
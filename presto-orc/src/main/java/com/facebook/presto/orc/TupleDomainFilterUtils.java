@@ -47,6 +47,7 @@ import static com.facebook.presto.spi.type.RealType.REAL;
 import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
 import static com.facebook.presto.spi.type.TimestampType.TIMESTAMP;
 import static com.facebook.presto.spi.type.TinyintType.TINYINT;
+import static com.facebook.presto.spi.type.VarbinaryType.VARBINARY;
 import static com.facebook.presto.spi.type.Varchars.isVarcharType;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Predicates.not;
@@ -62,10 +63,16 @@ public class TupleDomainFilterUtils
     public static TupleDomainFilter toFilter(Domain domain)
     {
         ValueSet values = domain.getValues();
+        boolean nullAllowed = domain.isNullAllowed();
+
+        if (values.isAll()) {
+            checkArgument(!nullAllowed, "Unexpected always-true filter");
+            return IS_NOT_NULL;
+        }
+
         checkArgument(values instanceof SortedRangeSet, "Unexpected domain type: " + values.getClass().getSimpleName());
 
         List<Range> ranges = ((SortedRangeSet) values).getOrderedRanges();
-        boolean nullAllowed = domain.isNullAllowed();
 
         if (ranges.isEmpty() && nullAllowed) {
             return IS_NULL;
@@ -166,7 +173,7 @@ public class TupleDomainFilterUtils
             }
             return longDecimalRangeToFilter(range, nullAllowed);
         }
-        if (isVarcharType(type) || type instanceof CharType) {
+        if (isVarcharType(type) || type instanceof CharType || type == VARBINARY) {
             return varcharRangeToFilter(range, nullAllowed);
         }
 
@@ -18,6 +18,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
+import org.openjdk.jol.info.ClassLayout;
 
 import java.util.List;
 import java.util.Map;
@@ -28,6 +29,9 @@ import static java.util.Objects.requireNonNull;
 
 public class Footer
 {
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(Footer.class).instanceSize();
+    private static final int STRIPE_INFORMATION_INSTANCE_SIZE = ClassLayout.parseClass(StripeInformation.class).instanceSize();
+
     private final long numberOfRows;
     private final int rowsInRowGroup;
     private final List<StripeInformation> stripes;
@@ -76,6 +80,21 @@ public class Footer
         return ImmutableMap.copyOf(transformValues(userMetadata, Slices::copyOf));
     }
 
+    public long getRetainedSizeInBytes()
+    {
+        long retainedSizeInBytes = INSTANCE_SIZE + (long) stripes.size() * STRIPE_INFORMATION_INSTANCE_SIZE;
+        for (OrcType type : types) {
+            retainedSizeInBytes += type.getRetainedSizeInBytes();
+        }
+        for (ColumnStatistics statistics : fileStats) {
+            retainedSizeInBytes += statistics.getRetainedSizeInBytes();
+        }
+        for (Slice value : userMetadata.values()) {
+            retainedSizeInBytes += value.getRetainedSize();
+        }
+        return retainedSizeInBytes;
+    }
+
     @Override
     public String toString()
     {
@@ -20,6 +20,7 @@ import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.TypeSignatureParameter;
 import com.facebook.presto.spi.type.VarcharType;
 import com.google.common.collect.ImmutableList;
+import org.openjdk.jol.info.ClassLayout;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -41,11 +42,16 @@ import static com.facebook.presto.spi.type.TinyintType.TINYINT;
 import static com.facebook.presto.spi.type.VarbinaryType.VARBINARY;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOfCharArray;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 public class OrcType
 {
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(OrcType.class).instanceSize();
+    private static final int INTEGER_INSTANCE_SIZE = ClassLayout.parseClass(Integer.class).instanceSize();
+    private static final int STRING_INSTANCE_SIZE = ClassLayout.parseClass(String.class).instanceSize();
+
     public enum OrcTypeKind
     {
         BOOLEAN,
@@ -162,6 +168,17 @@ public class OrcType
         return scale;
     }
 
+    public long getRetainedSizeInBytes()
+    {
+        long retainedSizeInBytes = INSTANCE_SIZE + (long) fieldTypeIndexes.size() * INTEGER_INSTANCE_SIZE;
+        if (fieldNames != null) {
+            for (String fieldName : fieldNames) {
+                retainedSizeInBytes += STRING_INSTANCE_SIZE + sizeOfCharArray(fieldName.length());
+            }
+        }
+        return retainedSizeInBytes;
+    }
+
     @Override
     public String toString()
     {
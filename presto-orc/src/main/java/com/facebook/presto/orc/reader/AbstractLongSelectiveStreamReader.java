@@ -27,12 +27,19 @@ import java.util.Optional;
 
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DateType.DATE;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.RealType.REAL;
 import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TimestampType.TIMESTAMP;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Base class for readers that buffer values in a long[] array. Besides integral types, this
+ * is used for DOUBLE and REAL (stored as raw bits) and TIMESTAMP (stored as millis) values.
+ */
 abstract class AbstractLongSelectiveStreamReader
         implements SelectiveStreamReader
 {
@@ -83,14 +90,14 @@ abstract class AbstractLongSelectiveStreamReader
     {
         checkState(!valuesInUse, "BlockLease hasn't been closed yet");
 
-        if (outputType == BIGINT) {
+        if (outputType == BIGINT || outputType == DOUBLE || outputType == TIMESTAMP) {
             if (positionCount < outputPositionCount) {
                 compactValues(positions, positionCount, includeNulls);
             }
             return newLease(new LongArrayBlock(positionCount, Optional.ofNullable(includeNulls ? nulls : null), values));
         }
 
-        if (outputType == INTEGER || outputType == DATE) {
+        if (outputType == INTEGER || outputType == DATE || outputType == REAL) {
             if (!intValuesPopulated || positionCount < outputPositionCount) {
                 if (positionCount < outputPositionCount) {
                     compactValues(positions, positionCount, includeNulls);
@@ -137,11 +144,11 @@ abstract class AbstractLongSelectiveStreamReader
     {
         checkState(!valuesInUse, "BlockLease hasn't been closed yet");
 
-        if (outputType == BIGINT) {
+        if (outputType == BIGINT || outputType == DOUBLE || outputType == TIMESTAMP) {
             return getLongArrayBlock(positions, positionCount, includeNulls);
         }
 
-        if (outputType == INTEGER || outputType == DATE) {
+        if (outputType == INTEGER || outputType == DATE || outputType == REAL) {
             return getIntArrayBlock(positions, positionCount, includeNulls);
         }
 
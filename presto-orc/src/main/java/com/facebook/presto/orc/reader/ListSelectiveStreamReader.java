@@ -0,0 +1,606 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc.reader;
+
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.orc.OrcCorruptionException;
+import com.facebook.presto.orc.StreamDescriptor;
+import com.facebook.presto.orc.TupleDomainFilter;
+import com.facebook.presto.orc.metadata.ColumnEncoding;
+import com.facebook.presto.orc.stream.BooleanInputStream;
+import com.facebook.presto.orc.stream.InputStreamSource;
+import com.facebook.presto.orc.stream.InputStreamSources;
+import com.facebook.presto.orc.stream.LongInputStream;
+import com.facebook.presto.spi.Subfield;
+import com.facebook.presto.spi.block.ArrayBlock;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockLease;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.spi.type.ArrayType;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jol.info.ClassLayout;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static com.facebook.presto.orc.TupleDomainFilter.IS_NOT_NULL;
+import static com.facebook.presto.orc.TupleDomainFilter.IS_NULL;
+import static com.facebook.presto.orc.metadata.Stream.StreamKind.LENGTH;
+import static com.facebook.presto.orc.metadata.Stream.StreamKind.PRESENT;
+import static com.facebook.presto.orc.reader.SelectiveStreamReaders.createStreamReader;
+import static com.facebook.presto.orc.reader.SelectiveStreamReaders.getPrimitiveType;
+import static com.facebook.presto.orc.reader.SelectiveStreamReaders.tail;
+import static com.facebook.presto.orc.reader.SelectiveStreamReaders.testValue;
+import static com.facebook.presto.orc.stream.MissingInputStreamSource.missingStreamSource;
+import static com.facebook.presto.spi.block.ClosingBlockLease.newLease;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads ORC list columns. Supports IS NULL and IS NOT NULL filters on the list itself and range
+ * filters on individual elements, e.g. a[2] > 5. An element that is out of bounds is treated as null.
+ * When the list is not required for output, only the elements referenced by the filters are read.
+ */
+public class ListSelectiveStreamReader
+        implements SelectiveStreamReader
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(ListSelectiveStreamReader.class).instanceSize();
+
+    private final StreamDescriptor streamDescriptor;
+    private final boolean nullsAllowed;
+    private final boolean nonNullsAllowed;
+    private final boolean outputRequired;
+    @Nullable
+    private final ArrayType outputType;
+
+    // 1-based element indices and corresponding filters, sorted by index
+    private final int[] subscripts;
+    private final TupleDomainFilter[] subscriptFilters;
+
+    @Nullable
+    private final Type elementType;
+    @Nullable
+    private final SelectiveStreamReader elementReader;
+
+    private final LocalMemoryContext systemMemoryContext;
+
+    private InputStreamSource<BooleanInputStream> presentStreamSource = missingStreamSource(BooleanInputStream.class);
+    @Nullable
+    private BooleanInputStream presentStream;
+
+    private InputStreamSource<LongInputStream> lengthStreamSource = missingStreamSource(LongInputStream.class);
+    @Nullable
+    private LongInputStream lengthStream;
+
+    private boolean rowGroupOpen;
+    private int readOffset;
+    private int elementReadOffset;
+
+    @Nullable
+    private int[] outputPositions;
+    @Nullable
+    private boolean[] nulls;
+    // element offsets relative to elementOffset and lengths of the lists at outputPositions
+    @Nullable
+    private int[] offsets;
+    @Nullable
+    private int[] lengths;
+    private int outputPositionCount;
+    private int elementOffset;
+
+    @Nullable
+    private int[] elementPositions;
+    private int elementPositionCount;
+
+    public ListSelectiveStreamReader(
+            StreamDescriptor streamDescriptor,
+            Map<Subfield, TupleDomainFilter> filters,
+            List<Subfield> requiredSubfields,
+            Optional<Type> outputType,
+            DateTimeZone hiveStorageTimeZone,
+            AggregatedMemoryContext systemMemoryContext)
+    {
+        this.streamDescriptor = requireNonNull(streamDescriptor, "streamDescriptor is null");
+        requireNonNull(filters, "filters is null");
+        requireNonNull(requiredSubfields, "requiredSubfields is null");
+        requireNonNull(outputType, "outputType is null");
+        this.systemMemoryContext = requireNonNull(systemMemoryContext, "systemMemoryContext is null").newLocalMemoryContext(ListSelectiveStreamReader.class.getSimpleName());
+        this.outputRequired = outputType.isPresent();
+        this.outputType = outputType.map(ArrayType.class::cast).orElse(null);
+
+        TupleDomainFilter filter = null;
+        TreeMap<Integer, TupleDomainFilter> elementFilters = new TreeMap<>();
+        for (Map.Entry<Subfield, TupleDomainFilter> entry : filters.entrySet()) {
+            List<Subfield.PathElement> path = entry.getKey().getPath();
+            if (path.isEmpty()) {
+                filter = entry.getValue();
+                checkArgument(filter == IS_NULL || filter == IS_NOT_NULL, "Only IS NULL and IS NOT NULL filters are supported on list columns: %s", filter);
+                continue;
+            }
+            checkArgument(path.size() == 1 && path.get(0) instanceof Subfield.LongSubscript, "Unsupported subfield filter on a list column: %s", entry.getKey());
+            long subscript = ((Subfield.LongSubscript) path.get(0)).getIndex();
+            checkArgument(subscript > 0 && subscript <= Integer.MAX_VALUE, "Invalid array subscript: %s", subscript);
+            elementFilters.put((int) subscript, entry.getValue());
+        }
+
+        subscripts = elementFilters.keySet().stream().mapToInt(Integer::intValue).toArray();
+        subscriptFilters = elementFilters.values().toArray(new TupleDomainFilter[0]);
+
+        // A null list makes all of its elements null
+        nullsAllowed = (filter == null || filter.testNull()) && elementFilters.values().stream().allMatch(TupleDomainFilter::testNull);
+        nonNullsAllowed = filter != IS_NULL;
+
+        StreamDescriptor elementStreamDescriptor = streamDescriptor.getNestedStreams().get(0);
+        if (subscripts.length > 0) {
+            // filters on elements are supported only for primitive types
+            Type filterType = getPrimitiveType(elementStreamDescriptor);
+            elementType = outputRequired ? this.outputType.getElementType() : filterType;
+        }
+        else {
+            elementType = outputRequired ? this.outputType.getElementType() : null;
+        }
+
+        if (elementType != null) {
+            elementReader = createStreamReader(
+                    elementStreamDescriptor,
+                    ImmutableMap.of(),
+                    Optional.of(elementType),
+                    outputRequired ? getElementSubfields(requiredSubfields) : ImmutableList.of(),
+                    hiveStorageTimeZone,
+                    systemMemoryContext);
+        }
+        else {
+            elementReader = null;
+        }
+    }
+
+    private static List<Subfield> getElementSubfields(List<Subfield> requiredSubfields)
+    {
+        ImmutableList.Builder<Subfield> elementSubfields = ImmutableList.builder();
+        for (Subfield subfield : requiredSubfields) {
+            if (subfield.getPath().isEmpty()) {
+                return ImmutableList.of();
+            }
+            Subfield elementSubfield = tail(subfield);
+            if (elementSubfield.getPath().isEmpty()) {
+                return ImmutableList.of();
+            }
+            elementSubfields.add(elementSubfield);
+        }
+        return elementSubfields.build();
+    }
+
+    @Override
+    public int read(int offset, int[] positions, int positionCount)
+            throws IOException
+    {
+        if (!rowGroupOpen) {
+            openRowGroup();
+        }
+
+        if (readOffset < offset) {
+            elementReadOffset += skip(offset - readOffset);
+        }
+
+        ensureCapacity(positionCount);
+
+        elementOffset = elementReadOffset;
+        outputPositionCount = 0;
+        elementPositionCount = 0;
+        int streamPosition = 0;
+        int elementStreamPosition = 0;
+
+        if (lengthStream == null) {
+            if (presentStream == null) {
+                throw new OrcCorruptionException(streamDescriptor.getOrcDataSourceId(), "Value is not null but data stream is not present");
+            }
+
+            // all nulls
+            streamPosition = positions[positionCount - 1] + 1;
+            presentStream.skip(streamPosition);
+            if (nullsAllowed) {
+                for (int i = 0; i < positionCount; i++) {
+                    outputPositions[i] = positions[i];
+                    nulls[i] = true;
+                }
+                outputPositionCount = positionCount;
+            }
+        }
+        else {
+            for (int i = 0; i < positionCount; i++) {
+                int position = positions[i];
+                if (position > streamPosition) {
+                    elementStreamPosition += skipLists(position - streamPosition);
+                    streamPosition = position;
+                }
+
+                if (presentStream != null && !presentStream.nextBit()) {
+                    if (nullsAllowed) {
+                        outputPositions[outputPositionCount] = position;
+                        nulls[outputPositionCount] = true;
+                        outputPositionCount++;
+                    }
+                }
+                else {
+                    int length = toIntExact(lengthStream.next());
+                    if (nonNullsAllowed) {
+                        outputPositions[outputPositionCount] = position;
+                        nulls[outputPositionCount] = false;
+                        offsets[outputPositionCount] = elementStreamPosition;
+                        lengths[outputPositionCount] = length;
+                        outputPositionCount++;
+                    }
+                    elementStreamPosition += length;
+                }
+                streamPosition++;
+            }
+        }
+
+        if (outputPositionCount > 0 && elementReader != null) {
+            readElements();
+        }
+
+        // account memory used by outputPositions, nulls, offsets, lengths and elementPositions
+        systemMemoryContext.setBytes(getLocalRetainedSizeInBytes());
+
+        readOffset = offset + streamPosition;
+        elementReadOffset = elementOffset + elementStreamPosition;
+
+        return outputPositionCount;
+    }
+
+    private void readElements()
+            throws IOException
+    {
+        // Read all elements if output is required; otherwise, read only the elements referenced by the filters
+        for (int i = 0; i < outputPositionCount; i++) {
+            if (nulls[i]) {
+                continue;
+            }
+
+            if (outputRequired) {
+                ensureElementCapacity(elementPositionCount + lengths[i]);
+                for (int j = 0; j < lengths[i]; j++) {
+                    elementPositions[elementPositionCount] = offsets[i] + j;
+                    elementPositionCount++;
+                }
+            }
+            else {
+                ensureElementCapacity(elementPositionCount + subscripts.length);
+                for (int subscript : subscripts) {
+                    if (subscript <= lengths[i]) {
+                        elementPositions[elementPositionCount] = offsets[i] + subscript - 1;
+                        elementPositionCount++;
+                    }
+                }
+            }
+        }
+
+        if (elementPositionCount > 0) {
+            int readCount = elementReader.read(elementOffset, elementPositions, elementPositionCount);
+            checkState(readCount == elementPositionCount, "Element reader must not filter out any values");
+        }
+
+        if (subscripts.length > 0) {
+            applySubscriptFilters();
+        }
+    }
+
+    private void applySubscriptFilters()
+    {
+        // getBlockView may compact the values in place, hence, request a view over all the elements read
+        Block elements = null;
+        BlockLease lease = null;
+        if (elementPositionCount > 0) {
+            lease = elementReader.getBlockView(elementPositions, elementPositionCount);
+            elements = lease.get();
+        }
+
+        try {
+            int elementIndex = 0;
+            int count = 0;
+            for (int i = 0; i < outputPositionCount; i++) {
+                boolean passed = true;
+                if (!nulls[i]) {
+                    for (int j = 0; j < subscripts.length; j++) {
+                        if (subscripts[j] > lengths[i]) {
+                            passed &= subscriptFilters[j].testNull();
+                        }
+                        else if (outputRequired) {
+                            passed &= testValue(subscriptFilters[j], elementType, elements, elementIndex + subscripts[j] - 1);
+                        }
+                        else {
+                            passed &= testValue(subscriptFilters[j], elementType, elements, elementIndex + j);
+                        }
+                    }
+                    elementIndex += outputRequired ? lengths[i] : countSubscripts(lengths[i]);
+                }
+
+                if (passed) {
+                    outputPositions[count] = outputPositions[i];
+                    nulls[count] = nulls[i];
+                    offsets[count] = offsets[i];
+                    lengths[count] = lengths[i];
+                    count++;
+                }
+            }
+            outputPositionCount = count;
+        }
+        finally {
+            if (lease != null) {
+                lease.close();
+            }
+        }
+    }
+
+    // Returns the number of subscripts that refer to existing elements of a list of the specified length
+    private int countSubscripts(int length)
+    {
+        int count = 0;
+        while (count < subscripts.length && subscripts[count] <= length) {
+            count++;
+        }
+        return count;
+    }
+
+    private int skip(int items)
+            throws IOException
+    {
+        if (lengthStream == null) {
+            if (presentStream != null) {
+                presentStream.skip(items);
+            }
+            return 0;
+        }
+        return skipLists(items);
+    }
+
+    // Skips the specified number of lists and returns the total number of elements in these lists
+    private int skipLists(int items)
+            throws IOException
+    {
+        int listCount = presentStream == null ? items : presentStream.countBitsSet(items);
+        return toIntExact(lengthStream.sum(listCount));
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (outputPositions == null || outputPositions.length < capacity) {
+            outputPositions = new int[capacity];
+            nulls = new boolean[capacity];
+            offsets = new int[capacity];
+            lengths = new int[capacity];
+        }
+    }
+
+    private void ensureElementCapacity(int capacity)
+    {
+        if (elementPositions == null || elementPositions.length < capacity) {
+            int[] newElementPositions = new int[Math.max(capacity, elementPositions == null ? 0 : elementPositions.length * 2)];
+            if (elementPositions != null) {
+                System.arraycopy(elementPositions, 0, newElementPositions, 0, elementPositionCount);
+            }
+            elementPositions = newElementPositions;
+        }
+    }
+
+    private void openRowGroup()
+            throws IOException
+    {
+        presentStream = presentStreamSource.openStream();
+        lengthStream = lengthStreamSource.openStream();
+
+        rowGroupOpen = true;
+    }
+
+    @Override
+    public int[] getReadPositions()
+    {
+        return outputPositions;
+    }
+
+    @Override
+    public Block getBlock(int[] positions, int positionCount)
+    {
+        checkArgument(outputPositionCount > 0, "outputPositionCount must be greater than zero");
+        checkState(outputRequired, "This stream reader doesn't produce output");
+        checkState(positionCount <= outputPositionCount, "Not enough values");
+
+        BlockPositions blockPositions = collectBlockPositions(positions, positionCount);
+        if (blockPositions.elementPositionCount == 0) {
+            return blockPositions.createBlock(createEmptyElementBlock());
+        }
+        return blockPositions.createBlock(elementReader.getBlock(blockPositions.elementPositions, blockPositions.elementPositionCount));
+    }
+
+    @Override
+    public BlockLease getBlockView(int[] positions, int positionCount)
+    {
+        checkArgument(outputPositionCount > 0, "outputPositionCount must be greater than zero");
+        checkState(outputRequired, "This stream reader doesn't produce output");
+        checkState(positionCount <= outputPositionCount, "Not enough values");
+
+        BlockPositions blockPositions = collectBlockPositions(positions, positionCount);
+        if (blockPositions.elementPositionCount == 0) {
+            return newLease(blockPositions.createBlock(createEmptyElementBlock()));
+        }
+        BlockLease elementLease = elementReader.getBlockView(blockPositions.elementPositions, blockPositions.elementPositionCount);
+        return newLease(blockPositions.createBlock(elementLease.get()), elementLease::close);
+    }
+
+    private Block createEmptyElementBlock()
+    {
+        return elementType.createBlockBuilder(null, 0).build();
+    }
+
+    private BlockPositions collectBlockPositions(int[] positions, int positionCount)
+    {
+        if (positionCount == outputPositionCount && allNulls(positionCount)) {
+            return new BlockPositions(positionCount, null, null, new int[0], 0, true);
+        }
+
+        boolean[] blockNulls = new boolean[positionCount];
+        int[] blockOffsets = new int[positionCount + 1];
+        int blockElementCount = 0;
+        boolean mayHaveNull = false;
+
+        int outputIndex = 0;
+        for (int i = 0; i < positionCount; i++) {
+            int position = positions[i];
+            while (outputPositions[outputIndex] < position) {
+                outputIndex++;
+            }
+
+            if (nulls[outputIndex]) {
+                blockNulls[i] = true;
+                mayHaveNull = true;
+            }
+            else {
+                blockElementCount += lengths[outputIndex];
+            }
+            blockOffsets[i + 1] = blockElementCount;
+        }
+
+        int[] blockElementPositions = new int[blockElementCount];
+        int elementIndex = 0;
+        outputIndex = 0;
+        for (int i = 0; i < positionCount; i++) {
+            int position = positions[i];
+            while (outputPositions[outputIndex] < position) {
+                outputIndex++;
+            }
+
+            if (!nulls[outputIndex]) {
+                for (int j = 0; j < lengths[outputIndex]; j++) {
+                    blockElementPositions[elementIndex] = offsets[outputIndex] + j;
+                    elementIndex++;
+                }
+            }
+        }
+
+        return new BlockPositions(positionCount, mayHaveNull ? blockNulls : null, blockOffsets, blockElementPositions, blockElementCount, false);
+    }
+
+    private boolean allNulls(int positionCount)
+    {
+        for (int i = 0; i < positionCount; i++) {
+            if (!nulls[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void startStripe(InputStreamSources dictionaryStreamSources, List<ColumnEncoding> encoding)
+            throws IOException
+    {
+        presentStreamSource = missingStreamSource(BooleanInputStream.class);
+        lengthStreamSource = missingStreamSource(LongInputStream.class);
+
+        readOffset = 0;
+        elementReadOffset = 0;
+
+        presentStream = null;
+        lengthStream = null;
+
+        rowGroupOpen = false;
+
+        if (elementReader != null) {
+            elementReader.startStripe(dictionaryStreamSources, encoding);
+        }
+    }
+
+    @Override
+    public void startRowGroup(InputStreamSources dataStreamSources)
+            throws IOException
+    {
+        presentStreamSource = dataStreamSources.getInputStreamSource(streamDescriptor, PRESENT, BooleanInputStream.class);
+        lengthStreamSource = dataStreamSources.getInputStreamSource(streamDescriptor, LENGTH, LongInputStream.class);
+
+        readOffset = 0;
+        elementReadOffset = 0;
+
+        presentStream = null;
+        lengthStream = null;
+
+        rowGroupOpen = false;
+
+        if (elementReader != null) {
+            elementReader.startRowGroup(dataStreamSources);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (elementReader != null) {
+            elementReader.close();
+        }
+        systemMemoryContext.close();
+    }
+
+    private long getLocalRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOf(outputPositions) + sizeOf(nulls) + sizeOf(offsets) + sizeOf(lengths) + sizeOf(elementPositions);
+    }
+
+    @Override
+    public long getRetainedSizeInBytes()
+    {
+        return getLocalRetainedSizeInBytes() + (elementReader == null ? 0 : elementReader.getRetainedSizeInBytes());
+    }
+
+    private final class BlockPositions
+    {
+        private final int positionCount;
+        @Nullable
+        private final boolean[] nulls;
+        @Nullable
+        private final int[] offsets;
+        private final int[] elementPositions;
+        private final int elementPositionCount;
+        private final boolean allNulls;
+
+        BlockPositions(int positionCount, @Nullable boolean[] nulls, @Nullable int[] offsets, int[] elementPositions, int elementPositionCount, boolean allNulls)
+        {
+            this.positionCount = positionCount;
+            this.nulls = nulls;
+            this.offsets = offsets;
+            this.elementPositions = elementPositions;
+            this.elementPositionCount = elementPositionCount;
+            this.allNulls = allNulls;
+        }
+
+        Block createBlock(Block elements)
+        {
+            if (allNulls) {
+                return new RunLengthEncodedBlock(outputType.createBlockBuilder(null, 1).appendNull().build(), positionCount);
+            }
+            return ArrayBlock.fromElementBlock(positionCount, Optional.ofNullable(nulls), offsets, elements);
+        }
+    }
+}
@@ -0,0 +1,734 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc.reader;
+
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.orc.OrcCorruptionException;
+import com.facebook.presto.orc.StreamDescriptor;
+import com.facebook.presto.orc.TupleDomainFilter;
+import com.facebook.presto.orc.metadata.ColumnEncoding;
+import com.facebook.presto.orc.metadata.ColumnEncoding.ColumnEncodingKind;
+import com.facebook.presto.orc.stream.BooleanInputStream;
+import com.facebook.presto.orc.stream.InputStreamSource;
+import com.facebook.presto.orc.stream.InputStreamSources;
+import com.facebook.presto.orc.stream.LongInputStream;
+import com.facebook.presto.spi.Subfield;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockLease;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.spi.type.MapType;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spi.type.VarcharType;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jol.info.ClassLayout;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.facebook.presto.orc.TupleDomainFilter.IS_NOT_NULL;
+import static com.facebook.presto.orc.TupleDomainFilter.IS_NULL;
+import static com.facebook.presto.orc.metadata.ColumnEncoding.ColumnEncodingKind.DIRECT;
+import static com.facebook.presto.orc.metadata.ColumnEncoding.ColumnEncodingKind.DIRECT_V2;
+import static com.facebook.presto.orc.metadata.ColumnEncoding.ColumnEncodingKind.DWRF_DIRECT;
+import static com.facebook.presto.orc.metadata.Stream.StreamKind.LENGTH;
+import static com.facebook.presto.orc.metadata.Stream.StreamKind.PRESENT;
+import static com.facebook.presto.orc.reader.SelectiveStreamReaders.createStreamReader;
+import static com.facebook.presto.orc.reader.SelectiveStreamReaders.getPrimitiveType;
+import static com.facebook.presto.orc.reader.SelectiveStreamReaders.tail;
+import static com.facebook.presto.orc.reader.SelectiveStreamReaders.testValue;
+import static com.facebook.presto.orc.stream.MissingInputStreamSource.missingStreamSource;
+import static com.facebook.presto.spi.block.ClosingBlockLease.newLease;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TinyintType.TINYINT;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads ORC map columns with direct encoding. Supports IS NULL and IS NOT NULL filters on the map
+ * itself and range filters on values of individual keys, e.g. m['key'] = 'x'. A missing key is
+ * treated as a null value. If required subfields reference specific keys only, the other entries
+ * are dropped and their values are not read. Entries with null keys are skipped, like in Hive.
+ */
+public class MapSelectiveStreamReader
+        implements SelectiveStreamReader
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(MapSelectiveStreamReader.class).instanceSize();
+
+    private final StreamDescriptor streamDescriptor;
+    private final boolean nullsAllowed;
+    private final boolean nonNullsAllowed;
+    private final boolean outputRequired;
+    @Nullable
+    private final MapType outputType;
+
+    // keys to keep in the output; null if all entries are required
+    @Nullable
+    private final Set<Object> requiredKeys;
+    private final Object[] filterKeys;
+    private final TupleDomainFilter[] valueFilters;
+
+    @Nullable
+    private final Type keyType;
+    @Nullable
+    private final Type valueType;
+    @Nullable
+    private final SelectiveStreamReader keyReader;
+    @Nullable
+    private final SelectiveStreamReader valueReader;
+
+    private final LocalMemoryContext systemMemoryContext;
+
+    private InputStreamSource<BooleanInputStream> presentStreamSource = missingStreamSource(BooleanInputStream.class);
+    @Nullable
+    private BooleanInputStream presentStream;
+
+    private InputStreamSource<LongInputStream> lengthStreamSource = missingStreamSource(LongInputStream.class);
+    @Nullable
+    private LongInputStream lengthStream;
+
+    private boolean rowGroupOpen;
+    private int readOffset;
+    private int entryReadOffset;
+
+    @Nullable
+    private int[] outputPositions;
+    @Nullable
+    private boolean[] nulls;
+    // entry offsets relative to entryOffset and number of entries in the maps at outputPositions
+    @Nullable
+    private int[] offsets;
+    @Nullable
+    private int[] lengths;
+    private int outputPositionCount;
+    private int entryOffset;
+
+    // entries selected for output; entries of the map at outputPositions[i] start at selectedEntries[selectedEntryStarts[i]]
+    @Nullable
+    private int[] selectedEntries;
+    @Nullable
+    private int[] selectedEntryStarts;
+    @Nullable
+    private int[] selectedEntryCounts;
+
+    public MapSelectiveStreamReader(
+            StreamDescriptor streamDescriptor,
+            Map<Subfield, TupleDomainFilter> filters,
+            List<Subfield> requiredSubfields,
+            Optional<Type> outputType,
+            DateTimeZone hiveStorageTimeZone,
+            AggregatedMemoryContext systemMemoryContext)
+    {
+        this.streamDescriptor = requireNonNull(streamDescriptor, "streamDescriptor is null");
+        requireNonNull(filters, "filters is null");
+        requireNonNull(requiredSubfields, "requiredSubfields is null");
+        requireNonNull(outputType, "outputType is null");
+        this.systemMemoryContext = requireNonNull(systemMemoryContext, "systemMemoryContext is null").newLocalMemoryContext(MapSelectiveStreamReader.class.getSimpleName());
+        this.outputRequired = outputType.isPresent();
+        this.outputType = outputType.map(MapType.class::cast).orElse(null);
+
+        StreamDescriptor keyStreamDescriptor = streamDescriptor.getNestedStreams().get(0);
+        StreamDescriptor valueStreamDescriptor = streamDescriptor.getNestedStreams().get(1);
+
+        TupleDomainFilter filter = null;
+        List<Object> filterKeys = new ArrayList<>();
+        List<TupleDomainFilter> valueFilters = new ArrayList<>();
+        for (Map.Entry<Subfield, TupleDomainFilter> entry : filters.entrySet()) {
+            List<Subfield.PathElement> path = entry.getKey().getPath();
+            if (path.isEmpty()) {
+                filter = entry.getValue();
+                checkArgument(filter == IS_NULL || filter == IS_NOT_NULL, "Only IS NULL and IS NOT NULL filters are supported on map columns: %s", filter);
+                continue;
+            }
+            checkArgument(path.size() == 1 && isKeySubscript(path.get(0)), "Unsupported subfield filter on a map column: %s", entry.getKey());
+            filterKeys.add(toKey(path.get(0)));
+            valueFilters.add(entry.getValue());
+        }
+        this.filterKeys = filterKeys.toArray();
+        this.valueFilters = valueFilters.toArray(new TupleDomainFilter[0]);
+
+        // A null map makes values of all keys null
+        nullsAllowed = (filter == null || filter.testNull()) && valueFilters.stream().allMatch(TupleDomainFilter::testNull);
+        nonNullsAllowed = filter != IS_NULL;
+
+        requiredKeys = outputRequired ? getRequiredKeys(requiredSubfields) : null;
+
+        if (outputRequired) {
+            keyType = this.outputType.getKeyType();
+            valueType = this.outputType.getValueType();
+            if (!valueFilters.isEmpty()) {
+                // filters on values are supported only for primitive types
+                getPrimitiveType(valueStreamDescriptor);
+            }
+        }
+        else if (!valueFilters.isEmpty()) {
+            keyType = getPrimitiveType(keyStreamDescriptor);
+            valueType = getPrimitiveType(valueStreamDescriptor);
+        }
+        else {
+            keyType = null;
+            valueType = null;
+        }
+
+        if (keyType != null) {
+            for (Object key : this.filterKeys) {
+                checkKeyType(keyType, key);
+            }
+            if (requiredKeys != null) {
+                for (Object key : requiredKeys) {
+                    checkKeyType(keyType, key);
+                }
+            }
+
+            keyReader = createStreamReader(
+                    keyStreamDescriptor,
+                    ImmutableMap.of(new Subfield(streamDescriptor.getFieldName(), ImmutableList.of()), IS_NOT_NULL),
+                    Optional.of(keyType),
+                    ImmutableList.of(),
+                    hiveStorageTimeZone,
+                    systemMemoryContext);
+            valueReader = createStreamReader(
+                    valueStreamDescriptor,
+                    ImmutableMap.of(),
+                    Optional.of(valueType),
+                    outputRequired ? getValueSubfields(requiredSubfields) : ImmutableList.of(),
+                    hiveStorageTimeZone,
+                    systemMemoryContext);
+        }
+        else {
+            keyReader = null;
+            valueReader = null;
+        }
+    }
+
+    private static boolean isKeySubscript(Subfield.PathElement element)
+    {
+        return element instanceof Subfield.LongSubscript || element instanceof Subfield.StringSubscript;
+    }
+
+    private static Object toKey(Subfield.PathElement element)
+    {
+        if (element instanceof Subfield.LongSubscript) {
+            return ((Subfield.LongSubscript) element).getIndex();
+        }
+        return utf8Slice(((Subfield.StringSubscript) element).getIndex());
+    }
+
+    private static void checkKeyType(Type keyType, Object key)
+    {
+        if (key instanceof Long) {
+            checkArgument(keyType == BIGINT || keyType == INTEGER || keyType == SMALLINT || keyType == TINYINT, "Integer subscript is not supported for map with %s keys", keyType);
+        }
+        else {
+            checkArgument(keyType instanceof VarcharType, "String subscript is not supported for map with %s keys", keyType);
+        }
+    }
+
+    @Nullable
+    private static Set<Object> getRequiredKeys(List<Subfield> requiredSubfields)
+    {
+        if (requiredSubfields.isEmpty()) {
+            return null;
+        }
+
+        ImmutableSet.Builder<Object> requiredKeys = ImmutableSet.builder();
+        for (Subfield subfield : requiredSubfields) {
+            if (subfield.getPath().isEmpty() || !isKeySubscript(subfield.getPath().get(0))) {
+                return null;
+            }
+            requiredKeys.add(toKey(subfield.getPath().get(0)));
+        }
+        return requiredKeys.build();
+    }
+
+    private static List<Subfield> getValueSubfields(List<Subfield> requiredSubfields)
+    {
+        ImmutableList.Builder<Subfield> valueSubfields = ImmutableList.builder();
+        for (Subfield subfield : requiredSubfields) {
+            if (subfield.getPath().isEmpty()) {
+                return ImmutableList.of();
+            }
+            Subfield valueSubfield = tail(subfield);
+            if (valueSubfield.getPath().isEmpty()) {
+                return ImmutableList.of();
+            }
+            valueSubfields.add(valueSubfield);
+        }
+        return valueSubfields.build();
+    }
+
+    @Override
+    public int read(int offset, int[] positions, int positionCount)
+            throws IOException
+    {
+        if (!rowGroupOpen) {
+            openRowGroup();
+        }
+
+        if (readOffset < offset) {
+            entryReadOffset += skip(offset - readOffset);
+        }
+
+        ensureCapacity(positionCount);
+
+        entryOffset = entryReadOffset;
+        outputPositionCount = 0;
+        int streamPosition = 0;
+        int entryStreamPosition = 0;
+
+        if (lengthStream == null) {
+            if (presentStream == null) {
+                throw new OrcCorruptionException(streamDescriptor.getOrcDataSourceId(), "Value is not null but data stream is not present");
+            }
+
+            // all nulls
+            streamPosition = positions[positionCount - 1] + 1;
+            presentStream.skip(streamPosition);
+            if (nullsAllowed) {
+                for (int i = 0; i < positionCount; i++) {
+                    outputPositions[i] = positions[i];
+                    nulls[i] = true;
+                    selectedEntryCounts[i] = 0;
+                }
+                outputPositionCount = positionCount;
+            }
+        }
+        else {
+            for (int i = 0; i < positionCount; i++) {
+                int position = positions[i];
+                if (position > streamPosition) {
+                    entryStreamPosition += skipMaps(position - streamPosition);
+                    streamPosition = position;
+                }
+
+                if (presentStream != null && !presentStream.nextBit()) {
+                    if (nullsAllowed) {
+                        outputPositions[outputPositionCount] = position;
+                        nulls[outputPositionCount] = true;
+                        lengths[outputPositionCount] = 0;
+                        outputPositionCount++;
+                    }
+                }
+                else {
+                    int length = toIntExact(lengthStream.next());
+                    if (nonNullsAllowed) {
+                        outputPositions[outputPositionCount] = position;
+                        nulls[outputPositionCount] = false;
+                        offsets[outputPositionCount] = entryStreamPosition;
+                        lengths[outputPositionCount] = length;
+                        outputPositionCount++;
+                    }
+                    entryStreamPosition += length;
+                }
+                streamPosition++;
+            }
+
+            Arrays.fill(selectedEntryCounts, 0, outputPositionCount, 0);
+            if (outputPositionCount > 0 && keyReader != null) {
+                readEntries();
+            }
+        }
+
+        // account memory used by per-map and per-entry arrays
+        systemMemoryContext.setBytes(getLocalRetainedSizeInBytes());
+
+        readOffset = offset + streamPosition;
+        entryReadOffset = entryOffset + entryStreamPosition;
+
+        return outputPositionCount;
+    }
+
+    private void readEntries()
+            throws IOException
+    {
+        int entryCount = 0;
+        for (int i = 0; i < outputPositionCount; i++) {
+            entryCount += lengths[i];
+        }
+        if (entryCount == 0) {
+            applyValueFilters(null, null, 0);
+            return;
+        }
+
+        int[] entries = new int[entryCount];
+        int index = 0;
+        for (int i = 0; i < outputPositionCount; i++) {
+            for (int j = 0; j < lengths[i]; j++) {
+                entries[index] = offsets[i] + j;
+                index++;
+            }
+        }
+
+        // the key reader filters out entries with null keys
+        int keyCount = keyReader.read(entryOffset, entries, entryCount);
+        int[] keyPositions = keyReader.getReadPositions();
+
+        boolean keysRequired = requiredKeys != null || filterKeys.length > 0;
+        BlockLease keysLease = keysRequired && keyCount > 0 ? keyReader.getBlockView(keyPositions, keyCount) : null;
+        try {
+            Block keys = keysLease == null ? null : keysLease.get();
+
+            // entries with values to read and, for each map and filter, the entry with the filter key or -1
+            ensureSelectedEntriesCapacity(keyCount);
+            int[] filterEntries = new int[outputPositionCount * filterKeys.length];
+            Arrays.fill(filterEntries, -1);
+            boolean[] valueRequired = new boolean[keyCount];
+            int selectedCount = 0;
+
+            int keyIndex = 0;
+            for (int i = 0; i < outputPositionCount; i++) {
+                selectedEntryStarts[i] = selectedCount;
+                if (nulls[i]) {
+                    continue;
+                }
+
+                int end = offsets[i] + lengths[i];
+                while (keyIndex < keyCount && keyPositions[keyIndex] < end) {
+                    int entry = keyPositions[keyIndex];
+                    Object key = keys == null ? null : readKey(keys, keyIndex);
+                    if (outputRequired && (requiredKeys == null || requiredKeys.contains(key))) {
+                        selectedEntries[selectedCount] = entry;
+                        selectedCount++;
+                        valueRequired[keyIndex] = true;
+                    }
+                    for (int j = 0; j < filterKeys.length; j++) {
+                        if (filterEntries[i * filterKeys.length + j] == -1 && filterKeys[j].equals(key)) {
+                            filterEntries[i * filterKeys.length + j] = entry;
+                            valueRequired[keyIndex] = true;
+                        }
+                    }
+                    keyIndex++;
+                }
+                selectedEntryCounts[i] = selectedCount - selectedEntryStarts[i];
+            }
+
+            int valueCount = 0;
+            int[] valuePositions = new int[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                if (valueRequired[i]) {
+                    valuePositions[valueCount] = keyPositions[i];
+                    valueCount++;
+                }
+            }
+
+            if (valueCount > 0) {
+                int readCount = valueReader.read(entryOffset, valuePositions, valueCount);
+                checkState(readCount == valueCount, "Value reader must not filter out any values");
+            }
+
+            applyValueFilters(filterEntries, valuePositions, valueCount);
+        }
+        finally {
+            if (keysLease != null) {
+                keysLease.close();
+            }
+        }
+    }
+
+    private void applyValueFilters(@Nullable int[] filterEntries, @Nullable int[] valuePositions, int valueCount)
+    {
+        if (filterKeys.length == 0) {
+            return;
+        }
+
+        BlockLease valuesLease = valueCount > 0 ? valueReader.getBlockView(valuePositions, valueCount) : null;
+        try {
+            Block values = valuesLease == null ? null : valuesLease.get();
+
+            int count = 0;
+            for (int i = 0; i < outputPositionCount; i++) {
+                boolean passed = true;
+                if (!nulls[i]) {
+                    for (int j = 0; j < filterKeys.length; j++) {
+                        int entry = filterEntries == null ? -1 : filterEntries[i * filterKeys.length + j];
+                        if (entry == -1) {
+                            passed &= valueFilters[j].testNull();
+                        }
+                        else {
+                            passed &= testValue(valueFilters[j], valueType, values, Arrays.binarySearch(valuePositions, 0, valueCount, entry));
+                        }
+                    }
+                }
+
+                if (passed) {
+                    outputPositions[count] = outputPositions[i];
+                    nulls[count] = nulls[i];
+                    offsets[count] = offsets[i];
+                    lengths[count] = lengths[i];
+                    selectedEntryStarts[count] = selectedEntryStarts[i];
+                    selectedEntryCounts[count] = selectedEntryCounts[i];
+                    count++;
+                }
+            }
+            outputPositionCount = count;
+        }
+        finally {
+            if (valuesLease != null) {
+                valuesLease.close();
+            }
+        }
+    }
+
+    private Object readKey(Block keys, int position)
+    {
+        if (keyType.getJavaType() == long.class) {
+            return keyType.getLong(keys, position);
+        }
+        return keyType.getSlice(keys, position);
+    }
+
+    private int skip(int items)
+            throws IOException
+    {
+        if (lengthStream == null) {
+            if (presentStream != null) {
+                presentStream.skip(items);
+            }
+            return 0;
+        }
+        return skipMaps(items);
+    }
+
+    // Skips the specified number of maps and returns the total number of entries in these maps
+    private int skipMaps(int items)
+            throws IOException
+    {
+        int mapCount = presentStream == null ? items : presentStream.countBitsSet(items);
+        return toIntExact(lengthStream.sum(mapCount));
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (outputPositions == null || outputPositions.length < capacity) {
+            outputPositions = new int[capacity];
+            nulls = new boolean[capacity];
+            offsets = new int[capacity];
+            lengths = new int[capacity];
+            selectedEntryStarts = new int[capacity];
+            selectedEntryCounts = new int[capacity];
+        }
+    }
+
+    private void ensureSelectedEntriesCapacity(int capacity)
+    {
+        if (selectedEntries == null || selectedEntries.length < capacity) {
+            selectedEntries = new int[capacity];
+        }
+    }
+
+    private void openRowGroup()
+            throws IOException
+    {
+        presentStream = presentStreamSource.openStream();
+        lengthStream = lengthStreamSource.openStream();
+
+        rowGroupOpen = true;
+    }
+
+    @Override
+    public int[] getReadPositions()
+    {
+        return outputPositions;
+    }
+
+    @Override
+    public Block getBlock(int[] positions, int positionCount)
+    {
+        checkArgument(outputPositionCount > 0, "outputPositionCount must be greater than zero");
+        checkState(outputRequired, "This stream reader doesn't produce output");
+        checkState(positionCount <= outputPositionCount, "Not enough values");
+
+        BlockPositions blockPositions = collectBlockPositions(positions, positionCount);
+        if (blockPositions.entryCount == 0) {
+            return blockPositions.createBlock(keyType.createBlockBuilder(null, 0).build(), valueType.createBlockBuilder(null, 0).build());
+        }
+        return blockPositions.createBlock(
+                keyReader.getBlock(blockPositions.entries, blockPositions.entryCount),
+                valueReader.getBlock(blockPositions.entries, blockPositions.entryCount));
+    }
+
+    @Override
+    public BlockLease getBlockView(int[] positions, int positionCount)
+    {
+        checkArgument(outputPositionCount > 0, "outputPositionCount must be greater than zero");
+        checkState(outputRequired, "This stream reader doesn't produce output");
+        checkState(positionCount <= outputPositionCount, "Not enough values");
+
+        BlockPositions blockPositions = collectBlockPositions(positions, positionCount);
+        if (blockPositions.entryCount == 0) {
+            return newLease(blockPositions.createBlock(keyType.createBlockBuilder(null, 0).build(), valueType.createBlockBuilder(null, 0).build()));
+        }
+        BlockLease keysLease = keyReader.getBlockView(blockPositions.entries, blockPositions.entryCount);
+        BlockLease valuesLease = valueReader.getBlockView(blockPositions.entries, blockPositions.entryCount);
+        return newLease(blockPositions.createBlock(keysLease.get(), valuesLease.get()), keysLease::close, valuesLease::close);
+    }
+
+    private BlockPositions collectBlockPositions(int[] positions, int positionCount)
+    {
+        boolean[] blockNulls = new boolean[positionCount];
+        int[] blockOffsets = new int[positionCount + 1];
+        boolean mayHaveNull = false;
+
+        int outputIndex = 0;
+        int[] outputIndices = new int[positionCount];
+        for (int i = 0; i < positionCount; i++) {
+            int position = positions[i];
+            while (outputPositions[outputIndex] < position) {
+                outputIndex++;
+            }
+            outputIndices[i] = outputIndex;
+
+            if (nulls[outputIndex]) {
+                blockNulls[i] = true;
+                mayHaveNull = true;
+            }
+            blockOffsets[i + 1] = blockOffsets[i] + selectedEntryCounts[outputIndex];
+        }
+
+        if (!mayHaveNull || blockOffsets[positionCount] > 0) {
+            int entryCount = blockOffsets[positionCount];
+            int[] blockEntries = new int[entryCount];
+            for (int i = 0; i < positionCount; i++) {
+                System.arraycopy(selectedEntries, selectedEntryStarts[outputIndices[i]], blockEntries, blockOffsets[i], selectedEntryCounts[outputIndices[i]]);
+            }
+            return new BlockPositions(positionCount, mayHaveNull ? blockNulls : null, blockOffsets, blockEntries, entryCount, false);
+        }
+
+        boolean allNulls = true;
+        for (boolean isNull : blockNulls) {
+            allNulls &= isNull;
+        }
+        return new BlockPositions(positionCount, blockNulls, blockOffsets, new int[0], 0, allNulls);
+    }
+
+    @Override
+    public void startStripe(InputStreamSources dictionaryStreamSources, List<ColumnEncoding> encoding)
+            throws IOException
+    {
+        ColumnEncodingKind kind = encoding.get(streamDescriptor.getStreamId())
+                .getColumnEncoding(streamDescriptor.getSequence())
+                .getColumnEncodingKind();
+        if (kind != DIRECT && kind != DIRECT_V2 && kind != DWRF_DIRECT) {
+            throw new IllegalArgumentException("Unsupported encoding " + kind);
+        }
+
+        presentStreamSource = missingStreamSource(BooleanInputStream.class);
+        lengthStreamSource = missingStreamSource(LongInputStream.class);
+
+        readOffset = 0;
+        entryReadOffset = 0;
+
+        presentStream = null;
+        lengthStream = null;
+
+        rowGroupOpen = false;
+
+        if (keyReader != null) {
+            keyReader.startStripe(dictionaryStreamSources, encoding);
+            valueReader.startStripe(dictionaryStreamSources, encoding);
+        }
+    }
+
+    @Override
+    public void startRowGroup(InputStreamSources dataStreamSources)
+            throws IOException
+    {
+        presentStreamSource = dataStreamSources.getInputStreamSource(streamDescriptor, PRESENT, BooleanInputStream.class);
+        lengthStreamSource = dataStreamSources.getInputStreamSource(streamDescriptor, LENGTH, LongInputStream.class);
+
+        readOffset = 0;
+        entryReadOffset = 0;
+
+        presentStream = null;
+        lengthStream = null;
+
+        rowGroupOpen = false;
+
+        if (keyReader != null) {
+            keyReader.startRowGroup(dataStreamSources);
+            valueReader.startRowGroup(dataStreamSources);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (keyReader != null) {
+            keyReader.close();
+            valueReader.close();
+        }
+        systemMemoryContext.close();
+    }
+
+    private long getLocalRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOf(outputPositions) + sizeOf(nulls) + sizeOf(offsets) + sizeOf(lengths) +
+                sizeOf(selectedEntries) + sizeOf(selectedEntryStarts) + sizeOf(selectedEntryCounts);
+    }
+
+    @Override
+    public long getRetainedSizeInBytes()
+    {
+        long retainedSize = getLocalRetainedSizeInBytes();
+        if (keyReader != null) {
+            retainedSize += keyReader.getRetainedSizeInBytes() + valueReader.getRetainedSizeInBytes();
+        }
+        return retainedSize;
+    }
+
+    private final class BlockPositions
+    {
+        private final int positionCount;
+        @Nullable
+        private final boolean[] nulls;
+        private final int[] offsets;
+        private final int[] entries;
+        private final int entryCount;
+        private final boolean allNulls;
+
+        BlockPositions(int positionCount, @Nullable boolean[] nulls, int[] offsets, int[] entries, int entryCount, boolean allNulls)
+        {
+            this.positionCount = positionCount;
+            this.nulls = nulls;
+            this.offsets = offsets;
+            this.entries = entries;
+            this.entryCount = entryCount;
+            this.allNulls = allNulls;
+        }
+
+        Block createBlock(Block keys, Block values)
+        {
+            if (allNulls) {
+                return new RunLengthEncodedBlock(outputType.createBlockBuilder(null, 1).appendNull().build(), positionCount);
+            }
+            return outputType.createBlockFromKeyValue(Optional.ofNullable(nulls), offsets, keys, values);
+        }
+    }
+}
@@ -16,14 +16,34 @@ package com.facebook.presto.orc.reader;
 import com.facebook.presto.memory.context.AggregatedMemoryContext;
 import com.facebook.presto.orc.StreamDescriptor;
 import com.facebook.presto.orc.TupleDomainFilter;
+import com.facebook.presto.orc.metadata.OrcType.OrcTypeKind;
 import com.facebook.presto.spi.Subfield;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.type.CharType;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spi.type.VarcharType;
 import org.joda.time.DateTimeZone;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.CharType.createCharType;
+import static com.facebook.presto.spi.type.DateType.DATE;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.RealType.REAL;
+import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TimestampType.TIMESTAMP;
+import static com.facebook.presto.spi.type.VarbinaryType.VARBINARY;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static java.lang.Float.intBitsToFloat;
+import static java.lang.Math.toIntExact;
+import static java.lang.String.format;
 
 public final class SelectiveStreamReaders
 {
@@ -31,16 +51,17 @@ public final class SelectiveStreamReaders
 
     public static SelectiveStreamReader createStreamReader(
             StreamDescriptor streamDescriptor,
-            Optional<TupleDomainFilter> filter,
+            Map<Subfield, TupleDomainFilter> filters,
             Optional<Type> outputType,
             List<Subfield> requiredSubfields,
             DateTimeZone hiveStorageTimeZone,
             AggregatedMemoryContext systemMemoryContext)
     {
-        switch (streamDescriptor.getStreamType()) {
+        OrcTypeKind type = streamDescriptor.getStreamType();
+        switch (type) {
             case BOOLEAN:
                 checkArgument(requiredSubfields.isEmpty(), "Boolean stream reader doesn't support subfields");
-                return new BooleanSelectiveStreamReader(streamDescriptor, filter, outputType.isPresent(), systemMemoryContext.newLocalMemoryContext(SelectiveStreamReaders.class.getSimpleName()));
+                return new BooleanSelectiveStreamReader(streamDescriptor, getOptionalOnlyFilter(type, filters), outputType.isPresent(), systemMemoryContext.newLocalMemoryContext(SelectiveStreamReaders.class.getSimpleName()));
             case BYTE:
                 throw new IllegalArgumentException("Unsupported type: " + streamDescriptor.getStreamType());
             case SHORT:
@@ -48,21 +69,118 @@ public final class SelectiveStreamReaders
             case LONG:
             case DATE:
                 checkArgument(requiredSubfields.isEmpty(), "Primitive type stream reader doesn't support subfields");
-                return new LongSelectiveStreamReader(streamDescriptor, filter, outputType, systemMemoryContext);
-            case FLOAT:
-            case DOUBLE:
+                return new LongSelectiveStreamReader(streamDescriptor, getOptionalOnlyFilter(type, filters), outputType, systemMemoryContext);
             case BINARY:
             case STRING:
             case VARCHAR:
             case CHAR:
+                checkArgument(requiredSubfields.isEmpty(), "Primitive type stream reader doesn't support subfields");
+                return new SliceSelectiveStreamReader(streamDescriptor, getOptionalOnlyFilter(type, filters), outputType, systemMemoryContext);
+            case FLOAT:
+                checkArgument(requiredSubfields.isEmpty(), "Primitive type stream reader doesn't support subfields");
+                return new FloatSelectiveStreamReader(streamDescriptor, getOptionalOnlyFilter(type, filters), outputType, systemMemoryContext.newLocalMemoryContext(SelectiveStreamReaders.class.getSimpleName()));
+            case DOUBLE:
+                checkArgument(requiredSubfields.isEmpty(), "Primitive type stream reader doesn't support subfields");
+                return new DoubleSelectiveStreamReader(streamDescriptor, getOptionalOnlyFilter(type, filters), outputType, systemMemoryContext.newLocalMemoryContext(SelectiveStreamReaders.class.getSimpleName()));
             case TIMESTAMP:
+                checkArgument(requiredSubfields.isEmpty(), "Primitive type stream reader doesn't support subfields");
+                return new TimestampSelectiveStreamReader(streamDescriptor, getOptionalOnlyFilter(type, filters), outputType, hiveStorageTimeZone, systemMemoryContext.newLocalMemoryContext(SelectiveStreamReaders.class.getSimpleName()));
             case LIST:
+                return new ListSelectiveStreamReader(streamDescriptor, filters, requiredSubfields, outputType, hiveStorageTimeZone, systemMemoryContext);
             case STRUCT:
+                return new StructSelectiveStreamReader(streamDescriptor, filters, requiredSubfields, outputType, hiveStorageTimeZone, systemMemoryContext);
             case MAP:
+                return new MapSelectiveStreamReader(streamDescriptor, filters, requiredSubfields, outputType, hiveStorageTimeZone, systemMemoryContext);
             case DECIMAL:
             case UNION:
             default:
                 throw new IllegalArgumentException("Unsupported type: " + streamDescriptor.getStreamType());
         }
     }
+
+    private static Optional<TupleDomainFilter> getOptionalOnlyFilter(OrcTypeKind type, Map<Subfield, TupleDomainFilter> filters)
+    {
+        if (filters.isEmpty()) {
+            return Optional.empty();
+        }
+
+        checkArgument(filters.size() == 1, format("Stream reader for %s doesn't support multiple range filters", type));
+        Map.Entry<Subfield, TupleDomainFilter> entry = getOnlyElement(filters.entrySet());
+        checkArgument(entry.getKey().getPath().isEmpty(), format("Stream reader for %s doesn't support filters on subfields", type));
+        return Optional.of(entry.getValue());
+    }
+
+    /**
+     * Returns a copy of the subfield with the first path element removed, e.g. a.b.c becomes b.c
+     */
+    static Subfield tail(Subfield subfield)
+    {
+        List<Subfield.PathElement> path = subfield.getPath();
+        checkArgument(!path.isEmpty(), "Subfield has no path elements: %s", subfield);
+        return new Subfield(subfield.getRootName(), path.subList(1, path.size()));
+    }
+
+    /**
+     * Returns the type used to evaluate range filters on values of a primitive ORC stream when
+     * the values are not required for output.
+     */
+    static Type getPrimitiveType(StreamDescriptor streamDescriptor)
+    {
+        switch (streamDescriptor.getStreamType()) {
+            case BOOLEAN:
+                return BOOLEAN;
+            case SHORT:
+                return SMALLINT;
+            case INT:
+                return INTEGER;
+            case LONG:
+                return BIGINT;
+            case DATE:
+                return DATE;
+            case FLOAT:
+                return REAL;
+            case DOUBLE:
+                return DOUBLE;
+            case TIMESTAMP:
+                return TIMESTAMP;
+            case BINARY:
+                return VARBINARY;
+            case STRING:
+            case VARCHAR:
+                return VARCHAR;
+            case CHAR:
+                return createCharType(CharType.MAX_LENGTH);
+            default:
+                throw new IllegalArgumentException("Filters on subfields of type " + streamDescriptor.getStreamType() + " are not supported");
+        }
+    }
+
+    /**
+     * Evaluates the filter against the value at the specified position of a block produced by
+     * one of the primitive selective stream readers.
+     */
+    static boolean testValue(TupleDomainFilter filter, Type type, Block block, int position)
+    {
+        if (block.isNull(position)) {
+            return filter.testNull();
+        }
+
+        if (type == BOOLEAN) {
+            return filter.testBoolean(type.getBoolean(block, position));
+        }
+        if (type == BIGINT || type == INTEGER || type == SMALLINT || type == DATE || type == TIMESTAMP) {
+            return filter.testLong(type.getLong(block, position));
+        }
+        if (type == REAL) {
+            return filter.testFloat(intBitsToFloat(toIntExact(type.getLong(block, position))));
+        }
+        if (type == DOUBLE) {
+            return filter.testDouble(type.getDouble(block, position));
+        }
+        if (type == VARBINARY || type instanceof VarcharType || type instanceof CharType) {
+            byte[] value = type.getSlice(block, position).getBytes();
+            return filter.testBytes(value, 0, value.length);
+        }
+        throw new IllegalArgumentException("Unsupported type: " + type);
+    }
 }
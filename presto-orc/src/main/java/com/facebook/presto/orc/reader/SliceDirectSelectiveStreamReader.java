@@ -0,0 +1,502 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc.reader;
+
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.orc.OrcCorruptionException;
+import com.facebook.presto.orc.StreamDescriptor;
+import com.facebook.presto.orc.TupleDomainFilter;
+import com.facebook.presto.orc.metadata.ColumnEncoding;
+import com.facebook.presto.orc.stream.BooleanInputStream;
+import com.facebook.presto.orc.stream.ByteArrayInputStream;
+import com.facebook.presto.orc.stream.InputStreamSource;
+import com.facebook.presto.orc.stream.InputStreamSources;
+import com.facebook.presto.orc.stream.LongInputStream;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockLease;
+import com.facebook.presto.spi.block.ClosingBlockLease;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.spi.block.VariableWidthBlock;
+import com.facebook.presto.spi.type.Type;
+import io.airlift.slice.Slice;
+import org.openjdk.jol.info.ClassLayout;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.orc.metadata.Stream.StreamKind.DATA;
+import static com.facebook.presto.orc.metadata.Stream.StreamKind.LENGTH;
+import static com.facebook.presto.orc.metadata.Stream.StreamKind.PRESENT;
+import static com.facebook.presto.orc.reader.SliceBatchStreamReader.computeTruncatedLength;
+import static com.facebook.presto.orc.stream.MissingInputStreamSource.missingStreamSource;
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static io.airlift.slice.Slices.EMPTY_SLICE;
+import static io.airlift.slice.Slices.wrappedBuffer;
+import static java.lang.Math.max;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+public class SliceDirectSelectiveStreamReader
+        implements SelectiveStreamReader
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(SliceDirectSelectiveStreamReader.class).instanceSize();
+
+    private final StreamDescriptor streamDescriptor;
+    @Nullable
+    private final TupleDomainFilter filter;
+    private final boolean nullsAllowed;
+    private final boolean outputRequired;
+    @Nullable
+    private final Type outputType;
+    private final int maxCodePointCount;
+    private final boolean isCharType;
+
+    private InputStreamSource<BooleanInputStream> presentStreamSource = missingStreamSource(BooleanInputStream.class);
+    @Nullable
+    private BooleanInputStream presentStream;
+
+    private InputStreamSource<LongInputStream> lengthStreamSource = missingStreamSource(LongInputStream.class);
+    @Nullable
+    private LongInputStream lengthStream;
+
+    private InputStreamSource<ByteArrayInputStream> dataStreamSource = missingStreamSource(ByteArrayInputStream.class);
+    @Nullable
+    private ByteArrayInputStream dataStream;
+
+    private boolean rowGroupOpen;
+    private int readOffset;
+
+    // values that passed the filter are stored back-to-back in data; offsets has outputPositionCount + 1 entries
+    private byte[] data = new byte[0];
+    private Slice dataSlice = EMPTY_SLICE;
+    @Nullable
+    private int[] offsets;
+    @Nullable
+    private boolean[] nulls;
+    @Nullable
+    private int[] outputPositions;
+    private int outputPositionCount;
+    private boolean allNulls;
+    private boolean valuesInUse;
+
+    private LocalMemoryContext systemMemoryContext;
+
+    public SliceDirectSelectiveStreamReader(
+            StreamDescriptor streamDescriptor,
+            Optional<TupleDomainFilter> filter,
+            Optional<Type> outputType,
+            int maxCodePointCount,
+            boolean isCharType,
+            LocalMemoryContext systemMemoryContext)
+    {
+        requireNonNull(filter, "filter is null");
+        requireNonNull(outputType, "outputType is null");
+        checkArgument(filter.isPresent() || outputType.isPresent(), "filter must be present if output is not required");
+        this.streamDescriptor = requireNonNull(streamDescriptor, "streamDescriptor is null");
+        this.filter = filter.orElse(null);
+        this.outputRequired = outputType.isPresent();
+        this.outputType = outputType.orElse(null);
+        this.maxCodePointCount = maxCodePointCount;
+        this.isCharType = isCharType;
+        this.systemMemoryContext = requireNonNull(systemMemoryContext, "systemMemoryContext is null");
+
+        nullsAllowed = this.filter == null || this.filter.testNull();
+    }
+
+    @Override
+    public int read(int offset, int[] positions, int positionCount)
+            throws IOException
+    {
+        checkState(!valuesInUse, "BlockLease hasn't been closed yet");
+
+        if (!rowGroupOpen) {
+            openRowGroup();
+        }
+
+        allNulls = false;
+
+        if (outputRequired) {
+            ensureValuesCapacity(positionCount, nullsAllowed && presentStream != null);
+        }
+
+        if (filter != null) {
+            ensureOutputPositionsCapacity(positionCount);
+        }
+        else {
+            outputPositions = positions;
+        }
+
+        if (readOffset < offset) {
+            skip(offset - readOffset);
+        }
+
+        outputPositionCount = 0;
+        int streamPosition;
+        if (lengthStream == null && presentStream != null) {
+            streamPosition = readAllNulls(positions, positionCount);
+        }
+        else {
+            streamPosition = readValues(positions, positionCount);
+        }
+
+        readOffset = offset + streamPosition;
+
+        // account memory used by data, offsets, nulls and outputPositions
+        systemMemoryContext.setBytes(getRetainedSizeInBytes());
+
+        return outputPositionCount;
+    }
+
+    private int readValues(int[] positions, int positionCount)
+            throws IOException
+    {
+        int streamPosition = 0;
+        int dataOffset = 0;
+        if (outputRequired) {
+            offsets[0] = 0;
+        }
+        for (int i = 0; i < positionCount; i++) {
+            int position = positions[i];
+            if (position > streamPosition) {
+                skip(position - streamPosition);
+                streamPosition = position;
+            }
+
+            if (presentStream != null && !presentStream.nextBit()) {
+                if (nullsAllowed) {
+                    if (outputRequired) {
+                        nulls[outputPositionCount] = true;
+                        offsets[outputPositionCount + 1] = dataOffset;
+                    }
+                    if (filter != null) {
+                        outputPositions[outputPositionCount] = position;
+                    }
+                    outputPositionCount++;
+                }
+            }
+            else {
+                int length = toIntExact(lengthStream.next());
+                int truncatedLength = 0;
+                if (length > 0) {
+                    if (dataStream == null) {
+                        throw new OrcCorruptionException(streamDescriptor.getOrcDataSourceId(), "Value is not null but data stream is not present");
+                    }
+                    ensureDataCapacity(dataOffset + length);
+                    dataStream.next(data, dataOffset, dataOffset + length);
+                    truncatedLength = length;
+                    if (maxCodePointCount >= 0 || isCharType) {
+                        truncatedLength = computeTruncatedLength(dataSlice, dataOffset, length, maxCodePointCount, isCharType);
+                    }
+                }
+
+                if (filter == null || filter.testBytes(data, dataOffset, truncatedLength)) {
+                    if (outputRequired) {
+                        dataOffset += truncatedLength;
+                        offsets[outputPositionCount + 1] = dataOffset;
+                        if (nullsAllowed && presentStream != null) {
+                            nulls[outputPositionCount] = false;
+                        }
+                    }
+                    if (filter != null) {
+                        outputPositions[outputPositionCount] = position;
+                    }
+                    outputPositionCount++;
+                }
+            }
+            streamPosition++;
+        }
+        return streamPosition;
+    }
+
+    private int readAllNulls(int[] positions, int positionCount)
+            throws IOException
+    {
+        presentStream.skip(positions[positionCount - 1]);
+
+        if (nullsAllowed) {
+            outputPositionCount = positionCount;
+            if (filter != null) {
+                System.arraycopy(positions, 0, outputPositions, 0, positionCount);
+            }
+            allNulls = true;
+        }
+        else {
+            outputPositionCount = 0;
+        }
+
+        return positions[positionCount - 1] + 1;
+    }
+
+    private void skip(int items)
+            throws IOException
+    {
+        int dataToSkip = items;
+        if (presentStream != null) {
+            dataToSkip = presentStream.countBitsSet(items);
+        }
+
+        if (dataToSkip > 0) {
+            if (lengthStream == null) {
+                throw new OrcCorruptionException(streamDescriptor.getOrcDataSourceId(), "Value is not null but length stream is not present");
+            }
+            long bytesToSkip = lengthStream.sum(dataToSkip);
+            if (bytesToSkip > 0) {
+                if (dataStream == null) {
+                    throw new OrcCorruptionException(streamDescriptor.getOrcDataSourceId(), "Value is not null but data stream is not present");
+                }
+                dataStream.skip(bytesToSkip);
+            }
+        }
+    }
+
+    private void ensureDataCapacity(int capacity)
+    {
+        if (data.length < capacity) {
+            data = Arrays.copyOf(data, max(capacity, data.length * 2));
+            dataSlice = wrappedBuffer(data);
+        }
+    }
+
+    private void ensureValuesCapacity(int capacity, boolean recordNulls)
+    {
+        if (offsets == null || offsets.length < capacity + 1) {
+            offsets = new int[capacity + 1];
+        }
+
+        if (recordNulls) {
+            if (nulls == null || nulls.length < capacity) {
+                nulls = new boolean[capacity];
+            }
+        }
+    }
+
+    private void ensureOutputPositionsCapacity(int capacity)
+    {
+        if (outputPositions == null || outputPositions.length < capacity) {
+            outputPositions = new int[capacity];
+        }
+    }
+
+    private void openRowGroup()
+            throws IOException
+    {
+        presentStream = presentStreamSource.openStream();
+        lengthStream = lengthStreamSource.openStream();
+        dataStream = dataStreamSource.openStream();
+
+        rowGroupOpen = true;
+    }
+
+    @Override
+    public int[] getReadPositions()
+    {
+        return outputPositions;
+    }
+
+    @Override
+    public Block getBlock(int[] positions, int positionCount)
+    {
+        checkArgument(outputPositionCount > 0, "outputPositionCount must be greater than zero");
+        checkState(outputRequired, "This stream reader doesn't produce output");
+        checkState(positionCount <= outputPositionCount, "Not enough values");
+        checkState(!valuesInUse, "BlockLease hasn't been closed yet");
+
+        if (allNulls) {
+            return new RunLengthEncodedBlock(outputType.createBlockBuilder(null, 1).appendNull().build(), positionCount);
+        }
+
+        boolean includeNulls = nullsAllowed && presentStream != null;
+        if (positionCount == outputPositionCount) {
+            Block block = new VariableWidthBlock(positionCount, toSlice(data, offsets[positionCount]), offsets, Optional.ofNullable(includeNulls ? nulls : null));
+            data = new byte[0];
+            dataSlice = EMPTY_SLICE;
+            offsets = null;
+            nulls = null;
+            return block;
+        }
+
+        int[] offsetsCopy = new int[positionCount + 1];
+        boolean[] nullsCopy = null;
+        if (includeNulls) {
+            nullsCopy = new boolean[positionCount];
+        }
+
+        int totalLength = 0;
+        int positionIndex = 0;
+        int nextPosition = positions[positionIndex];
+        for (int i = 0; i < outputPositionCount; i++) {
+            if (outputPositions[i] < nextPosition) {
+                continue;
+            }
+
+            assert outputPositions[i] == nextPosition;
+
+            totalLength += offsets[i + 1] - offsets[i];
+            offsetsCopy[positionIndex + 1] = totalLength;
+            if (includeNulls) {
+                nullsCopy[positionIndex] = nulls[i];
+            }
+
+            positionIndex++;
+            if (positionIndex >= positionCount) {
+                break;
+            }
+
+            nextPosition = positions[positionIndex];
+        }
+
+        byte[] dataCopy = new byte[totalLength];
+        positionIndex = 0;
+        nextPosition = positions[positionIndex];
+        for (int i = 0; i < outputPositionCount; i++) {
+            if (outputPositions[i] < nextPosition) {
+                continue;
+            }
+
+            System.arraycopy(data, offsets[i], dataCopy, offsetsCopy[positionIndex], offsets[i + 1] - offsets[i]);
+
+            positionIndex++;
+            if (positionIndex >= positionCount) {
+                break;
+            }
+
+            nextPosition = positions[positionIndex];
+        }
+
+        return new VariableWidthBlock(positionCount, toSlice(dataCopy, totalLength), offsetsCopy, Optional.ofNullable(nullsCopy));
+    }
+
+    @Override
+    public BlockLease getBlockView(int[] positions, int positionCount)
+    {
+        checkArgument(outputPositionCount > 0, "outputPositionCount must be greater than zero");
+        checkState(outputRequired, "This stream reader doesn't produce output");
+        checkState(positionCount <= outputPositionCount, "Not enough values");
+        checkState(!valuesInUse, "BlockLease hasn't been closed yet");
+
+        if (allNulls) {
+            return newLease(new RunLengthEncodedBlock(outputType.createBlockBuilder(null, 1).appendNull().build(), positionCount));
+        }
+
+        boolean includeNulls = nullsAllowed && presentStream != null;
+        if (positionCount != outputPositionCount) {
+            compactValues(positions, positionCount, includeNulls);
+        }
+
+        return newLease(new VariableWidthBlock(positionCount, toSlice(data, offsets[positionCount]), offsets, Optional.ofNullable(includeNulls ? nulls : null)));
+    }
+
+    private BlockLease newLease(Block block)
+    {
+        valuesInUse = true;
+        return ClosingBlockLease.newLease(block, () -> valuesInUse = false);
+    }
+
+    private void compactValues(int[] positions, int positionCount, boolean compactNulls)
+    {
+        int positionIndex = 0;
+        int nextPosition = positions[positionIndex];
+        for (int i = 0; i < outputPositionCount; i++) {
+            if (outputPositions[i] < nextPosition) {
+                continue;
+            }
+
+            assert outputPositions[i] == nextPosition;
+
+            // values only move towards the beginning of the buffer, hence offsets[i] is read before it is overwritten
+            int length = offsets[i + 1] - offsets[i];
+            System.arraycopy(data, offsets[i], data, offsets[positionIndex], length);
+            offsets[positionIndex + 1] = offsets[positionIndex] + length;
+            if (compactNulls) {
+                nulls[positionIndex] = nulls[i];
+            }
+            outputPositions[positionIndex] = nextPosition;
+
+            positionIndex++;
+            if (positionIndex >= positionCount) {
+                break;
+            }
+            nextPosition = positions[positionIndex];
+        }
+
+        outputPositionCount = positionCount;
+    }
+
+    private static Slice toSlice(byte[] data, int length)
+    {
+        if (length == 0) {
+            return EMPTY_SLICE;
+        }
+        return wrappedBuffer(data, 0, length);
+    }
+
+    @Override
+    public void startStripe(InputStreamSources dictionaryStreamSources, List<ColumnEncoding> encoding)
+    {
+        presentStreamSource = missingStreamSource(BooleanInputStream.class);
+        lengthStreamSource = missingStreamSource(LongInputStream.class);
+        dataStreamSource = missingStreamSource(ByteArrayInputStream.class);
+
+        readOffset = 0;
+
+        presentStream = null;
+        lengthStream = null;
+        dataStream = null;
+
+        rowGroupOpen = false;
+    }
+
+    @Override
+    public void startRowGroup(InputStreamSources dataStreamSources)
+    {
+        presentStreamSource = dataStreamSources.getInputStreamSource(streamDescriptor, PRESENT, BooleanInputStream.class);
+        lengthStreamSource = dataStreamSources.getInputStreamSource(streamDescriptor, LENGTH, LongInputStream.class);
+        dataStreamSource = dataStreamSources.getInputStreamSource(streamDescriptor, DATA, ByteArrayInputStream.class);
+
+        readOffset = 0;
+
+        presentStream = null;
+        lengthStream = null;
+        dataStream = null;
+
+        rowGroupOpen = false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .addValue(streamDescriptor)
+                .toString();
+    }
+
+    @Override
+    public void close()
+    {
+        systemMemoryContext.close();
+    }
+
+    @Override
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOf(data) + sizeOf(offsets) + sizeOf(nulls) + sizeOf(outputPositions);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc.reader;
+
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.orc.StreamDescriptor;
+import com.facebook.presto.orc.TupleDomainFilter;
+import com.facebook.presto.orc.metadata.ColumnEncoding;
+import com.facebook.presto.orc.stream.InputStreamSources;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockLease;
+import com.facebook.presto.spi.type.Chars;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.io.Closer;
+import org.openjdk.jol.info.ClassLayout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.orc.metadata.OrcType.OrcTypeKind.CHAR;
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+public class SliceSelectiveStreamReader
+        implements SelectiveStreamReader
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(SliceSelectiveStreamReader.class).instanceSize();
+
+    private final StreamDescriptor streamDescriptor;
+    private final SliceDirectSelectiveStreamReader directReader;
+    private final SliceDictionarySelectiveStreamReader dictionaryReader;
+    private SelectiveStreamReader currentReader;
+
+    public SliceSelectiveStreamReader(
+            StreamDescriptor streamDescriptor,
+            Optional<TupleDomainFilter> filter,
+            Optional<Type> outputType,
+            AggregatedMemoryContext systemMemoryContext)
+    {
+        this.streamDescriptor = requireNonNull(streamDescriptor, "streamDescriptor is null");
+
+        // Values are truncated (and padding is removed from CHAR values) before filters are applied,
+        // hence the declared length is needed even if the column is not projected. When it is not known,
+        // trailing spaces are still stripped from CHAR values, but no truncation is done.
+        int maxCodePointCount = outputType.map(SliceBatchStreamReader::getMaxCodePointCount).orElse(streamDescriptor.getStreamType() == CHAR ? Integer.MAX_VALUE : -1);
+        boolean isCharType = outputType.map(Chars::isCharType).orElse(streamDescriptor.getStreamType() == CHAR);
+
+        directReader = new SliceDirectSelectiveStreamReader(streamDescriptor, filter, outputType, maxCodePointCount, isCharType, systemMemoryContext.newLocalMemoryContext(SliceSelectiveStreamReader.class.getSimpleName()));
+        dictionaryReader = new SliceDictionarySelectiveStreamReader(streamDescriptor, filter, outputType, maxCodePointCount, isCharType, systemMemoryContext.newLocalMemoryContext(SliceSelectiveStreamReader.class.getSimpleName()));
+    }
+
+    @Override
+    public void startStripe(InputStreamSources dictionaryStreamSources, List<ColumnEncoding> encoding)
+            throws IOException
+    {
+        ColumnEncoding.ColumnEncodingKind kind = encoding.get(streamDescriptor.getStreamId())
+                .getColumnEncoding(streamDescriptor.getSequence())
+                .getColumnEncodingKind();
+        switch (kind) {
+            case DIRECT:
+            case DIRECT_V2:
+            case DWRF_DIRECT:
+                currentReader = directReader;
+                break;
+            case DICTIONARY:
+            case DICTIONARY_V2:
+                currentReader = dictionaryReader;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported encoding " + kind);
+        }
+
+        currentReader.startStripe(dictionaryStreamSources, encoding);
+    }
+
+    @Override
+    public void startRowGroup(InputStreamSources dataStreamSources)
+            throws IOException
+    {
+        currentReader.startRowGroup(dataStreamSources);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .addValue(streamDescriptor)
+                .toString();
+    }
+
+    @Override
+    public void close()
+    {
+        try (Closer closer = Closer.create()) {
+            closer.register(directReader::close);
+            closer.register(dictionaryReader::close);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + directReader.getRetainedSizeInBytes() + dictionaryReader.getRetainedSizeInBytes();
+    }
+
+    @Override
+    public int read(int offset, int[] positions, int positionCount)
+            throws IOException
+    {
+        return currentReader.read(offset, positions, positionCount);
+    }
+
+    @Override
+    public int[] getReadPositions()
+    {
+        return currentReader.getReadPositions();
+    }
+
+    @Override
+    public Block getBlock(int[] positions, int positionCount)
+    {
+        return currentReader.getBlock(positions, positionCount);
+    }
+
+    @Override
+    public BlockLease getBlockView(int[] positions, int positionCount)
+    {
+        return currentReader.getBlockView(positions, positionCount);
+    }
+}
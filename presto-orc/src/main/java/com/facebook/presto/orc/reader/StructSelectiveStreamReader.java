@@ -0,0 +1,579 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc.reader;
+
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.orc.StreamDescriptor;
+import com.facebook.presto.orc.TupleDomainFilter;
+import com.facebook.presto.orc.metadata.ColumnEncoding;
+import com.facebook.presto.orc.stream.BooleanInputStream;
+import com.facebook.presto.orc.stream.InputStreamSource;
+import com.facebook.presto.orc.stream.InputStreamSources;
+import com.facebook.presto.spi.Subfield;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockLease;
+import com.facebook.presto.spi.block.ClosingBlockLease;
+import com.facebook.presto.spi.block.RowBlock;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.spi.type.RowType;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Closer;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jol.info.ClassLayout;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.facebook.presto.orc.TupleDomainFilter.IS_NOT_NULL;
+import static com.facebook.presto.orc.TupleDomainFilter.IS_NULL;
+import static com.facebook.presto.orc.metadata.Stream.StreamKind.PRESENT;
+import static com.facebook.presto.orc.reader.SelectiveStreamReaders.createStreamReader;
+import static com.facebook.presto.orc.reader.SelectiveStreamReaders.tail;
+import static com.facebook.presto.orc.stream.MissingInputStreamSource.missingStreamSource;
+import static com.facebook.presto.spi.block.ClosingBlockLease.newLease;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads ORC struct columns. Only the fields that are required for output, as specified by
+ * required subfields, or that have filters are read; other fields are returned as nulls.
+ * Filters on nested fields are pushed down into the corresponding field readers.
+ */
+public class StructSelectiveStreamReader
+        implements SelectiveStreamReader
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(StructSelectiveStreamReader.class).instanceSize();
+
+    private final StreamDescriptor streamDescriptor;
+    private final boolean nullsAllowed;
+    private final boolean nonNullsAllowed;
+    private final boolean outputRequired;
+    @Nullable
+    private final RowType outputType;
+
+    // Readers with filters come first, followed by readers that only produce output
+    private final SelectiveStreamReader[] nestedReaders;
+    // For each field of the output type, an index into nestedReaders or -1 if the field is not read
+    private final int[] outputFieldReaders;
+
+    private final LocalMemoryContext systemMemoryContext;
+
+    private InputStreamSource<BooleanInputStream> presentStreamSource = missingStreamSource(BooleanInputStream.class);
+    @Nullable
+    private BooleanInputStream presentStream;
+
+    private boolean rowGroupOpen;
+    private int readOffset;
+    private int nestedReadOffset;
+
+    @Nullable
+    private int[] outputPositions;
+    @Nullable
+    private boolean[] nulls;
+    private int outputPositionCount;
+
+    // positions of the non-null entries of outputPositions in the nested streams
+    @Nullable
+    private int[] nestedPositions;
+    private int nestedPositionCount;
+
+    public StructSelectiveStreamReader(
+            StreamDescriptor streamDescriptor,
+            Map<Subfield, TupleDomainFilter> filters,
+            List<Subfield> requiredSubfields,
+            Optional<Type> outputType,
+            DateTimeZone hiveStorageTimeZone,
+            AggregatedMemoryContext systemMemoryContext)
+    {
+        this.streamDescriptor = requireNonNull(streamDescriptor, "streamDescriptor is null");
+        requireNonNull(filters, "filters is null");
+        requireNonNull(requiredSubfields, "requiredSubfields is null");
+        requireNonNull(outputType, "outputType is null");
+        requireNonNull(hiveStorageTimeZone, "hiveStorageTimeZone is null");
+        this.systemMemoryContext = requireNonNull(systemMemoryContext, "systemMemoryContext is null").newLocalMemoryContext(StructSelectiveStreamReader.class.getSimpleName());
+        this.outputRequired = outputType.isPresent();
+        this.outputType = outputType.map(RowType.class::cast).orElse(null);
+
+        Map<String, StreamDescriptor> nestedStreams = streamDescriptor.getNestedStreams().stream()
+                .collect(toImmutableMap(stream -> stream.getFieldName().toLowerCase(Locale.ENGLISH), stream -> stream));
+
+        TupleDomainFilter filter = null;
+        Map<String, Map<Subfield, TupleDomainFilter>> nestedFilters = new LinkedHashMap<>();
+        for (Map.Entry<Subfield, TupleDomainFilter> entry : filters.entrySet()) {
+            Subfield subfield = entry.getKey();
+            if (subfield.getPath().isEmpty()) {
+                filter = entry.getValue();
+                checkArgument(filter == IS_NULL || filter == IS_NOT_NULL, "Only IS NULL and IS NOT NULL filters are supported on struct columns: %s", filter);
+                continue;
+            }
+            String fieldName = getFieldName(subfield);
+            nestedFilters.computeIfAbsent(fieldName, name -> new HashMap<>()).put(tail(subfield), entry.getValue());
+        }
+
+        // A null struct makes all of its fields null
+        boolean nestedFiltersAllowNull = nestedFilters.values().stream()
+                .flatMap(fieldFilters -> fieldFilters.values().stream())
+                .allMatch(TupleDomainFilter::testNull);
+        nullsAllowed = (filter == null || filter.testNull()) && nestedFiltersAllowNull;
+
+        // Fields missing from the file are null
+        boolean missingFieldFiltersAllowNull = nestedFilters.entrySet().stream()
+                .filter(entry -> !nestedStreams.containsKey(entry.getKey()))
+                .flatMap(entry -> entry.getValue().values().stream())
+                .allMatch(TupleDomainFilter::testNull);
+        nonNullsAllowed = filter != IS_NULL && missingFieldFiltersAllowNull;
+
+        Optional<Map<String, List<Subfield>>> requiredFields = getRequiredFields(requiredSubfields);
+
+        List<SelectiveStreamReader> readersWithFilters = new ArrayList<>();
+        List<SelectiveStreamReader> readersWithoutFilters = new ArrayList<>();
+        Map<String, SelectiveStreamReader> outputReaders = new HashMap<>();
+        Set<String> fieldsWithReaders = new HashSet<>();
+
+        if (this.outputType != null) {
+            for (RowType.Field field : this.outputType.getFields()) {
+                String fieldName = field.getName()
+                        .orElseThrow(() -> new IllegalArgumentException("Missing struct field name in type " + this.outputType))
+                        .toLowerCase(Locale.ENGLISH);
+                StreamDescriptor nestedStream = nestedStreams.get(fieldName);
+                boolean fieldRequired = !requiredFields.isPresent() || requiredFields.get().containsKey(fieldName);
+                if (nestedStream == null || !(fieldRequired || nestedFilters.containsKey(fieldName))) {
+                    continue;
+                }
+
+                SelectiveStreamReader nestedReader = createStreamReader(
+                        nestedStream,
+                        nestedFilters.getOrDefault(fieldName, ImmutableMap.of()),
+                        fieldRequired ? Optional.of(field.getType()) : Optional.empty(),
+                        fieldRequired ? requiredFields.map(fields -> fields.get(fieldName)).orElse(ImmutableList.of()) : ImmutableList.of(),
+                        hiveStorageTimeZone,
+                        systemMemoryContext);
+                fieldsWithReaders.add(fieldName);
+                if (fieldRequired) {
+                    outputReaders.put(fieldName, nestedReader);
+                }
+                if (nestedFilters.containsKey(fieldName)) {
+                    readersWithFilters.add(nestedReader);
+                }
+                else {
+                    readersWithoutFilters.add(nestedReader);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Map<Subfield, TupleDomainFilter>> entry : nestedFilters.entrySet()) {
+            StreamDescriptor nestedStream = nestedStreams.get(entry.getKey());
+            if (nestedStream != null && !fieldsWithReaders.contains(entry.getKey())) {
+                readersWithFilters.add(createStreamReader(nestedStream, entry.getValue(), Optional.empty(), ImmutableList.of(), hiveStorageTimeZone, systemMemoryContext));
+            }
+        }
+
+        this.nestedReaders = ImmutableList.<SelectiveStreamReader>builder()
+                .addAll(readersWithFilters)
+                .addAll(readersWithoutFilters)
+                .build()
+                .toArray(new SelectiveStreamReader[0]);
+
+        if (this.outputType != null) {
+            List<SelectiveStreamReader> readers = Arrays.asList(nestedReaders);
+            List<RowType.Field> fields = this.outputType.getFields();
+            outputFieldReaders = new int[fields.size()];
+            for (int i = 0; i < fields.size(); i++) {
+                SelectiveStreamReader reader = outputReaders.get(fields.get(i).getName().get().toLowerCase(Locale.ENGLISH));
+                outputFieldReaders[i] = reader == null ? -1 : readers.indexOf(reader);
+            }
+        }
+        else {
+            outputFieldReaders = new int[0];
+        }
+    }
+
+    private static String getFieldName(Subfield subfield)
+    {
+        Subfield.PathElement element = subfield.getPath().get(0);
+        checkArgument(element instanceof Subfield.NestedField, "Unsupported subfield of a struct column: %s", subfield);
+        return ((Subfield.NestedField) element).getName().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @return required subfields for each required field, an empty list if the whole field is required;
+     * or Optional.empty() if all fields are required
+     */
+    private static Optional<Map<String, List<Subfield>>> getRequiredFields(List<Subfield> requiredSubfields)
+    {
+        if (requiredSubfields.isEmpty() || requiredSubfields.stream().anyMatch(subfield -> subfield.getPath().isEmpty())) {
+            return Optional.empty();
+        }
+
+        Map<String, List<Subfield>> requiredFields = new HashMap<>();
+        Set<String> wholeFields = new HashSet<>();
+        for (Subfield subfield : requiredSubfields) {
+            if (!(subfield.getPath().get(0) instanceof Subfield.NestedField)) {
+                return Optional.empty();
+            }
+
+            String fieldName = getFieldName(subfield);
+            Subfield nestedSubfield = tail(subfield);
+            if (nestedSubfield.getPath().isEmpty()) {
+                wholeFields.add(fieldName);
+            }
+            requiredFields.computeIfAbsent(fieldName, name -> new ArrayList<>()).add(nestedSubfield);
+        }
+
+        for (String fieldName : wholeFields) {
+            requiredFields.put(fieldName, ImmutableList.of());
+        }
+        return Optional.of(requiredFields);
+    }
+
+    @Override
+    public int read(int offset, int[] positions, int positionCount)
+            throws IOException
+    {
+        if (!rowGroupOpen) {
+            openRowGroup();
+        }
+
+        if (readOffset < offset) {
+            nestedReadOffset += skip(offset - readOffset);
+        }
+
+        ensureCapacity(positionCount);
+
+        // account memory used by nulls, outputPositions and nestedPositions
+        systemMemoryContext.setBytes(getLocalRetainedSizeInBytes());
+
+        int nestedOffset = nestedReadOffset;
+        outputPositionCount = 0;
+        nestedPositionCount = 0;
+        int streamPosition = 0;
+        int nestedStreamPosition = 0;
+        if (presentStream == null) {
+            if (nonNullsAllowed) {
+                System.arraycopy(positions, 0, outputPositions, 0, positionCount);
+                System.arraycopy(positions, 0, nestedPositions, 0, positionCount);
+                Arrays.fill(nulls, 0, positionCount, false);
+                outputPositionCount = positionCount;
+                nestedPositionCount = positionCount;
+            }
+            streamPosition = positions[positionCount - 1] + 1;
+            nestedStreamPosition = streamPosition;
+        }
+        else {
+            for (int i = 0; i < positionCount; i++) {
+                int position = positions[i];
+                if (position > streamPosition) {
+                    nestedStreamPosition += presentStream.countBitsSet(position - streamPosition);
+                    streamPosition = position;
+                }
+
+                if (presentStream.nextBit()) {
+                    if (nonNullsAllowed) {
+                        outputPositions[outputPositionCount] = position;
+                        nulls[outputPositionCount] = false;
+                        outputPositionCount++;
+                        nestedPositions[nestedPositionCount] = nestedStreamPosition;
+                        nestedPositionCount++;
+                    }
+                    nestedStreamPosition++;
+                }
+                else if (nullsAllowed) {
+                    outputPositions[outputPositionCount] = position;
+                    nulls[outputPositionCount] = true;
+                    outputPositionCount++;
+                }
+                streamPosition++;
+            }
+        }
+
+        if (nestedPositionCount > 0) {
+            readNested(nestedOffset);
+        }
+
+        readOffset = offset + streamPosition;
+        nestedReadOffset = nestedOffset + nestedStreamPosition;
+
+        return outputPositionCount;
+    }
+
+    private void readNested(int nestedOffset)
+            throws IOException
+    {
+        int[] readPositions = nestedPositions;
+        int readPositionCount = nestedPositionCount;
+        for (SelectiveStreamReader reader : nestedReaders) {
+            readPositionCount = reader.read(nestedOffset, readPositions, readPositionCount);
+            if (readPositionCount == 0) {
+                break;
+            }
+            readPositions = reader.getReadPositions();
+        }
+
+        if (readPositionCount == nestedPositionCount) {
+            return;
+        }
+
+        // Remove rows that didn't pass the filters on nested fields
+        int nestedIndex = 0;
+        int passingIndex = 0;
+        int count = 0;
+        for (int i = 0; i < outputPositionCount; i++) {
+            if (nulls[i]) {
+                outputPositions[count] = outputPositions[i];
+                nulls[count] = true;
+                count++;
+            }
+            else {
+                int nestedPosition = nestedPositions[nestedIndex];
+                nestedIndex++;
+                if (passingIndex < readPositionCount && readPositions[passingIndex] == nestedPosition) {
+                    outputPositions[count] = outputPositions[i];
+                    nulls[count] = false;
+                    nestedPositions[passingIndex] = nestedPosition;
+                    passingIndex++;
+                    count++;
+                }
+            }
+        }
+
+        outputPositionCount = count;
+        nestedPositionCount = readPositionCount;
+    }
+
+    private int skip(int items)
+            throws IOException
+    {
+        if (presentStream == null) {
+            return items;
+        }
+        return presentStream.countBitsSet(items);
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (outputPositions == null || outputPositions.length < capacity) {
+            outputPositions = new int[capacity];
+            nulls = new boolean[capacity];
+            nestedPositions = new int[capacity];
+        }
+    }
+
+    private void openRowGroup()
+            throws IOException
+    {
+        presentStream = presentStreamSource.openStream();
+
+        rowGroupOpen = true;
+    }
+
+    @Override
+    public int[] getReadPositions()
+    {
+        return outputPositions;
+    }
+
+    @Override
+    public Block getBlock(int[] positions, int positionCount)
+    {
+        checkArgument(outputPositionCount > 0, "outputPositionCount must be greater than zero");
+        checkState(outputRequired, "This stream reader doesn't produce output");
+        checkState(positionCount <= outputPositionCount, "Not enough values");
+
+        BlockPositions blockPositions = collectBlockPositions(positions, positionCount);
+
+        Block[] fieldBlocks = new Block[outputFieldReaders.length];
+        for (int i = 0; i < outputFieldReaders.length; i++) {
+            int readerIndex = outputFieldReaders[i];
+            if (readerIndex < 0 || blockPositions.nestedPositionCount == 0) {
+                fieldBlocks[i] = createNullBlock(outputType.getFields().get(i).getType(), blockPositions.nestedPositionCount);
+            }
+            else {
+                fieldBlocks[i] = nestedReaders[readerIndex].getBlock(blockPositions.nestedPositions, blockPositions.nestedPositionCount);
+            }
+        }
+
+        return RowBlock.fromFieldBlocks(positionCount, blockPositions.getNulls(), fieldBlocks);
+    }
+
+    @Override
+    public BlockLease getBlockView(int[] positions, int positionCount)
+    {
+        checkArgument(outputPositionCount > 0, "outputPositionCount must be greater than zero");
+        checkState(outputRequired, "This stream reader doesn't produce output");
+        checkState(positionCount <= outputPositionCount, "Not enough values");
+
+        BlockPositions blockPositions = collectBlockPositions(positions, positionCount);
+
+        List<BlockLease> leases = new ArrayList<>();
+        Block[] fieldBlocks = new Block[outputFieldReaders.length];
+        for (int i = 0; i < outputFieldReaders.length; i++) {
+            int readerIndex = outputFieldReaders[i];
+            if (readerIndex < 0 || blockPositions.nestedPositionCount == 0) {
+                fieldBlocks[i] = createNullBlock(outputType.getFields().get(i).getType(), blockPositions.nestedPositionCount);
+            }
+            else {
+                BlockLease lease = nestedReaders[readerIndex].getBlockView(blockPositions.nestedPositions, blockPositions.nestedPositionCount);
+                leases.add(lease);
+                fieldBlocks[i] = lease.get();
+            }
+        }
+
+        return newLease(
+                RowBlock.fromFieldBlocks(positionCount, blockPositions.getNulls(), fieldBlocks),
+                leases.stream().map(lease -> (ClosingBlockLease.Closer) lease::close).toArray(ClosingBlockLease.Closer[]::new));
+    }
+
+    private BlockPositions collectBlockPositions(int[] positions, int positionCount)
+    {
+        boolean[] blockNulls = new boolean[positionCount];
+        int[] blockNestedPositions = new int[positionCount];
+        int blockNestedPositionCount = 0;
+        boolean mayHaveNull = false;
+
+        // positions is a subset of outputPositions; walk both in step to find nested positions
+        int outputIndex = 0;
+        int nestedIndex = 0;
+        for (int i = 0; i < positionCount; i++) {
+            int position = positions[i];
+            while (outputPositions[outputIndex] < position) {
+                if (!nulls[outputIndex]) {
+                    nestedIndex++;
+                }
+                outputIndex++;
+            }
+
+            if (nulls[outputIndex]) {
+                blockNulls[i] = true;
+                mayHaveNull = true;
+            }
+            else {
+                blockNestedPositions[blockNestedPositionCount] = nestedPositions[nestedIndex];
+                blockNestedPositionCount++;
+            }
+        }
+
+        return new BlockPositions(mayHaveNull ? blockNulls : null, blockNestedPositions, blockNestedPositionCount);
+    }
+
+    private static Block createNullBlock(Type type, int positionCount)
+    {
+        if (positionCount == 0) {
+            return type.createBlockBuilder(null, 0).build();
+        }
+        return new RunLengthEncodedBlock(type.createBlockBuilder(null, 1).appendNull().build(), positionCount);
+    }
+
+    @Override
+    public void startStripe(InputStreamSources dictionaryStreamSources, List<ColumnEncoding> encoding)
+            throws IOException
+    {
+        presentStreamSource = missingStreamSource(BooleanInputStream.class);
+
+        readOffset = 0;
+        nestedReadOffset = 0;
+
+        presentStream = null;
+
+        rowGroupOpen = false;
+
+        for (SelectiveStreamReader reader : nestedReaders) {
+            reader.startStripe(dictionaryStreamSources, encoding);
+        }
+    }
+
+    @Override
+    public void startRowGroup(InputStreamSources dataStreamSources)
+            throws IOException
+    {
+        presentStreamSource = dataStreamSources.getInputStreamSource(streamDescriptor, PRESENT, BooleanInputStream.class);
+
+        readOffset = 0;
+        nestedReadOffset = 0;
+
+        presentStream = null;
+
+        rowGroupOpen = false;
+
+        for (SelectiveStreamReader reader : nestedReaders) {
+            reader.startRowGroup(dataStreamSources);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try (Closer closer = Closer.create()) {
+            for (SelectiveStreamReader reader : nestedReaders) {
+                closer.register(reader::close);
+            }
+            closer.register(systemMemoryContext::close);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long getLocalRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOf(outputPositions) + sizeOf(nulls) + sizeOf(nestedPositions);
+    }
+
+    @Override
+    public long getRetainedSizeInBytes()
+    {
+        long retainedSize = getLocalRetainedSizeInBytes();
+        for (SelectiveStreamReader reader : nestedReaders) {
+            retainedSize += reader.getRetainedSizeInBytes();
+        }
+        return retainedSize;
+    }
+
+    private static class BlockPositions
+    {
+        @Nullable
+        private final boolean[] nulls;
+        private final int[] nestedPositions;
+        private final int nestedPositionCount;
+
+        BlockPositions(@Nullable boolean[] nulls, int[] nestedPositions, int nestedPositionCount)
+        {
+            this.nulls = nulls;
+            this.nestedPositions = nestedPositions;
+            this.nestedPositionCount = nestedPositionCount;
+        }
+
+        Optional<boolean[]> getNulls()
+        {
+            return Optional.ofNullable(nulls);
+        }
+    }
+}
@@ -16,6 +16,7 @@ package com.facebook.presto.orc;
 import com.facebook.presto.orc.TupleDomainFilter.BigintRange;
 import com.facebook.presto.orc.TupleDomainFilter.BooleanValue;
 import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.Subfield;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.type.SqlDate;
 import com.facebook.presto.spi.type.Type;
@@ -46,6 +47,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
@@ -160,7 +162,7 @@ public class BenchmarkSelectiveStreamReaders
             return orcReader.createSelectiveRecordReader(
                     ImmutableMap.of(0, type),
                     ImmutableList.of(0),
-                    filter.map(f -> ImmutableMap.of(0, f)).orElse(ImmutableMap.of()),
+                    filter.map(f -> ImmutableMap.<Integer, Map<Subfield, TupleDomainFilter>>of(0, ImmutableMap.of(new Subfield("c"), f))).orElse(ImmutableMap.of()),
                     ImmutableList.of(),
                     ImmutableMap.of(),
                     ImmutableMap.of(),
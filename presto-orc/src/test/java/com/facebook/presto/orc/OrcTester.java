@@ -19,13 +19,17 @@ import com.facebook.presto.block.BlockEncodingManager;
 import com.facebook.presto.metadata.FunctionManager;
 import com.facebook.presto.orc.metadata.CompressionKind;
 import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.Subfield;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.type.ArrayType;
 import com.facebook.presto.spi.type.CharType;
 import com.facebook.presto.spi.type.DecimalType;
 import com.facebook.presto.spi.type.Decimals;
+import com.facebook.presto.spi.type.MapType;
 import com.facebook.presto.spi.type.NamedTypeSignature;
 import com.facebook.presto.spi.type.RowFieldName;
+import com.facebook.presto.spi.type.RowType;
 import com.facebook.presto.spi.type.SqlDate;
 import com.facebook.presto.spi.type.SqlDecimal;
 import com.facebook.presto.spi.type.SqlTimestamp;
@@ -45,6 +49,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 import io.airlift.units.DataSize;
@@ -118,6 +123,7 @@ import static com.facebook.presto.orc.OrcTester.Format.ORC_11;
 import static com.facebook.presto.orc.OrcTester.Format.ORC_12;
 import static com.facebook.presto.orc.OrcWriteValidation.OrcWriteValidationMode.BOTH;
 import static com.facebook.presto.orc.TestingOrcPredicate.createOrcPredicate;
+import static com.facebook.presto.orc.TupleDomainFilter.IS_NOT_NULL;
 import static com.facebook.presto.orc.metadata.CompressionKind.LZ4;
 import static com.facebook.presto.orc.metadata.CompressionKind.NONE;
 import static com.facebook.presto.orc.metadata.CompressionKind.SNAPPY;
@@ -144,6 +150,7 @@ import static io.airlift.slice.Slices.utf8Slice;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static io.airlift.units.DataSize.succinctBytes;
 import static java.lang.Math.toIntExact;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -525,6 +532,33 @@ public class OrcTester
 
     private void assertRoundTrip(List<Type> writeTypes, List<Type> readTypes, List<List<?>> writeValues, List<List<?>> readValues, boolean verifyWithHiveReader, List<Map<Integer, TupleDomainFilter>> filters)
             throws Exception
+    {
+        List<Map<Integer, Map<Subfield, TupleDomainFilter>>> subfieldFilters = filters.stream()
+                .map(OrcTester::toSubfieldFilters)
+                .collect(toList());
+        assertRoundTrip(writeTypes, readTypes, writeValues, readValues, verifyWithHiveReader, subfieldFilters, ImmutableMap.of());
+    }
+
+    public void assertRoundTripWithSubfieldFilters(List<Type> types, List<List<?>> readValues, List<Map<Integer, Map<Subfield, TupleDomainFilter>>> filters, Map<Integer, List<Subfield>> requiredSubfields)
+            throws Exception
+    {
+        assertRoundTrip(types, types, readValues, readValues, true, filters, requiredSubfields);
+    }
+
+    private static Map<Integer, Map<Subfield, TupleDomainFilter>> toSubfieldFilters(Map<Integer, TupleDomainFilter> filters)
+    {
+        return Maps.transformValues(filters, filter -> ImmutableMap.of(new Subfield("c"), filter));
+    }
+
+    private void assertRoundTrip(
+            List<Type> writeTypes,
+            List<Type> readTypes,
+            List<List<?>> writeValues,
+            List<List<?>> readValues,
+            boolean verifyWithHiveReader,
+            List<Map<Integer, Map<Subfield, TupleDomainFilter>>> filters,
+            Map<Integer, List<Subfield>> requiredSubfields)
+            throws Exception
     {
         assertEquals(writeTypes.size(), readTypes.size());
         assertEquals(writeTypes.size(), writeValues.size());
@@ -544,7 +578,7 @@ public class OrcTester
                 if (hiveSupported) {
                     try (TempFile tempFile = new TempFile()) {
                         writeOrcColumnsHive(tempFile.getFile(), format, compression, writeTypes, writeValues);
-                        assertFileContentsPresto(readTypes, tempFile, readValues, false, false, orcEncoding, format, true, useSelectiveOrcReader, filters);
+                        assertFileContentsPresto(readTypes, tempFile, readValues, false, false, orcEncoding, format, true, useSelectiveOrcReader, filters, requiredSubfields);
                     }
                 }
 
@@ -556,14 +590,14 @@ public class OrcTester
                         assertFileContentsHive(readTypes, tempFile, format, readValues);
                     }
 
-                    assertFileContentsPresto(readTypes, tempFile, readValues, false, false, orcEncoding, format, false, useSelectiveOrcReader, filters);
+                    assertFileContentsPresto(readTypes, tempFile, readValues, false, false, orcEncoding, format, false, useSelectiveOrcReader, filters, requiredSubfields);
 
                     if (skipBatchTestsEnabled) {
-                        assertFileContentsPresto(readTypes, tempFile, readValues, true, false, orcEncoding, format, false, useSelectiveOrcReader, filters);
+                        assertFileContentsPresto(readTypes, tempFile, readValues, true, false, orcEncoding, format, false, useSelectiveOrcReader, filters, requiredSubfields);
                     }
 
                     if (skipStripeTestsEnabled) {
-                        assertFileContentsPresto(readTypes, tempFile, readValues, false, true, orcEncoding, format, false, useSelectiveOrcReader, filters);
+                        assertFileContentsPresto(readTypes, tempFile, readValues, false, true, orcEncoding, format, false, useSelectiveOrcReader, filters, requiredSubfields);
                     }
                 }
             }
@@ -578,10 +612,11 @@ public class OrcTester
             List<List<?>> expectedValues,
             OrcEncoding orcEncoding,
             OrcPredicate orcPredicate,
-            Optional<Map<Integer, TupleDomainFilter>> filters)
+            Optional<Map<Integer, Map<Subfield, TupleDomainFilter>>> filters,
+            Map<Integer, List<Subfield>> requiredSubfields)
             throws IOException
     {
-        try (OrcSelectiveRecordReader recordReader = createCustomOrcSelectiveRecordReader(tempFile, orcEncoding, orcPredicate, types, MAX_BATCH_SIZE, filters.orElse(ImmutableMap.of()))) {
+        try (OrcSelectiveRecordReader recordReader = createCustomOrcSelectiveRecordReader(tempFile, orcEncoding, orcPredicate, types, MAX_BATCH_SIZE, filters.orElse(ImmutableMap.of()), requiredSubfields)) {
             assertEquals(recordReader.getReaderPosition(), 0);
             assertEquals(recordReader.getFilePosition(), 0);
 
@@ -627,15 +662,17 @@ public class OrcTester
             Format format,
             boolean isHiveWriter,
             boolean useSelectiveOrcReader,
-            List<Map<Integer, TupleDomainFilter>> filters)
+            List<Map<Integer, Map<Subfield, TupleDomainFilter>>> filters,
+            Map<Integer, List<Subfield>> requiredSubfields)
             throws IOException
     {
         OrcPredicate orcPredicate = createOrcPredicate(types, expectedValues, format, isHiveWriter);
         if (useSelectiveOrcReader) {
-            assertFileContentsPresto(types, tempFile, expectedValues, orcEncoding, orcPredicate, Optional.empty());
+            assertFileContentsPresto(types, tempFile, pruneValues(types, expectedValues, requiredSubfields), orcEncoding, orcPredicate, Optional.empty(), requiredSubfields);
 
-            for (Map<Integer, TupleDomainFilter> columnFilters : filters) {
-                assertFileContentsPresto(types, tempFile, filterRows(types, expectedValues, columnFilters), orcEncoding, orcPredicate, Optional.of(columnFilters));
+            for (Map<Integer, Map<Subfield, TupleDomainFilter>> columnFilters : filters) {
+                List<List<?>> expectedFilteredValues = pruneValues(types, filterRows(types, expectedValues, columnFilters), requiredSubfields);
+                assertFileContentsPresto(types, tempFile, expectedFilteredValues, orcEncoding, orcPredicate, Optional.of(columnFilters), requiredSubfields);
             }
 
             return;
@@ -682,7 +719,7 @@ public class OrcTester
         }
     }
 
-    private static List<List<?>> filterRows(List<Type> types, List<List<?>> values, Map<Integer, TupleDomainFilter> columnFilters)
+    private static List<List<?>> filterRows(List<Type> types, List<List<?>> values, Map<Integer, Map<Subfield, TupleDomainFilter>> columnFilters)
     {
         List<Integer> passingRows = IntStream.range(0, values.get(0).size())
                 .filter(row -> testRow(types, values, row, columnFilters))
@@ -693,44 +730,217 @@ public class OrcTester
                 .collect(toList());
     }
 
-    private static boolean testRow(List<Type> types, List<List<?>> values, int row, Map<Integer, TupleDomainFilter> columnFilters)
+    private static boolean testRow(List<Type> types, List<List<?>> values, int row, Map<Integer, Map<Subfield, TupleDomainFilter>> columnFilters)
     {
         for (int column = 0; column < types.size(); column++) {
-            TupleDomainFilter filter = columnFilters.get(column);
-            if (filter == null) {
+            Map<Subfield, TupleDomainFilter> filters = columnFilters.get(column);
+            if (filters == null) {
                 continue;
             }
 
-            Object value = values.get(column).get(row);
-            if (value == null) {
-                if (!filter.testNull()) {
+            for (Map.Entry<Subfield, TupleDomainFilter> entry : filters.entrySet()) {
+                Type type = types.get(column);
+                Object value = values.get(column).get(row);
+                for (Subfield.PathElement element : entry.getKey().getPath()) {
+                    if (value == null) {
+                        break;
+                    }
+                    value = getSubfieldValue(type, value, element);
+                    type = getSubfieldType(type, element);
+                }
+
+                if (!testValue(type, value, entry.getValue())) {
                     return false;
                 }
             }
-            else {
-                Type type = types.get(column);
-                if (type == BOOLEAN) {
-                    if (!filter.testBoolean((Boolean) value)) {
-                        return false;
-                    }
+        }
+
+        return true;
+    }
+
+    private static Object getSubfieldValue(Type type, Object value, Subfield.PathElement element)
+    {
+        if (type instanceof RowType) {
+            return ((List<?>) value).get(getFieldIndex((RowType) type, ((Subfield.NestedField) element).getName()));
+        }
+        if (type instanceof ArrayType) {
+            List<?> elements = (List<?>) value;
+            long index = ((Subfield.LongSubscript) element).getIndex();
+            return index <= elements.size() ? elements.get(toIntExact(index - 1)) : null;
+        }
+        if (type instanceof MapType) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getKey() != null && isSubscriptKey(entry.getKey(), element)) {
+                    return entry.getValue();
                 }
-                else if (type == BIGINT || type == INTEGER || type == SMALLINT) {
-                    if (!filter.testLong(((Number) value).longValue())) {
-                        return false;
-                    }
+            }
+            return null;
+        }
+        throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+
+    private static Type getSubfieldType(Type type, Subfield.PathElement element)
+    {
+        if (type instanceof RowType) {
+            return type.getTypeParameters().get(getFieldIndex((RowType) type, ((Subfield.NestedField) element).getName()));
+        }
+        if (type instanceof ArrayType) {
+            return ((ArrayType) type).getElementType();
+        }
+        if (type instanceof MapType) {
+            return ((MapType) type).getValueType();
+        }
+        throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+
+    private static int getFieldIndex(RowType type, String name)
+    {
+        List<RowType.Field> fields = type.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).getName().get().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Field not found: " + name);
+    }
+
+    private static boolean isSubscriptKey(Object key, Subfield.PathElement element)
+    {
+        if (element instanceof Subfield.LongSubscript) {
+            return ((Number) key).longValue() == ((Subfield.LongSubscript) element).getIndex();
+        }
+        return key.equals(((Subfield.StringSubscript) element).getIndex());
+    }
+
+    private static boolean testValue(Type type, Object value, TupleDomainFilter filter)
+    {
+        if (value == null) {
+            return filter.testNull();
+        }
+
+        if (type == BOOLEAN) {
+            return filter.testBoolean((Boolean) value);
+        }
+        if (type == BIGINT || type == INTEGER || type == SMALLINT) {
+            return filter.testLong(((Number) value).longValue());
+        }
+        if (type == DATE) {
+            return filter.testLong(((SqlDate) value).getDays());
+        }
+        if (type == TIMESTAMP) {
+            return filter.testLong(((SqlTimestamp) value).getMillisUtc());
+        }
+        if (type == DOUBLE) {
+            return filter.testDouble((Double) value);
+        }
+        if (type == REAL) {
+            return filter.testFloat((Float) value);
+        }
+        if (type instanceof VarcharType) {
+            byte[] bytes = ((String) value).getBytes(UTF_8);
+            return filter.testBytes(bytes, 0, bytes.length);
+        }
+        if (type instanceof CharType) {
+            // CHAR values are compared without trailing spaces
+            byte[] bytes = ((String) value).replaceAll(" +$", "").getBytes(UTF_8);
+            return filter.testBytes(bytes, 0, bytes.length);
+        }
+        if (type == VARBINARY) {
+            byte[] bytes = ((SqlVarbinary) value).getBytes();
+            return filter.testBytes(bytes, 0, bytes.length);
+        }
+        if (type instanceof RowType || type instanceof ArrayType || type instanceof MapType) {
+            // only IS NULL and IS NOT NULL filters are supported on complex types
+            return filter == IS_NOT_NULL;
+        }
+        fail("Unsupported type: " + type);
+        return false;
+    }
+
+    private static List<List<?>> pruneValues(List<Type> types, List<List<?>> values, Map<Integer, List<Subfield>> requiredSubfields)
+    {
+        if (requiredSubfields.isEmpty()) {
+            return values;
+        }
+
+        ImmutableList.Builder<List<?>> prunedValues = ImmutableList.builder();
+        for (int column = 0; column < types.size(); column++) {
+            List<Subfield> subfields = requiredSubfields.get(column);
+            if (subfields == null) {
+                prunedValues.add(values.get(column));
+                continue;
+            }
+
+            Type type = types.get(column);
+            prunedValues.add(values.get(column).stream()
+                    .map(value -> pruneValue(type, value, subfields))
+                    .collect(toList()));
+        }
+        return prunedValues.build();
+    }
+
+    private static Object pruneValue(Type type, Object value, List<Subfield> subfields)
+    {
+        if (value == null || subfields.isEmpty() || subfields.stream().anyMatch(subfield -> subfield.getPath().isEmpty())) {
+            return value;
+        }
+
+        if (type instanceof RowType) {
+            List<RowType.Field> fields = ((RowType) type).getFields();
+            List<?> fieldValues = (List<?>) value;
+            List<Object> prunedFieldValues = new ArrayList<>(fields.size());
+            for (int i = 0; i < fields.size(); i++) {
+                String name = fields.get(i).getName().get();
+                List<Subfield> fieldSubfields = subfields.stream()
+                        .filter(subfield -> ((Subfield.NestedField) subfield.getPath().get(0)).getName().equalsIgnoreCase(name))
+                        .map(OrcTester::tail)
+                        .collect(toList());
+                if (fieldSubfields.isEmpty()) {
+                    prunedFieldValues.add(null);
                 }
-                else if (type == DATE) {
-                    if (!filter.testLong(((SqlDate) value).getDays())) {
-                        return false;
-                    }
+                else if (fieldSubfields.stream().anyMatch(subfield -> subfield.getPath().isEmpty())) {
+                    prunedFieldValues.add(fieldValues.get(i));
                 }
                 else {
-                    fail("Unsupported type: " + type);
+                    prunedFieldValues.add(pruneValue(fields.get(i).getType(), fieldValues.get(i), fieldSubfields));
                 }
             }
+            return prunedFieldValues;
         }
 
-        return true;
+        List<Subfield> nestedSubfields = subfields.stream()
+                .map(OrcTester::tail)
+                .collect(toList());
+        if (nestedSubfields.stream().anyMatch(subfield -> subfield.getPath().isEmpty())) {
+            nestedSubfields = ImmutableList.of();
+        }
+
+        if (type instanceof ArrayType) {
+            Type elementType = ((ArrayType) type).getElementType();
+            List<Subfield> elementSubfields = nestedSubfields;
+            return ((List<?>) value).stream()
+                    .map(element -> pruneValue(elementType, element, elementSubfields))
+                    .collect(toList());
+        }
+
+        if (type instanceof MapType) {
+            Type valueType = ((MapType) type).getValueType();
+            boolean allKeys = subfields.stream().anyMatch(subfield -> subfield.getPath().get(0) instanceof Subfield.AllSubscripts);
+            Map<Object, Object> prunedMap = new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getKey() != null && (allKeys || subfields.stream().anyMatch(subfield -> isSubscriptKey(entry.getKey(), subfield.getPath().get(0))))) {
+                    prunedMap.put(entry.getKey(), pruneValue(valueType, entry.getValue(), nestedSubfields));
+                }
+            }
+            return prunedMap;
+        }
+
+        return value;
+    }
+
+    private static Subfield tail(Subfield subfield)
+    {
+        return new Subfield(subfield.getRootName(), subfield.getPath().subList(1, subfield.getPath().size()));
     }
 
     private static void assertColumnValueEquals(Type type, Object actual, Object expected)
@@ -870,7 +1080,8 @@ public class OrcTester
             OrcPredicate predicate,
             List<Type> types,
             int initialBatchSize,
-            Map<Integer, TupleDomainFilter> filters)
+            Map<Integer, Map<Subfield, TupleDomainFilter>> filters,
+            Map<Integer, List<Subfield>> requiredSubfields)
             throws IOException
     {
         OrcDataSource orcDataSource = new FileOrcDataSource(tempFile.getFile(), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), true);
@@ -889,7 +1100,7 @@ public class OrcTester
                 filters,
                 ImmutableList.of(),
                 ImmutableMap.of(),
-                ImmutableMap.of(),
+                requiredSubfields,
                 ImmutableMap.of(),
                 predicate,
                 0,
@@ -1361,7 +1572,7 @@ public class OrcTester
             return date;
         }
         else if (type.equals(TIMESTAMP)) {
-            long millisUtc = (int) ((SqlTimestamp) value).getMillisUtc();
+            long millisUtc = ((SqlTimestamp) value).getMillisUtc();
             return new Timestamp(millisUtc);
         }
         else if (type instanceof DecimalType) {
@@ -1577,17 +1788,17 @@ public class OrcTester
         return baseTypes.contains(testBaseType);
     }
 
-    private static Type arrayType(Type elementType)
+    static Type arrayType(Type elementType)
     {
         return TYPE_MANAGER.getParameterizedType(StandardTypes.ARRAY, ImmutableList.of(TypeSignatureParameter.of(elementType.getTypeSignature())));
     }
 
-    private static Type mapType(Type keyType, Type valueType)
+    static Type mapType(Type keyType, Type valueType)
     {
         return TYPE_MANAGER.getParameterizedType(StandardTypes.MAP, ImmutableList.of(TypeSignatureParameter.of(keyType.getTypeSignature()), TypeSignatureParameter.of(valueType.getTypeSignature())));
     }
 
-    private static Type rowType(Type... fieldTypes)
+    static Type rowType(Type... fieldTypes)
     {
         ImmutableList.Builder<TypeSignatureParameter> typeSignatureParameters = ImmutableList.builder();
         for (int i = 0; i < fieldTypes.length; i++) {
@@ -0,0 +1,163 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.slice.FixedLengthSliceInput;
+import io.airlift.units.DataSize;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static java.lang.Math.toIntExact;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestAbstractOrcDataSource
+{
+    private static final DataSize MAX_MERGE_DISTANCE = new DataSize(100, BYTE);
+    private static final DataSize MAX_BUFFER_SIZE = new DataSize(8, KILOBYTE);
+
+    private final ExecutorService executor = newCachedThreadPool(daemonThreadsNamed("test-orc-read-%s"));
+    private final byte[] data = new byte[100_000];
+
+    public TestAbstractOrcDataSource()
+    {
+        new Random(42).nextBytes(data);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentReads()
+            throws IOException
+    {
+        Map<Integer, DiskRange> diskRanges = ImmutableMap.of(
+                0, new DiskRange(0, 1_000),
+                1, new DiskRange(1_050, 500),
+                2, new DiskRange(10_000, 2_000),
+                3, new DiskRange(50_000, 4_000),
+                4, new DiskRange(90_000, 10_000));
+
+        for (boolean lazyReadSmallRanges : new boolean[] {true, false}) {
+            AtomicInteger submittedReads = new AtomicInteger();
+            TestingDataSource dataSource = new TestingDataSource(lazyReadSmallRanges, command -> {
+                submittedReads.incrementAndGet();
+                executor.execute(command);
+            }, MAX_BUFFER_SIZE.toBytes() * 10);
+
+            assertRanges(dataSource.readFully(diskRanges), diskRanges);
+            // the first two ranges are merged, and the last one is too large to be merged
+            assertEquals(submittedReads.get(), 3);
+            assertEquals(dataSource.getReadBytes(), 1_550 + 2_000 + 4_000 + 10_000);
+        }
+    }
+
+    @Test
+    public void testMaxConcurrentReadSize()
+            throws IOException
+    {
+        Map<Integer, DiskRange> diskRanges = ImmutableMap.of(
+                0, new DiskRange(0, 4_000),
+                1, new DiskRange(10_000, 4_000),
+                2, new DiskRange(20_000, 4_000));
+
+        AtomicInteger submittedReads = new AtomicInteger();
+        TestingDataSource dataSource = new TestingDataSource(true, command -> {
+            submittedReads.incrementAndGet();
+            executor.execute(command);
+        }, 9_000);
+        Map<Integer, OrcDataSourceInput> inputs = dataSource.readFully(diskRanges);
+        assertEquals(submittedReads.get(), 2);
+        assertRanges(inputs, diskRanges);
+        assertEquals(submittedReads.get(), 2);
+    }
+
+    @Test
+    public void testReadFailure()
+            throws IOException
+    {
+        TestingDataSource dataSource = new TestingDataSource(true, executor, MAX_BUFFER_SIZE.toBytes() * 10)
+        {
+            @Override
+            protected void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
+            {
+                throw new IllegalStateException("read failed");
+            }
+        };
+        Map<Integer, OrcDataSourceInput> inputs = dataSource.readFully(ImmutableMap.of(
+                0, new DiskRange(0, 1_000),
+                1, new DiskRange(10_000, 1_000)));
+        try {
+            inputs.get(1).getInput().readByte();
+            fail("expected exception");
+        }
+        catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "read failed");
+        }
+    }
+
+    private void assertRanges(Map<Integer, OrcDataSourceInput> inputs, Map<Integer, DiskRange> diskRanges)
+    {
+        assertEquals(inputs.keySet(), diskRanges.keySet());
+        for (Map.Entry<Integer, DiskRange> entry : diskRanges.entrySet()) {
+            DiskRange diskRange = entry.getValue();
+            FixedLengthSliceInput input = inputs.get(entry.getKey()).getInput();
+            byte[] actual = new byte[diskRange.getLength()];
+            input.readBytes(actual);
+            int offset = toIntExact(diskRange.getOffset());
+            assertTrue(Arrays.equals(actual, Arrays.copyOfRange(data, offset, offset + diskRange.getLength())));
+        }
+    }
+
+    private class TestingDataSource
+            extends AbstractOrcDataSource
+    {
+        public TestingDataSource(boolean lazyReadSmallRanges, Executor readExecutor, long maxConcurrentReadBytes)
+        {
+            super(
+                    new OrcDataSourceId("test"),
+                    data.length,
+                    MAX_MERGE_DISTANCE,
+                    MAX_BUFFER_SIZE,
+                    MAX_BUFFER_SIZE,
+                    lazyReadSmallRanges,
+                    Optional.of(readExecutor),
+                    new DataSize(maxConcurrentReadBytes, BYTE));
+        }
+
+        @Override
+        protected void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
+        {
+            System.arraycopy(data, toIntExact(position), buffer, bufferOffset, bufferLength);
+        }
+    }
+}
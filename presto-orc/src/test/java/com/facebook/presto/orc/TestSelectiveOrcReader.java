@@ -16,7 +16,16 @@ package com.facebook.presto.orc;
 import com.facebook.presto.orc.TupleDomainFilter.BigintRange;
 import com.facebook.presto.orc.TupleDomainFilter.BigintValues;
 import com.facebook.presto.orc.TupleDomainFilter.BooleanValue;
+import com.facebook.presto.orc.TupleDomainFilter.BytesRange;
+import com.facebook.presto.orc.TupleDomainFilter.BytesValues;
+import com.facebook.presto.orc.TupleDomainFilter.DoubleRange;
+import com.facebook.presto.orc.TupleDomainFilter.FloatRange;
+import com.facebook.presto.spi.Subfield;
+import com.facebook.presto.spi.type.CharType;
 import com.facebook.presto.spi.type.SqlDate;
+import com.facebook.presto.spi.type.SqlTimestamp;
+import com.facebook.presto.spi.type.SqlVarbinary;
+import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ContiguousSet;
 import com.google.common.collect.DiscreteDomain;
@@ -28,6 +37,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -36,22 +46,39 @@ import java.util.Random;
 import java.util.stream.IntStream;
 
 import static com.facebook.presto.orc.OrcTester.HIVE_STORAGE_TIME_ZONE;
+import static com.facebook.presto.orc.OrcTester.arrayType;
+import static com.facebook.presto.orc.OrcTester.mapType;
 import static com.facebook.presto.orc.OrcTester.quickSelectiveOrcTester;
+import static com.facebook.presto.orc.OrcTester.rowType;
+import static com.facebook.presto.orc.TupleDomainFilter.IS_NOT_NULL;
+import static com.facebook.presto.orc.TupleDomainFilter.IS_NULL;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.CharType.createCharType;
 import static com.facebook.presto.spi.type.DateType.DATE;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.RealType.REAL;
 import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
+import static com.facebook.presto.spi.type.TimestampType.TIMESTAMP;
+import static com.facebook.presto.spi.type.VarbinaryType.VARBINARY;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.cycle;
 import static com.google.common.collect.Iterables.limit;
 import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
 import static java.util.Collections.nCopies;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static org.testng.Assert.assertEquals;
 
 public class TestSelectiveOrcReader
 {
+    private static final CharType CHAR = createCharType(10);
+
     private final OrcTester tester = quickSelectiveOrcTester();
 
     @BeforeClass
@@ -143,6 +170,215 @@ public class TestSelectiveOrcReader
         testRoundTripNumeric(concat(ImmutableList.of(1), nCopies(9999, 123), ImmutableList.of(2), nCopies(9999, 123)), BigintRange.of(123, 123, true));
     }
 
+    @Test
+    public void testDoubles()
+            throws Exception
+    {
+        List<Double> values = intsBetween(0, 31_234).stream()
+                .map(i -> i / 10.0)
+                .collect(toList());
+        tester.testRoundTrip(DOUBLE, values, ImmutableList.of(
+                ImmutableMap.of(0, DoubleRange.of(10.5, false, false, 100.0, false, true, false)),
+                ImmutableMap.of(0, DoubleRange.of(0, true, false, 1.0, false, false, true))));
+
+        tester.testRoundTrip(DOUBLE, newArrayList(limit(cycle(ImmutableList.of(1.0, Double.NaN, -0.5, Double.POSITIVE_INFINITY, 7.25)), 30_000)), ImmutableList.of(
+                ImmutableMap.of(0, DoubleRange.of(-1.0, false, false, 0, true, false, false))));
+    }
+
+    @Test
+    public void testFloats()
+            throws Exception
+    {
+        List<Float> values = intsBetween(0, 31_234).stream()
+                .map(i -> i / 10.0f)
+                .collect(toList());
+        tester.testRoundTrip(REAL, values, ImmutableList.of(
+                ImmutableMap.of(0, FloatRange.of(10.5f, false, false, 100.0f, false, true, false)),
+                ImmutableMap.of(0, FloatRange.of(0, true, false, 1.0f, false, false, true))));
+
+        tester.testRoundTrip(REAL, newArrayList(limit(cycle(ImmutableList.of(1.0f, Float.NaN, -0.5f, Float.POSITIVE_INFINITY, 7.25f)), 30_000)), ImmutableList.of(
+                ImmutableMap.of(0, FloatRange.of(-1.0f, false, false, 0, true, false, false))));
+    }
+
+    @Test
+    public void testTimestamps()
+            throws Exception
+    {
+        // 2017-07-14 02:40:00 UTC plus a varying number of seconds and millis
+        long base = 1_500_000_000_000L;
+        List<SqlTimestamp> values = intsBetween(0, 31_234).stream()
+                .map(i -> new SqlTimestamp(base + i * 1_001L, UTC_KEY))
+                .collect(toList());
+        tester.testRoundTrip(TIMESTAMP, values, ImmutableList.of(
+                ImmutableMap.of(0, BigintRange.of(base + 10_000, base + 100_000, false)),
+                ImmutableMap.of(0, BigintValues.of(new long[] {base, base + 1_001, base + 2_002_000}, true))));
+    }
+
+    @Test
+    public void testVarchars()
+            throws Exception
+    {
+        // direct encoding
+        tester.testRoundTrip(VARCHAR, intsBetween(0, 30_000).stream().map(Object::toString).collect(toList()),
+                ImmutableList.of(
+                        ImmutableMap.of(0, stringIn(true, "10", "11")),
+                        ImmutableMap.of(0, stringIn(false, "10", "11")),
+                        ImmutableMap.of(0, BytesRange.of("14".getBytes(UTF_8), false, "15".getBytes(UTF_8), true, false))));
+
+        // dictionary encoding
+        tester.testRoundTrip(VARCHAR, newArrayList(limit(cycle(ImmutableList.of("apple", "apple pie", "apple\uD835\uDC03", "apple\uFFFD")), 30_000)),
+                ImmutableList.of(
+                        ImmutableMap.of(0, stringIn(false, "apple", "apple pie")),
+                        ImmutableMap.of(0, BytesRange.of("apple".getBytes(UTF_8), true, null, false, true))));
+
+        // stride dictionary
+        tester.testRoundTrip(VARCHAR, newArrayList(concat(ImmutableList.of("a"), nCopies(9999, "123"), ImmutableList.of("b"), nCopies(9999, "123"))),
+                ImmutableList.of(
+                        ImmutableMap.of(0, stringIn(false, "a", "b")),
+                        ImmutableMap.of(0, stringIn(false, "123"))));
+
+        // empty sequences
+        tester.testRoundTrip(VARCHAR, nCopies(30_000, ""), ImmutableList.of(ImmutableMap.of(0, stringIn(false, ""))));
+
+        tester.testRoundTripTypes(ImmutableList.of(VARCHAR, BIGINT),
+                ImmutableList.of(
+                        intsBetween(0, 30_000).stream().map(Object::toString).collect(toList()),
+                        newArrayList(limit(cycle(ImmutableList.of(1L, 3L, 5L, 7L, 11L, 13L, 17L)), 30_000))),
+                ImmutableList.of(
+                        ImmutableMap.of(0, stringIn(false, "10", "11", "12"), 1, BigintRange.of(1, 7, false)),
+                        ImmutableMap.of(1, BigintRange.of(1, 7, false))));
+    }
+
+    @Test
+    public void testFilterOrder()
+            throws Exception
+    {
+        // filters are re-ordered every few row groups based on their cost and selectivity;
+        // selectivity of the filters changes half way through the file
+        int rowCount = 100_000;
+        List<String> strings = IntStream.range(0, rowCount)
+                .mapToObj(i -> i < rowCount / 2 ? "value" + (i % 2) : "value" + (i % 100))
+                .collect(toList());
+        List<Long> longs = IntStream.range(0, rowCount)
+                .mapToObj(i -> i < rowCount / 2 ? (long) (i % 100) : (long) (i % 2))
+                .collect(toList());
+
+        tester.testRoundTripTypes(ImmutableList.of(VARCHAR, BIGINT, BIGINT),
+                ImmutableList.of(strings, longs, longs),
+                ImmutableList.of(
+                        ImmutableMap.of(0, stringIn(false, "value0", "value1"), 1, BigintRange.of(0, 1, false)),
+                        ImmutableMap.of(0, stringIn(true, "value1"), 1, BigintRange.of(1, 50, false), 2, BigintRange.of(0, 10, false))));
+    }
+
+    @Test
+    public void testChars()
+            throws Exception
+    {
+        // trailing spaces are ignored when evaluating filters on CHAR columns
+        tester.testRoundTrip(CHAR, newArrayList(limit(cycle(ImmutableList.of("apple     ", "apple pie ", "banana    ")), 30_000)),
+                ImmutableList.of(
+                        ImmutableMap.of(0, stringIn(false, "apple")),
+                        ImmutableMap.of(0, BytesRange.of("apple pie".getBytes(UTF_8), false, "banana".getBytes(UTF_8), false, false))));
+    }
+
+    @Test
+    public void testVarbinaries()
+            throws Exception
+    {
+        tester.testRoundTrip(VARBINARY, intsBetween(0, 30_000).stream()
+                        .map(Object::toString)
+                        .map(string -> string.getBytes(UTF_8))
+                        .map(SqlVarbinary::new)
+                        .collect(toList()),
+                ImmutableList.of(ImmutableMap.of(0, stringIn(false, "10", "11"))));
+
+        tester.testRoundTrip(VARBINARY, newArrayList(limit(cycle(ImmutableList.of(1, 3, 5, 7, 11, 13, 17)), 30_000)).stream()
+                        .map(Object::toString)
+                        .map(string -> string.getBytes(UTF_8))
+                        .map(SqlVarbinary::new)
+                        .collect(toList()),
+                ImmutableList.of(ImmutableMap.of(0, stringIn(true, "3", "17"))));
+    }
+
+    @Test
+    public void testStructs()
+            throws Exception
+    {
+        Type type = rowType(BIGINT, VARCHAR);
+        List<List<?>> values = ImmutableList.of(IntStream.range(0, 31_234)
+                .mapToObj(i -> i % 7 == 0 ? null : asList(i % 11 == 0 ? null : (long) i, "value" + (i % 100)))
+                .collect(toList()));
+
+        List<Map<Integer, Map<Subfield, TupleDomainFilter>>> filters = ImmutableList.of(
+                ImmutableMap.of(0, ImmutableMap.of(new Subfield("c.field_0"), BigintRange.of(10, 1_000, false))),
+                ImmutableMap.of(0, ImmutableMap.of(new Subfield("c.field_0"), BigintRange.of(10, 1_000, true))),
+                ImmutableMap.of(0, ImmutableMap.of(new Subfield("c"), IS_NULL)),
+                ImmutableMap.of(0, ImmutableMap.of(new Subfield("c"), IS_NOT_NULL, new Subfield("c.field_1"), stringIn(false, "value1", "value7"))));
+
+        tester.assertRoundTripWithSubfieldFilters(ImmutableList.of(type), values, filters, ImmutableMap.of());
+
+        // field_0 is not required and is returned as null
+        tester.assertRoundTripWithSubfieldFilters(ImmutableList.of(type), values, filters, ImmutableMap.of(0, ImmutableList.of(new Subfield("c.field_1"))));
+    }
+
+    @Test
+    public void testArrays()
+            throws Exception
+    {
+        Type type = arrayType(INTEGER);
+        List<List<?>> values = ImmutableList.of(IntStream.range(0, 31_234)
+                .mapToObj(i -> i % 13 == 0 ? null : IntStream.range(0, i % 5).mapToObj(j -> (i + j) % 17 == 0 ? null : i + j).collect(toList()))
+                .collect(toList()));
+
+        List<Map<Integer, Map<Subfield, TupleDomainFilter>>> filters = ImmutableList.of(
+                ImmutableMap.of(0, ImmutableMap.of(new Subfield("c[1]"), BigintRange.of(0, 1_000, false))),
+                ImmutableMap.of(0, ImmutableMap.of(new Subfield("c[3]"), BigintRange.of(0, 5_000, true))),
+                ImmutableMap.of(0, ImmutableMap.of(new Subfield("c[1]"), BigintRange.of(0, 20_000, false), new Subfield("c[2]"), BigintRange.of(10_000, 30_000, false))),
+                ImmutableMap.of(0, ImmutableMap.of(new Subfield("c"), IS_NULL)));
+
+        tester.assertRoundTripWithSubfieldFilters(ImmutableList.of(type), values, filters, ImmutableMap.of());
+    }
+
+    @Test
+    public void testMaps()
+            throws Exception
+    {
+        Type type = mapType(VARCHAR, BIGINT);
+        List<List<?>> values = ImmutableList.of(IntStream.range(0, 31_234)
+                .mapToObj(i -> i % 13 == 0 ? null : IntStream.range(0, i % 5).boxed().collect(toMap(j -> "key" + j, j -> (long) (i + j))))
+                .collect(toList()));
+
+        List<Map<Integer, Map<Subfield, TupleDomainFilter>>> filters = ImmutableList.of(
+                ImmutableMap.of(0, ImmutableMap.of(new Subfield("c[\"key1\"]"), BigintRange.of(0, 1_000, false))),
+                ImmutableMap.of(0, ImmutableMap.of(new Subfield("c[\"key3\"]"), BigintRange.of(0, 5_000, true))),
+                ImmutableMap.of(0, ImmutableMap.of(new Subfield("c"), IS_NULL)),
+                ImmutableMap.of(0, ImmutableMap.of(new Subfield("c"), IS_NOT_NULL)));
+
+        tester.assertRoundTripWithSubfieldFilters(ImmutableList.of(type), values, filters, ImmutableMap.of());
+
+        // entries with other keys are dropped
+        tester.assertRoundTripWithSubfieldFilters(ImmutableList.of(type), values, filters, ImmutableMap.of(0, ImmutableList.of(new Subfield("c[\"key0\"]"), new Subfield("c[\"key2\"]"))));
+
+        Type integerKeyType = mapType(INTEGER, DOUBLE);
+        List<List<?>> integerKeyValues = ImmutableList.of(IntStream.range(0, 31_234)
+                .mapToObj(i -> IntStream.range(0, i % 4).boxed().collect(toMap(j -> j, j -> i * 0.5 + j)))
+                .collect(toList()));
+        tester.assertRoundTripWithSubfieldFilters(
+                ImmutableList.of(integerKeyType),
+                integerKeyValues,
+                ImmutableList.of(ImmutableMap.of(0, ImmutableMap.of(new Subfield("c[2]"), DoubleRange.of(100, false, false, 1_000, false, false, false)))),
+                ImmutableMap.of(0, ImmutableList.of(new Subfield("c[1]"), new Subfield("c[2]"))));
+    }
+
+    private static TupleDomainFilter stringIn(boolean nullAllowed, String... values)
+    {
+        if (values.length == 1) {
+            byte[] value = values[0].getBytes(UTF_8);
+            return BytesRange.of(value, false, value, false, nullAllowed);
+        }
+        return BytesValues.of(Arrays.stream(values).map(value -> value.getBytes(UTF_8)).toArray(byte[][]::new), nullAllowed);
+    }
+
     private void testRoundTripNumeric(Iterable<? extends Number> values, TupleDomainFilter filter)
             throws Exception
     {
@@ -203,6 +203,7 @@ public class TestTupleDomainFilter
 
         assertFalse(filter.testNull());
         assertFalse(filter.testBytes(toBytes("apple"), 0, 5));
+        assertFalse(filter.testBytes(toBytes("abd"), 0, 3));
 
         String theBestOfTimes = "It was the best of times, it was the worst of times, it was the age of wisdom, it was the age of foolishness, it was the epoch of belief, it was the epoch of incredulity,...";
         filter = BytesRange.of(null, true, toBytes(theBestOfTimes), false, false);
@@ -267,6 +268,11 @@ public class TestTupleDomainFilter
         assertFalse(filter.testBytes(toBytes("natura"), 0, 5));
         assertFalse(filter.testBytes(toBytes("apple"), 0, 5));
 
+        // values embedded in a larger buffer, e.g. a dictionary; bytes past the value must be ignored
+        byte[] buffer = toBytes("renovituralpha");
+        assertTrue(filter.testBytes(buffer, 0, 9));
+        assertFalse(filter.testBytes(buffer, 0, 10));
+
         byte[][] testValues = new byte[1000][];
         byte[][] filterValues = new byte[(testValues.length / 9) + 1][];
         byte base = 0;
@@ -42,8 +42,14 @@ import org.apache.parquet.io.PrimitiveColumnIO;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.facebook.presto.parquet.ParquetValidationUtils.validateParquet;
 import static com.facebook.presto.parquet.reader.ListColumnReader.calculateCollectionOffsets;
@@ -51,9 +57,11 @@ import static com.facebook.presto.spi.type.StandardTypes.ARRAY;
 import static com.facebook.presto.spi.type.StandardTypes.MAP;
 import static com.facebook.presto.spi.type.StandardTypes.ROW;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
 import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.runAsync;
 
 public class ParquetReader
         implements Closeable
@@ -64,6 +72,8 @@ public class ParquetReader
     private final List<PrimitiveColumnIO> columns;
     private final ParquetDataSource dataSource;
     private final AggregatedMemoryContext systemMemoryContext;
+    private final Optional<Executor> readExecutor;
+    private final long maxConcurrentReadBytes;
 
     private int currentBlock;
     private BlockMetaData currentBlockMetadata;
@@ -74,16 +84,35 @@ public class ParquetReader
     private final PrimitiveColumnReader[] columnReaders;
 
     private AggregatedMemoryContext currentRowGroupMemoryContext;
+    private final Map<Integer, PendingColumnChunkRead> pendingColumnChunkReads = new HashMap<>();
 
     public ParquetReader(MessageColumnIO messageColumnIO,
             List<BlockMetaData> blocks,
             ParquetDataSource dataSource,
             AggregatedMemoryContext systemMemoryContext)
+    {
+        this(messageColumnIO, blocks, dataSource, systemMemoryContext, Optional.empty(), 0);
+    }
+
+    /**
+     * When a read executor is given, the column chunks of each row group are read
+     * concurrently on it, in column order, until {@code maxConcurrentReadBytes} bytes are
+     * in flight. The remaining column chunks are read when they are first used. The data
+     * source must then support concurrent reads.
+     */
+    public ParquetReader(MessageColumnIO messageColumnIO,
+            List<BlockMetaData> blocks,
+            ParquetDataSource dataSource,
+            AggregatedMemoryContext systemMemoryContext,
+            Optional<Executor> readExecutor,
+            long maxConcurrentReadBytes)
     {
         this.blocks = blocks;
         this.dataSource = requireNonNull(dataSource, "dataSource is null");
         this.systemMemoryContext = requireNonNull(systemMemoryContext, "systemMemoryContext is null");
         this.currentRowGroupMemoryContext = systemMemoryContext.newAggregatedMemoryContext();
+        this.readExecutor = requireNonNull(readExecutor, "readExecutor is null");
+        this.maxConcurrentReadBytes = maxConcurrentReadBytes;
         columns = messageColumnIO.getLeaves();
         columnReaders = new PrimitiveColumnReader[columns.size()];
     }
@@ -92,6 +121,7 @@ public class ParquetReader
     public void close()
             throws IOException
     {
+        cancelPendingColumnChunkReads();
         currentRowGroupMemoryContext.close();
         dataSource.close();
     }
@@ -118,6 +148,8 @@ public class ParquetReader
 
     private boolean advanceToNextRowGroup()
     {
+        // the buffers of the reads are accounted in the row group memory context
+        cancelPendingColumnChunkReads();
         currentRowGroupMemoryContext.close();
         currentRowGroupMemoryContext = systemMemoryContext.newAggregatedMemoryContext();
 
@@ -130,9 +162,46 @@ public class ParquetReader
         nextRowInGroup = 0L;
         currentGroupRowCount = currentBlockMetadata.getRowCount();
         initializeColumnReaders();
+        if (readExecutor.isPresent()) {
+            startColumnChunkReads(readExecutor.get());
+        }
         return true;
     }
 
+    private void startColumnChunkReads(Executor executor)
+    {
+        if (columns.size() < 2 || currentGroupRowCount == 0) {
+            return;
+        }
+
+        // on high latency storage, waiting for the column chunks one at a time dominates the read time
+        long concurrentReadBytes = 0;
+        for (PrimitiveColumnIO columnIO : columns) {
+            Optional<ColumnChunkMetaData> metadata = findColumnChunkMetaData(columnIO.getColumnDescriptor());
+            if (!metadata.isPresent()) {
+                continue;
+            }
+            long totalSize = metadata.get().getTotalSize();
+            if (concurrentReadBytes + totalSize > maxConcurrentReadBytes) {
+                break;
+            }
+            concurrentReadBytes += totalSize;
+
+            long startingPosition = metadata.get().getStartingPos();
+            byte[] buffer = allocateBlock(toIntExact(totalSize));
+            pendingColumnChunkReads.put(columnIO.getId(), new PendingColumnChunkRead(buffer, () -> dataSource.readFully(startingPosition, buffer), executor));
+        }
+    }
+
+    private void cancelPendingColumnChunkReads()
+    {
+        // columns that were not read, such as when the reader is closed early, still have reads in flight
+        for (PendingColumnChunkRead pendingRead : pendingColumnChunkReads.values()) {
+            pendingRead.cancel();
+        }
+        pendingColumnChunkReads.clear();
+    }
+
     private ColumnChunk readArray(GroupField field)
             throws IOException
     {
@@ -200,8 +269,15 @@ public class ParquetReader
             ColumnChunkMetaData metadata = getColumnChunkMetaData(columnDescriptor);
             long startingPosition = metadata.getStartingPos();
             int totalSize = toIntExact(metadata.getTotalSize());
-            byte[] buffer = allocateBlock(totalSize);
-            dataSource.readFully(startingPosition, buffer);
+            PendingColumnChunkRead pendingRead = pendingColumnChunkReads.remove(field.getId());
+            byte[] buffer;
+            if (pendingRead != null) {
+                buffer = pendingRead.getBuffer();
+            }
+            else {
+                buffer = allocateBlock(totalSize);
+                dataSource.readFully(startingPosition, buffer);
+            }
             ColumnChunkDescriptor descriptor = new ColumnChunkDescriptor(columnDescriptor, metadata, totalSize);
             ParquetColumnChunk columnChunk = new ParquetColumnChunk(descriptor, buffer, 0);
             columnReader.setPageReader(columnChunk.readAllPages());
@@ -219,13 +295,19 @@ public class ParquetReader
 
     private ColumnChunkMetaData getColumnChunkMetaData(ColumnDescriptor columnDescriptor)
             throws IOException
+    {
+        return findColumnChunkMetaData(columnDescriptor)
+                .orElseThrow(() -> new ParquetCorruptionException("Metadata is missing for column: %s", columnDescriptor));
+    }
+
+    private Optional<ColumnChunkMetaData> findColumnChunkMetaData(ColumnDescriptor columnDescriptor)
     {
         for (ColumnChunkMetaData metadata : currentBlockMetadata.getColumns()) {
             if (metadata.getPath().equals(ColumnPath.get(columnDescriptor.getPath()))) {
-                return metadata;
+                return Optional.of(metadata);
             }
         }
-        throw new ParquetCorruptionException("Metadata is missing for column: %s", columnDescriptor);
+        return Optional.empty();
     }
 
     private void initializeColumnReaders()
@@ -270,4 +352,53 @@ public class ParquetReader
     {
         return systemMemoryContext;
     }
+
+    private static class PendingColumnChunkRead
+    {
+        private final byte[] buffer;
+        // set by the read when it starts, or by cancel when the read has not started yet
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CompletableFuture<?> future;
+
+        public PendingColumnChunkRead(byte[] buffer, Runnable read, Executor executor)
+        {
+            this.buffer = requireNonNull(buffer, "buffer is null");
+            requireNonNull(read, "read is null");
+            this.future = runAsync(() -> {
+                if (started.compareAndSet(false, true)) {
+                    read.run();
+                }
+            }, executor);
+        }
+
+        public byte[] getBuffer()
+        {
+            try {
+                future.join();
+            }
+            catch (CompletionException e) {
+                // rethrow the failure of the read, such as a PrestoException from the file system
+                throwIfUnchecked(e.getCause());
+                throw e;
+            }
+            return buffer;
+        }
+
+        /**
+         * Skips the read if it has not started, or waits for it to finish, so the buffer
+         * is no longer written to when this returns.
+         */
+        public void cancel()
+        {
+            if (started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                future.join();
+            }
+            catch (CompletionException ignored) {
+                // the data is not used
+            }
+        }
+    }
 }
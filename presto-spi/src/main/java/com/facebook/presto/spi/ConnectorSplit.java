@@ -14,6 +14,7 @@
 package com.facebook.presto.spi;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface ConnectorSplit
 {
@@ -22,4 +23,14 @@ public interface ConnectorSplit
     List<HostAddress> getAddresses();
 
     Object getInfo();
+
+    /**
+     * Identifies the data read by this split, for example a file and an offset in it.
+     * Splits with the same key are preferably scheduled on the same node, so that
+     * data cached on the node can be reused. Only used for remotely accessible splits.
+     */
+    default Optional<String> getAffinityKey()
+    {
+        return Optional.empty();
+    }
 }
@@ -17,6 +17,7 @@ import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.ConnectorSplit;
+import com.facebook.presto.spi.predicate.TupleDomain;
 
 import java.util.List;
 
@@ -26,4 +27,20 @@ public interface ConnectorPageSourceProvider
      * @param columns columns that should show up in the output page, in this order
      */
     ConnectorPageSource createPageSource(ConnectorTransactionHandle transactionHandle, ConnectorSession session, ConnectorSplit split, List<ColumnHandle> columns);
+
+    /**
+     * @param columns columns that should show up in the output page, in this order
+     * @param dynamicFilter constraint on the column values collected while the query is running,
+     * e.g. the join keys seen on the build side of a join. Rows that do not satisfy it will be
+     * discarded by the engine, so the connector may skip them, but it is not required to.
+     */
+    default ConnectorPageSource createPageSource(
+            ConnectorTransactionHandle transactionHandle,
+            ConnectorSession session,
+            ConnectorSplit split,
+            List<ColumnHandle> columns,
+            TupleDomain<ColumnHandle> dynamicFilter)
+    {
+        return createPageSource(transactionHandle, session, split, columns);
+    }
 }